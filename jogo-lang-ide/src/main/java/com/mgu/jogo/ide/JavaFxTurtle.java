@@ -1,8 +1,10 @@
 package com.mgu.jogo.ide;
 
 import com.mgu.jogo.interpreter.Turtle;
+import com.mgu.jogo.interpreter.TurtleTransform;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
+import javafx.scene.shape.ArcType;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,7 +36,11 @@ public class JavaFxTurtle implements Turtle {
 
     private boolean pathVisible = true;
 
-    private Color currentColor = Color.WHITE;
+    /**
+     * Color this turtle strokes with, or <code>null</code> to stroke with the current
+     * color of the canvas.
+     */
+    private Color currentColor = null;
 
     private final int maxHeight;
 
@@ -46,14 +52,50 @@ public class JavaFxTurtle implements Turtle {
 
     private double angle = 0;
 
+    private final double resolution;
+
     public JavaFxTurtle(final GraphicsContext gc, final int maxHeight, final int maxWidth) {
+        this(gc, maxHeight, maxWidth, 0.0);
+    }
+
+    /**
+     * @param resolution
+     *      the edge length of a single pixel of the canvas, measured in turtle steps (cf.
+     *      {@link Turtle#resolution()}), or <code>0</code> to draw every command exactly.
+     *      One step of the turtle covers exactly one pixel of the canvas, so
+     *      <code>1</code> lets the interpreter skip drawings that do not leave a visible
+     *      trace, at the expense of exactness.
+     */
+    public JavaFxTurtle(final GraphicsContext gc, final int maxHeight, final int maxWidth, final double resolution) {
         this.gc = gc;
         this.maxHeight = maxHeight;
         this.maxWidth = maxWidth;
+        this.resolution = resolution;
         this.posX = maxWidth / 2;
         this.posY = maxHeight / 2;
     }
 
+    private JavaFxTurtle(final JavaFxTurtle parent) {
+        this.gc = parent.gc;
+        this.maxHeight = parent.maxHeight;
+        this.maxWidth = parent.maxWidth;
+        this.pathVisible = parent.pathVisible;
+        this.currentColor = parent.currentColor;
+        this.posX = parent.posX;
+        this.posY = parent.posY;
+        this.angle = parent.angle;
+        this.resolution = parent.resolution;
+    }
+
+    /**
+     * Turtles share the canvas, so each of them restores its own color before it strokes.
+     */
+    private void stroke() {
+        if (this.currentColor != null) {
+            this.gc.setStroke(this.currentColor);
+        }
+    }
+
     @Override
     public void clear() {
         gc.setFill(Color.WHITE);
@@ -93,6 +135,26 @@ public class JavaFxTurtle implements Turtle {
 
     @Override
     public void right(int degrees) {
+        right((double) degrees);
+    }
+
+    @Override
+    public void back(int steps) {
+        forward(-steps);
+    }
+
+    @Override
+    public void forward(int steps) {
+        forward((double) steps);
+    }
+
+    @Override
+    public void left(double degrees) {
+        right(-degrees);
+    }
+
+    @Override
+    public void right(double degrees) {
         this.angle += degrees;
         if (this.angle > 360) {
             this.angle -= 360;
@@ -100,12 +162,12 @@ public class JavaFxTurtle implements Turtle {
     }
 
     @Override
-    public void back(int steps) {
+    public void back(double steps) {
         forward(-steps);
     }
 
     @Override
-    public void forward(int steps) {
+    public void forward(double steps) {
         final double oldX = this.posX;
         final double oldY = this.posY;
         this.posX += Math.cos(this.angle / 180.0 * Math.PI) * steps;
@@ -114,13 +176,54 @@ public class JavaFxTurtle implements Turtle {
         // TODO: Boundary checks
 
         if (this.pathVisible) {
+            stroke();
             this.gc.strokeLine(oldX, oldY, this.posX, this.posY);
         }
     }
 
+    @Override
+    public void arc(double radius, double degrees) {
+        if (radius <= 0 || degrees == 0) {
+            Turtle.super.arc(radius, degrees);
+            return;
+        }
+        // the canvas measures angles counterclockwise, whereas the turtle turns clockwise
+        final double side = Math.signum(degrees) * 90.0;
+        final double centerX = this.posX + Math.cos((this.angle + side) / 180.0 * Math.PI) * radius;
+        final double centerY = this.posY + Math.sin((this.angle + side) / 180.0 * Math.PI) * radius;
+        final double startAngle = this.angle + side + 180.0;
+        if (this.pathVisible) {
+            final double extent = Math.max(-360.0, Math.min(360.0, -degrees));
+            stroke();
+            this.gc.strokeArc(centerX - radius, centerY - radius, 2 * radius, 2 * radius, -startAngle, extent, ArcType.OPEN);
+        }
+        this.posX = centerX + Math.cos((startAngle + degrees) / 180.0 * Math.PI) * radius;
+        this.posY = centerY + Math.sin((startAngle + degrees) / 180.0 * Math.PI) * radius;
+        right(degrees);
+    }
+
     @Override
     public void move(int positionX, int positionY) {
         this.posX = positionX;
         this.posY = positionY;
     }
+
+    @Override
+    public boolean jump(final TurtleTransform transform) {
+        final double radians = this.angle / 180.0 * Math.PI;
+        this.posX += Math.cos(radians) * transform.translationX() - Math.sin(radians) * transform.translationY();
+        this.posY += Math.sin(radians) * transform.translationX() + Math.cos(radians) * transform.translationY();
+        right(transform.rotation());
+        return true;
+    }
+
+    @Override
+    public Turtle hatch() {
+        return new JavaFxTurtle(this);
+    }
+
+    @Override
+    public double resolution() {
+        return this.resolution;
+    }
 }
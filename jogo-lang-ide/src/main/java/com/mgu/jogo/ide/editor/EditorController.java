@@ -2,7 +2,7 @@ package com.mgu.jogo.ide.editor;
 
 import com.mgu.jogo.ide.JavaFxTurtle;
 import com.mgu.jogo.ide.JogoIo;
-import com.mgu.jogo.interpreter.Interpreter;
+import com.mgu.jogo.interpreter.IncrementalInterpreter;
 import com.mgu.jogo.interpreter.Turtle;
 import javafx.application.Platform;
 import javafx.concurrent.Task;
@@ -33,7 +33,7 @@ import java.util.concurrent.Executors;
 
 public class EditorController implements Initializable {
 
-    private final Interpreter interpreter = new Interpreter();
+    private final IncrementalInterpreter interpreter = new IncrementalInterpreter();
 
     private final ExecutorService executor = Executors.newSingleThreadExecutor();
 
@@ -67,7 +67,10 @@ public class EditorController implements Initializable {
     }
 
     public void onLoadFileClicked(final ActionEvent actionEvent) {
-        JogoIo.loadDialog().ifPresent(file -> this.codeArea.replaceText(JogoIo.load(file)));
+        JogoIo.loadDialog().ifPresent(file -> {
+            this.interpreter.reset();
+            this.codeArea.replaceText(JogoIo.load(file));
+        });
     }
 
     public void onSaveFileClicked(final ActionEvent actionEvent) {
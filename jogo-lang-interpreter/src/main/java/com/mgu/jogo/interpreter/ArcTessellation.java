@@ -0,0 +1,130 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Approximates arcs by chords on turtles that are unable to draw true curves (cf.
+ * {@link Turtle#arc(double, double)}). The chords deviate from the arc by no more than the
+ * resolution of the turtle, or span one degree each if the resolution is <code>0</code>.
+ *
+ * Turtles that only implement the <code>int</code> variants of the turtle commands round
+ * every fractional turn and movement, so a sequence of short chords would neither move them
+ * nor turn them by the right amount. For such turtles, every chord is issued as an integral
+ * turn and an integral movement towards the end point of the chord, measured from the
+ * position the rounded commands have actually led to. Hence, rounding errors do not
+ * accumulate, and a final integral turn leaves the turtle with the rounded heading of the
+ * end of the arc.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class ArcTessellation {
+
+    /**
+     * Tells whether a class of turtles rounds fractional turns and movements, i.e. whether
+     * it inherits the <code>double</code> variants of <code>right</code> or
+     * <code>forward</code> from <code>Turtle</code>.
+     */
+    private static final ClassValue<Boolean> INTEGRAL_TURTLES = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            try {
+                return type.getMethod("right", double.class).isDefault()
+                        || type.getMethod("forward", double.class).isDefault();
+            } catch (NoSuchMethodException e) {
+                return Boolean.TRUE;
+            }
+        }
+    };
+
+    private ArcTessellation() {
+    }
+
+    /**
+     * Moves the given turtle along the given arc by issuing chords.
+     *
+     * @param turtle
+     *      the turtle to move
+     * @param radius
+     *      radius of the arc in steps
+     * @param degrees
+     *      degrees the turtle turns to the right while it moves along the arc
+     */
+    static void tessellate(final Turtle turtle, final double radius, final double degrees) {
+        final double sweep = Math.abs(degrees);
+        if (sweep == 0.0) {
+            return;
+        }
+        final double resolution = turtle.resolution();
+        final double maxDegreesPerChord = resolution <= 0.0
+                ? 1.0
+                : resolution >= Math.abs(radius) ? 90.0 : Math.min(90.0, 2.0 * Math.toDegrees(Math.acos(1.0 - resolution / Math.abs(radius))));
+        final int chords = (int) Math.ceil(sweep / maxDegreesPerChord);
+        if (INTEGRAL_TURTLES.get(turtle.getClass())) {
+            tessellateIntegral(turtle, radius, degrees, chords);
+        } else {
+            tessellateFractional(turtle, radius, degrees, chords);
+        }
+    }
+
+    private static void tessellateFractional(final Turtle turtle, final double radius, final double degrees, final int chords) {
+        final double turn = degrees / chords;
+        final double chord = 2.0 * radius * Math.sin(Math.toRadians(Math.abs(degrees) / chords) / 2.0);
+        turtle.right(turn / 2.0);
+        turtle.forward(chord);
+        for (int i = 1; i < chords; i++) {
+            turtle.right(turn);
+            turtle.forward(chord);
+        }
+        turtle.right(turn / 2.0);
+    }
+
+    private static void tessellateIntegral(final Turtle turtle, final double radius, final double degrees, final int chords) {
+        // a negative radius moves the turtle backwards along the arc
+        final int direction = radius < 0.0 ? -1 : 1;
+        int heading = 0;
+        double x = 0.0;
+        double y = 0.0;
+        for (int i = 1; i <= chords; i++) {
+            final TurtleTransform target = TurtleTransform.arc(radius, degrees * i / chords);
+            final double dx = direction * (target.translationX() - x);
+            final double dy = direction * (target.translationY() - y);
+            final int steps = (int) Math.round(Math.hypot(dx, dy));
+            if (steps == 0) {
+                continue;
+            }
+            final int turn = (int) Math.round(normalize(Math.toDegrees(Math.atan2(dy, dx)) - heading));
+            turn(turtle, turn);
+            heading += turn;
+            if (direction > 0) {
+                turtle.forward(steps);
+            } else {
+                turtle.back(steps);
+            }
+            final double radians = Math.toRadians(heading);
+            x += direction * steps * Math.cos(radians);
+            y += direction * steps * Math.sin(radians);
+        }
+        turn(turtle, (int) Math.round(degrees) - heading);
+    }
+
+    /**
+     * @return
+     *      Yields the given angle reduced to the range from <code>-180</code> (exclusive)
+     *      to <code>180</code> degrees (inclusive)
+     */
+    private static double normalize(final double degrees) {
+        final double reduced = degrees % 360.0;
+        if (reduced > 180.0) {
+            return reduced - 360.0;
+        } else if (reduced <= -180.0) {
+            return reduced + 360.0;
+        }
+        return reduced;
+    }
+
+    private static void turn(final Turtle turtle, final int degrees) {
+        if (degrees > 0) {
+            turtle.right(degrees);
+        } else if (degrees < 0) {
+            turtle.left(-degrees);
+        }
+    }
+}
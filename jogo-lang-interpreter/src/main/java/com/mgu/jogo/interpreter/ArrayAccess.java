@@ -0,0 +1,59 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ArrayNode;
+import com.mgu.jogo.parser.ast.ItemNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+
+/**
+ * Creates, reads and updates arrays. Arrays are plain <code>int[]</code>s that are referenced
+ * by <code>Slot</code>s, so accessing an element neither boxes it nor searches for it. Indices
+ * are one-based, as in LOGO, and every access is checked against the bounds of the array.
+ * Decimals are truncated when they are stored into an array.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class ArrayAccess {
+
+    /**
+     * Evaluates the creation of an array into the given register.
+     */
+    static void create(final ArrayNode node, final Environment environment, final Slot result) {
+        ExpressionResolver.evaluate(node.length(), environment, result);
+        final int length = result.intValue();
+        if (length < 0) {
+            throw new InterpreterException("Unable to create an array of negative length " + length + ".");
+        }
+        result.setArray(new int[length]);
+    }
+
+    /**
+     * Evaluates the read access to an element of an array into the given register.
+     */
+    static void item(final ItemNode node, final Environment environment, final Slot result) {
+        ExpressionResolver.evaluate(node.index(), environment, result);
+        final int index = result.intValue();
+        ExpressionResolver.evaluate(node.array(), environment, result);
+        final int[] array = result.arrayValue();
+        result.setInt(array[offset(array, index)]);
+    }
+
+    /**
+     * Executes the update of an element of an array.
+     */
+    static void setItem(final SetItemNode node, final Environment environment) {
+        final Slot register = environment.register();
+        ExpressionResolver.evaluate(node.index(), environment, register);
+        final int index = register.intValue();
+        ExpressionResolver.evaluate(node.array(), environment, register);
+        final int[] array = register.arrayValue();
+        ExpressionResolver.evaluate(node.value(), environment, register);
+        array[offset(array, index)] = register.intValue();
+    }
+
+    private static int offset(final int[] array, final int index) {
+        if (index < 1 || index > array.length) {
+            throw new InterpreterException("Index " + index + " is out of bounds of an array of length " + array.length + ".");
+        }
+        return index - 1;
+    }
+}
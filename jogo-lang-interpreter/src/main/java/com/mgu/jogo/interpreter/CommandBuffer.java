@@ -0,0 +1,86 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free buffer in front of the turtles that draw what hatched turtles (cf.
+ * <code>HatchedTurtle</code>) issue. Hatched turtles do not hand over their commands one
+ * by one, but in segments of many commands. Any number of threads append segments
+ * concurrently, whereas a single thread at a time, the one that runs the program, drains
+ * them into the turtles that execute them.
+ *
+ * Appending a segment never blocks: it swaps the segment into the tail of a linked list
+ * using a single atomic exchange and links its predecessor to it afterwards. Until that
+ * link has been made, the drain stops short of the segment and picks it up next time.
+ * Segments of the same turtle are drained in the order the turtle has appended them;
+ * segments of different turtles interleave in an unspecified order.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class CommandBuffer {
+
+    private final AtomicReference<Segment> tail;
+
+    /**
+     * Last segment that has been drained. Accessed by the draining thread only.
+     */
+    private Segment head;
+
+    CommandBuffer() {
+        this.head = new Segment(null, new Object[0], 0);
+        this.tail = new AtomicReference<>(this.head);
+    }
+
+    /**
+     * Appends the given items to this buffer. May be called by any thread.
+     *
+     * @param source
+     *      the turtle that has issued the items
+     * @param items
+     *      the commands of the turtle and the turtles it has hatched in between, in the
+     *      order the turtle has issued them; the buffer takes ownership of the array
+     * @param length
+     *      number of items in use
+     */
+    void append(final HatchedTurtle source, final Object[] items, final int length) {
+        final Segment segment = new Segment(source, items, length);
+        final Segment predecessor = this.tail.getAndSet(segment);
+        predecessor.next = segment;
+    }
+
+    /**
+     * Hands over all segments that have been linked into this buffer to the turtles that
+     * have issued them. Must not be called by more than one thread at a time.
+     *
+     * @return
+     *      Yields the number of segments that have been drained
+     */
+    int drain() {
+        int drained = 0;
+        Segment next = this.head.next;
+        while (next != null) {
+            next.source.drain(next.items, next.length);
+            this.head = next;
+            next = next.next;
+            drained++;
+        }
+        return drained;
+    }
+
+    private static final class Segment {
+
+        private final HatchedTurtle source;
+
+        private final Object[] items;
+
+        private final int length;
+
+        private volatile Segment next;
+
+        private Segment(final HatchedTurtle source, final Object[] items, final int length) {
+            this.source = source;
+            this.items = items;
+            this.length = length;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * <code>Turtle</code> that counts the commands it forwards to another <code>Turtle</code>.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class CommandCountingTurtle implements Turtle {
+
+    private final Turtle delegate;
+
+    private int count = 0;
+
+    /**
+     * @param delegate
+     *      the turtle that executes the commands
+     */
+    CommandCountingTurtle(final Turtle delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return
+     *      Yields the number of commands that have been forwarded so far
+     */
+    int count() {
+        return this.count;
+    }
+
+    @Override
+    public void clear() {
+        this.count++;
+        this.delegate.clear();
+    }
+
+    @Override
+    public void hide() {
+        this.count++;
+        this.delegate.hide();
+    }
+
+    @Override
+    public void show() {
+        this.count++;
+        this.delegate.show();
+    }
+
+    @Override
+    public void penUp() {
+        this.count++;
+        this.delegate.penUp();
+    }
+
+    @Override
+    public void penDown() {
+        this.count++;
+        this.delegate.penDown();
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        this.count++;
+        this.delegate.setPenColor(penColor);
+    }
+
+    @Override
+    public void left(final int degrees) {
+        this.count++;
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final int degrees) {
+        this.count++;
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final int steps) {
+        this.count++;
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        this.count++;
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        this.count++;
+        this.delegate.move(positionX, positionY);
+    }
+
+    @Override
+    public void left(final double degrees) {
+        this.count++;
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final double degrees) {
+        this.count++;
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final double steps) {
+        this.count++;
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        this.count++;
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        this.count++;
+        this.delegate.arc(radius, degrees);
+    }
+
+    @Override
+    public double resolution() {
+        return this.delegate.resolution();
+    }
+}
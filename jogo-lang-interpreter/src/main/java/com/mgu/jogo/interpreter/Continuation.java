@@ -0,0 +1,150 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Explicit representation of the remainder of a program execution that has been started
+ * by the <code>TrampolinedInterpreter</code>. The whole state of the execution is held by
+ * the heap-allocated frames of this continuation, so execution can be suspended after any
+ * statement and resumed later on, possibly on a different thread.
+ *
+ * Hosts pull execution forward in slices using {@link #step(int)}. This allows a user
+ * interface to interleave execution with rendering or a server to multiplex many runs on
+ * a few threads. Instances of this class are not thread-safe, but may be handed over
+ * between threads in between steps if the hand-over is properly synchronized.
+ *
+ * Turtles that the program hatches run on their own, independent of steps. Every step draws
+ * what they have issued in the meantime, and the step that terminates the program waits
+ * for all of them to finish (cf. <code>Hatchery</code>). Their commands do not count towards
+ * the commands of a step.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class Continuation {
+
+    private final TrampolinedInterpreter interpreter;
+
+    private final FrameStack frames;
+
+    private final Hatchery hatchery;
+
+    private final ReporterHoisting reporterHoisting = new ReporterHoisting();
+
+    private long issuedCommands = 0;
+
+    private boolean failed = false;
+
+    Continuation(final TrampolinedInterpreter interpreter, final FrameStack frames, final Hatchery hatchery) {
+        this.interpreter = interpreter;
+        this.frames = frames;
+        this.hatchery = hatchery;
+    }
+
+    /**
+     * Resumes execution until either the program has terminated or it has issued
+     * <code>maxTurtleCommands</code> turtle commands during this step.
+     *
+     * @param maxTurtleCommands
+     *      maximum number of turtle commands to issue during this step
+     * @return
+     *      Yields the number of turtle commands that have been issued during this step
+     * @throws InterpreterException
+     *      if the program fails, after which this continuation is done
+     */
+    public int step(final int maxTurtleCommands) {
+        return step(maxTurtleCommands, Long.MAX_VALUE);
+    }
+
+    /**
+     * Resumes execution until either the program has terminated, it has issued
+     * <code>maxTurtleCommands</code> turtle commands or it has executed <code>maxStatements</code>
+     * statements during this step. Bounding the number of statements guarantees that a
+     * step returns in time even if the program loops without issuing turtle commands.
+     *
+     * @param maxTurtleCommands
+     *      maximum number of turtle commands to issue during this step
+     * @param maxStatements
+     *      maximum number of statements to execute during this step
+     * @return
+     *      Yields the number of turtle commands that have been issued during this step
+     * @throws InterpreterException
+     *      if the program fails, after which this continuation is done
+     */
+    public int step(final int maxTurtleCommands, final long maxStatements) {
+        if (maxTurtleCommands < 1 || maxStatements < 1) {
+            throw new IllegalArgumentException("A step must allow for at least one turtle command and one statement.");
+        }
+        int commands = 0;
+        long statements = 0;
+        try {
+            while (!this.frames.isEmpty() && commands < maxTurtleCommands && statements < maxStatements) {
+                final Frame frame = this.frames.peek();
+                if (frame.hasNext()) {
+                    commands += this.interpreter.execute(frame.next(), frame.environment(), this.frames, this.reporterHoisting);
+                    statements++;
+                } else {
+                    popExhaustedFrame();
+                }
+            }
+            while (!this.frames.isEmpty() && !this.frames.peek().hasNext()) {
+                popExhaustedFrame();
+            }
+        } catch (RuntimeException e) {
+            this.failed = true;
+            this.hatchery.abandon();
+            throw e;
+        } finally {
+            this.issuedCommands += commands;
+        }
+        awaitHatchedTurtles();
+        return commands;
+    }
+
+    private void popExhaustedFrame() {
+        final Frame frame = this.frames.pop();
+        if (frame.isReporter()) {
+            // a function called within an expression has run out of statements without an output
+            throw new InterpreterException("Function " + frame.functionName() + " did not output a value.");
+        }
+    }
+
+    private void awaitHatchedTurtles() {
+        if (!this.frames.isEmpty()) {
+            this.hatchery.drain();
+            return;
+        }
+        try {
+            this.hatchery.join();
+        } catch (RuntimeException e) {
+            this.failed = true;
+            throw e;
+        }
+    }
+
+    /**
+     * Resumes execution until the program has terminated.
+     *
+     * @throws InterpreterException
+     *      if the program fails
+     */
+    public void resumeToCompletion() {
+        while (!isDone()) {
+            step(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the program has terminated or failed,
+     *      <code>false</code> if there are statements left to execute
+     */
+    public boolean isDone() {
+        return this.failed || this.frames.isEmpty();
+    }
+
+    /**
+     * @return
+     *      Yields the total number of turtle commands the program has issued so far
+     */
+    public long issuedCommands() {
+        return this.issuedCommands;
+    }
+}
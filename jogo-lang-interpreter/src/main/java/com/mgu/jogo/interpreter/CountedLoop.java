@@ -0,0 +1,139 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ForNode;
+
+/**
+ * Iteration space of a <code>for</code> loop. Start, end and step width of the loop are
+ * evaluated once when the loop is entered. The loop variable is bound to the environment
+ * of the loop and the loop writes its value directly into the variable's <code>Slot</code>,
+ * bypassing the variable lookup altogether, unless the environment of the loop is shared
+ * with hatched turtles (cf. <code>Environment</code>), which rebinds the variable instead. The value of the <code>k</code>-th iteration
+ * is computed as <code>start + k * step</code>, so loops with decimal step widths do not
+ * accumulate rounding errors.
+ *
+ * If no step width is given, the loop counts by <code>1</code> towards its end, which
+ * means that it counts down if its end is smaller than its start.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class CountedLoop {
+
+    static final double EPSILON = 1e-9;
+
+    private static final CountedLoop EMPTY = new CountedLoop(null, null, null, false, 0, 0, 0.0, 0.0, 0);
+
+    private final Environment environment;
+
+    private final String variableName;
+
+    private final Slot variable;
+
+    private final boolean decimal;
+
+    private final int start;
+
+    private final int step;
+
+    private final double decimalStart;
+
+    private final double decimalStep;
+
+    private final int iterations;
+
+    private CountedLoop(final Environment environment,
+                        final String variableName,
+                        final Slot variable,
+                        final boolean decimal,
+                        final int start,
+                        final int step,
+                        final double decimalStart,
+                        final double decimalStep,
+                        final int iterations) {
+        this.environment = environment;
+        this.variableName = variableName;
+        this.variable = variable;
+        this.decimal = decimal;
+        this.start = start;
+        this.step = step;
+        this.decimalStart = decimalStart;
+        this.decimalStep = decimalStep;
+        this.iterations = iterations;
+    }
+
+    /**
+     * Enters the given loop. The loop variable is bound to the given environment,
+     * unless the loop does not iterate at all.
+     *
+     * @param node
+     *      the loop to enter
+     * @param environment
+     *      execution context of the loop
+     * @return
+     *      Yields the iteration space of the loop
+     * @throws InterpreterException
+     *      if the step width is zero or the loop iterates more than
+     *      <code>Integer.MAX_VALUE</code> times
+     */
+    static CountedLoop enter(final ForNode node, final Environment environment) {
+        final Slot register = environment.register();
+        ExpressionResolver.evaluate(node.start(), environment, register);
+        final boolean decimalStart = register.isDouble();
+        final int start = register.intValue();
+        final double startValue = register.doubleValue();
+        ExpressionResolver.evaluate(node.end(), environment, register);
+        final boolean decimalEnd = register.isDouble();
+        final double endValue = register.doubleValue();
+        boolean decimal = decimalStart || decimalEnd;
+        double stepValue = endValue < startValue ? -1.0 : 1.0;
+        if (node.step() != null) {
+            ExpressionResolver.evaluate(node.step(), environment, register);
+            decimal = decimal || register.isDouble();
+            stepValue = register.doubleValue();
+        }
+        if (stepValue == 0.0) {
+            throw new InterpreterException("The step width of a for loop must not be zero.");
+        }
+
+        final double span = (endValue - startValue) / stepValue;
+        if (span < -EPSILON) {
+            return EMPTY;
+        }
+        final long iterations = decimal ? (long) Math.floor(span + EPSILON) + 1 : (long) (endValue - startValue) / (long) stepValue + 1;
+        if (iterations > Integer.MAX_VALUE) {
+            throw new InterpreterException("A for loop must not iterate more than " + Integer.MAX_VALUE + " times.");
+        }
+
+        environment.install(node.variable(), decimal ? Slot.ofDouble(startValue) : Slot.ofInt(start));
+        final Slot variable = environment.lookupLocalSlot(node.variable());
+        return new CountedLoop(environment, node.variable(), variable, decimal, start, (int) stepValue, startValue, stepValue, (int) iterations);
+    }
+
+    /**
+     * @return
+     *      Yields the number of iterations of the loop
+     */
+    int iterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Assigns the value of the given iteration to the loop variable.
+     *
+     * @param iteration
+     *      zero-based number of the iteration
+     */
+    void assign(final int iteration) {
+        if (this.iterations == 0) {
+            return;
+        }
+        if (this.environment.isShared()) {
+            this.environment.install(this.variableName, this.decimal
+                    ? Slot.ofDouble(this.decimalStart + iteration * this.decimalStep)
+                    : Slot.ofInt(this.start + iteration * this.step));
+        } else if (this.decimal) {
+            this.variable.setDouble(this.decimalStart + iteration * this.decimalStep);
+        } else {
+            this.variable.setInt(this.start + iteration * this.step);
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package com.mgu.jogo.interpreter;
 
+import com.mgu.jogo.parser.ast.ArgumentDefinitionNode;
 import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
 
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
 
 /**
  * Hierarchical data structure which represents the current execution context. Provides
@@ -11,20 +16,77 @@ import java.util.Map;
  * (until it hits the so called global space, which is the root environment any interpreter
  * starts off with).
  *
- * The typing system only allows integer-based variables.
+ * Variables hold values of any <code>ValueType</code>. Every variable is stored in a
+ * <code>Slot</code> of its own, which is updated in place on reassignment. All environments
+ * that descend from the same root share a single <code>Slot</code> as register that
+ * expressions are evaluated into, so evaluating expressions does not allocate. They also
+ * share the <code>Slot</code> that holds the iteration number of the innermost running
+ * <code>repeat</code> loop, which <code>repcount</code> reports, and the generator that
+ * <code>random</code> draws from (cf. <code>RandomNumbers</code>). Child environments inherit
+ * the <code>ReporterInvoker</code> of their parent, which evaluates calls of user-defined
+ * functions within expressions on behalf of the interpreter that runs the program.
+ *
+ * An <code>Environment</code> can be frozen, after which its bindings are immutable. The
+ * frozen environment of a <code>Prelude</code> serves as the parent of the root environments
+ * of many runs at once, which share it without copying it.
+ *
+ * Turtles that a program hatches (cf. <code>Hatchery</code>) run within child environments
+ * on threads of their own. Hatching a turtle shares the hatching environment and all of its
+ * ancestors: their bindings move to concurrent maps, and their variables are no longer
+ * updated in place, but rebound to a fresh <code>Slot</code> on every assignment. Hence,
+ * a shared environment is written by the thread that owns it only, whereas other threads
+ * read its slots without locking and never observe a value that is half-way written. All
+ * environments of a run share the hatchery of the run.
  *
  * @author Markus Günther <markus.guenther@gmail.com>
  */
 public class Environment {
 
-    private final Map<String, FunctionDefinitionNode> userDefinedFunctions = new HashMap<>();
+    /**
+     * Value of <code>repcount</code> outside of any <code>repeat</code> loop.
+     */
+    static final int NO_REPEAT = -1;
+
+    private Map<String, FunctionDefinitionNode> userDefinedFunctions = new HashMap<>();
+
+    private Map<String, Slot> variables = new HashMap<>();
 
-    private final Map<String, Integer> variables = new HashMap<>();
+    private final Slot register;
+
+    private final Slot repCount;
+
+    private final RandomNumbers randomNumbers;
 
     private final Turtle turtle;
 
+    private final Hatchery hatchery;
+
+    /**
+     * <code>true</code> if this environment belongs to a hatched turtle.
+     */
+    private final boolean hatched;
+
     private Environment parent = null;
 
+    private boolean frozen = false;
+
+    private boolean shared = false;
+
+    private ReporterInvoker reporterInvoker;
+
+    /**
+     * Tells whether the program that runs in this environment has been cancelled, or
+     * <code>null</code> if it cannot be cancelled.
+     */
+    private BooleanSupplier cancellation;
+
+    /**
+     * Nearest ancestor that had function definitions bound to it at the time this
+     * <code>Environment</code> was created. Function lookups skip all environments
+     * in between, which keeps them cheap even for deeply nested function invocations.
+     */
+    private final Environment functionScope;
+
     /**
      * Constructor which builds the root environment (no parent).
      *
@@ -32,7 +94,25 @@ public class Environment {
      *      Instance of <code>Turtle</code> which is the target for built-in Turtle operations
      */
     public Environment(final Turtle turtle) {
-        this(turtle, null);
+        this(turtle, (Environment) null);
+    }
+
+    /**
+     * Constructor which builds the root environment of a run that draws random numbers
+     * as configured by the given options. If the options carry a <code>Prelude</code>,
+     * the root environment is attached to the frozen environment of the prelude, so the
+     * run is able to call the procedures of the prelude.
+     *
+     * @param turtle
+     *      Instance of <code>Turtle</code> which is the target for built-in Turtle operations
+     * @param options
+     *      options of the run; if they carry a random seed, the run draws the same
+     *      sequence of random numbers every time
+     */
+    public Environment(final Turtle turtle, final InterpreterOptions options) {
+        this(turtle, options.hasPrelude() ? options.prelude().environment() : null, new Slot(), Slot.ofInt(NO_REPEAT),
+                options.isSeedingRandomNumbers() ? new RandomNumbers(options.randomSeed()) : new RandomNumbers(),
+                new Hatchery(options), false);
     }
 
     /**
@@ -44,8 +124,35 @@ public class Environment {
      *      The parent environment for this <code>Environment</code>
      */
     public Environment(final Turtle turtle, final Environment parent) {
+        this(turtle, parent,
+                parent == null ? new Slot() : parent.register,
+                parent == null ? Slot.ofInt(NO_REPEAT) : parent.repCount,
+                parent == null ? new RandomNumbers() : parent.randomNumbers,
+                parent == null ? new Hatchery(InterpreterOptions.defaults()) : parent.hatchery,
+                parent != null && parent.hatched);
+    }
+
+    private Environment(final Turtle turtle,
+                        final Environment parent,
+                        final Slot register,
+                        final Slot repCount,
+                        final RandomNumbers randomNumbers,
+                        final Hatchery hatchery,
+                        final boolean hatched) {
         this.turtle = turtle;
         this.parent = parent;
+        this.register = register;
+        this.repCount = repCount;
+        this.randomNumbers = randomNumbers;
+        this.hatchery = hatchery;
+        this.hatched = hatched;
+        this.reporterInvoker = parent == null ? null : parent.reporterInvoker;
+        this.cancellation = parent == null ? null : parent.cancellation;
+        if (parent == null) {
+            this.functionScope = null;
+        } else {
+            this.functionScope = parent.userDefinedFunctions.isEmpty() ? parent.functionScope : parent;
+        }
     }
 
     /**
@@ -60,7 +167,8 @@ public class Environment {
      * Looks up a function by its function name. The lookup mechanism works recursively,
      * meaning that the lookup will walk consecutively along the hierarchy until it hits
      * the global space (root environment) if the function is not defined in the current,
-     * local environment.
+     * local environment. Environments that did not define any functions at the time
+     * their descendants were created are skipped.
      *
      * @param functionName
      *      <code>String</code> referring to a function
@@ -71,15 +179,15 @@ public class Environment {
      *      of the function
      */
     public FunctionDefinitionNode lookupFunction(final String functionName) {
-        if (isLocalFunction(functionName)) {
-            return this.userDefinedFunctions.get(functionName);
-        } else {
-            if (this.parent != null) {
-                return this.parent.lookupFunction(functionName);
-            } else {
-                throw new InterpreterException("Function " + functionName + " is not defined.");
+        Environment environment = this;
+        while (environment != null) {
+            final FunctionDefinitionNode function = environment.userDefinedFunctions.get(functionName);
+            if (function != null) {
+                return function;
             }
+            environment = environment.functionScope;
         }
+        throw new InterpreterException("Function " + functionName + " is not defined.");
     }
 
     private boolean isLocalFunction(final String functionName) {
@@ -101,19 +209,42 @@ public class Environment {
      *      to its current environment
      */
     public Integer lookupVariable(final String variableName) {
-        if (isLocalVariable(variableName)) {
-            return this.variables.get(variableName);
-        } else {
-            if (this.parent != null) {
-                return this.parent.lookupVariable(variableName);
-            } else {
-                throw new InterpreterException("Variable " + variableName + " is not defined.");
+        return lookupSlot(variableName).intValue();
+    }
+
+    /**
+     * Looks up the <code>Slot</code> that holds the value of the given variable. The lookup
+     * mechanism works just like {@link #lookupVariable(String)}, but yields the value with
+     * its actual <code>ValueType</code> and without boxing it.
+     *
+     * @param variableName
+     *      <code>String</code> referring to a variable
+     * @throws InterpreterException
+     *      in case there is no value binding for the given variable name
+     * @return
+     *      the <code>Slot</code> bound to the variable with respect to its current environment
+     */
+    public Slot lookupSlot(final String variableName) {
+        Environment environment = this;
+        while (environment != null) {
+            final Slot slot = environment.variables.get(variableName);
+            if (slot != null) {
+                return slot;
             }
+            environment = environment.parent;
         }
+        throw new InterpreterException("Variable " + variableName + " is not defined.");
     }
 
-    private boolean isLocalVariable(final String variableName) {
-        return this.variables.containsKey(variableName);
+    /**
+     * @param variableName
+     *      <code>String</code> referring to a variable
+     * @return
+     *      Yields the <code>Slot</code> of the given variable if it is bound to this
+     *      <code>Environment</code> directly, <code>null</code> otherwise
+     */
+    Slot lookupLocalSlot(final String variableName) {
+        return this.variables.get(variableName);
     }
 
     /**
@@ -123,12 +254,13 @@ public class Environment {
      * @param function
      *      AST representation of the function that ought to be defined within the
      *      current environment
-     * @throw InterpreterException
+     * @throws InterpreterException
      *      if a function with the same function name is already bound to the
      *      current environment
      */
     public void install(final FunctionDefinitionNode function) {
         final String functionName = function.functionName();
+        checkNotFrozen(functionName);
         if (isLocalFunction(functionName)) {
             throw new InterpreterException("Unable to override already existing function definition for function " + functionName);
         }
@@ -146,7 +278,151 @@ public class Environment {
      *      respect to the current environment
      */
     public void install(final String variableName, final Integer variableValue) {
-        this.variables.put(variableName, variableValue);
+        checkNotFrozen(variableName);
+        final Slot slot = this.variables.get(variableName);
+        if (slot == null || this.shared) {
+            this.variables.put(variableName, Slot.ofInt(variableValue));
+        } else {
+            slot.setInt(variableValue);
+        }
+    }
+
+    /**
+     * Binds a copy of the given value to the given variable name with respect to the
+     * current environment. If the variable is already bound to the current environment,
+     * its <code>Slot</code> is updated in place, unless the environment is shared.
+     *
+     * @param variableName
+     *      Name of the variable
+     * @param variableValue
+     *      value associated with this variable with respect to the current environment
+     */
+    public void install(final String variableName, final Slot variableValue) {
+        checkNotFrozen(variableName);
+        final Slot slot = this.variables.get(variableName);
+        if (slot == null || this.shared) {
+            this.variables.put(variableName, variableValue.copy());
+        } else {
+            slot.set(variableValue);
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the register that expressions are evaluated into within this
+     *      <code>Environment</code>
+     */
+    Slot register() {
+        return this.register;
+    }
+
+    /**
+     * @return
+     *      Yields the <code>Slot</code> that holds the iteration number of the innermost
+     *      running <code>repeat</code> loop or {@link #NO_REPEAT}
+     */
+    Slot repCount() {
+        return this.repCount;
+    }
+
+    /**
+     * @return
+     *      Yields the generator that <code>random</code> draws from within this
+     *      <code>Environment</code>
+     */
+    RandomNumbers randomNumbers() {
+        return this.randomNumbers;
+    }
+
+    /**
+     * @return
+     *      Yields the hatchery of the run this <code>Environment</code> belongs to
+     */
+    Hatchery hatchery() {
+        return this.hatchery;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if this <code>Environment</code> belongs to a hatched turtle,
+     *      <code>false</code> if it belongs to the turtle that runs the program
+     */
+    boolean isHatched() {
+        return this.hatched;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if other threads may read the bindings of this <code>Environment</code>,
+     *      in which case its variables must not be updated in place
+     */
+    boolean isShared() {
+        return this.shared;
+    }
+
+    /**
+     * @param reporterInvoker
+     *      the <code>ReporterInvoker</code> that evaluates calls of user-defined functions
+     *      within expressions in this <code>Environment</code> and in the child environments
+     *      created from now on
+     */
+    void useReporterInvoker(final ReporterInvoker reporterInvoker) {
+        this.reporterInvoker = reporterInvoker;
+    }
+
+    /**
+     * @throws InterpreterException
+     *      if no <code>ReporterInvoker</code> has been assigned to this <code>Environment</code>
+     * @return
+     *      Yields the <code>ReporterInvoker</code> of this <code>Environment</code>
+     */
+    ReporterInvoker reporterInvoker() {
+        if (this.reporterInvoker == null) {
+            throw new InterpreterException("Unable to call a function within an expression, since the environment is not bound to an interpreter.");
+        }
+        return this.reporterInvoker;
+    }
+
+    /**
+     * @param cancellation
+     *      tells whether the program that runs in this <code>Environment</code>, or in any
+     *      of the child environments created from now on, has been cancelled
+     */
+    void cancelWhen(final BooleanSupplier cancellation) {
+        this.cancellation = cancellation;
+    }
+
+    /**
+     * @throws InterpreterException
+     *      if the program that runs in this <code>Environment</code> has been cancelled
+     */
+    void checkNotCancelled() {
+        if (this.cancellation != null && this.cancellation.getAsBoolean()) {
+            throw new InterpreterException("The program has been cancelled.");
+        }
+    }
+
+    /**
+     * Renders the bindings of this <code>Environment</code> immutable. Any attempt to
+     * bind a variable or a function to it afterwards fails.
+     */
+    void freeze() {
+        this.frozen = true;
+    }
+
+    private void checkNotFrozen(final String name) {
+        if (this.frozen) {
+            throw new InterpreterException("Unable to bind " + name + ", since the environment is frozen.");
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the frozen parent of this root environment, or <code>null</code> if
+     *      this is not a root environment attached to a <code>Prelude</code>
+     */
+    private Environment prelude() {
+        return this.parent != null && this.parent.frozen ? this.parent : null;
     }
 
     /**
@@ -157,4 +433,120 @@ public class Environment {
     public Environment createChildEnvironment() {
         return new Environment(this.turtle, this);
     }
+
+    /**
+     * Creates a child environment with a register of its own. Unlike ordinary child
+     * environments, such a child can be used by another thread than its parent, as long
+     * as neither of them alters bindings the other one observes. The child shares the
+     * random number generator of its parent, so it must not draw random numbers.
+     *
+     * @param turtle
+     *      Instance of <code>Turtle</code> the child uses for built-in Turtle operations
+     * @return
+     *      Yields the child <code>Environment</code>
+     */
+    Environment createConcurrentChildEnvironment(final Turtle turtle) {
+        return new Environment(turtle, this, new Slot(), this.repCount.copy(), this.randomNumbers, this.hatchery, this.hatched);
+    }
+
+    /**
+     * Creates the environment of a hatched turtle, which runs on another thread than this
+     * <code>Environment</code>. This environment and its ancestors are shared beforehand.
+     * The child has a register of its own, a copy of the current <code>repcount</code> and
+     * a random number generator that has been split off the generator of this environment.
+     *
+     * @param turtle
+     *      Instance of <code>Turtle</code> the hatched turtle uses for built-in Turtle operations
+     * @return
+     *      Yields the child <code>Environment</code>
+     */
+    Environment createHatchedEnvironment(final Turtle turtle) {
+        share();
+        return new Environment(turtle, this, new Slot(), this.repCount.copy(), this.randomNumbers.split(), this.hatchery, true);
+    }
+
+    private void share() {
+        // the ancestors of a shared environment have been shared along with it
+        for (Environment environment = this; environment != null && !environment.shared && !environment.frozen; environment = environment.parent) {
+            environment.variables = new ConcurrentHashMap<>(environment.variables);
+            environment.userDefinedFunctions = new ConcurrentHashMap<>(environment.userDefinedFunctions);
+            environment.shared = true;
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the number of variable bindings and function definitions that are bound
+     *      to this <code>Environment</code> directly, which is what {@link #copyLocalBindings(Turtle)}
+     *      has to copy
+     */
+    int localBindingCount() {
+        return this.variables.size() + this.userDefinedFunctions.size();
+    }
+
+    /**
+     * Copies the variable bindings and function definitions that are bound to this
+     * <code>Environment</code> directly into a new root environment. Bindings of
+     * ancestors are not copied. Arrays are copied as well, such that variables which
+     * refer to the same array in this environment refer to the same copy. The copy draws
+     * random numbers from a generator of its own, which is seeded from the system's entropy.
+     * If this <code>Environment</code> is attached to a <code>Prelude</code>, so is the copy.
+     *
+     * @param turtle
+     *      Instance of <code>Turtle</code> the copy uses for built-in Turtle operations
+     * @return
+     *      Yields a root <code>Environment</code> holding copies of the local bindings
+     */
+    Environment copyLocalBindings(final Turtle turtle) {
+        final Environment copy = new Environment(turtle, prelude(), new Slot(), Slot.ofInt(NO_REPEAT), new RandomNumbers(), new Hatchery(this.hatchery.options()), false);
+        final Map<int[], int[]> copiedArrays = new IdentityHashMap<>();
+        this.variables.forEach((variableName, slot) -> {
+            final Slot copiedSlot = slot.copy();
+            if (slot.isArray()) {
+                copiedSlot.setArray(copiedArrays.computeIfAbsent(slot.arrayValue(), int[]::clone));
+            }
+            copy.variables.put(variableName, copiedSlot);
+        });
+        copy.userDefinedFunctions.putAll(this.userDefinedFunctions);
+        return copy;
+    }
+
+    /**
+     * @return
+     *      Yields the parent <code>Environment</code> or <code>null</code> if this
+     *      is the root environment
+     */
+    Environment parent() {
+        return this.parent;
+    }
+
+    /**
+     * Checks whether every local binding of this <code>Environment</code> would be
+     * shadowed by a child environment that binds the given arguments. If this holds,
+     * a lookup that starts at such a child environment can never observe a binding
+     * of this <code>Environment</code>, so the child may as well be attached to our
+     * parent directly. Temporary variables of calls that have been hoisted out of
+     * expressions (cf. <code>ReporterHoisting</code>) are never observed by any other
+     * statement than the one they have been hoisted from, so they do not count.
+     *
+     * @param argumentDefinitions
+     *      the arguments a child environment is about to bind
+     * @return
+     *      <code>true</code> if all local variables are shadowed by the given arguments
+     *      and there are no local function definitions, <code>false</code> otherwise; a
+     *      root environment attached to a <code>Prelude</code> is never shadowed, since
+     *      the children of the frozen prelude would share its register
+     */
+    boolean isShadowedBy(final List<ArgumentDefinitionNode> argumentDefinitions) {
+        if (!this.userDefinedFunctions.isEmpty() || prelude() != null) {
+            return false;
+        }
+        return this.variables
+                .keySet()
+                .stream()
+                .filter(variableName -> !ReporterHoisting.isTemporary(variableName))
+                .allMatch(variableName -> argumentDefinitions
+                        .stream()
+                        .anyMatch(argument -> argument.argumentName().equals(variableName)));
+    }
 }
\ No newline at end of file
@@ -3,35 +3,119 @@ package com.mgu.jogo.interpreter;
 import com.mgu.jogo.parser.ast.AdditiveExpressionNode;
 import com.mgu.jogo.parser.ast.AndClauseNode;
 import com.mgu.jogo.parser.ast.ArgumentDefinitionNode;
+import com.mgu.jogo.parser.ast.ArrayNode;
 import com.mgu.jogo.parser.ast.AssignmentNode;
 import com.mgu.jogo.parser.ast.BooleanNode;
 import com.mgu.jogo.parser.ast.ContextualTreeVisitor;
 import com.mgu.jogo.parser.ast.EqualityExpressionNode;
 import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ForNode;
 import com.mgu.jogo.parser.ast.FunctionCallNode;
 import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.HatchNode;
 import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.ItemNode;
 import com.mgu.jogo.parser.ast.MultiplicativeExpressionNode;
 import com.mgu.jogo.parser.ast.NumberNode;
 import com.mgu.jogo.parser.ast.OrClauseNode;
+import com.mgu.jogo.parser.ast.OutputNode;
 import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.RepCountNode;
 import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
 import com.mgu.jogo.parser.ast.SimpleExpressionNode;
 import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
 import com.mgu.jogo.parser.ast.UnaryExpressionNode;
 import com.mgu.jogo.parser.ast.VariableReferenceNode;
+import com.mgu.jogo.parser.ast.WhileNode;
 
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Tree-based interpreter which uses the hierarchical data structure
  * <code>Environment</code> for implementing scoping while walking
  * along the AST.
  *
+ * <code>stop</code> and <code>output</code> do not unwind the Java stack by throwing an
+ * exception. Instead, they set the completion code of this visitor, which every block of
+ * statements checks after each statement. A block that completes abruptly returns right
+ * away, and so does every enclosing block, up to the invocation of the function, which
+ * resets the completion code and returns it to its caller. Hence, leaving a function
+ * early costs as little as finishing it. Since the completion code is state of the visitor,
+ * a visitor must not execute more than one program at a time.
+ *
  * @author Markus Günther <markus.guenther@gmail.com>
  */
 public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment> {
 
+    private final TraceCache traceCache;
+
+    private final PurityAnalysis purityAnalysis;
+
+    private final ResolutionCutoff resolutionCutoff = new ResolutionCutoff();
+
+    private final boolean summarizingRepeats;
+
+    private final Map<RepeatNode, Boolean> summarizableRepeats = new IdentityHashMap<>();
+
+    private final ParallelRepeat parallelRepeat;
+
+    private final int parallelRepeatThreshold;
+
+    private final Map<RepeatNode, Boolean> parallelizableRepeats = new IdentityHashMap<>();
+
+    private final ReporterInvoker reporterInvoker = this::invokeReporter;
+
+    /**
+     * Receives the values that functions invoked as statements output.
+     */
+    private final Slot discardedOutput = new Slot();
+
+    /**
+     * Register that receives the value the innermost running function outputs, or
+     * <code>null</code> outside of any function.
+     */
+    private Slot output = null;
+
+    private Completion completion = Completion.NORMAL;
+
+    public EvaluatingTreeVisitor() {
+        this(InterpreterOptions.defaults());
+    }
+
+    /**
+     * @param options
+     *      controls which optional optimizations this visitor applies
+     */
+    public EvaluatingTreeVisitor(final InterpreterOptions options) {
+        this.traceCache = options.isMemoizing()
+                ? new TraceCache(options.traceCacheCapacity(), options.maxTraceLength())
+                : null;
+        this.summarizingRepeats = options.isSummarizingRepeats();
+        this.parallelRepeat = options.isParallelizingRepeats()
+                ? new ParallelRepeat(options.parallelRepeatPool(), options.withoutParallelRepeats())
+                : null;
+        this.parallelRepeatThreshold = options.parallelRepeatThreshold();
+        this.purityAnalysis = options.hasPrelude()
+                ? new PurityAnalysis(options.prelude().purityVerdicts())
+                : new PurityAnalysis();
+    }
+
+    /**
+     * @return
+     *      Yields the cache of memoized function invocations or <code>null</code>
+     *      if memoization is disabled
+     */
+    public TraceCache traceCache() {
+        return this.traceCache;
+    }
+
     @Override
     public void visit(final ArgumentDefinitionNode node, final Environment environment) {
         // NO-OP (ArgumentDefinitionNode is a base class)
@@ -41,6 +125,8 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
     public void visit(final FunctionCallNode node, final Environment environment) {
         if (node.isBuiltin()) {
             invokeBuiltin(node, environment);
+        } else if (node.isNative()) {
+            NativeCall.call(node, environment, environment.getTurtle());
         } else {
             invokeUserDefinedFunction(node, environment);
         }
@@ -57,13 +143,146 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
             throw new InterpreterException("Unable to invoke user-defined function because expression lists do not match. Expected " + function.arity() + " expressions, but found " + node.arity() + " expressions.");
         }
 
-        final Environment functionEnvironment = environment.createChildEnvironment();
+        final Slot[] argumentValues = new Slot[function.arity()];
+        for (int i = 0; i < function.arity(); i++) {
+            argumentValues[i] = Slot.ofInt(0);
+            ExpressionResolver.evaluate(node.arguments().get(i), environment, argumentValues[i]);
+        }
+        call(function, argumentValues, environment);
+    }
+
+    /**
+     * Invokes the given user-defined function as a statement, just like a call within the
+     * program does.
+     *
+     * @param function
+     *      the function to invoke
+     * @param argumentValues
+     *      the values of the arguments of the function
+     * @param environment
+     *      execution context of the call, which must have been bound to this visitor
+     *      (cf. {@link #bindReporters(Environment)})
+     */
+    void call(final FunctionDefinitionNode function, final Slot[] argumentValues, final Environment environment) {
+        final boolean isCuttingOff = environment.getTurtle().resolution() > 0.0;
+        if ((isCuttingOff || this.traceCache != null) && this.purityAnalysis.isPure(function, environment)) {
+            if (isCuttingOff) {
+                invokeWithCutoff(function, argumentValues, environment);
+            } else {
+                invokeMemoized(function, argumentValues, environment);
+            }
+        } else {
+            invoke(function, argumentValues, environment.createChildEnvironment(), this.discardedOutput);
+        }
+    }
+
+    private void invokeReporter(final ReporterCallNode node, final Environment environment, final Slot result) {
+        final FunctionDefinitionNode function = environment.lookupFunction(node.functionName());
+
+        if (function.arity() != node.arity()) {
+            throw new InterpreterException("Unable to invoke user-defined function because expression lists do not match. Expected " + function.arity() + " expressions, but found " + node.arity() + " expressions.");
+        }
+
+        final Slot[] argumentValues = new Slot[function.arity()];
+        for (int i = 0; i < function.arity(); i++) {
+            argumentValues[i] = Slot.ofInt(0);
+            ExpressionResolver.evaluate(node.arguments().get(i), environment, argumentValues[i]);
+        }
+
+        if (invoke(function, argumentValues, environment.createChildEnvironment(), result) != Completion.OUTPUT) {
+            throw new InterpreterException("Function " + function.functionName() + " did not output a value.");
+        }
+    }
+
+    private void invokeWithCutoff(final FunctionDefinitionNode function, final Slot[] argumentValues, final Environment environment) {
+        final Turtle turtle = environment.getTurtle();
+        if (this.resolutionCutoff.cutoff(function, argumentValues, turtle)) {
+            return;
+        }
+        final ExtentMeasuringTurtle measurer = new ExtentMeasuringTurtle(turtle);
+        final Environment measuredEnvironment = new Environment(measurer, environment);
+        if (this.traceCache != null) {
+            invokeMemoized(function, argumentValues, measuredEnvironment);
+        } else {
+            invoke(function, argumentValues, measuredEnvironment, this.discardedOutput);
+        }
+        this.resolutionCutoff.store(function, argumentValues, measurer.extent());
+    }
+
+    private void invokeMemoized(final FunctionDefinitionNode function, final Slot[] argumentValues, final Environment environment) {
+        final Turtle turtle = environment.getTurtle();
+        final List<TurtleCommand> trace = this.traceCache.lookup(function, argumentValues);
+        if (trace != null) {
+            trace.forEach(command -> command.applyTo(turtle));
+            return;
+        }
+        final TraceRecordingTurtle recorder = new TraceRecordingTurtle(turtle, this.traceCache.maxTraceLength());
+        invoke(function, argumentValues, new Environment(recorder, environment), this.discardedOutput);
+        if (!recorder.isOverflown()) {
+            this.traceCache.store(function, argumentValues, recorder.trace());
+        }
+    }
+
+    /**
+     * @param output
+     *      the register that receives the value the function outputs
+     * @return
+     *      Yields the completion code of the function body
+     */
+    private Completion invoke(final FunctionDefinitionNode function, final Slot[] argumentValues, final Environment functionEnvironment, final Slot output) {
         for (int i = 0; i < function.arity(); i++) {
             final String argumentName = function.argumentDefinitions().get(i).argumentName();
-            final Integer argumentValue = ExpressionResolver.resolve(node.arguments().get(i), environment);
-            functionEnvironment.install(argumentName, argumentValue);
+            functionEnvironment.install(argumentName, argumentValues[i]);
+        }
+        final Slot callerOutput = this.output;
+        this.output = output;
+        try {
+            execute(function.statements(), functionEnvironment);
+            return this.completion;
+        } finally {
+            this.completion = Completion.NORMAL;
+            this.output = callerOutput;
         }
-        function.statements().forEach(statement -> visit(statement, functionEnvironment));
+    }
+
+    /**
+     * Executes the given statements in order until one of them completes abruptly. Every
+     * loop iteration and every function invocation passes through here, so this is where
+     * a cancelled program is aborted, even if it does not issue any turtle commands.
+     *
+     * @throws InterpreterException
+     *      if the program has been cancelled (cf. {@link Environment#cancelWhen})
+     */
+    private void execute(final List<StatementNode> statements, final Environment environment) {
+        environment.checkNotCancelled();
+        for (StatementNode statement : statements) {
+            visit(statement, environment);
+            if (this.completion != Completion.NORMAL) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if a <code>stop</code> outside of any function has ended the
+     *      program, whose statements this visitor executes one by one, <code>false</code>
+     *      otherwise
+     */
+    boolean isStopped() {
+        return this.completion == Completion.STOP;
+    }
+
+    /**
+     * Lets calls of user-defined functions within expressions that are evaluated in the
+     * given environment, or in any of its child environments created afterwards, be
+     * invoked by this visitor.
+     *
+     * @param environment
+     *      the execution context of a program this visitor executes
+     */
+    void bindReporters(final Environment environment) {
+        environment.useReporterInvoker(this.reporterInvoker);
     }
 
     @Override
@@ -78,7 +297,14 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
 
     @Override
     public void visit(final ProgramNode node, final Environment environment) {
-        node.statementNodes().forEach(statementNode -> visit(statementNode, environment));
+        bindReporters(environment);
+        if (environment.isHatched()) {
+            execute(node.statementNodes(), environment);
+        } else {
+            environment.hatchery().supervise(() -> execute(node.statementNodes(), environment));
+        }
+        // a stop outside of any function has ended the program
+        this.completion = Completion.NORMAL;
     }
 
     @Override
@@ -93,8 +319,22 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
             visit((AssignmentNode) node, environment);
         } else if (node instanceof IfNode) {
             visit((IfNode) node, environment);
+        } else if (node instanceof ForNode) {
+            visit((ForNode) node, environment);
+        } else if (node instanceof WhileNode) {
+            visit((WhileNode) node, environment);
+        } else if (node instanceof HatchNode) {
+            visit((HatchNode) node, environment);
+        } else if (node instanceof SetItemNode) {
+            visit((SetItemNode) node, environment);
+        } else if (node instanceof RerandomNode) {
+            visit((RerandomNode) node, environment);
+        } else if (node instanceof StopNode) {
+            visit((StopNode) node, environment);
+        } else if (node instanceof OutputNode) {
+            visit((OutputNode) node, environment);
         } else {
-            throw new InterpreterException("StatementNode is not in list of admissible types: [FunctionCallNode, FunctionDefinitionNode, RepeatNode, AssignmentNode]");
+            throw new InterpreterException("StatementNode is not in list of admissible types: [FunctionCallNode, FunctionDefinitionNode, RepeatNode, AssignmentNode, IfNode, ForNode, WhileNode, HatchNode, SetItemNode, RerandomNode, StopNode, OutputNode]");
         }
     }
 
@@ -105,15 +345,118 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
 
     @Override
     public void visit(final RepeatNode node, final Environment environment) {
-        final int times = ExpressionResolver.resolve(node.times(), environment);
-        for (int i = 0; i < times; i++) {
-            node.statements().forEach(statementNode -> visit(statementNode, environment));
+        final int times = ExpressionResolver.resolveInt(node.times(), environment);
+        if (times > 0 && this.summarizingRepeats && isSummarizable(node)) {
+            final RepeatSummary summary = RepeatSummary.of(node, environment);
+            if (summary != null) {
+                summary.emit(times, environment.getTurtle());
+                return;
+            }
+        }
+        if (this.parallelRepeat != null
+                && times >= this.parallelRepeatThreshold
+                && isParallelizable(node)
+                && this.parallelRepeat.leavesSharedStateAlone(node, environment)) {
+            this.parallelRepeat.execute(node, times, environment);
+            return;
+        }
+        final Slot repCount = environment.repCount();
+        final int outerRepCount = repCount.intValue();
+        for (int i = 0; i < times && this.completion == Completion.NORMAL; i++) {
+            repCount.setInt(i + 1);
+            execute(node.statements(), environment);
+        }
+        repCount.setInt(outerRepCount);
+    }
+
+    @Override
+    public void visit(final ForNode node, final Environment environment) {
+        final CountedLoop loop = CountedLoop.enter(node, environment);
+        final List<StatementNode> statements = node.statements();
+        for (int i = 0; i < loop.iterations() && this.completion == Completion.NORMAL; i++) {
+            loop.assign(i);
+            execute(statements, environment);
+        }
+    }
+
+    @Override
+    public void visit(final WhileNode node, final Environment environment) {
+        final LoopCondition condition = LoopCondition.bind(node.condition(), environment);
+        final List<StatementNode> statements = node.statements();
+        while (this.completion == Completion.NORMAL && condition.test(environment)) {
+            if (statements.isEmpty()) {
+                throw new InterpreterException("A while loop without statements never terminates once its condition holds.");
+            }
+            execute(statements, environment);
+        }
+    }
+
+    @Override
+    public void visit(final HatchNode node, final Environment environment) {
+        environment.hatchery().hatch(node.statements(), environment);
+    }
+
+    @Override
+    public void visit(final SetItemNode node, final Environment environment) {
+        ArrayAccess.setItem(node, environment);
+    }
+
+    @Override
+    public void visit(final RerandomNode node, final Environment environment) {
+        environment.randomNumbers().reseed(ExpressionResolver.resolveInt(node.seed(), environment));
+    }
+
+    @Override
+    public void visit(final StopNode node, final Environment environment) {
+        this.completion = Completion.STOP;
+    }
+
+    @Override
+    public void visit(final OutputNode node, final Environment environment) {
+        if (this.output == null) {
+            throw new InterpreterException("Unable to output a value outside of a function.");
         }
+        ExpressionResolver.evaluate(node.expression(), environment, this.output);
+        this.completion = Completion.OUTPUT;
+    }
+
+    @Override
+    public void visit(final ReporterCallNode node, final Environment environment) {
+        // NO-OP
+    }
+
+    @Override
+    public void visit(final RepCountNode node, final Environment environment) {
+        // NO-OP
+    }
+
+    @Override
+    public void visit(final ArrayNode node, final Environment environment) {
+        // NO-OP
+    }
+
+    @Override
+    public void visit(final ItemNode node, final Environment environment) {
+        // NO-OP
+    }
+
+    @Override
+    public void visit(final IntrinsicCallNode node, final Environment environment) {
+        // NO-OP
+    }
+
+    private boolean isSummarizable(final RepeatNode node) {
+        return this.summarizableRepeats.computeIfAbsent(node, RepeatSummary::isSummarizable);
+    }
+
+    private boolean isParallelizable(final RepeatNode node) {
+        return this.parallelizableRepeats.computeIfAbsent(node, ParallelRepeat::isParallelizable);
     }
 
     @Override
     public void visit(final AssignmentNode node, final Environment environment) {
-        final int result = ExpressionResolver.resolve(node.expression(), environment);
+        final Slot result = environment.register();
+        ExpressionResolver.evaluate(node.expression(), environment, result);
         environment.install(node.variable(), result);
     }
 
@@ -164,8 +507,28 @@ public class EvaluatingTreeVisitor implements ContextualTreeVisitor<Environment>
 
     @Override
     public void visit(final IfNode node, final Environment environment) {
-        final int condition = ExpressionResolver.resolve(node.condition(), environment);
-        final List<StatementNode> statements = condition == 1 ? node.thenStatements() : node.elseStatements();
-        statements.stream().forEach(statement -> visit(statement, environment));
+        final boolean condition = ExpressionResolver.resolveBoolean(node.condition(), environment);
+        final List<StatementNode> statements = condition ? node.thenStatements() : node.elseStatements();
+        if (statements != null) {
+            execute(statements, environment);
+        }
+    }
+
+    /**
+     * Tells how the statements executed last have completed.
+     */
+    private enum Completion {
+        /**
+         * The statements have completed normally.
+         */
+        NORMAL,
+        /**
+         * A <code>stop</code> has left the innermost running function.
+         */
+        STOP,
+        /**
+         * An <code>output</code> has left the innermost running function with a value.
+         */
+        OUTPUT
     }
 }
\ No newline at end of file
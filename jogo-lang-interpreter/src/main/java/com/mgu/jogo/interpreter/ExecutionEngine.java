@@ -0,0 +1,37 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+/**
+ * Service provider interface for strategies that execute a parsed program. All engines
+ * must issue the exact same sequence of turtle commands for the same program; they may
+ * only differ in how fast they do so. Engines are registered as services of this interface
+ * under <code>META-INF/services</code> and discovered using <code>ServiceLoader</code>
+ * (cf. <code>ExecutionEngines</code>). Implementations must provide a public no-argument
+ * constructor.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public interface ExecutionEngine {
+
+    /**
+     * @return
+     *      Yields the unique name of this engine
+     */
+    String name();
+
+    /**
+     * Executes the given program.
+     *
+     * @param programNode
+     *      root node of the program to execute
+     * @param turtle
+     *      Implementation of <code>Turtle</code>
+     * @param options
+     *      controls which optional optimizations the engine applies, as far as
+     *      the engine supports them
+     * @throws InterpreterException
+     *      if the program fails
+     */
+    void execute(ProgramNode programNode, Turtle turtle, InterpreterOptions options);
+}
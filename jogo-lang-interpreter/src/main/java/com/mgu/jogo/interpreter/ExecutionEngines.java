@@ -0,0 +1,45 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Discovers the <code>ExecutionEngine</code>s that are available on the class path.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class ExecutionEngines {
+
+    private ExecutionEngines() {
+    }
+
+    /**
+     * @return
+     *      Yields all registered engines in the order of their discovery
+     */
+    public static List<ExecutionEngine> all() {
+        final List<ExecutionEngine> engines = new ArrayList<>();
+        ServiceLoader
+                .load(ExecutionEngine.class, ExecutionEngine.class.getClassLoader())
+                .forEach(engines::add);
+        return Collections.unmodifiableList(engines);
+    }
+
+    /**
+     * @param name
+     *      the name of the engine
+     * @return
+     *      Yields the registered engine with the given name
+     * @throws InterpreterException
+     *      if no engine with the given name is registered
+     */
+    public static ExecutionEngine named(final String name) {
+        return all()
+                .stream()
+                .filter(engine -> engine.name().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new InterpreterException("There is no execution engine named " + name + "."));
+    }
+}
@@ -1,11 +1,32 @@
 package com.mgu.jogo.interpreter;
 
+import com.mgu.jogo.parser.Intrinsics;
 import com.mgu.jogo.parser.ast.*;
 
+import java.util.List;
+
 /**
- * Resolves an expression of abstract type <code>ExpressionNode</code> to its
- * <code>Integer</code>-based value using scoping and function / value binding
- * information provided by an <code>Environment</code>.
+ * Resolves an expression of abstract type <code>ExpressionNode</code> to its value using
+ * scoping and function / value binding information provided by an <code>Environment</code>.
+ *
+ * Expressions are evaluated into a <code>Slot</code> that serves as register. Intermediate
+ * results of binary operations are kept in local variables while the right-hand side is
+ * evaluated, so no evaluation path boxes a value or allocates. The <code>ValueType</code>
+ * of the result follows the rules of numeric promotion: <code>INT</code> operands yield an
+ * <code>INT</code>, a single <code>DOUBLE</code> operand promotes the result to
+ * <code>DOUBLE</code>. Comparisons yield a <code>BOOLEAN</code>, which coerces to
+ * <code>1</code> or <code>0</code> in arithmetic.
+ *
+ * Intrinsics (cf. <code>Intrinsics</code>) are dispatched directly on their type, without
+ * the overhead of a procedure call. Trigonometric intrinsics operate on degrees, just like
+ * the turtle does, and <code>mod</code> yields a result with the sign of the divisor.
+ * <code>random</code> draws from the generator of the run the environment belongs to.
+ * <code>touching</code> and <code>distance</code> query the <code>SegmentIndexingTurtle</code>
+ * of the environment. Calls of user-defined functions are handed over to the
+ * <code>ReporterInvoker</code> of the environment, which executes the function and
+ * evaluates the value it outputs into the register. Operands that have been evaluated
+ * before are kept in local variables, so they survive the statements of the function
+ * using the register as well.
  *
  * @author Markus Günther <markus.guenther@gmail.com>
  */
@@ -24,234 +45,308 @@ public class ExpressionResolver {
      *      not admissible
      * @return
      *      <code>Integer</code>-based value which represents the
-     *      result of the expression
+     *      result of the expression; decimals are truncated
      */
     public static Integer resolve(final ExpressionNode expressionNode, final Environment environment) {
-        int result;
-        if (expressionNode instanceof VariableReferenceNode) {
-            result = resolve((VariableReferenceNode) expressionNode, environment);
-        } else if (expressionNode instanceof NumberNode) {
-            result = resolve((NumberNode) expressionNode);
-        } else if (expressionNode instanceof BooleanNode) {
-            result = resolve((BooleanNode) expressionNode);
-        } else if (expressionNode instanceof OrClauseNode) {
-            result = resolve((OrClauseNode) expressionNode, environment);
-        } else if (expressionNode instanceof AndClauseNode) {
-            result = resolve((AndClauseNode) expressionNode, environment);
-        } else if (expressionNode instanceof EqualityExpressionNode) {
-            result = resolve((EqualityExpressionNode) expressionNode, environment);
-        } else if (expressionNode instanceof EqualityOperandNode) {
-            result = resolve((EqualityOperandNode) expressionNode, environment);
-        } else if (expressionNode instanceof AdditiveExpressionNode) {
-            result = resolve((AdditiveExpressionNode) expressionNode, environment);
-        } else if (expressionNode instanceof MultiplicativeExpressionNode) {
-            result = resolve((MultiplicativeExpressionNode) expressionNode, environment);
-        } else if (expressionNode instanceof UnaryExpressionNode) {
-            result = resolve((UnaryExpressionNode) expressionNode, environment);
-        } else {
-            throw new InterpreterException("Type of ExpressionNode does not adhere to valid types [VariableReferenceNode, NumberNode, AdditiveExpressionNode, MultiplicativeExpressionNode, UnaryExpressionNode]");
-        }
-        return result;
+        return resolveInt(expressionNode, environment);
     }
 
     /**
-     * Resolves an or-expression to its <code>Integer</code>-based result.
+     * Resolves the given expression to an <code>int</code>. Decimals are truncated.
      *
-     * @param node
-     *      the or-expression represented using the AST type <code>OrClauseNode</code>
+     * @param expressionNode
+     *      abstract type representing an expression
      * @param environment
      *      holds scoping and function / value binding information
      * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
+     *      <code>int</code>-based value which represents the result of the expression
      */
-    public static Integer resolve(final OrClauseNode node, final Environment environment) {
-        int result = resolve(node.andClause(), environment);
-        if (result != 1) { // only evaluate nextOrClause if we have to
-            result = resolve(node.nextOrClause(), environment);
-        }
-        return result;
+    public static int resolveInt(final ExpressionNode expressionNode, final Environment environment) {
+        final Slot register = environment.register();
+        evaluate(expressionNode, environment, register);
+        return register.intValue();
     }
 
     /**
-     * Resolves and and-expression to its <code>Integer</code>-based result.
+     * Resolves the given expression to a <code>double</code>.
      *
-     * @param node
-     *      the and-expression represented using the AST type <code>AndClauseNode</code>
+     * @param expressionNode
+     *      abstract type representing an expression
      * @param environment
      *      holds scoping and function / value binding information
      * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
+     *      <code>double</code>-based value which represents the result of the expression
      */
-    public static Integer resolve(final AndClauseNode node, final Environment environment) {
-        int result = resolve(node.equalityExpression(), environment);
-        if (result != 0) { // only evaluate nextAndClause if we have to
-            result = resolve(node.nextAndClause(), environment);
-        }
-        return result;
+    public static double resolveDouble(final ExpressionNode expressionNode, final Environment environment) {
+        final Slot register = environment.register();
+        evaluate(expressionNode, environment, register);
+        return register.doubleValue();
     }
 
     /**
-     * Resolves an equality expression to its <code>Integer</code>-based result.
+     * Resolves the given expression to a <code>boolean</code>. An expression is true
+     * if and only if its value equals <code>1</code>.
      *
-     * @param node
-     *      the equality expression represented using the AST type <code>EqualityExpressionNode</code>
+     * @param expressionNode
+     *      abstract type representing an expression
      * @param environment
      *      holds scoping and function / value binding information
      * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
+     *      <code>boolean</code>-based value which represents the result of the expression
      */
-    public static Integer resolve(final EqualityExpressionNode node, final Environment environment) {
-        final int leftHandSide = resolve(node.equalityOperand(), environment);
-        final int rightHandSide = resolve(node.nextEqualityOperand(), environment);
-        return leftHandSide == rightHandSide ? 1 : 0;
+    public static boolean resolveBoolean(final ExpressionNode expressionNode, final Environment environment) {
+        final Slot register = environment.register();
+        evaluate(expressionNode, environment, register);
+        return register.isTrue();
     }
 
     /**
-     * Resolves an equality operand to its <code>Integer</code>-based result.
+     * Evaluates the given expression into the given register.
      *
-     * @param node
-     *      the equality operand represented using the AST type <code>EqualityOperandNode</code>
+     * @param expressionNode
+     *      abstract type representing an expression
      * @param environment
      *      holds scoping and function / value binding information
+     * @param result
+     *      the register that receives the value of the expression
      * @throws InterpreterException
-     *      in case the equality operand is neither '<' nor '>'
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
+     *      in case the given dynamic type of <code>ExpressionNode</code> is
+     *      not admissible
      */
-    public static Integer resolve(final EqualityOperandNode node, final Environment environment) {
-        int result;
-        final int leftHandSide = resolve(node.additiveExpression(), environment);
-        final int rightHandSide = resolve(node.nextAdditiveExpression(), environment);
-        if (node.operator() == '>') {
-            result = leftHandSide > rightHandSide ? 1 : 0;
-        } else if (node.operator() == '<') {
-            result = leftHandSide < rightHandSide ? 1 : 0;
+    public static void evaluate(final ExpressionNode expressionNode, final Environment environment, final Slot result) {
+        if (expressionNode instanceof VariableReferenceNode) {
+            result.set(environment.lookupSlot(((VariableReferenceNode) expressionNode).variableName()));
+        } else if (expressionNode instanceof NumberNode) {
+            evaluate((NumberNode) expressionNode, result);
+        } else if (expressionNode instanceof BooleanNode) {
+            result.setBoolean(((BooleanNode) expressionNode).value());
+        } else if (expressionNode instanceof RepCountNode) {
+            result.setInt(environment.repCount().intValue());
+        } else if (expressionNode instanceof ItemNode) {
+            ArrayAccess.item((ItemNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof IntrinsicCallNode) {
+            evaluate((IntrinsicCallNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof ReporterCallNode) {
+            environment.reporterInvoker().invoke((ReporterCallNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof ArrayNode) {
+            ArrayAccess.create((ArrayNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof OrClauseNode) {
+            evaluate((OrClauseNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof AndClauseNode) {
+            evaluate((AndClauseNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof EqualityExpressionNode) {
+            evaluate((EqualityExpressionNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof EqualityOperandNode) {
+            evaluate((EqualityOperandNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof AdditiveExpressionNode) {
+            evaluate((AdditiveExpressionNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof MultiplicativeExpressionNode) {
+            evaluate((MultiplicativeExpressionNode) expressionNode, environment, result);
+        } else if (expressionNode instanceof UnaryExpressionNode) {
+            evaluate((UnaryExpressionNode) expressionNode, environment, result);
         } else {
-            throw new InterpreterException("Expected a '<' or '>' operator in EqualityOperandNode");
+            throw new InterpreterException("Type of ExpressionNode does not adhere to valid types [VariableReferenceNode, NumberNode, AdditiveExpressionNode, MultiplicativeExpressionNode, UnaryExpressionNode]");
         }
-        return result;
     }
 
-    /**
-     * Resolves an additive expression to its <code>Integer</code>-based result.
-     *
-     * @param node
-     *      the additive expression represented using the AST type
-     *      <code>AdditiveExpressionNode</code>
-     * @param environment
-     *      holds scoping and function / value binding information
-     * @throws InterpreterException
-     *      in case the additive expression uses neither '+' or '-' operator
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final AdditiveExpressionNode node, final Environment environment) {
-        int result;
-        if (node.operator() == '+') {
-            result = resolve(node.addend(), environment) + resolve(node.augend(), environment);
-        } else if (node.operator() == '-') {
-            result = resolve(node.addend(), environment) - resolve(node.augend(), environment);
+    private static void evaluate(final NumberNode node, final Slot result) {
+        if (node.isDecimal()) {
+            result.setDouble(node.decimalValue());
         } else {
-            throw new InterpreterException("Expected a '+' or '-' operator in AdditiveNode");
+            result.setInt(node.value());
         }
-        return result;
     }
 
-    /**
-     * Resolves a multiplicative expression to its <code>Integer</code>-based result.
-     *
-     * @param node
-     *      the multiplicative expression represented using the AST type
-     *      <code>MultiplicativeExpressionNode</code>
-     * @param environment
-     *      holds scoping and function / value binding information
-     * @throws InterpreterException
-     *      in case the multiplicative expression does not use any of the following operators:
-     *      '*', '/', '^'
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final MultiplicativeExpressionNode node, final Environment environment) {
-        int result;
-        if (node.operator() == '*') {
-            result = resolve(node.leftFactor(), environment) * resolve(node.rightFactor(), environment);
-        } else if (node.operator() == '/') {
-            result = resolve(node.leftFactor(), environment) / resolve(node.rightFactor(), environment);
-        } else if (node.operator() == '^') {
-            result = (int) Math.pow(resolve(node.leftFactor(), environment), resolve(node.rightFactor(), environment));
+    private static void evaluate(final IntrinsicCallNode node, final Environment environment, final Slot result) {
+        final List<ExpressionNode> arguments = node.arguments();
+        if (arguments.isEmpty()) {
+            evaluateSpatialQuery(node.intrinsic(), environment, result);
+            return;
+        }
+        evaluate(arguments.get(0), environment, result);
+        switch (node.intrinsic()) {
+            case SIN:
+                result.setDouble(Math.sin(Math.toRadians(result.doubleValue())));
+                return;
+            case COS:
+                result.setDouble(Math.cos(Math.toRadians(result.doubleValue())));
+                return;
+            case SQRT:
+                result.setDouble(Math.sqrt(result.doubleValue()));
+                return;
+            case ABS:
+                if (result.isDouble()) {
+                    result.setDouble(Math.abs(result.doubleValue()));
+                } else {
+                    result.setInt(Math.abs(result.intValue()));
+                }
+                return;
+            case ROUND:
+                result.setInt((int) Math.round(result.doubleValue()));
+                return;
+            case RANDOM:
+                if (result.isDouble()) {
+                    result.setDouble(environment.randomNumbers().nextDouble(result.doubleValue()));
+                } else {
+                    result.setInt(environment.randomNumbers().nextInt(result.intValue()));
+                }
+                return;
+            default:
+                break;
+        }
+        final boolean leftIsDouble = result.isDouble();
+        final int leftInt = result.intValue();
+        final double leftDouble = result.doubleValue();
+        evaluate(arguments.get(1), environment, result);
+        final boolean isDouble = leftIsDouble || result.isDouble();
+        switch (node.intrinsic()) {
+            case MIN:
+                if (isDouble) {
+                    result.setDouble(Math.min(leftDouble, result.doubleValue()));
+                } else {
+                    result.setInt(Math.min(leftInt, result.intValue()));
+                }
+                return;
+            case MAX:
+                if (isDouble) {
+                    result.setDouble(Math.max(leftDouble, result.doubleValue()));
+                } else {
+                    result.setInt(Math.max(leftInt, result.intValue()));
+                }
+                return;
+            case MOD:
+                if (result.doubleValue() == 0.0) {
+                    throw new InterpreterException("Unable to compute the modulus with respect to 0.");
+                }
+                if (isDouble) {
+                    final double divisor = result.doubleValue();
+                    final double remainder = leftDouble % divisor;
+                    result.setDouble(remainder != 0.0 && (remainder < 0.0) != (divisor < 0.0) ? remainder + divisor : remainder);
+                } else {
+                    result.setInt(Math.floorMod(leftInt, result.intValue()));
+                }
+                return;
+            default:
+                throw new InterpreterException("Unknown intrinsic " + node.intrinsic() + ".");
+        }
+    }
+
+    private static void evaluateSpatialQuery(final Intrinsics intrinsic, final Environment environment, final Slot result) {
+        final SegmentIndexingTurtle turtle = SegmentIndexingTurtle.of(environment.getTurtle());
+        switch (intrinsic) {
+            case TOUCHING:
+                result.setBoolean(turtle.touching());
+                return;
+            case DISTANCE:
+                result.setDouble(turtle.distance());
+                return;
+            default:
+                throw new InterpreterException("Unable to evaluate intrinsic " + intrinsic + " without arguments.");
+        }
+    }
+
+    private static void evaluate(final OrClauseNode node, final Environment environment, final Slot result) {
+        evaluate(node.andClause(), environment, result);
+        if (!result.isTrue()) { // only evaluate nextOrClause if we have to
+            evaluate(node.nextOrClause(), environment, result);
+        }
+    }
+
+    private static void evaluate(final AndClauseNode node, final Environment environment, final Slot result) {
+        evaluate(node.equalityExpression(), environment, result);
+        if (result.doubleValue() != 0.0) { // only evaluate nextAndClause if we have to
+            evaluate(node.nextAndClause(), environment, result);
+        }
+    }
+
+    private static void evaluate(final EqualityExpressionNode node, final Environment environment, final Slot result) {
+        evaluate(node.equalityOperand(), environment, result);
+        final boolean leftIsDouble = result.isDouble();
+        final int leftInt = result.intValue();
+        final double leftDouble = result.doubleValue();
+        evaluate(node.nextEqualityOperand(), environment, result);
+        if (leftIsDouble || result.isDouble()) {
+            result.setBoolean(leftDouble == result.doubleValue());
         } else {
-            throw new InterpreterException("Expected a '*', '/' or '^' operator in MultiplicativeNode");
+            result.setBoolean(leftInt == result.intValue());
         }
-        return result;
     }
 
-    /**
-     * Resolves an unary expression to its <code>Integer</code>-based result.
-     *
-     * @param node
-     *      the unary expression represented using the AST type
-     *      <code>UnaryExpressionNode</code>
-     * @param environment
-     *      holds scoping and function / value binding information
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final UnaryExpressionNode node, final Environment environment) {
-        int result;
-        if (node.negate()) {
-            result = -resolve(node.expression(), environment);
+    private static void evaluate(final EqualityOperandNode node, final Environment environment, final Slot result) {
+        if (node.operator() != '>' && node.operator() != '<') {
+            throw new InterpreterException("Expected a '<' or '>' operator in EqualityOperandNode");
+        }
+        evaluate(node.additiveExpression(), environment, result);
+        final boolean leftIsDouble = result.isDouble();
+        final int leftInt = result.intValue();
+        final double leftDouble = result.doubleValue();
+        evaluate(node.nextAdditiveExpression(), environment, result);
+        if (leftIsDouble || result.isDouble()) {
+            final double rightHandSide = result.doubleValue();
+            result.setBoolean(node.operator() == '>' ? leftDouble > rightHandSide : leftDouble < rightHandSide);
         } else {
-            result = resolve(node.expression(), environment);
+            final int rightHandSide = result.intValue();
+            result.setBoolean(node.operator() == '>' ? leftInt > rightHandSide : leftInt < rightHandSide);
         }
-        return result;
     }
 
-    /**
-     * Resolves a variable reference to its variable value with the respect to the
-     * scoping information provided by <code>Environment</code>.
-     *
-     * @param node
-     *      the variable reference represented using the AST type <code>VariableReferenceNode</code>
-     * @param environment
-     *      holds scoping and function / value binding information
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final VariableReferenceNode node, final Environment environment) {
-        return environment.lookupVariable(node.variableName());
+    private static void evaluate(final AdditiveExpressionNode node, final Environment environment, final Slot result) {
+        if (node.operator() != '+' && node.operator() != '-') {
+            throw new InterpreterException("Expected a '+' or '-' operator in AdditiveNode");
+        }
+        evaluate(node.addend(), environment, result);
+        final boolean leftIsDouble = result.isDouble();
+        final int leftInt = result.intValue();
+        final double leftDouble = result.doubleValue();
+        evaluate(node.augend(), environment, result);
+        if (leftIsDouble || result.isDouble()) {
+            final double rightHandSide = result.doubleValue();
+            result.setDouble(node.operator() == '+' ? leftDouble + rightHandSide : leftDouble - rightHandSide);
+        } else {
+            final int rightHandSide = result.intValue();
+            result.setInt(node.operator() == '+' ? leftInt + rightHandSide : leftInt - rightHandSide);
+        }
     }
 
-    /**
-     * Resolves a number to its value.
-     *
-     * @param node
-     *      the number represented using the AST type <code>NumberNode</code>
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final NumberNode node) {
-        return node.value();
+    private static void evaluate(final MultiplicativeExpressionNode node, final Environment environment, final Slot result) {
+        final char operator = node.operator();
+        if (operator != '*' && operator != '/' && operator != '^') {
+            throw new InterpreterException("Expected a '*', '/' or '^' operator in MultiplicativeNode");
+        }
+        evaluate(node.leftFactor(), environment, result);
+        final boolean leftIsDouble = result.isDouble();
+        final int leftInt = result.intValue();
+        final double leftDouble = result.doubleValue();
+        evaluate(node.rightFactor(), environment, result);
+        if (leftIsDouble || result.isDouble()) {
+            final double rightHandSide = result.doubleValue();
+            if (operator == '*') {
+                result.setDouble(leftDouble * rightHandSide);
+            } else if (operator == '/') {
+                result.setDouble(leftDouble / rightHandSide);
+            } else {
+                result.setDouble(Math.pow(leftDouble, rightHandSide));
+            }
+        } else {
+            final int rightHandSide = result.intValue();
+            if (operator == '*') {
+                result.setInt(leftInt * rightHandSide);
+            } else if (operator == '/') {
+                result.setInt(leftInt / rightHandSide);
+            } else {
+                result.setInt((int) Math.pow(leftInt, rightHandSide));
+            }
+        }
     }
 
-    /**
-     * Resolves a boolean to its internal <code>Integer</code>-based value.
-     *
-     * @param node
-     *      the boolean represented using the AST type <code>BooleanNode</code>
-     * @return
-     *      <code>Integer</code>-based value which represents the
-     *      result of the expression
-     */
-    public static Integer resolve(final BooleanNode node) {
-        return node.value() ? 1 : 0;
+    private static void evaluate(final UnaryExpressionNode node, final Environment environment, final Slot result) {
+        evaluate(node.expression(), environment, result);
+        if (node.negate()) {
+            if (result.isDouble()) {
+                result.setDouble(-result.doubleValue());
+            } else {
+                result.setInt(-result.intValue());
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Intrinsics;
+import com.mgu.jogo.parser.ast.*;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Utility methods that search expressions for particular nodes.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class Expressions {
+
+    private Expressions() {
+    }
+
+    /**
+     * @param node
+     *      root of the expression to search, may be <code>null</code>
+     * @param predicate
+     *      the condition to test the nodes of the expression against
+     * @return
+     *      <code>true</code> if the given expression or any of its subexpressions
+     *      satisfies the given predicate, <code>false</code> otherwise
+     */
+    static boolean anyMatch(final ExpressionNode node, final Predicate<ExpressionNode> predicate) {
+        if (node == null) {
+            return false;
+        } else if (predicate.test(node)) {
+            return true;
+        } else if (node instanceof OrClauseNode) {
+            final OrClauseNode orClause = (OrClauseNode) node;
+            return anyMatch(orClause.andClause(), predicate) || anyMatch(orClause.nextOrClause(), predicate);
+        } else if (node instanceof AndClauseNode) {
+            final AndClauseNode andClause = (AndClauseNode) node;
+            return anyMatch(andClause.equalityExpression(), predicate) || anyMatch(andClause.nextAndClause(), predicate);
+        } else if (node instanceof EqualityExpressionNode) {
+            final EqualityExpressionNode equality = (EqualityExpressionNode) node;
+            return anyMatch(equality.equalityOperand(), predicate) || anyMatch(equality.nextEqualityOperand(), predicate);
+        } else if (node instanceof EqualityOperandNode) {
+            final EqualityOperandNode operand = (EqualityOperandNode) node;
+            return anyMatch(operand.additiveExpression(), predicate) || anyMatch(operand.nextAdditiveExpression(), predicate);
+        } else if (node instanceof AdditiveExpressionNode) {
+            final AdditiveExpressionNode additive = (AdditiveExpressionNode) node;
+            return anyMatch(additive.addend(), predicate) || anyMatch(additive.augend(), predicate);
+        } else if (node instanceof MultiplicativeExpressionNode) {
+            final MultiplicativeExpressionNode multiplicative = (MultiplicativeExpressionNode) node;
+            return anyMatch(multiplicative.leftFactor(), predicate) || anyMatch(multiplicative.rightFactor(), predicate);
+        } else if (node instanceof UnaryExpressionNode) {
+            return anyMatch(((UnaryExpressionNode) node).expression(), predicate);
+        } else if (node instanceof IntrinsicCallNode) {
+            return ((IntrinsicCallNode) node).arguments().stream().anyMatch(argument -> anyMatch(argument, predicate));
+        } else if (node instanceof ReporterCallNode) {
+            return ((ReporterCallNode) node).arguments().stream().anyMatch(argument -> anyMatch(argument, predicate));
+        } else if (node instanceof ItemNode) {
+            final ItemNode item = (ItemNode) node;
+            return anyMatch(item.index(), predicate) || anyMatch(item.array(), predicate);
+        } else if (node instanceof ArrayNode) {
+            return anyMatch(((ArrayNode) node).length(), predicate);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @param statements
+     *      the statements to search, may be <code>null</code>
+     * @param predicate
+     *      the condition to test the nodes of the expressions against
+     * @return
+     *      <code>true</code> if any expression within the given statements, including the
+     *      statements of nested control structures and function definitions, satisfies the
+     *      given predicate, <code>false</code> otherwise
+     */
+    static boolean anyMatch(final List<StatementNode> statements, final Predicate<ExpressionNode> predicate) {
+        return statements != null && statements.stream().anyMatch(statement -> anyMatch(statement, predicate));
+    }
+
+    private static boolean anyMatch(final StatementNode node, final Predicate<ExpressionNode> predicate) {
+        if (node instanceof AssignmentNode) {
+            return anyMatch(((AssignmentNode) node).expression(), predicate);
+        } else if (node instanceof FunctionCallNode) {
+            return ((FunctionCallNode) node).arguments().stream().anyMatch(argument -> anyMatch(argument, predicate));
+        } else if (node instanceof FunctionDefinitionNode) {
+            return anyMatch(((FunctionDefinitionNode) node).statements(), predicate);
+        } else if (node instanceof RepeatNode) {
+            final RepeatNode repeat = (RepeatNode) node;
+            return anyMatch(repeat.times(), predicate) || anyMatch(repeat.statements(), predicate);
+        } else if (node instanceof WhileNode) {
+            final WhileNode whileNode = (WhileNode) node;
+            return anyMatch(whileNode.condition(), predicate) || anyMatch(whileNode.statements(), predicate);
+        } else if (node instanceof HatchNode) {
+            return anyMatch(((HatchNode) node).statements(), predicate);
+        } else if (node instanceof ForNode) {
+            final ForNode forNode = (ForNode) node;
+            return anyMatch(forNode.start(), predicate)
+                    || anyMatch(forNode.end(), predicate)
+                    || anyMatch(forNode.step(), predicate)
+                    || anyMatch(forNode.statements(), predicate);
+        } else if (node instanceof IfNode) {
+            final IfNode ifNode = (IfNode) node;
+            return anyMatch(ifNode.condition(), predicate)
+                    || anyMatch(ifNode.thenStatements(), predicate)
+                    || anyMatch(ifNode.elseStatements(), predicate);
+        } else if (node instanceof SetItemNode) {
+            final SetItemNode setItem = (SetItemNode) node;
+            return anyMatch(setItem.index(), predicate)
+                    || anyMatch(setItem.array(), predicate)
+                    || anyMatch(setItem.value(), predicate);
+        } else if (node instanceof RerandomNode) {
+            return anyMatch(((RerandomNode) node).seed(), predicate);
+        } else if (node instanceof OutputNode) {
+            return anyMatch(((OutputNode) node).expression(), predicate);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+     * @param node
+     *      root of the expression to search, may be <code>null</code>
+     * @return
+     *      <code>true</code> if the value of the given expression depends on the state of
+     *      the run, i.e. if evaluating it draws random numbers, queries what the turtle
+     *      has drawn so far or calls a user-defined function, which might do either (or
+     *      alter the state of the run), <code>false</code> otherwise
+     */
+    static boolean isNondeterministic(final ExpressionNode node) {
+        return anyMatch(node, Expressions::isNondeterministicCall);
+    }
+
+    /**
+     * @param statements
+     *      the statements to search, may be <code>null</code>
+     * @return
+     *      <code>true</code> if any expression within the given statements queries what
+     *      the turtle has drawn so far, <code>false</code> otherwise
+     */
+    static boolean queriesSegments(final List<StatementNode> statements) {
+        return anyMatch(statements, Expressions::isSpatialQuery);
+    }
+
+    private static boolean isNondeterministicCall(final ExpressionNode node) {
+        return node instanceof ReporterCallNode
+                || (node instanceof IntrinsicCallNode && !((IntrinsicCallNode) node).intrinsic().isDeterministic());
+    }
+
+    private static boolean isSpatialQuery(final ExpressionNode node) {
+        if (!(node instanceof IntrinsicCallNode)) {
+            return false;
+        }
+        final Intrinsics intrinsic = ((IntrinsicCallNode) node).intrinsic();
+        return intrinsic == Intrinsics.TOUCHING || intrinsic == Intrinsics.DISTANCE;
+    }
+}
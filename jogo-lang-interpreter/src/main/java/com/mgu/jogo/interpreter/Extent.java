@@ -0,0 +1,89 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Spatial extent of the drawing a single function invocation produces, measured in the
+ * turtle's local frame of reference at the start of the invocation: the turtle's end
+ * position (<code>endX</code> steps along its initial heading and <code>endY</code> steps
+ * to the right of it), its net rotation and the radius of the smallest circle around the
+ * start position that contains every position the turtle has visited.
+ *
+ * An extent is rigid if the invocation issued nothing but relative movements and turns.
+ * Only the drawings of rigid invocations may be replaced by a chord, since a chord cannot
+ * reproduce changes to the pen or absolute movements.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class Extent {
+
+    private static final double EPSILON = 1e-9;
+
+    private final double rotation;
+
+    private final double endX;
+
+    private final double endY;
+
+    private final double radius;
+
+    private final boolean rigid;
+
+    Extent(final double rotation, final double endX, final double endY, final double radius, final boolean rigid) {
+        this.rotation = rotation;
+        this.endX = endX;
+        this.endY = endY;
+        this.radius = radius;
+        this.rigid = rigid;
+    }
+
+    /**
+     * @param resolution
+     *      edge length of a pixel in steps
+     * @return
+     *      <code>true</code> if the drawing is rigid and fits into a single pixel,
+     *      <code>false</code> otherwise
+     */
+    boolean fitsInto(final double resolution) {
+        return this.rigid && 2.0 * this.radius <= resolution;
+    }
+
+    /**
+     * Issues a single chord from the turtle's current position to the end position of the
+     * measured invocation and turns the turtle to the heading the invocation ended with.
+     *
+     * @param turtle
+     *      the target of the chord
+     */
+    void emitChord(final Turtle turtle) {
+        final double length = Math.hypot(this.endX, this.endY);
+        double remainingRotation = this.rotation;
+        if (length > EPSILON) {
+            final double direction = Math.toDegrees(Math.atan2(this.endY, this.endX));
+            turtle.right(direction);
+            turtle.forward(length);
+            remainingRotation -= direction;
+        }
+        remainingRotation = normalize(remainingRotation);
+        if (Math.abs(remainingRotation) > EPSILON) {
+            turtle.right(remainingRotation);
+        }
+    }
+
+    private static double normalize(final double degrees) {
+        final double normalized = degrees % 360.0;
+        if (normalized > 180.0) {
+            return normalized - 360.0;
+        } else if (normalized <= -180.0) {
+            return normalized + 360.0;
+        } else {
+            return normalized;
+        }
+    }
+
+    double radius() {
+        return this.radius;
+    }
+
+    boolean isRigid() {
+        return this.rigid;
+    }
+}
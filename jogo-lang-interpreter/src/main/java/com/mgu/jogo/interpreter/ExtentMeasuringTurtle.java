@@ -0,0 +1,161 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * <code>Turtle</code> decorator which forwards every operation to its delegate and
+ * tracks the <code>Extent</code> of the drawing along the way.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class ExtentMeasuringTurtle implements Turtle {
+
+    private final Turtle delegate;
+
+    private double heading = 0.0;
+
+    private double positionX = 0.0;
+
+    private double positionY = 0.0;
+
+    private double radius = 0.0;
+
+    private boolean rigid = true;
+
+    /**
+     * @param delegate
+     *      the <code>Turtle</code> that executes the measured operations
+     */
+    ExtentMeasuringTurtle(final Turtle delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * @return
+     *      Yields the extent of all operations issued so far
+     */
+    Extent extent() {
+        return new Extent(this.heading, this.positionX, this.positionY, this.radius, this.rigid);
+    }
+
+    private void turn(final double degrees) {
+        this.heading += degrees;
+    }
+
+    private void advance(final double steps) {
+        final double radians = Math.toRadians(this.heading);
+        this.positionX += Math.cos(radians) * steps;
+        this.positionY += Math.sin(radians) * steps;
+        this.radius = Math.max(this.radius, Math.hypot(this.positionX, this.positionY));
+    }
+
+    @Override
+    public void clear() {
+        this.rigid = false;
+        this.delegate.clear();
+    }
+
+    @Override
+    public void hide() {
+        this.rigid = false;
+        this.delegate.hide();
+    }
+
+    @Override
+    public void show() {
+        this.rigid = false;
+        this.delegate.show();
+    }
+
+    @Override
+    public void penUp() {
+        this.rigid = false;
+        this.delegate.penUp();
+    }
+
+    @Override
+    public void penDown() {
+        this.rigid = false;
+        this.delegate.penDown();
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        this.rigid = false;
+        this.delegate.setPenColor(penColor);
+    }
+
+    @Override
+    public void left(final int degrees) {
+        turn(-degrees);
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final int degrees) {
+        turn(degrees);
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final int steps) {
+        advance(-steps);
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        advance(steps);
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        this.rigid = false;
+        this.delegate.move(positionX, positionY);
+    }
+
+    @Override
+    public void left(final double degrees) {
+        turn(-degrees);
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final double degrees) {
+        turn(degrees);
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final double steps) {
+        advance(-steps);
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        advance(steps);
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        if (degrees != 0.0) {
+            // every point of the arc lies on the circle around its center
+            final double toCenter = Math.toRadians(this.heading + Math.signum(degrees) * 90.0);
+            final double centerX = this.positionX + Math.cos(toCenter) * radius;
+            final double centerY = this.positionY + Math.sin(toCenter) * radius;
+            final double chord = 2.0 * radius * Math.sin(Math.toRadians(Math.abs(degrees)) / 2.0);
+            final double toEnd = Math.toRadians(this.heading + degrees / 2.0);
+            this.positionX += Math.cos(toEnd) * chord;
+            this.positionY += Math.sin(toEnd) * chord;
+            this.heading += degrees;
+            this.radius = Math.max(this.radius, Math.hypot(centerX, centerY) + Math.abs(radius));
+        }
+        this.delegate.arc(radius, degrees);
+    }
+
+    @Override
+    public double resolution() {
+        return this.delegate.resolution();
+    }
+}
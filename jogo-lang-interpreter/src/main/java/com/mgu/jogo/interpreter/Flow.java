@@ -0,0 +1,98 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Interfaces for establishing flow-controlled publish-subscribe relationships between
+ * producers and consumers of items. These interfaces mirror <code>java.util.concurrent.Flow</code>
+ * (and thus the Reactive Streams specification) method by method, since the interpreter
+ * targets Java 8. Adapting them to the JDK or to any Reactive Streams library takes
+ * nothing but delegating each method.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class Flow {
+
+    private Flow() {
+    }
+
+    /**
+     * Producer of items that are received by subscribers. Each subscriber receives items
+     * in the same order via <code>onNext</code>, unless it is cancelled or an error occurs.
+     *
+     * @param <T>
+     *      the published item type
+     */
+    @FunctionalInterface
+    public interface Publisher<T> {
+
+        /**
+         * Adds the given subscriber. The subscriber is called back via <code>onSubscribe</code>
+         * before any other method is called.
+         *
+         * @param subscriber
+         *      the subscriber
+         * @throws NullPointerException
+         *      if the subscriber is <code>null</code>
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * Receiver of items. Methods of a subscriber are invoked in strict sequential order.
+     *
+     * @param <T>
+     *      the subscribed item type
+     */
+    public interface Subscriber<T> {
+
+        /**
+         * Called before any other method for a given subscription.
+         *
+         * @param subscription
+         *      the new subscription
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Called with the next item. Never called more often than requested.
+         *
+         * @param item
+         *      the item
+         */
+        void onNext(T item);
+
+        /**
+         * Called upon an unrecoverable error, after which no other method is called.
+         *
+         * @param throwable
+         *      the error
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Called when no further items will be published, after which no other
+         * method is called.
+         */
+        void onComplete();
+    }
+
+    /**
+     * Message control linking a <code>Publisher</code> and a <code>Subscriber</code>.
+     */
+    public interface Subscription {
+
+        /**
+         * Adds <code>n</code> items to the current unfulfilled demand of this subscription.
+         * If <code>n</code> is not positive, the subscriber receives an <code>onError</code>
+         * signal with an <code>IllegalArgumentException</code>.
+         *
+         * @param n
+         *      the increment of demand; <code>Long.MAX_VALUE</code> is effectively unbounded
+         */
+        void request(long n);
+
+        /**
+         * Causes the subscriber to (eventually) stop receiving items.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,224 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.List;
+
+/**
+ * Heap-allocated activation record of the <code>TrampolinedInterpreter</code>. A frame
+ * executes a block of statements within a given <code>Environment</code> and keeps track
+ * of the next statement to execute. Blocks that stem from a <code>repeat</code> or
+ * <code>for</code> statement are executed a fixed number of times, blocks that stem from a
+ * <code>while</code> statement as long as their condition holds, and all other blocks are
+ * executed exactly once.
+ *
+ * Every frame knows the value <code>repcount</code> reports while its statements execute:
+ * a <code>repeat</code> frame reports its own iteration, all other frames report the value
+ * that was current when they were pushed. The frame restores this value before each of its
+ * statements, since frames that have been executed in between may have changed it.
+ *
+ * Frames that represent the body of a user-defined function are marked as procedure
+ * frames. They delimit the statements that belong to a single function invocation, which
+ * is the information the interpreter requires to detect calls in tail position and to
+ * leave a function by means of <code>stop</code> or <code>output</code>. The procedure
+ * frame of a function that has been called within an expression holds the register
+ * that receives the value the function outputs. Such a frame must be left by means of
+ * <code>output</code>, since the expression that called the function awaits its value.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class Frame {
+
+    private final List<StatementNode> statements;
+
+    private final Environment environment;
+
+    private final boolean procedure;
+
+    private final Slot output;
+
+    private final String functionName;
+
+    private final int iterations;
+
+    private final CountedLoop countedLoop;
+
+    private final LoopCondition condition;
+
+    private final boolean countsRepetitions;
+
+    private int remainingIterations;
+
+    private int repCount;
+
+    private int index = 0;
+
+    private Frame(final List<StatementNode> statements,
+                  final Environment environment,
+                  final int iterations,
+                  final boolean procedure,
+                  final Slot output,
+                  final String functionName,
+                  final boolean countsRepetitions,
+                  final CountedLoop countedLoop,
+                  final LoopCondition condition) {
+        this.statements = statements;
+        this.environment = environment;
+        this.iterations = iterations;
+        this.remainingIterations = iterations;
+        this.procedure = procedure;
+        this.output = output;
+        this.functionName = functionName;
+        this.countsRepetitions = countsRepetitions;
+        this.countedLoop = countedLoop;
+        this.condition = condition;
+        this.repCount = countsRepetitions ? 1 : environment.repCount().intValue();
+        if (countedLoop != null) {
+            countedLoop.assign(0);
+        }
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if there are statements left to execute
+     *      (possibly after rewinding to the next iteration), <code>false</code>
+     *      otherwise
+     */
+    boolean hasNext() {
+        if (this.index < this.statements.size()) {
+            return true;
+        }
+        if (this.statements.isEmpty()) {
+            return false;
+        }
+        if (this.condition != null) {
+            if (this.remainingIterations > 0 && this.condition.test(this.environment)) {
+                this.index = 0;
+                return true;
+            }
+            this.remainingIterations = 0;
+            return false;
+        }
+        if (this.remainingIterations > 1) {
+            this.remainingIterations--;
+            this.index = 0;
+            final int iteration = this.iterations - this.remainingIterations;
+            if (this.countsRepetitions) {
+                this.repCount = iteration + 1;
+            }
+            if (this.countedLoop != null) {
+                this.countedLoop.assign(iteration);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return
+     *      Yields the next statement and advances the program counter of this frame
+     */
+    StatementNode next() {
+        this.environment.repCount().setInt(this.repCount);
+        return this.statements.get(this.index++);
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if executing this frame any further would not
+     *      execute another statement
+     */
+    boolean isExhausted() {
+        if (this.condition != null) {
+            // the condition must not be evaluated ahead of the remaining statements
+            return this.index >= this.statements.size() && (this.remainingIterations == 0 || this.statements.isEmpty());
+        }
+        return this.index >= this.statements.size() && (this.remainingIterations <= 1 || this.statements.isEmpty());
+    }
+
+    boolean isProcedure() {
+        return this.procedure;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if this is the procedure frame of a function that has
+     *      been called within an expression, <code>false</code> otherwise
+     */
+    boolean isReporter() {
+        return this.output != null;
+    }
+
+    /**
+     * Stores the value the function of this procedure frame outputs. Frames of functions
+     * that have been called as statements discard the value.
+     *
+     * @param value
+     *      the value the function outputs
+     */
+    void output(final Slot value) {
+        if (this.output != null) {
+            this.output.set(value);
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the name of the function that has been called within an expression, or
+     *      <code>null</code> if this is not the procedure frame of such a function
+     */
+    String functionName() {
+        return this.functionName;
+    }
+
+    Environment environment() {
+        return this.environment;
+    }
+
+    static Frame block(final List<StatementNode> statements, final Environment environment) {
+        return new Frame(statements, environment, 1, false, null, null, false, null, null);
+    }
+
+    static Frame loop(final List<StatementNode> statements, final Environment environment, final int iterations) {
+        return new Frame(statements, environment, iterations, false, null, null, true, null, null);
+    }
+
+    static Frame countedLoop(final List<StatementNode> statements, final Environment environment, final CountedLoop loop) {
+        return new Frame(statements, environment, loop.iterations(), false, null, null, false, loop, null);
+    }
+
+    /**
+     * @param statements
+     *      body of the loop
+     * @param environment
+     *      execution context of the loop
+     * @param condition
+     *      condition of the loop, which must hold for the first iteration
+     * @return
+     *      Yields a frame that executes the given statements as long as the
+     *      given condition holds
+     */
+    static Frame conditionalLoop(final List<StatementNode> statements, final Environment environment, final LoopCondition condition) {
+        return new Frame(statements, environment, 1, false, null, null, false, null, condition);
+    }
+
+    static Frame procedure(final List<StatementNode> statements, final Environment environment) {
+        return new Frame(statements, environment, 1, true, null, null, false, null, null);
+    }
+
+    /**
+     * @param statements
+     *      body of the function
+     * @param environment
+     *      execution context of the function
+     * @param output
+     *      the register that receives the value the function outputs
+     * @param functionName
+     *      name of the function
+     * @return
+     *      Yields the procedure frame of a function that has been called within an expression
+     */
+    static Frame reporter(final List<StatementNode> statements, final Environment environment, final Slot output, final String functionName) {
+        return new Frame(statements, environment, 1, true, output, functionName, false, null, null);
+    }
+}
@@ -0,0 +1,107 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Explicit call stack of the <code>TrampolinedInterpreter</code>. The stack grows on
+ * demand, but never beyond the configured frame budget. This makes the maximum recursion
+ * depth of a program a matter of configuration instead of the size of the Java stack
+ * of the thread that runs the interpreter.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class FrameStack {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int frameBudget;
+
+    private Frame[] frames;
+
+    private int size = 0;
+
+    /**
+     * @param frameBudget
+     *      maximum number of frames this stack is able to hold at any time
+     */
+    FrameStack(final int frameBudget) {
+        if (frameBudget < 1) {
+            throw new IllegalArgumentException("The frame budget must allow for at least one frame.");
+        }
+        this.frameBudget = frameBudget;
+        this.frames = new Frame[Math.min(INITIAL_CAPACITY, frameBudget)];
+    }
+
+    /**
+     * @param frame
+     *      the frame to push onto the stack
+     * @throws InterpreterException
+     *      if pushing the frame would exceed the frame budget
+     */
+    void push(final Frame frame) {
+        if (this.size == this.frameBudget) {
+            throw new InterpreterException("Recursion depth exceeds the frame budget of " + this.frameBudget + " frames.");
+        }
+        if (this.size == this.frames.length) {
+            final int newCapacity = (int) Math.min((long) this.frames.length * 2, this.frameBudget);
+            this.frames = Arrays.copyOf(this.frames, newCapacity);
+        }
+        this.frames[this.size++] = frame;
+    }
+
+    Frame peek() {
+        return this.frames[this.size - 1];
+    }
+
+    Frame pop() {
+        final Frame frame = this.frames[--this.size];
+        this.frames[this.size] = null;
+        return frame;
+    }
+
+    boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Pops all frames on top of the stack up to and including the nearest procedure
+     * frame, which leaves the current function invocation. If there is no procedure
+     * frame, the stack is emptied.
+     *
+     * @return
+     *      Yields the popped procedure frame or <code>null</code> if there is none
+     */
+    Frame unwindProcedure() {
+        while (this.size > 0) {
+            final Frame frame = pop();
+            if (frame.isProcedure()) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether all frames on top of the stack up to and including the nearest
+     * procedure frame are exhausted. If this holds, whatever statement has been taken
+     * from the top-most frame last is the final statement of the current function
+     * invocation and thus in tail position.
+     *
+     * @return
+     *      the number of frames that can be discarded if the current statement is
+     *      in tail position, or <code>0</code> if it is not
+     */
+    int framesInTailPosition() {
+        for (int i = this.size - 1; i >= 0; i--) {
+            final Frame frame = this.frames[i];
+            if (!frame.isExhausted()) {
+                return 0;
+            }
+            if (frame.isProcedure()) {
+                // the frame of a function called within an expression awaits its output
+                return frame.isReporter() ? 0 : this.size - i;
+            }
+        }
+        return 0;
+    }
+}
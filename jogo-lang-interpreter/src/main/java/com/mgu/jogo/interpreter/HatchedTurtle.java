@@ -0,0 +1,189 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * <code>Turtle</code> of a hatched turtle (cf. <code>Hatchery</code>), which runs on another
+ * thread than the turtle that draws its commands. Commands are collected in segments,
+ * which are appended to a <code>CommandBuffer</code> once they are full, once the turtle
+ * hatches another turtle and once it has finished. The thread that runs the program
+ * drains the buffer into the target of this turtle, i.e. the turtle that the hatching
+ * turtle has hatched from its own target.
+ *
+ * The producing side of this class is confined to the thread that runs the hatched
+ * turtle, whereas its target is confined to the draining thread.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class HatchedTurtle implements Turtle {
+
+    private static final int SEGMENT_LENGTH = 256;
+
+    private final Hatchery hatchery;
+
+    private final CommandBuffer buffer;
+
+    private final double resolution;
+
+    private Object[] segment = new Object[SEGMENT_LENGTH];
+
+    private int length = 0;
+
+    /**
+     * The <code>Turtle</code> that draws the commands of this turtle, or <code>null</code>
+     * until the segment that hatches this turtle has been drained.
+     */
+    private Turtle target;
+
+    /**
+     * @param hatchery
+     *      the hatchery of the run this turtle belongs to
+     * @param buffer
+     *      the buffer this turtle appends its segments to
+     * @param target
+     *      the <code>Turtle</code> that draws the commands of this turtle
+     */
+    HatchedTurtle(final Hatchery hatchery, final CommandBuffer buffer, final Turtle target) {
+        this(hatchery, buffer, target.resolution());
+        this.target = target;
+    }
+
+    private HatchedTurtle(final Hatchery hatchery, final CommandBuffer buffer, final double resolution) {
+        this.hatchery = hatchery;
+        this.buffer = buffer;
+        this.resolution = resolution;
+    }
+
+    private void issue(final Object item) {
+        if (this.hatchery.isAbandoned()) {
+            throw new InterpreterException("The run this turtle belongs to has been abandoned.");
+        }
+        this.segment[this.length++] = item;
+        if (this.length == SEGMENT_LENGTH) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends the commands issued so far to the buffer.
+     */
+    void flush() {
+        if (this.length == 0) {
+            return;
+        }
+        this.buffer.append(this, this.segment, this.length);
+        this.segment = new Object[SEGMENT_LENGTH];
+        this.length = 0;
+    }
+
+    /**
+     * Hands over the given items of a segment of this turtle to its target.
+     */
+    void drain(final Object[] items, final int length) {
+        for (int i = 0; i < length; i++) {
+            final Object item = items[i];
+            if (item instanceof TurtleCommand) {
+                ((TurtleCommand) item).applyTo(this.target);
+            } else {
+                ((HatchedTurtle) item).target = this.target.hatch();
+            }
+        }
+    }
+
+    /**
+     * Hatches a turtle whose target is hatched from the target of this turtle as soon as
+     * all commands this turtle has issued so far have been drained. The segment that
+     * hatches the turtle is appended right away, so it precedes any segment of the
+     * hatched turtle.
+     */
+    @Override
+    public HatchedTurtle hatch() {
+        final HatchedTurtle hatched = new HatchedTurtle(this.hatchery, this.buffer, this.resolution);
+        issue(hatched);
+        flush();
+        return hatched;
+    }
+
+    @Override
+    public void clear() {
+        issue(TurtleCommand.clear());
+    }
+
+    @Override
+    public void hide() {
+        issue(TurtleCommand.hide());
+    }
+
+    @Override
+    public void show() {
+        issue(TurtleCommand.show());
+    }
+
+    @Override
+    public void penUp() {
+        issue(TurtleCommand.penUp());
+    }
+
+    @Override
+    public void penDown() {
+        issue(TurtleCommand.penDown());
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        issue(TurtleCommand.setPenColor(penColor));
+    }
+
+    @Override
+    public void left(final int degrees) {
+        issue(TurtleCommand.left(degrees));
+    }
+
+    @Override
+    public void right(final int degrees) {
+        issue(TurtleCommand.right(degrees));
+    }
+
+    @Override
+    public void back(final int steps) {
+        issue(TurtleCommand.back(steps));
+    }
+
+    @Override
+    public void forward(final int steps) {
+        issue(TurtleCommand.forward(steps));
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        issue(TurtleCommand.move(positionX, positionY));
+    }
+
+    @Override
+    public void left(final double degrees) {
+        issue(TurtleCommand.left(degrees));
+    }
+
+    @Override
+    public void right(final double degrees) {
+        issue(TurtleCommand.right(degrees));
+    }
+
+    @Override
+    public void back(final double steps) {
+        issue(TurtleCommand.back(steps));
+    }
+
+    @Override
+    public void forward(final double steps) {
+        issue(TurtleCommand.forward(steps));
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        issue(TurtleCommand.arc(radius, degrees));
+    }
+
+    @Override
+    public double resolution() {
+        return this.resolution;
+    }
+}
@@ -0,0 +1,213 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs the turtles that a program hatches using <code>hatch [ STATEMENTS ]</code>. Every
+ * hatched turtle runs its statements as a task of its own on the executor of the run (cf.
+ * <code>InterpreterOptions#withHatchExecutor</code>), concurrently to the turtle that has
+ * hatched it, which carries on with its next statement right away. All environments of a
+ * run share a single hatchery.
+ *
+ * A hatched turtle runs within a child of the environment it has been hatched in, so it
+ * observes the variables and functions of the hatching turtle, including assignments the
+ * hatching turtle makes later on (cf. <code>Environment</code> on how environments are
+ * shared between threads). Since assignments bind variables of the environment they are
+ * made in, a hatched turtle never writes variables that other turtles observe. It reports
+ * the <code>repcount</code> the hatching turtle has had at the time and draws random
+ * numbers from a generator that has been split off the generator of the hatching turtle,
+ * so a seeded run hatches turtles that draw the same numbers every time.
+ *
+ * The commands of hatched turtles are collected by a lock-free <code>CommandBuffer</code>
+ * and drawn by the thread that runs the program, which is the only thread that calls the
+ * turtles of the host (cf. <code>Turtle#hatch</code>). The buffer is drained whenever the
+ * program hatches a turtle and while the program waits for its hatched turtles after its
+ * last statement. If a hatched turtle fails, the run is abandoned: all hatched turtles
+ * stop at their next turtle command, and the program fails with the failure of the turtle
+ * once it has finished. If the program itself fails, its hatched turtles are abandoned.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class Hatchery {
+
+    /**
+     * Maximum time the program waits for its hatched turtles before it draws what they
+     * have issued in the meantime.
+     */
+    private static final long DRAIN_INTERVAL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final InterpreterOptions options;
+
+    private final AtomicInteger runningTurtles = new AtomicInteger();
+
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    private volatile boolean abandoned = false;
+
+    private volatile Thread waitingThread = null;
+
+    /**
+     * Buffer of the commands of hatched turtles, or <code>null</code> until the program
+     * hatches its first turtle. Accessed by the thread that runs the program only, and
+     * handed over to hatched turtles along with their tasks.
+     */
+    private CommandBuffer buffer = null;
+
+    /**
+     * @param options
+     *      options of the run, which hatched turtles are run with as well
+     */
+    Hatchery(final InterpreterOptions options) {
+        this.options = options;
+    }
+
+    InterpreterOptions options() {
+        return this.options;
+    }
+
+    boolean isAbandoned() {
+        return this.abandoned;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the program has hatched a turtle, <code>false</code> otherwise
+     */
+    boolean hasHatched() {
+        return this.buffer != null;
+    }
+
+    /**
+     * Hatches a turtle from the turtle of the given environment and runs the given
+     * statements on it.
+     *
+     * @param statements
+     *      the statements the hatched turtle runs
+     * @param environment
+     *      execution context of the <code>hatch</code> statement
+     * @throws InterpreterException
+     *      if the turtle of the given environment is unable to hatch turtles, or if
+     *      the executor of the run rejects the hatched turtle
+     */
+    void hatch(final List<StatementNode> statements, final Environment environment) {
+        final HatchedTurtle turtle;
+        if (environment.isHatched()) {
+            turtle = (HatchedTurtle) environment.getTurtle().hatch();
+        } else {
+            final Turtle target = environment.getTurtle().hatch();
+            if (this.buffer == null) {
+                this.buffer = new CommandBuffer();
+            }
+            drain();
+            turtle = new HatchedTurtle(this, this.buffer, target);
+        }
+        final ProgramNode programNode = new ProgramNode(statements);
+        final Environment hatchedEnvironment = environment.createHatchedEnvironment(SegmentIndexingTurtle.decorateIfQueried(programNode, turtle));
+        this.runningTurtles.incrementAndGet();
+        try {
+            this.options.hatchExecutor().execute(() -> run(programNode, hatchedEnvironment, turtle));
+        } catch (RejectedExecutionException e) {
+            finished();
+            throw new InterpreterException("Unable to hatch a turtle, since the executor rejected it.");
+        }
+    }
+
+    private void run(final ProgramNode programNode, final Environment environment, final HatchedTurtle turtle) {
+        try {
+            new EvaluatingTreeVisitor(this.options).visit(programNode, environment);
+        } catch (RuntimeException e) {
+            this.failure.compareAndSet(null, e);
+            this.abandoned = true;
+        } finally {
+            turtle.flush();
+            finished();
+        }
+    }
+
+    private void finished() {
+        if (this.runningTurtles.decrementAndGet() == 0) {
+            final Thread thread = this.waitingThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+        }
+    }
+
+    /**
+     * Draws what the hatched turtles have issued so far. Must be called by the thread that
+     * runs the program.
+     */
+    void drain() {
+        if (this.buffer != null) {
+            this.buffer.drain();
+        }
+    }
+
+    /**
+     * Runs the given program, which is run by the current thread, and waits for all turtles
+     * it hatches to finish. The hatched turtles are abandoned if the program fails.
+     *
+     * @param program
+     *      the program to run
+     * @throws InterpreterException
+     *      if the program or any of its hatched turtles fails
+     */
+    void supervise(final Runnable program) {
+        try {
+            program.run();
+        } catch (RuntimeException e) {
+            abandon();
+            throw e;
+        }
+        join();
+    }
+
+    /**
+     * Waits for all hatched turtles to finish, while drawing what they issue.
+     *
+     * @throws InterpreterException
+     *      if any of the hatched turtles has failed, or if the current thread has been
+     *      interrupted while waiting
+     */
+    void join() {
+        if (!hasHatched()) {
+            return;
+        }
+        this.waitingThread = Thread.currentThread();
+        try {
+            while (this.runningTurtles.get() > 0) {
+                drain();
+                LockSupport.parkNanos(this, DRAIN_INTERVAL_NANOS);
+                if (Thread.interrupted()) {
+                    abandon();
+                    Thread.currentThread().interrupt();
+                    throw new InterpreterException("Interrupted while waiting for hatched turtles.");
+                }
+            }
+        } finally {
+            this.waitingThread = null;
+        }
+        drain();
+        final RuntimeException failure = this.failure.getAndSet(null);
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Lets all hatched turtles stop at their next turtle command, without drawing what
+     * they have issued so far.
+     */
+    void abandon() {
+        this.abandoned = true;
+    }
+}
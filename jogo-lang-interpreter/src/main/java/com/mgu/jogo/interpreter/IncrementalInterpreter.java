@@ -0,0 +1,208 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Interpreter for hosts that execute successive revisions of the same program, like an
+ * editor that re-renders the drawing after each edit. After top-level statements, the
+ * interpreter takes checkpoints that consist of a copy of the bindings of the global space,
+ * the number of turtle commands issued so far and a key that restores the random number
+ * generator of the run (cf. <code>RandomNumbers</code>). All commands are retained.
+ *
+ * Copying the global space costs time in proportion to the number of its bindings, so
+ * a checkpoint is only taken once the statements since the previous checkpoint have
+ * issued at least half as many commands as there are bindings, counting each statement as
+ * a command of its own. This bounds the cost of all checkpoints by twice the cost of the
+ * run itself, even if a program binds a large number of globals. The last statement of a
+ * run is checkpointed in any case, since appending statements is the most common edit.
+ *
+ * When the next revision of the program is run, statements are compared structurally
+ * with the statements of the previous revision (cf. <code>StructuralEquality</code>).
+ * Instead of executing the unchanged prefix again, the interpreter replays the commands
+ * the prefix issued onto the new <code>Turtle</code>, restores the global space from the
+ * last checkpoint within the unchanged prefix and resumes execution from there. Thus,
+ * re-running a long program after editing its last lines costs little more than drawing
+ * its segments.
+ *
+ * A <code>stop</code> outside of any function ends the run without taking a checkpoint.
+ * Neither are checkpoints taken once the run has hatched a turtle (cf. <code>Hatchery</code>),
+ * since the commands of hatched turtles are not retained for replay.
+ *
+ * Every <code>run</code> expects a <code>Turtle</code> in its initial state, e.g. a cleared
+ * canvas. Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class IncrementalInterpreter {
+
+    private final InterpreterOptions options;
+
+    private final List<Checkpoint> checkpoints = new ArrayList<>();
+
+    /**
+     * Top-level statements of the previous revision of the program.
+     */
+    private List<StatementNode> statements = new ArrayList<>();
+
+    private final List<TurtleCommand> commands = new ArrayList<>();
+
+    public IncrementalInterpreter() {
+        this(InterpreterOptions.defaults());
+    }
+
+    /**
+     * @param options
+     *      controls which optional optimizations the interpreter applies
+     */
+    public IncrementalInterpreter(final InterpreterOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Parses the given program and interprets it, resuming from the last checkpoint
+     * that is unaffected by the changes since the previous run.
+     *
+     * @param turtle
+     *      Implementation of <code>Turtle</code> in its initial state
+     * @param program
+     *      The LOGO program to interpret in <code>String</code> representation
+     * @return
+     *      Yields the number of top-level statements that have not been executed
+     *      again, but restored from checkpoints
+     */
+    public int run(final Turtle turtle, final String program) {
+        final Parser parser = new Parser(program, this.options.declarations());
+        final ProgramNode programNode = parser.parse();
+        final List<StatementNode> statements = programNode.statementNodes();
+
+        final Checkpoint checkpoint = discardCheckpointsAfter(unchangedStatements(statements));
+        final int unchangedStatements = checkpoint == null ? 0 : checkpoint.statementCount;
+        this.statements = statements;
+
+        final TraceRecordingTurtle recorder = new TraceRecordingTurtle(turtle, Integer.MAX_VALUE);
+        final Turtle target = SegmentIndexingTurtle.decorateIfQueried(programNode, recorder);
+        // replaying through the decorators rebuilds the segment index, if any, but
+        // the replayed commands are retained already
+        this.commands.forEach(command -> command.applyTo(target));
+        recorder.trace().clear();
+
+        final Environment rootEnvironment;
+        if (checkpoint == null) {
+            rootEnvironment = new Environment(target, this.options);
+        } else {
+            rootEnvironment = checkpoint.globalSpace.copyLocalBindings(target);
+            rootEnvironment.randomNumbers().reseed(checkpoint.randomKey);
+        }
+        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(this.options);
+        visitor.bindReporters(rootEnvironment);
+
+        try {
+            rootEnvironment.hatchery().supervise(() -> resume(statements, unchangedStatements, visitor, rootEnvironment, recorder));
+        } finally {
+            recorder.trace().clear();
+        }
+        return unchangedStatements;
+    }
+
+    private void resume(final List<StatementNode> statements,
+                        final int unchangedStatements,
+                        final EvaluatingTreeVisitor visitor,
+                        final Environment rootEnvironment,
+                        final TraceRecordingTurtle recorder) {
+        long workSinceCheckpoint = 0;
+        for (int i = unchangedStatements; i < statements.size(); i++) {
+            final StatementNode statement = statements.get(i);
+            visitor.visit(statement, rootEnvironment);
+            workSinceCheckpoint += 1 + recorder.trace().size();
+            this.commands.addAll(recorder.trace());
+            recorder.trace().clear();
+            if (visitor.isStopped()) {
+                // without a checkpoint, the next run executes the stop again
+                break;
+            }
+            if (rootEnvironment.hatchery().hasHatched()) {
+                // without a checkpoint, the next run executes this statement again
+                continue;
+            }
+            // rekeying after every statement keeps the random numbers independent of
+            // where checkpoints are taken
+            final long randomKey = rootEnvironment.randomNumbers().rekey();
+            if (2 * workSinceCheckpoint >= rootEnvironment.localBindingCount() || i == statements.size() - 1) {
+                this.checkpoints.add(new Checkpoint(i + 1, rootEnvironment.copyLocalBindings(null), this.commands.size(), randomKey));
+                workSinceCheckpoint = 0;
+            }
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the number of leading statements that are structurally equal to the
+     *      statements of the previous revision
+     */
+    private int unchangedStatements(final List<StatementNode> statements) {
+        final int candidates = Math.min(statements.size(), this.statements.size());
+        for (int i = 0; i < candidates; i++) {
+            if (!StructuralEquality.equal(this.statements.get(i), statements.get(i))) {
+                return i;
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Discards the checkpoints that have been taken after the given number of statements,
+     * along with the commands issued after the last retained checkpoint.
+     *
+     * @return
+     *      Yields the last retained checkpoint or <code>null</code> if none is retained
+     */
+    private Checkpoint discardCheckpointsAfter(final int unchangedStatements) {
+        int retainedCheckpoints = this.checkpoints.size();
+        while (retainedCheckpoints > 0 && this.checkpoints.get(retainedCheckpoints - 1).statementCount > unchangedStatements) {
+            retainedCheckpoints--;
+        }
+        this.checkpoints.subList(retainedCheckpoints, this.checkpoints.size()).clear();
+        final Checkpoint checkpoint = retainedCheckpoints == 0 ? null : this.checkpoints.get(retainedCheckpoints - 1);
+        this.commands.subList(checkpoint == null ? 0 : checkpoint.commandCount, this.commands.size()).clear();
+        return checkpoint;
+    }
+
+    /**
+     * Discards all checkpoints, so that the next run executes the whole program.
+     */
+    public void reset() {
+        this.checkpoints.clear();
+        this.statements = new ArrayList<>();
+        this.commands.clear();
+    }
+
+    /**
+     * State of the interpretation right after a top-level statement has been executed.
+     */
+    private static class Checkpoint {
+
+        private final int statementCount;
+
+        private final Environment globalSpace;
+
+        private final int commandCount;
+
+        private final long randomKey;
+
+        /**
+         * @param statementCount
+         *      number of top-level statements that have been executed up to this checkpoint
+         */
+        private Checkpoint(final int statementCount, final Environment globalSpace, final int commandCount, final long randomKey) {
+            this.statementCount = statementCount;
+            this.globalSpace = globalSpace;
+            this.commandCount = commandCount;
+            this.randomKey = randomKey;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>Turtle</code> which records the commands of itself and of all turtles hatched from
+ * it into a single sequence of <code>TurtleCommand</code>s, such that a single turtle that
+ * executes the sequence draws what all of them have drawn. Every turtle tracks its own
+ * position, heading, pen state and pen color, starting at the origin and heading along the
+ * x-axis. Before a command of a turtle other than the one that has issued the preceding
+ * command is recorded, the sequence carries the executing turtle over to the state of the
+ * issuing turtle: it lifts the pen, turns and moves to the position and heading of the
+ * issuing turtle, and restores its pen color and pen state.
+ *
+ * Instances of this class are not thread-safe, which is in line with the contract of
+ * {@link Turtle#hatch()}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class InterleavingTurtle implements Turtle {
+
+    private final Sequence sequence;
+
+    private double heading = 0.0;
+
+    private double positionX = 0.0;
+
+    private double positionY = 0.0;
+
+    private boolean penDown = true;
+
+    private int penColor = 0;
+
+    InterleavingTurtle() {
+        this.sequence = new Sequence(this);
+    }
+
+    /**
+     * Creates a turtle that starts off in the state the given turtle is in and records
+     * into the same sequence.
+     */
+    private InterleavingTurtle(final InterleavingTurtle parent) {
+        this.sequence = parent.sequence;
+        this.heading = parent.heading;
+        this.positionX = parent.positionX;
+        this.positionY = parent.positionY;
+        this.penDown = parent.penDown;
+        this.penColor = parent.penColor;
+    }
+
+    /**
+     * @return
+     *      Yields the commands recorded so far
+     */
+    List<TurtleCommand> commands() {
+        return this.sequence.commands;
+    }
+
+    private void record(final TurtleCommand command) {
+        if (this.sequence.current != this) {
+            carryOver(this.sequence.current);
+            this.sequence.current = this;
+        }
+        this.sequence.commands.add(command);
+    }
+
+    /**
+     * Records the commands that carry a turtle in the state of the given turtle over to
+     * the state of this turtle without drawing.
+     */
+    private void carryOver(final InterleavingTurtle from) {
+        final List<TurtleCommand> commands = this.sequence.commands;
+        if (from.penDown) {
+            commands.add(TurtleCommand.penUp());
+        }
+        final double distanceX = this.positionX - from.positionX;
+        final double distanceY = this.positionY - from.positionY;
+        double turn = this.heading - from.heading;
+        if (distanceX != 0.0 || distanceY != 0.0) {
+            final double bearing = Math.toDegrees(Math.atan2(distanceY, distanceX));
+            commands.add(TurtleCommand.right(bearing - from.heading));
+            commands.add(TurtleCommand.forward(Math.hypot(distanceX, distanceY)));
+            turn = this.heading - bearing;
+        }
+        if (turn != 0.0) {
+            commands.add(TurtleCommand.right(turn));
+        }
+        if (this.penColor != from.penColor) {
+            commands.add(TurtleCommand.setPenColor(this.penColor));
+        }
+        if (this.penDown) {
+            commands.add(TurtleCommand.penDown());
+        }
+    }
+
+    private void advance(final double steps) {
+        final double radians = Math.toRadians(this.heading);
+        this.positionX += Math.cos(radians) * steps;
+        this.positionY += Math.sin(radians) * steps;
+    }
+
+    @Override
+    public void clear() {
+        record(TurtleCommand.clear());
+    }
+
+    @Override
+    public void hide() {
+        record(TurtleCommand.hide());
+    }
+
+    @Override
+    public void show() {
+        record(TurtleCommand.show());
+    }
+
+    @Override
+    public void penUp() {
+        record(TurtleCommand.penUp());
+        this.penDown = false;
+    }
+
+    @Override
+    public void penDown() {
+        record(TurtleCommand.penDown());
+        this.penDown = true;
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        record(TurtleCommand.setPenColor(penColor));
+        this.penColor = penColor;
+    }
+
+    @Override
+    public void left(final int degrees) {
+        record(TurtleCommand.left(degrees));
+        this.heading -= degrees;
+    }
+
+    @Override
+    public void right(final int degrees) {
+        record(TurtleCommand.right(degrees));
+        this.heading += degrees;
+    }
+
+    @Override
+    public void back(final int steps) {
+        record(TurtleCommand.back(steps));
+        advance(-steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        record(TurtleCommand.forward(steps));
+        advance(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        record(TurtleCommand.move(positionX, positionY));
+        this.positionX = positionX;
+        this.positionY = positionY;
+    }
+
+    @Override
+    public void left(final double degrees) {
+        record(TurtleCommand.left(degrees));
+        this.heading -= degrees;
+    }
+
+    @Override
+    public void right(final double degrees) {
+        record(TurtleCommand.right(degrees));
+        this.heading += degrees;
+    }
+
+    @Override
+    public void back(final double steps) {
+        record(TurtleCommand.back(steps));
+        advance(-steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        record(TurtleCommand.forward(steps));
+        advance(steps);
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        record(TurtleCommand.arc(radius, degrees));
+        final TurtleTransform transform = TurtleTransform.arc(radius, degrees);
+        final double radians = Math.toRadians(this.heading);
+        final double cos = Math.cos(radians);
+        final double sin = Math.sin(radians);
+        this.positionX += cos * transform.translationX() - sin * transform.translationY();
+        this.positionY += sin * transform.translationX() + cos * transform.translationY();
+        this.heading += transform.rotation();
+    }
+
+    /**
+     * Hatches a turtle that records into the same sequence as this turtle.
+     */
+    @Override
+    public Turtle hatch() {
+        return new InterleavingTurtle(this);
+    }
+
+    /**
+     * Sequence of commands shared by a turtle and all turtles hatched from it.
+     */
+    private static final class Sequence {
+
+        private final List<TurtleCommand> commands = new ArrayList<>();
+
+        /**
+         * The turtle whose state a turtle that executes the sequence is in.
+         */
+        private InterleavingTurtle current;
+
+        private Sequence(final InterleavingTurtle current) {
+            this.current = current;
+        }
+    }
+}
@@ -8,12 +8,42 @@ import com.mgu.jogo.parser.ast.ProgramNode;
  * for <code>ContextualTreeVisitor</code> (cf. <code>EvaluatingTreeVisitor</code>) to
  * provide the root execution context (global space) for the interpreter.
  *
+ * The actual execution of a parsed program is delegated to an <code>ExecutionEngine</code>.
+ * Unless told otherwise, the interpreter uses the <code>TreeWalkingEngine</code>.
+ *
  * @author Markus Günther <markus.guenther@gmail.com>
  */
 public class Interpreter {
 
+    private final InterpreterOptions options;
+
+    private final ExecutionEngine engine;
+
+    public Interpreter() {
+        this(InterpreterOptions.defaults());
+    }
+
+    /**
+     * @param options
+     *      controls which optional optimizations the interpreter applies
+     */
+    public Interpreter(final InterpreterOptions options) {
+        this(options, new TreeWalkingEngine());
+    }
+
+    /**
+     * @param options
+     *      controls which optional optimizations the interpreter applies
+     * @param engine
+     *      the engine that executes parsed programs (cf. <code>ExecutionEngines</code>)
+     */
+    public Interpreter(final InterpreterOptions options, final ExecutionEngine engine) {
+        this.options = options;
+        this.engine = engine;
+    }
+
     /**
-     * Parses the given program and interprets it using a tree-based interpreter.
+     * Parses the given program and interprets it using the configured engine.
      *
      * @param turtle
      *      Implementation of <code>Turtle</code>
@@ -21,10 +51,8 @@ public class Interpreter {
      *      The LOGO program to interpret in <code>String</code> representation
      */
     public void run(final Turtle turtle, final String program) {
-        final Parser parser = new Parser(program);
+        final Parser parser = new Parser(program, this.options.declarations());
         final ProgramNode programNode = parser.parse();
-        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor();
-        final Environment rootEnvironment = new Environment(turtle);
-        visitor.visit(programNode, rootEnvironment);
+        this.engine.execute(programNode, turtle, this.options);
     }
 }
\ No newline at end of file
@@ -0,0 +1,238 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Declarations;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Immutable set of options that control optional optimizations of the
+ * <code>Interpreter</code>, the seed of its random numbers, its prelude and the executor of
+ * the turtles that programs hatch. All optimizations are disabled by default. Use the
+ * <code>with</code>-methods to derive a copy with an optimization enabled.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class InterpreterOptions {
+
+    private static final InterpreterOptions DEFAULTS = new InterpreterOptions();
+
+    private int traceCacheCapacity = 0;
+
+    private int maxTraceLength = 0;
+
+    private boolean summarizingRepeats = false;
+
+    private ForkJoinPool parallelRepeatPool = null;
+
+    private int parallelRepeatThreshold = 0;
+
+    private boolean seedingRandomNumbers = false;
+
+    private long randomSeed = 0L;
+
+    private Prelude prelude = null;
+
+    private Executor hatchExecutor = null;
+
+    private InterpreterOptions() {
+    }
+
+    private InterpreterOptions copy() {
+        final InterpreterOptions copy = new InterpreterOptions();
+        copy.traceCacheCapacity = this.traceCacheCapacity;
+        copy.maxTraceLength = this.maxTraceLength;
+        copy.summarizingRepeats = this.summarizingRepeats;
+        copy.parallelRepeatPool = this.parallelRepeatPool;
+        copy.parallelRepeatThreshold = this.parallelRepeatThreshold;
+        copy.seedingRandomNumbers = this.seedingRandomNumbers;
+        copy.randomSeed = this.randomSeed;
+        copy.prelude = this.prelude;
+        copy.hatchExecutor = this.hatchExecutor;
+        return copy;
+    }
+
+    /**
+     * @return
+     *      Yields the options with all optimizations disabled
+     */
+    public static InterpreterOptions defaults() {
+        return DEFAULTS;
+    }
+
+    /**
+     * Enables the memoization of side-effect-free function invocations (cf.
+     * <code>TraceCache</code>).
+     *
+     * @param capacity
+     *      maximum number of traces to retain
+     * @param maxTraceLength
+     *      maximum number of turtle commands a single trace may consist of
+     * @return
+     *      copy of these options with memoization enabled
+     */
+    public InterpreterOptions withTraceCache(final int capacity, final int maxTraceLength) {
+        if (capacity < 1 || maxTraceLength < 1) {
+            throw new IllegalArgumentException("Capacity and maximum trace length of a trace cache must be positive.");
+        }
+        final InterpreterOptions copy = copy();
+        copy.traceCacheCapacity = capacity;
+        copy.maxTraceLength = maxTraceLength;
+        return copy;
+    }
+
+    public boolean isMemoizing() {
+        return this.traceCacheCapacity > 0;
+    }
+
+    public int traceCacheCapacity() {
+        return this.traceCacheCapacity;
+    }
+
+    public int maxTraceLength() {
+        return this.maxTraceLength;
+    }
+
+    /**
+     * Enables closed-form summaries of <code>repeat</code> loops that do nothing but move and
+     * turn the turtle (cf. <code>RepeatSummary</code>). Such loops stop issuing commands once
+     * the turtle starts to retrace its path.
+     *
+     * @return
+     *      copy of these options with loop summaries enabled
+     */
+    public InterpreterOptions withRepeatSummaries() {
+        final InterpreterOptions copy = copy();
+        copy.summarizingRepeats = true;
+        return copy;
+    }
+
+    public boolean isSummarizingRepeats() {
+        return this.summarizingRepeats;
+    }
+
+    /**
+     * Enables the parallel execution of <code>repeat</code> loops whose iterations are
+     * independent of each other (cf. <code>ParallelRepeat</code>).
+     *
+     * @param pool
+     *      the pool that interprets chunks of iterations
+     * @param minIterations
+     *      minimum number of iterations a loop must have to be executed in parallel
+     * @return
+     *      copy of these options with parallel loops enabled
+     */
+    public InterpreterOptions withParallelRepeats(final ForkJoinPool pool, final int minIterations) {
+        if (pool == null || minIterations < 1) {
+            throw new IllegalArgumentException("Parallel loops require a pool and a positive minimum number of iterations.");
+        }
+        final InterpreterOptions copy = copy();
+        copy.parallelRepeatPool = pool;
+        copy.parallelRepeatThreshold = minIterations;
+        return copy;
+    }
+
+    /**
+     * @return
+     *      copy of these options with parallel loops disabled
+     */
+    public InterpreterOptions withoutParallelRepeats() {
+        final InterpreterOptions copy = copy();
+        copy.parallelRepeatPool = null;
+        copy.parallelRepeatThreshold = 0;
+        return copy;
+    }
+
+    public boolean isParallelizingRepeats() {
+        return this.parallelRepeatPool != null;
+    }
+
+    public ForkJoinPool parallelRepeatPool() {
+        return this.parallelRepeatPool;
+    }
+
+    public int parallelRepeatThreshold() {
+        return this.parallelRepeatThreshold;
+    }
+
+    /**
+     * Seeds the random number generator of every run, so that runs with the same options
+     * draw the same sequence of random numbers, no matter which thread executes them.
+     * Without a seed, every run draws numbers from a generator that is seeded from the
+     * system's entropy.
+     *
+     * @param seed
+     *      seed of the random number generator of every run
+     * @return
+     *      copy of these options with seeded random numbers
+     */
+    public InterpreterOptions withRandomSeed(final long seed) {
+        final InterpreterOptions copy = copy();
+        copy.seedingRandomNumbers = true;
+        copy.randomSeed = seed;
+        return copy;
+    }
+
+    public boolean isSeedingRandomNumbers() {
+        return this.seedingRandomNumbers;
+    }
+
+    public long randomSeed() {
+        return this.randomSeed;
+    }
+
+    /**
+     * Makes the procedures of the given prelude available to every run without defining
+     * them again (cf. <code>Prelude</code>).
+     *
+     * @param prelude
+     *      the library of procedures that every run is able to call
+     * @return
+     *      copy of these options with the given prelude
+     */
+    public InterpreterOptions withPrelude(final Prelude prelude) {
+        final InterpreterOptions copy = copy();
+        copy.prelude = prelude;
+        return copy;
+    }
+
+    public boolean hasPrelude() {
+        return this.prelude != null;
+    }
+
+    public Prelude prelude() {
+        return this.prelude;
+    }
+
+    /**
+     * Runs the turtles that programs hatch (cf. <code>Hatchery</code>) on the given executor.
+     * Without an executor of its own, every hatched turtle runs as a task of the common
+     * <code>ForkJoinPool</code>.
+     *
+     * @param executor
+     *      the executor that runs hatched turtles, one task per turtle
+     * @return
+     *      copy of these options with the given executor
+     */
+    public InterpreterOptions withHatchExecutor(final Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Hatched turtles require an executor.");
+        }
+        final InterpreterOptions copy = copy();
+        copy.hatchExecutor = executor;
+        return copy;
+    }
+
+    public Executor hatchExecutor() {
+        return this.hatchExecutor != null ? this.hatchExecutor : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * @return
+     *      Yields the procedures that programs may call without defining them, i.e.
+     *      all native procedures and the procedures of the prelude, if any
+     */
+    public Declarations declarations() {
+        return this.prelude != null ? this.prelude.declarations() : NativeProcedures.declarations();
+    }
+}
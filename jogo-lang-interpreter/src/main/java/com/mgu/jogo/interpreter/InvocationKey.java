@@ -0,0 +1,60 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+
+import java.util.Arrays;
+
+/**
+ * Identifies the invocation of a user-defined function by the function's definition
+ * (compared by identity) and the values of the arguments it has been invoked with.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class InvocationKey {
+
+    private final FunctionDefinitionNode function;
+
+    private final Slot[] argumentValues;
+
+    private final int hashCode;
+
+    /**
+     * @param function
+     *      the invoked function
+     * @param argumentValues
+     *      values of the arguments; the array must not be altered afterwards
+     */
+    InvocationKey(final FunctionDefinitionNode function, final Slot[] argumentValues) {
+        this.function = function;
+        this.argumentValues = argumentValues;
+        this.hashCode = 31 * System.identityHashCode(function) + Arrays.hashCode(argumentValues);
+    }
+
+    /**
+     * @param argumentValues
+     *      values of the arguments
+     * @return
+     *      Yields a deep copy of the given values that is safe to be used as key
+     */
+    static Slot[] copyOf(final Slot[] argumentValues) {
+        final Slot[] copy = new Slot[argumentValues.length];
+        for (int i = 0; i < argumentValues.length; i++) {
+            copy[i] = argumentValues[i].copy();
+        }
+        return copy;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof InvocationKey)) {
+            return false;
+        }
+        final InvocationKey that = (InvocationKey) other;
+        return this.function == that.function && Arrays.equals(this.argumentValues, that.argumentValues);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hashCode;
+    }
+}
@@ -0,0 +1,104 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Values of a single variable or register across all lanes of a lockstep evaluation
+ * (cf. <code>LockstepEvaluator</code>), stored as structure of arrays: lane <code>i</code>
+ * holds <code>ints[i]</code> unless <code>decimal[i]</code> is set, in which case it holds
+ * <code>doubles[i]</code>. Each lane follows the rules of numeric promotion on its own, so
+ * lanes may differ in their <code>ValueType</code>. Booleans are stored as the integers
+ * <code>1</code> and <code>0</code>, which they coerce to anyway. Arrays are not supported.
+ *
+ * A lane is <code>defined</code> once a value has been assigned to it. Variables that are
+ * assigned within divergent control flow are bound in some lanes only.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class LaneVector {
+
+    final int[] ints;
+
+    final double[] doubles;
+
+    final boolean[] decimal;
+
+    final boolean[] defined;
+
+    /**
+     * @param lanes
+     *      number of lanes
+     */
+    LaneVector(final int lanes) {
+        this.ints = new int[lanes];
+        this.doubles = new double[lanes];
+        this.decimal = new boolean[lanes];
+        this.defined = new boolean[lanes];
+    }
+
+    /**
+     * @return
+     *      Yields the value of the given lane as <code>int</code>; doubles are truncated
+     */
+    int intValue(final int lane) {
+        return this.decimal[lane] ? (int) this.doubles[lane] : this.ints[lane];
+    }
+
+    /**
+     * @return
+     *      Yields the value of the given lane as <code>double</code>
+     */
+    double doubleValue(final int lane) {
+        return this.decimal[lane] ? this.doubles[lane] : this.ints[lane];
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the value of the given lane equals <code>1</code>,
+     *      <code>false</code> otherwise
+     */
+    boolean isTrue(final int lane) {
+        return this.decimal[lane] ? this.doubles[lane] == 1.0 : this.ints[lane] == 1;
+    }
+
+    void setInt(final int lane, final int value) {
+        this.ints[lane] = value;
+        this.decimal[lane] = false;
+        this.defined[lane] = true;
+    }
+
+    void setDouble(final int lane, final double value) {
+        this.doubles[lane] = value;
+        this.decimal[lane] = true;
+        this.defined[lane] = true;
+    }
+
+    void setBoolean(final int lane, final boolean value) {
+        setInt(lane, value ? 1 : 0);
+    }
+
+    /**
+     * Copies the value of the given lane of the other vector into the same lane of this vector.
+     */
+    void set(final int lane, final LaneVector other) {
+        this.ints[lane] = other.ints[lane];
+        this.doubles[lane] = other.doubles[lane];
+        this.decimal[lane] = other.decimal[lane];
+        this.defined[lane] = true;
+    }
+
+    /**
+     * Copies the given value into the given lane of this vector.
+     *
+     * @throws InterpreterException
+     *      if the given slot holds an array
+     */
+    void set(final int lane, final Slot value) {
+        if (value.isArray()) {
+            throw new InterpreterException("Unable to evaluate arrays in lockstep.");
+        }
+        if (value.isDouble()) {
+            setDouble(lane, value.doubleValue());
+        } else {
+            setInt(lane, value.intValue());
+        }
+    }
+}
@@ -0,0 +1,896 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.AdditiveExpressionNode;
+import com.mgu.jogo.parser.ast.AndClauseNode;
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.BooleanNode;
+import com.mgu.jogo.parser.ast.EqualityExpressionNode;
+import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.MultiplicativeExpressionNode;
+import com.mgu.jogo.parser.ast.NumberNode;
+import com.mgu.jogo.parser.ast.OrClauseNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.RepCountNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
+import com.mgu.jogo.parser.ast.UnaryExpressionNode;
+import com.mgu.jogo.parser.ast.VariableReferenceNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Walks the AST of a program once on behalf of many runs, called lanes, which only differ
+ * in the values their global variables start with. Every variable and every register holds
+ * the values of all lanes at once (cf. <code>LaneVector</code>), so each node is dispatched
+ * once per batch of lanes, and the work per lane boils down to a tight loop over primitive
+ * arrays. Every lane issues its turtle commands to a <code>Turtle</code> of its own.
+ *
+ * Lanes may take different paths through the program. Each block of statements is executed
+ * under a mask that tells which lanes take part in it: an <code>if</code> splits the mask
+ * of its enclosing block into the lanes that take its branches, a loop keeps iterating as
+ * long as any lane does and drops lanes from its mask as they finish. <code>stop</code> and
+ * <code>output</code> set the completion code of the lanes that execute them, which removes
+ * these lanes from the masks of all enclosing blocks up to the invocation of the function.
+ * Variables bound within divergent control flow are bound in some lanes only, and a lookup
+ * resolves every lane on its own along the chain of scopes.
+ *
+ * Per lane, the evaluator issues the exact same sequence of turtle commands as the
+ * <code>EvaluatingTreeVisitor</code>, provided the program sticks to the subset of the
+ * language the <code>LockstepInterpreter</code> admits: neither arrays, random numbers,
+ * spatial queries nor native procedures are supported. A failure in any lane aborts all
+ * lanes. Instances of this class must not execute more than one program at a time.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class LockstepEvaluator {
+
+    private final Turtle[] turtles;
+
+    private final int lanes;
+
+    /**
+     * Iteration number of the innermost running <code>repeat</code> loop of every lane.
+     */
+    private final int[] repCount;
+
+    private final Completion[] completion;
+
+    /**
+     * Registers that expressions are evaluated into, indexed by the depth of the evaluation.
+     */
+    private final List<LaneVector> registers = new ArrayList<>();
+
+    /**
+     * Masks of the lanes that evaluate the right-hand side of a logical operator, indexed
+     * by the depth of the evaluation.
+     */
+    private final List<boolean[]> masks = new ArrayList<>();
+
+    /**
+     * Receives the values that functions invoked as statements output.
+     */
+    private final LaneVector discardedOutput;
+
+    /**
+     * Register that receives the values the innermost running function outputs, or
+     * <code>null</code> outside of any function.
+     */
+    private LaneVector output = null;
+
+    /**
+     * Depth of the first register that statements may evaluate expressions into. Registers
+     * below hold operands of an expression that calls the innermost running function.
+     */
+    private int base = 0;
+
+    /**
+     * @param turtles
+     *      the <code>Turtle</code> of every lane
+     */
+    LockstepEvaluator(final List<Turtle> turtles) {
+        this.turtles = turtles.toArray(new Turtle[turtles.size()]);
+        this.lanes = this.turtles.length;
+        this.repCount = new int[this.lanes];
+        this.completion = new Completion[this.lanes];
+        this.discardedOutput = new LaneVector(this.lanes);
+        Arrays.fill(this.repCount, Environment.NO_REPEAT);
+        Arrays.fill(this.completion, Completion.NORMAL);
+    }
+
+    /**
+     * Executes the given program in all lanes.
+     *
+     * @param programNode
+     *      root node of the program to execute
+     * @param parameterSets
+     *      the global variables every lane starts with, one map per lane
+     * @param prelude
+     *      frozen environment that binds the procedures of a <code>Prelude</code>, or
+     *      <code>null</code>
+     * @throws InterpreterException
+     *      if the program fails in any lane
+     */
+    void run(final ProgramNode programNode, final List<Map<String, Slot>> parameterSets, final Environment prelude) {
+        final Scope root = new Scope(null, prelude);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            for (Map.Entry<String, Slot> parameter : parameterSets.get(lane).entrySet()) {
+                root.localVector(parameter.getKey()).set(lane, parameter.getValue());
+            }
+        }
+        final boolean[] mask = new boolean[this.lanes];
+        Arrays.fill(mask, true);
+        try {
+            execute(programNode.statementNodes(), root, mask);
+        } finally {
+            // a stop outside of any function has ended the program in some lanes
+            Arrays.fill(this.completion, Completion.NORMAL);
+        }
+    }
+
+    /**
+     * Executes the given statements in order in the lanes of the given mask. Lanes that
+     * complete abruptly are removed from the mask, and execution ends as soon as no lane
+     * is left.
+     */
+    private void execute(final List<StatementNode> statements, final Scope scope, final boolean[] mask) {
+        for (StatementNode statement : statements) {
+            if (!retainRunningLanes(mask)) {
+                return;
+            }
+            execute(statement, scope, mask);
+        }
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if any lane of the given mask has not completed abruptly,
+     *      <code>false</code> otherwise
+     */
+    private boolean retainRunningLanes(final boolean[] mask) {
+        boolean anyRunning = false;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            mask[lane] = mask[lane] && this.completion[lane] == Completion.NORMAL;
+            anyRunning |= mask[lane];
+        }
+        return anyRunning;
+    }
+
+    private void execute(final StatementNode node, final Scope scope, final boolean[] mask) {
+        if (node instanceof FunctionCallNode) {
+            execute((FunctionCallNode) node, scope, mask);
+        } else if (node instanceof FunctionDefinitionNode) {
+            scope.install((FunctionDefinitionNode) node);
+        } else if (node instanceof RepeatNode) {
+            execute((RepeatNode) node, scope, mask);
+        } else if (node instanceof AssignmentNode) {
+            execute((AssignmentNode) node, scope, mask);
+        } else if (node instanceof IfNode) {
+            execute((IfNode) node, scope, mask);
+        } else if (node instanceof ForNode) {
+            execute((ForNode) node, scope, mask);
+        } else if (node instanceof WhileNode) {
+            execute((WhileNode) node, scope, mask);
+        } else if (node instanceof StopNode) {
+            complete(mask, Completion.STOP);
+        } else if (node instanceof OutputNode) {
+            execute((OutputNode) node, scope, mask);
+        } else {
+            throw new InterpreterException("Unable to execute " + node.getClass().getSimpleName() + " in lockstep.");
+        }
+    }
+
+    private void execute(final FunctionCallNode node, final Scope scope, final boolean[] mask) {
+        if (node.isBuiltin()) {
+            callBuiltin(node, scope, mask);
+        } else if (node.isNative()) {
+            throw new InterpreterException("Unable to call native procedure " + node.functionName() + " in lockstep.");
+        } else {
+            final FunctionDefinitionNode function = lookupFunction(node.functionName(), node.arity(), scope);
+            final LaneVector[] argumentValues = evaluateArguments(node.arguments(), scope, mask, this.base);
+            invoke(function, argumentValues, scope, mask, this.discardedOutput, this.base);
+        }
+    }
+
+    private void callBuiltin(final FunctionCallNode node, final Scope scope, final boolean[] mask) {
+        final String functionName = node.functionName();
+        if (node.arity() == 0) {
+            final Consumer<Turtle> procedure = Procedures.noArgProcedure(functionName);
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    procedure.accept(this.turtles[lane]);
+                }
+            }
+        } else if (node.arity() == 1) {
+            final LaneVector argument = register(this.base);
+            evaluate(node.arguments().get(0), scope, mask, argument, this.base + 1);
+            final ObjIntConsumer<Turtle> procedure = Procedures.singleArgProcedure(functionName);
+            final ObjDoubleConsumer<Turtle> decimalProcedure = Procedures.singleDecimalArgProcedure(functionName);
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (!mask[lane]) {
+                    continue;
+                }
+                if (argument.decimal[lane] && decimalProcedure != null) {
+                    decimalProcedure.accept(this.turtles[lane], argument.doubles[lane]);
+                } else {
+                    procedure.accept(this.turtles[lane], argument.intValue(lane));
+                }
+            }
+        } else if (node.arity() == 2) {
+            final LaneVector firstArgument = register(this.base);
+            final LaneVector secondArgument = register(this.base + 1);
+            evaluate(node.arguments().get(0), scope, mask, firstArgument, this.base + 2);
+            evaluate(node.arguments().get(1), scope, mask, secondArgument, this.base + 2);
+            final Procedures.TwoDecimalArgProcedure procedure = Procedures.twoDecimalArgProcedure(functionName);
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    procedure.accept(this.turtles[lane], firstArgument.doubleValue(lane), secondArgument.doubleValue(lane));
+                }
+            }
+        } else {
+            throw new InterpreterException("Unable to dispatch to the correct built-in procedure.");
+        }
+    }
+
+    private FunctionDefinitionNode lookupFunction(final String functionName, final int arity, final Scope scope) {
+        final FunctionDefinitionNode function = scope.lookupFunction(functionName);
+        if (function.arity() != arity) {
+            throw new InterpreterException("Unable to invoke user-defined function because expression lists do not match. Expected " + function.arity() + " expressions, but found " + arity + " expressions.");
+        }
+        return function;
+    }
+
+    private LaneVector[] evaluateArguments(final List<ExpressionNode> arguments, final Scope scope, final boolean[] mask, final int depth) {
+        final LaneVector[] argumentValues = new LaneVector[arguments.size()];
+        for (int i = 0; i < argumentValues.length; i++) {
+            argumentValues[i] = new LaneVector(this.lanes);
+            evaluate(arguments.get(i), scope, mask, argumentValues[i], depth);
+        }
+        return argumentValues;
+    }
+
+    /**
+     * Invokes the given function in the lanes of the given mask.
+     *
+     * @param output
+     *      the register that receives the values the function outputs
+     * @param base
+     *      depth of the first register the statements of the function may use
+     */
+    private void invoke(final FunctionDefinitionNode function,
+                        final LaneVector[] argumentValues,
+                        final Scope scope,
+                        final boolean[] mask,
+                        final LaneVector output,
+                        final int base) {
+        final Scope functionScope = new Scope(scope, null);
+        for (int i = 0; i < function.arity(); i++) {
+            functionScope.variables.put(function.argumentDefinitions().get(i).argumentName(), argumentValues[i]);
+        }
+        final LaneVector callerOutput = this.output;
+        final int callerBase = this.base;
+        this.output = output;
+        this.base = base;
+        try {
+            execute(function.statements(), functionScope, mask.clone());
+            if (output != this.discardedOutput) {
+                for (int lane = 0; lane < this.lanes; lane++) {
+                    if (mask[lane] && this.completion[lane] != Completion.OUTPUT) {
+                        throw new InterpreterException("Function " + function.functionName() + " did not output a value.");
+                    }
+                }
+            }
+        } finally {
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    this.completion[lane] = Completion.NORMAL;
+                }
+            }
+            this.output = callerOutput;
+            this.base = callerBase;
+        }
+    }
+
+    private void execute(final RepeatNode node, final Scope scope, final boolean[] mask) {
+        final LaneVector timesRegister = register(this.base);
+        evaluate(node.times(), scope, mask, timesRegister, this.base + 1);
+        final int[] times = new int[this.lanes];
+        int maxTimes = 0;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                times[lane] = timesRegister.intValue(lane);
+                maxTimes = Math.max(maxTimes, times[lane]);
+            }
+        }
+        final int[] outerRepCount = this.repCount.clone();
+        final boolean[] iterationMask = new boolean[this.lanes];
+        for (int i = 0; i < maxTimes; i++) {
+            boolean anyIterating = false;
+            for (int lane = 0; lane < this.lanes; lane++) {
+                iterationMask[lane] = mask[lane] && this.completion[lane] == Completion.NORMAL && i < times[lane];
+                if (iterationMask[lane]) {
+                    this.repCount[lane] = i + 1;
+                    anyIterating = true;
+                }
+            }
+            if (!anyIterating) {
+                break;
+            }
+            execute(node.statements(), scope, iterationMask);
+        }
+        System.arraycopy(outerRepCount, 0, this.repCount, 0, this.lanes);
+    }
+
+    /**
+     * Enters the given loop in every lane on its own, just like <code>CountedLoop</code>
+     * does, and iterates as long as any lane does.
+     */
+    private void execute(final ForNode node, final Scope scope, final boolean[] mask) {
+        final LaneVector start = register(this.base);
+        final LaneVector end = register(this.base + 1);
+        final LaneVector step = node.step() != null ? register(this.base + 2) : null;
+        evaluate(node.start(), scope, mask, start, this.base + 3);
+        evaluate(node.end(), scope, mask, end, this.base + 3);
+        if (step != null) {
+            evaluate(node.step(), scope, mask, step, this.base + 3);
+        }
+
+        final LaneVector variable = scope.localVector(node.variable());
+        final boolean[] decimal = new boolean[this.lanes];
+        final int[] intStart = new int[this.lanes];
+        final int[] intStep = new int[this.lanes];
+        final double[] decimalStart = new double[this.lanes];
+        final double[] decimalStep = new double[this.lanes];
+        final int[] iterations = new int[this.lanes];
+        int maxIterations = 0;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            final double startValue = start.doubleValue(lane);
+            final double endValue = end.doubleValue(lane);
+            boolean isDecimal = start.decimal[lane] || end.decimal[lane];
+            double stepValue = endValue < startValue ? -1.0 : 1.0;
+            if (step != null) {
+                isDecimal = isDecimal || step.decimal[lane];
+                stepValue = step.doubleValue(lane);
+            }
+            if (stepValue == 0.0) {
+                throw new InterpreterException("The step width of a for loop must not be zero.");
+            }
+            final double span = (endValue - startValue) / stepValue;
+            if (span < -CountedLoop.EPSILON) {
+                continue;
+            }
+            final long count = isDecimal ? (long) Math.floor(span + CountedLoop.EPSILON) + 1 : (long) (endValue - startValue) / (long) stepValue + 1;
+            if (count > Integer.MAX_VALUE) {
+                throw new InterpreterException("A for loop must not iterate more than " + Integer.MAX_VALUE + " times.");
+            }
+            decimal[lane] = isDecimal;
+            intStart[lane] = start.intValue(lane);
+            intStep[lane] = (int) stepValue;
+            decimalStart[lane] = startValue;
+            decimalStep[lane] = stepValue;
+            iterations[lane] = (int) count;
+            maxIterations = Math.max(maxIterations, iterations[lane]);
+        }
+
+        final boolean[] iterationMask = new boolean[this.lanes];
+        for (int i = 0; i < maxIterations; i++) {
+            boolean anyIterating = false;
+            for (int lane = 0; lane < this.lanes; lane++) {
+                iterationMask[lane] = mask[lane] && this.completion[lane] == Completion.NORMAL && i < iterations[lane];
+                if (!iterationMask[lane]) {
+                    continue;
+                }
+                if (decimal[lane]) {
+                    variable.setDouble(lane, decimalStart[lane] + i * decimalStep[lane]);
+                } else {
+                    variable.setInt(lane, intStart[lane] + i * intStep[lane]);
+                }
+                anyIterating = true;
+            }
+            if (!anyIterating) {
+                break;
+            }
+            execute(node.statements(), scope, iterationMask);
+        }
+    }
+
+    private void execute(final WhileNode node, final Scope scope, final boolean[] mask) {
+        final boolean[] loopMask = mask.clone();
+        final LaneVector condition = register(this.base);
+        while (retainRunningLanes(loopMask)) {
+            evaluate(node.condition(), scope, loopMask, condition, this.base + 1);
+            boolean anyIterating = false;
+            for (int lane = 0; lane < this.lanes; lane++) {
+                loopMask[lane] = loopMask[lane] && condition.isTrue(lane);
+                anyIterating |= loopMask[lane];
+            }
+            if (!anyIterating) {
+                return;
+            }
+            if (node.statements().isEmpty()) {
+                throw new InterpreterException("A while loop without statements never terminates once its condition holds.");
+            }
+            execute(node.statements(), scope, loopMask);
+        }
+    }
+
+    private void execute(final IfNode node, final Scope scope, final boolean[] mask) {
+        final LaneVector condition = register(this.base);
+        evaluate(node.condition(), scope, mask, condition, this.base + 1);
+        final boolean[] thenMask = new boolean[this.lanes];
+        final boolean[] elseMask = new boolean[this.lanes];
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                thenMask[lane] = condition.isTrue(lane);
+                elseMask[lane] = !thenMask[lane];
+            }
+        }
+        if (node.thenStatements() != null) {
+            execute(node.thenStatements(), scope, thenMask);
+        }
+        if (node.elseStatements() != null) {
+            execute(node.elseStatements(), scope, elseMask);
+        }
+    }
+
+    private void execute(final AssignmentNode node, final Scope scope, final boolean[] mask) {
+        final LaneVector value = register(this.base);
+        evaluate(node.expression(), scope, mask, value, this.base + 1);
+        final LaneVector variable = scope.localVector(node.variable());
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                variable.set(lane, value);
+            }
+        }
+    }
+
+    private void execute(final OutputNode node, final Scope scope, final boolean[] mask) {
+        if (this.output == null) {
+            throw new InterpreterException("Unable to output a value outside of a function.");
+        }
+        evaluate(node.expression(), scope, mask, this.output, this.base);
+        complete(mask, Completion.OUTPUT);
+    }
+
+    private void complete(final boolean[] mask, final Completion completion) {
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                this.completion[lane] = completion;
+            }
+        }
+    }
+
+    /**
+     * Evaluates the given expression in the lanes of the given mask into the given register.
+     * Lanes outside of the mask are left alone.
+     *
+     * @param depth
+     *      depth of the first register that is free to hold intermediate results
+     */
+    private void evaluate(final ExpressionNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        if (node instanceof VariableReferenceNode) {
+            lookupVariable(((VariableReferenceNode) node).variableName(), scope, mask, result);
+        } else if (node instanceof NumberNode) {
+            evaluate((NumberNode) node, mask, result);
+        } else if (node instanceof BooleanNode) {
+            final boolean value = ((BooleanNode) node).value();
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    result.setBoolean(lane, value);
+                }
+            }
+        } else if (node instanceof RepCountNode) {
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    result.setInt(lane, this.repCount[lane]);
+                }
+            }
+        } else if (node instanceof IntrinsicCallNode) {
+            evaluate((IntrinsicCallNode) node, scope, mask, result, depth);
+        } else if (node instanceof ReporterCallNode) {
+            final ReporterCallNode reporterCall = (ReporterCallNode) node;
+            final FunctionDefinitionNode function = lookupFunction(reporterCall.functionName(), reporterCall.arity(), scope);
+            final LaneVector[] argumentValues = evaluateArguments(reporterCall.arguments(), scope, mask, depth);
+            invoke(function, argumentValues, scope, mask, result, depth);
+        } else if (node instanceof OrClauseNode) {
+            evaluate((OrClauseNode) node, scope, mask, result, depth);
+        } else if (node instanceof AndClauseNode) {
+            evaluate((AndClauseNode) node, scope, mask, result, depth);
+        } else if (node instanceof EqualityExpressionNode) {
+            evaluate((EqualityExpressionNode) node, scope, mask, result, depth);
+        } else if (node instanceof EqualityOperandNode) {
+            evaluate((EqualityOperandNode) node, scope, mask, result, depth);
+        } else if (node instanceof AdditiveExpressionNode) {
+            evaluate((AdditiveExpressionNode) node, scope, mask, result, depth);
+        } else if (node instanceof MultiplicativeExpressionNode) {
+            evaluate((MultiplicativeExpressionNode) node, scope, mask, result, depth);
+        } else if (node instanceof UnaryExpressionNode) {
+            evaluate((UnaryExpressionNode) node, scope, mask, result, depth);
+        } else {
+            throw new InterpreterException("Unable to evaluate " + node.getClass().getSimpleName() + " in lockstep.");
+        }
+    }
+
+    /**
+     * Resolves every lane of the given variable on its own, since the variable may be
+     * bound to different scopes in different lanes.
+     */
+    private void lookupVariable(final String variableName, final Scope scope, final boolean[] mask, final LaneVector result) {
+        int unresolved = 0;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                result.defined[lane] = false;
+                unresolved++;
+            }
+        }
+        for (Scope current = scope; current != null && unresolved > 0; current = current.parent) {
+            final LaneVector variable = current.variables.get(variableName);
+            if (variable == null) {
+                continue;
+            }
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane] && !result.defined[lane] && variable.defined[lane]) {
+                    result.set(lane, variable);
+                    unresolved--;
+                }
+            }
+        }
+        if (unresolved > 0) {
+            throw new InterpreterException("Variable " + variableName + " is not defined.");
+        }
+    }
+
+    private void evaluate(final NumberNode node, final boolean[] mask, final LaneVector result) {
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (node.isDecimal()) {
+                result.setDouble(lane, node.decimalValue());
+            } else {
+                result.setInt(lane, node.value());
+            }
+        }
+    }
+
+    private void evaluate(final IntrinsicCallNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        final List<ExpressionNode> arguments = node.arguments();
+        if (arguments.isEmpty() || !node.intrinsic().isDeterministic()) {
+            throw new InterpreterException("Unable to evaluate intrinsic " + node.intrinsic() + " in lockstep.");
+        }
+        evaluate(arguments.get(0), scope, mask, result, depth);
+        if (arguments.size() == 1) {
+            for (int lane = 0; lane < this.lanes; lane++) {
+                if (mask[lane]) {
+                    evaluateUnaryIntrinsic(node, result, lane);
+                }
+            }
+            return;
+        }
+        final LaneVector right = register(depth);
+        evaluate(arguments.get(1), scope, mask, right, depth + 1);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (mask[lane]) {
+                evaluateBinaryIntrinsic(node, result, right, lane);
+            }
+        }
+    }
+
+    private static void evaluateUnaryIntrinsic(final IntrinsicCallNode node, final LaneVector result, final int lane) {
+        switch (node.intrinsic()) {
+            case SIN:
+                result.setDouble(lane, Math.sin(Math.toRadians(result.doubleValue(lane))));
+                return;
+            case COS:
+                result.setDouble(lane, Math.cos(Math.toRadians(result.doubleValue(lane))));
+                return;
+            case SQRT:
+                result.setDouble(lane, Math.sqrt(result.doubleValue(lane)));
+                return;
+            case ABS:
+                if (result.decimal[lane]) {
+                    result.setDouble(lane, Math.abs(result.doubles[lane]));
+                } else {
+                    result.setInt(lane, Math.abs(result.ints[lane]));
+                }
+                return;
+            case ROUND:
+                result.setInt(lane, (int) Math.round(result.doubleValue(lane)));
+                return;
+            default:
+                throw new InterpreterException("Unknown intrinsic " + node.intrinsic() + ".");
+        }
+    }
+
+    private static void evaluateBinaryIntrinsic(final IntrinsicCallNode node, final LaneVector result, final LaneVector right, final int lane) {
+        final boolean isDouble = result.decimal[lane] || right.decimal[lane];
+        switch (node.intrinsic()) {
+            case MIN:
+                if (isDouble) {
+                    result.setDouble(lane, Math.min(result.doubleValue(lane), right.doubleValue(lane)));
+                } else {
+                    result.setInt(lane, Math.min(result.ints[lane], right.ints[lane]));
+                }
+                return;
+            case MAX:
+                if (isDouble) {
+                    result.setDouble(lane, Math.max(result.doubleValue(lane), right.doubleValue(lane)));
+                } else {
+                    result.setInt(lane, Math.max(result.ints[lane], right.ints[lane]));
+                }
+                return;
+            case MOD:
+                if (right.doubleValue(lane) == 0.0) {
+                    throw new InterpreterException("Unable to compute the modulus with respect to 0.");
+                }
+                if (isDouble) {
+                    final double divisor = right.doubleValue(lane);
+                    final double remainder = result.doubleValue(lane) % divisor;
+                    result.setDouble(lane, remainder != 0.0 && (remainder < 0.0) != (divisor < 0.0) ? remainder + divisor : remainder);
+                } else {
+                    result.setInt(lane, Math.floorMod(result.ints[lane], right.ints[lane]));
+                }
+                return;
+            default:
+                throw new InterpreterException("Unknown intrinsic " + node.intrinsic() + ".");
+        }
+    }
+
+    private void evaluate(final OrClauseNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        evaluate(node.andClause(), scope, mask, result, depth);
+        // only lanes whose left-hand side is false evaluate the right-hand side
+        final boolean[] rightMask = mask(depth);
+        boolean anyRight = false;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            rightMask[lane] = mask[lane] && !result.isTrue(lane);
+            anyRight |= rightMask[lane];
+        }
+        if (anyRight) {
+            evaluate(node.nextOrClause(), scope, rightMask, result, depth + 1);
+        }
+    }
+
+    private void evaluate(final AndClauseNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        evaluate(node.equalityExpression(), scope, mask, result, depth);
+        // only lanes whose left-hand side is not false evaluate the right-hand side
+        final boolean[] rightMask = mask(depth);
+        boolean anyRight = false;
+        for (int lane = 0; lane < this.lanes; lane++) {
+            rightMask[lane] = mask[lane] && result.doubleValue(lane) != 0.0;
+            anyRight |= rightMask[lane];
+        }
+        if (anyRight) {
+            evaluate(node.nextAndClause(), scope, rightMask, result, depth + 1);
+        }
+    }
+
+    private void evaluate(final EqualityExpressionNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        evaluate(node.equalityOperand(), scope, mask, result, depth);
+        final LaneVector right = register(depth);
+        evaluate(node.nextEqualityOperand(), scope, mask, right, depth + 1);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (result.decimal[lane] || right.decimal[lane]) {
+                result.setBoolean(lane, result.doubleValue(lane) == right.doubleValue(lane));
+            } else {
+                result.setBoolean(lane, result.ints[lane] == right.ints[lane]);
+            }
+        }
+    }
+
+    private void evaluate(final EqualityOperandNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        final char operator = node.operator();
+        if (operator != '>' && operator != '<') {
+            throw new InterpreterException("Expected a '<' or '>' operator in EqualityOperandNode");
+        }
+        evaluate(node.additiveExpression(), scope, mask, result, depth);
+        final LaneVector right = register(depth);
+        evaluate(node.nextAdditiveExpression(), scope, mask, right, depth + 1);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (result.decimal[lane] || right.decimal[lane]) {
+                final double leftDouble = result.doubleValue(lane);
+                final double rightHandSide = right.doubleValue(lane);
+                result.setBoolean(lane, operator == '>' ? leftDouble > rightHandSide : leftDouble < rightHandSide);
+            } else {
+                final int leftInt = result.ints[lane];
+                final int rightHandSide = right.ints[lane];
+                result.setBoolean(lane, operator == '>' ? leftInt > rightHandSide : leftInt < rightHandSide);
+            }
+        }
+    }
+
+    private void evaluate(final AdditiveExpressionNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        final char operator = node.operator();
+        if (operator != '+' && operator != '-') {
+            throw new InterpreterException("Expected a '+' or '-' operator in AdditiveNode");
+        }
+        evaluate(node.addend(), scope, mask, result, depth);
+        final LaneVector right = register(depth);
+        evaluate(node.augend(), scope, mask, right, depth + 1);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (result.decimal[lane] || right.decimal[lane]) {
+                final double leftDouble = result.doubleValue(lane);
+                final double rightHandSide = right.doubleValue(lane);
+                result.setDouble(lane, operator == '+' ? leftDouble + rightHandSide : leftDouble - rightHandSide);
+            } else {
+                final int leftInt = result.ints[lane];
+                final int rightHandSide = right.ints[lane];
+                result.setInt(lane, operator == '+' ? leftInt + rightHandSide : leftInt - rightHandSide);
+            }
+        }
+    }
+
+    private void evaluate(final MultiplicativeExpressionNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        final char operator = node.operator();
+        if (operator != '*' && operator != '/' && operator != '^') {
+            throw new InterpreterException("Expected a '*', '/' or '^' operator in MultiplicativeNode");
+        }
+        evaluate(node.leftFactor(), scope, mask, result, depth);
+        final LaneVector right = register(depth);
+        evaluate(node.rightFactor(), scope, mask, right, depth + 1);
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (result.decimal[lane] || right.decimal[lane]) {
+                final double leftDouble = result.doubleValue(lane);
+                final double rightHandSide = right.doubleValue(lane);
+                if (operator == '*') {
+                    result.setDouble(lane, leftDouble * rightHandSide);
+                } else if (operator == '/') {
+                    result.setDouble(lane, leftDouble / rightHandSide);
+                } else {
+                    result.setDouble(lane, Math.pow(leftDouble, rightHandSide));
+                }
+            } else {
+                final int leftInt = result.ints[lane];
+                final int rightHandSide = right.ints[lane];
+                if (operator == '*') {
+                    result.setInt(lane, leftInt * rightHandSide);
+                } else if (operator == '/') {
+                    result.setInt(lane, leftInt / rightHandSide);
+                } else {
+                    result.setInt(lane, (int) Math.pow(leftInt, rightHandSide));
+                }
+            }
+        }
+    }
+
+    private void evaluate(final UnaryExpressionNode node, final Scope scope, final boolean[] mask, final LaneVector result, final int depth) {
+        evaluate(node.expression(), scope, mask, result, depth);
+        if (!node.negate()) {
+            return;
+        }
+        for (int lane = 0; lane < this.lanes; lane++) {
+            if (!mask[lane]) {
+                continue;
+            }
+            if (result.decimal[lane]) {
+                result.setDouble(lane, -result.doubles[lane]);
+            } else {
+                result.setInt(lane, -result.ints[lane]);
+            }
+        }
+    }
+
+    private LaneVector register(final int depth) {
+        while (this.registers.size() <= depth) {
+            this.registers.add(new LaneVector(this.lanes));
+        }
+        return this.registers.get(depth);
+    }
+
+    private boolean[] mask(final int depth) {
+        while (this.masks.size() <= depth) {
+            this.masks.add(new boolean[this.lanes]);
+        }
+        return this.masks.get(depth);
+    }
+
+    /**
+     * Variable bindings and function definitions of a single environment across all lanes.
+     * Scopes are chained dynamically, just like environments: the scope of a function
+     * invocation is a child of the scope of its caller.
+     */
+    private final class Scope {
+
+        private final Scope parent;
+
+        private final Environment prelude;
+
+        private final Map<String, LaneVector> variables = new HashMap<>();
+
+        private final Map<String, FunctionDefinitionNode> functions = new HashMap<>();
+
+        /**
+         * @param parent
+         *      the scope of the caller, or <code>null</code> for the global space
+         * @param prelude
+         *      frozen environment the global space is attached to, or <code>null</code>
+         */
+        private Scope(final Scope parent, final Environment prelude) {
+            this.parent = parent;
+            this.prelude = prelude;
+        }
+
+        /**
+         * @return
+         *      Yields the lanes of the given variable within this scope, which are
+         *      bound to it on demand
+         */
+        private LaneVector localVector(final String variableName) {
+            return this.variables.computeIfAbsent(variableName, name -> new LaneVector(LockstepEvaluator.this.lanes));
+        }
+
+        private void install(final FunctionDefinitionNode function) {
+            final String functionName = function.functionName();
+            if (this.functions.containsKey(functionName)) {
+                throw new InterpreterException("Unable to override already existing function definition for function " + functionName);
+            }
+            this.functions.put(functionName, function);
+        }
+
+        private FunctionDefinitionNode lookupFunction(final String functionName) {
+            Scope scope = this;
+            while (scope.parent != null) {
+                final FunctionDefinitionNode function = scope.functions.get(functionName);
+                if (function != null) {
+                    return function;
+                }
+                scope = scope.parent;
+            }
+            final FunctionDefinitionNode function = scope.functions.get(functionName);
+            if (function != null) {
+                return function;
+            } else if (scope.prelude != null) {
+                return scope.prelude.lookupFunction(functionName);
+            }
+            throw new InterpreterException("Function " + functionName + " is not defined.");
+        }
+    }
+
+    /**
+     * Tells how the statements a lane has executed last have completed.
+     */
+    private enum Completion {
+        /**
+         * The statements have completed normally.
+         */
+        NORMAL,
+        /**
+         * A <code>stop</code> has left the innermost running function.
+         */
+        STOP,
+        /**
+         * An <code>output</code> has left the innermost running function with a value.
+         */
+        OUTPUT
+    }
+}
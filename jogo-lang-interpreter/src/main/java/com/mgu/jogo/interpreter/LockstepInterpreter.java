@@ -0,0 +1,209 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.ArrayNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.HatchNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.ItemNode;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Interpreter for parameter sweeps, which run the same program many times over, each
+ * time with different values of its global variables, e.g. <code>polyspi 20 angle</code>
+ * with every angle from 1 to 359. Every set of parameters makes up a lane that draws onto
+ * a <code>Turtle</code> of its own. The program is parsed once, and all lanes are walked
+ * through its AST in lockstep (cf. <code>LockstepEvaluator</code>), so the cost of
+ * dispatching on the nodes of the AST is paid once per batch instead of once per run.
+ *
+ * Lockstep evaluation covers numbers, booleans, variables, user-defined functions and all
+ * control structures but <code>hatch</code>. Programs that use arrays, random numbers,
+ * spatial queries, native procedures or <code>hatch</code>, that define functions within
+ * control structures or that run on a turtle which asks for a coarser resolution (cf.
+ * <code>Turtle#resolution</code>), are run one lane after another by the
+ * <code>EvaluatingTreeVisitor</code> instead. Either way, every lane issues the exact same
+ * sequence of turtle commands as a run of the <code>Interpreter</code> whose global space
+ * starts with the parameters of the lane.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class LockstepInterpreter {
+
+    private final InterpreterOptions options;
+
+    public LockstepInterpreter() {
+        this(InterpreterOptions.defaults());
+    }
+
+    /**
+     * @param options
+     *      controls which optional optimizations the interpreter applies to programs that
+     *      are not evaluated in lockstep, and which prelude programs may call
+     */
+    public LockstepInterpreter(final InterpreterOptions options) {
+        this.options = options;
+    }
+
+    /**
+     * Parses the given program and runs it once per set of parameters.
+     *
+     * @param turtles
+     *      the <code>Turtle</code> of every lane
+     * @param program
+     *      The LOGO program to interpret in <code>String</code> representation
+     * @param parameterSets
+     *      the values of the global variables every lane starts with, one map per lane
+     * @throws IllegalArgumentException
+     *      if the number of parameter sets does not match the number of turtles
+     * @throws InterpreterException
+     *      if the program fails in any lane
+     * @return
+     *      <code>true</code> if the lanes have been evaluated in lockstep, <code>false</code>
+     *      if they have been run one after another
+     */
+    public boolean run(final List<Turtle> turtles, final String program, final List<Map<String, Slot>> parameterSets) {
+        if (turtles.size() != parameterSets.size()) {
+            throw new IllegalArgumentException("Expected a parameter set for each of the " + turtles.size() + " turtles, but found " + parameterSets.size() + ".");
+        }
+        final Parser parser = new Parser(program, this.options.declarations());
+        final ProgramNode programNode = parser.parse();
+        final Environment prelude = this.options.hasPrelude() ? this.options.prelude().environment() : null;
+
+        if (!isLockstepCapable(programNode, prelude, turtles, parameterSets)) {
+            runOneAfterAnother(programNode, turtles, parameterSets);
+            return false;
+        }
+        new LockstepEvaluator(turtles).run(programNode, parameterSets, prelude);
+        return true;
+    }
+
+    private void runOneAfterAnother(final ProgramNode programNode, final List<Turtle> turtles, final List<Map<String, Slot>> parameterSets) {
+        for (int lane = 0; lane < turtles.size(); lane++) {
+            final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(this.options);
+            final Environment rootEnvironment = new Environment(SegmentIndexingTurtle.decorateIfQueried(programNode, turtles.get(lane)), this.options);
+            parameterSets.get(lane).forEach(rootEnvironment::install);
+            visitor.visit(programNode, rootEnvironment);
+        }
+    }
+
+    private static boolean isLockstepCapable(final ProgramNode programNode,
+                                             final Environment prelude,
+                                             final List<Turtle> turtles,
+                                             final List<Map<String, Slot>> parameterSets) {
+        if (turtles.stream().anyMatch(turtle -> turtle.resolution() > 0.0)) {
+            return false;
+        }
+        if (parameterSets.stream().anyMatch(parameters -> parameters.values().stream().anyMatch(Slot::isArray))) {
+            return false;
+        }
+        final Set<String> calledFunctions = new HashSet<>();
+        if (!isLockstepCapable(programNode.statementNodes(), calledFunctions)) {
+            return false;
+        }
+        if (prelude == null) {
+            return true;
+        }
+        // procedures of the prelude that the program calls have to be capable as well
+        final Set<FunctionDefinitionNode> checkedFunctions = new HashSet<>();
+        final Deque<String> pendingFunctions = new ArrayDeque<>(calledFunctions);
+        while (!pendingFunctions.isEmpty()) {
+            final FunctionDefinitionNode function = lookupPreludeFunction(prelude, pendingFunctions.pop());
+            if (function == null || !checkedFunctions.add(function)) {
+                continue;
+            }
+            final Set<String> functionsCalledByPrelude = new HashSet<>();
+            if (!isLockstepCapable(function.statements(), functionsCalledByPrelude)) {
+                return false;
+            }
+            pendingFunctions.addAll(functionsCalledByPrelude);
+        }
+        return true;
+    }
+
+    private static FunctionDefinitionNode lookupPreludeFunction(final Environment prelude, final String functionName) {
+        try {
+            return prelude.lookupFunction(functionName);
+        } catch (InterpreterException e) {
+            // the function is defined by the program itself, or not at all
+            return null;
+        }
+    }
+
+    /**
+     * @param calledFunctions
+     *      receives the names of all user-defined functions the given statements call
+     */
+    private static boolean isLockstepCapable(final List<StatementNode> statements, final Set<String> calledFunctions) {
+        final Predicate<ExpressionNode> isIncapable = node -> {
+            if (node instanceof ReporterCallNode) {
+                calledFunctions.add(((ReporterCallNode) node).functionName());
+            }
+            return node instanceof ItemNode
+                    || node instanceof ArrayNode
+                    || (node instanceof IntrinsicCallNode && !((IntrinsicCallNode) node).intrinsic().isDeterministic());
+        };
+        return hasCapableStructure(statements, true, calledFunctions) && !Expressions.anyMatch(statements, isIncapable);
+    }
+
+    /**
+     * @param mayDefineFunctions
+     *      <code>true</code> if the given statements are the statements of a program or
+     *      of a function, <code>false</code> if they belong to a control structure
+     * @param calledFunctions
+     *      receives the names of all user-defined functions the given statements call
+     *      as procedures
+     */
+    private static boolean hasCapableStructure(final List<StatementNode> statements, final boolean mayDefineFunctions, final Set<String> calledFunctions) {
+        if (statements == null) {
+            return true;
+        }
+        for (StatementNode statement : statements) {
+            final boolean isCapable;
+            if (statement instanceof SetItemNode || statement instanceof RerandomNode || statement instanceof HatchNode) {
+                isCapable = false;
+            } else if (statement instanceof FunctionCallNode) {
+                final FunctionCallNode call = (FunctionCallNode) statement;
+                if (!call.isBuiltin() && !call.isNative()) {
+                    calledFunctions.add(call.functionName());
+                }
+                isCapable = !call.isNative();
+            } else if (statement instanceof FunctionDefinitionNode) {
+                isCapable = mayDefineFunctions && hasCapableStructure(((FunctionDefinitionNode) statement).statements(), true, calledFunctions);
+            } else if (statement instanceof RepeatNode) {
+                isCapable = hasCapableStructure(((RepeatNode) statement).statements(), false, calledFunctions);
+            } else if (statement instanceof ForNode) {
+                isCapable = hasCapableStructure(((ForNode) statement).statements(), false, calledFunctions);
+            } else if (statement instanceof WhileNode) {
+                isCapable = hasCapableStructure(((WhileNode) statement).statements(), false, calledFunctions);
+            } else if (statement instanceof IfNode) {
+                final IfNode ifNode = (IfNode) statement;
+                isCapable = hasCapableStructure(ifNode.thenStatements(), false, calledFunctions)
+                        && hasCapableStructure(ifNode.elseStatements(), false, calledFunctions);
+            } else {
+                isCapable = true;
+            }
+            if (!isCapable) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
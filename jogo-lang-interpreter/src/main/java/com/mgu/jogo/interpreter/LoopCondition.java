@@ -0,0 +1,128 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.EqualityExpressionNode;
+import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.NumberNode;
+import com.mgu.jogo.parser.ast.UnaryExpressionNode;
+import com.mgu.jogo.parser.ast.VariableReferenceNode;
+
+/**
+ * Condition of a <code>while</code> loop that has been bound to the environment of the
+ * loop. Conditions are evaluated once per iteration, so the common case of comparing a
+ * variable or a number to another variable or number is bound to the operands directly:
+ * variables that are bound to the environment of the loop are resolved to their
+ * <code>Slot</code>s once, and the comparison reads these slots without any dispatch on
+ * the type of the expression or any lookup in the environment. All other conditions are
+ * evaluated by the <code>ExpressionResolver</code>. Once the environment of the loop is
+ * shared with hatched turtles (cf. <code>Environment</code>), assignments rebind variables
+ * instead of updating their slots, so variables are looked up on every test from then on.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class LoopCondition {
+
+    private final ExpressionNode condition;
+
+    private final char operator;
+
+    private final Operand left;
+
+    private final Operand right;
+
+    private LoopCondition(final ExpressionNode condition, final char operator, final Operand left, final Operand right) {
+        this.condition = condition;
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+    /**
+     * @param condition
+     *      condition of the loop
+     * @param environment
+     *      execution context of the loop
+     * @return
+     *      Yields the given condition bound to the given environment
+     */
+    static LoopCondition bind(final ExpressionNode condition, final Environment environment) {
+        if (condition instanceof EqualityOperandNode) {
+            final EqualityOperandNode comparison = (EqualityOperandNode) condition;
+            final Operand left = Operand.bind(comparison.additiveExpression(), environment);
+            final Operand right = Operand.bind(comparison.nextAdditiveExpression(), environment);
+            if (left != null && right != null) {
+                return new LoopCondition(condition, comparison.operator(), left, right);
+            }
+        } else if (condition instanceof EqualityExpressionNode) {
+            final EqualityExpressionNode equality = (EqualityExpressionNode) condition;
+            final Operand left = Operand.bind(equality.equalityOperand(), environment);
+            final Operand right = Operand.bind(equality.nextEqualityOperand(), environment);
+            if (left != null && right != null) {
+                return new LoopCondition(condition, '=', left, right);
+            }
+        }
+        return new LoopCondition(condition, (char) 0, null, null);
+    }
+
+    /**
+     * @param environment
+     *      execution context of the loop
+     * @return
+     *      <code>true</code> if the condition holds, <code>false</code> otherwise
+     */
+    boolean test(final Environment environment) {
+        if (this.left == null) {
+            return ExpressionResolver.resolveBoolean(this.condition, environment);
+        }
+        final Slot leftValue = this.left.resolve(environment);
+        final Slot rightValue = this.right.resolve(environment);
+        if (leftValue.isDouble() || rightValue.isDouble()) {
+            final double lhs = leftValue.doubleValue();
+            final double rhs = rightValue.doubleValue();
+            return this.operator == '<' ? lhs < rhs : this.operator == '>' ? lhs > rhs : lhs == rhs;
+        }
+        final int lhs = leftValue.intValue();
+        final int rhs = rightValue.intValue();
+        return this.operator == '<' ? lhs < rhs : this.operator == '>' ? lhs > rhs : lhs == rhs;
+    }
+
+    /**
+     * Number or variable that is compared by a condition.
+     */
+    private static final class Operand {
+
+        private final Slot slot;
+
+        private final String variableName;
+
+        private Operand(final Slot slot, final String variableName) {
+            this.slot = slot;
+            this.variableName = variableName;
+        }
+
+        private static Operand bind(final ExpressionNode node, final Environment environment) {
+            ExpressionNode operand = node;
+            if (operand instanceof UnaryExpressionNode && !((UnaryExpressionNode) operand).negate()) {
+                operand = ((UnaryExpressionNode) operand).expression();
+            }
+            if (operand instanceof NumberNode) {
+                final NumberNode number = (NumberNode) operand;
+                return new Operand(number.isDecimal() ? Slot.ofDouble(number.decimalValue()) : Slot.ofInt(number.value()), null);
+            } else if (operand instanceof VariableReferenceNode) {
+                // slots of local variables are stable, whereas a non-local variable
+                // may be shadowed by an assignment within the loop
+                final String variableName = ((VariableReferenceNode) operand).variableName();
+                return new Operand(environment.lookupLocalSlot(variableName), variableName);
+            } else {
+                return null;
+            }
+        }
+
+        private Slot resolve(final Environment environment) {
+            if (this.slot != null && (this.variableName == null || !environment.isShared())) {
+                return this.slot;
+            }
+            return environment.lookupSlot(this.variableName);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+
+import java.util.List;
+
+/**
+ * Executes calls of <code>NativeProcedure</code>s. The first call through a call site
+ * resolves the procedure by its name and binds the call site to it (cf.
+ * {@link FunctionCallNode#bind(Object)}); all subsequent calls dispatch to the bound
+ * procedure directly.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class NativeCall {
+
+    private NativeCall() {
+    }
+
+    /**
+     * Evaluates the arguments of the given call and invokes the called native procedure.
+     *
+     * @param node
+     *      a call of a native procedure
+     * @param environment
+     *      execution context of the call
+     * @param turtle
+     *      the turtle the procedure operates on
+     */
+    static void call(final FunctionCallNode node, final Environment environment, final Turtle turtle) {
+        final NativeProcedure procedure = resolve(node);
+        final List<ExpressionNode> arguments = node.arguments();
+        final double[] argumentValues = new double[arguments.size()];
+        final Slot argument = environment.register();
+        for (int i = 0; i < argumentValues.length; i++) {
+            ExpressionResolver.evaluate(arguments.get(i), environment, argument);
+            argumentValues[i] = argument.doubleValue();
+        }
+        procedure.invoke(turtle, argumentValues);
+    }
+
+    private static NativeProcedure resolve(final FunctionCallNode node) {
+        final Object target = node.target();
+        if (target instanceof NativeProcedure) {
+            return (NativeProcedure) target;
+        }
+        final NativeProcedure procedure = NativeProcedures.named(node.functionName());
+        if (procedure.arity() != node.arity()) {
+            throw new InterpreterException("Unable to invoke native procedure " + node.functionName() + ". Expected " + procedure.arity() + " expressions, but found " + node.arity() + " expressions.");
+        }
+        node.bind(procedure);
+        return procedure;
+    }
+}
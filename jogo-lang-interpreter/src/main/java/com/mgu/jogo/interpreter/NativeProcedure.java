@@ -0,0 +1,46 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Service provider interface for built-in procedures that are implemented in Java instead
+ * of LOGO, e.g. to generate complex shapes without interpreting a single statement per
+ * turtle command. Native procedures are registered as services of this interface under
+ * <code>META-INF/services</code> and discovered using <code>ServiceLoader</code> (cf.
+ * <code>NativeProcedures</code>). Implementations must provide a public no-argument
+ * constructor.
+ *
+ * Programs call native procedures just like built-in procedures. Every call site is bound
+ * to its implementation once, so calling a native procedure costs no more than evaluating
+ * its arguments and a single interface call. Implementations are shared by all runs and
+ * may be called concurrently, e.g. by the chunks of a parallel loop (cf. <code>ParallelRepeat</code>),
+ * so they must be thread-safe and must not depend on anything but their arguments.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public interface NativeProcedure {
+
+    /**
+     * @return
+     *      Yields the name programs call this procedure by; it must not be taken by
+     *      another built-in procedure or intrinsic
+     */
+    String name();
+
+    /**
+     * @return
+     *      Yields the number of arguments this procedure takes
+     */
+    int arity();
+
+    /**
+     * Executes this procedure.
+     *
+     * @param turtle
+     *      the turtle this procedure operates on
+     * @param arguments
+     *      values of the arguments; the array holds exactly {@link #arity()} values and
+     *      must not be retained after this method returns
+     * @throws InterpreterException
+     *      if the procedure is unable to handle the given arguments
+     */
+    void invoke(Turtle turtle, double[] arguments);
+}
@@ -0,0 +1,80 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Declarations;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+/**
+ * Discovers the <code>NativeProcedure</code>s that are available on the class path. Unlike
+ * execution engines, native procedures are discovered only once, since call sites that
+ * have been bound to a procedure keep referring to it.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class NativeProcedures {
+
+    private NativeProcedures() {
+    }
+
+    /**
+     * @return
+     *      Yields all registered native procedures in the order of their discovery
+     */
+    public static List<NativeProcedure> all() {
+        return Registry.PROCEDURES;
+    }
+
+    /**
+     * @return
+     *      Yields declarations of all registered native procedures, which have to be passed
+     *      on to the <code>Parser</code> for programs that call native procedures
+     */
+    public static Declarations declarations() {
+        return Registry.DECLARATIONS;
+    }
+
+    /**
+     * @param name
+     *      the name of the native procedure
+     * @return
+     *      Yields the registered native procedure with the given name
+     * @throws InterpreterException
+     *      if no native procedure with the given name is registered
+     */
+    public static NativeProcedure named(final String name) {
+        final NativeProcedure procedure = Registry.PROCEDURES_BY_NAME.get(name);
+        if (procedure == null) {
+            throw new InterpreterException("There is no native procedure named " + name + ".");
+        }
+        return procedure;
+    }
+
+    /**
+     * Holds the discovered procedures, which are loaded on first use.
+     */
+    private static final class Registry {
+
+        private static final List<NativeProcedure> PROCEDURES;
+
+        private static final Map<String, NativeProcedure> PROCEDURES_BY_NAME = new HashMap<>();
+
+        private static final Declarations DECLARATIONS;
+
+        static {
+            final List<NativeProcedure> procedures = new ArrayList<>();
+            Declarations declarations = Declarations.none();
+            for (NativeProcedure procedure : ServiceLoader.load(NativeProcedure.class, NativeProcedure.class.getClassLoader())) {
+                declarations = declarations.withNativeProcedure(procedure.name(), procedure.arity());
+                procedures.add(procedure);
+                PROCEDURES_BY_NAME.put(procedure.name(), procedure);
+            }
+            PROCEDURES = Collections.unmodifiableList(procedures);
+            DECLARATIONS = declarations;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.HatchNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Executes the iterations of a <code>repeat</code> loop in parallel. This is admissible if
+ * no iteration is able to observe the effects of another iteration on anything but the
+ * turtle, i.e. if the body of the loop neither assigns variables (including the variables
+ * of <code>for</code> loops) nor defines functions within the execution context of the
+ * loop, and if it does not leave the function it runs in by means of <code>stop</code> or
+ * <code>output</code>, which would skip the iterations after it. Arrays and the random
+ * number generator of the run are shared between environments, so neither the body nor any
+ * function it calls may update an array or draw random numbers; otherwise, the numbers
+ * every iteration draws would depend on the scheduling of the chunks. For the same reason,
+ * they must not query what the turtle has drawn so far, since chunks do not draw before
+ * their traces are merged. Calls to native procedures are fine, since these are thread-safe
+ * by contract (cf. <code>NativeProcedure</code>), and so are calls to user-defined
+ * functions, which are only able to alter their own, local environment.
+ *
+ * The iterations are split into chunks which are interpreted on a <code>ForkJoinPool</code>.
+ * Every chunk records the commands it issues into a chunk-local trace. Turtle commands are
+ * relative to the turtle's current state, so the trace of a chunk is valid regardless of the
+ * state the preceding chunks leave the turtle in. The traces are merged into the actual
+ * <code>Turtle</code> in order and on the calling thread. Chunks are processed in waves to
+ * bound the number of commands that are buffered at any time.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class ParallelRepeat {
+
+    private static final int CHUNKS_PER_WORKER = 4;
+
+    private static final int MAX_CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+
+    private final InterpreterOptions chunkOptions;
+
+    private final Map<FunctionDefinitionNode, Boolean> stateSharingFunctions = new IdentityHashMap<>();
+
+    /**
+     * Functions whose verdict is being determined, mapped to their depth in the chain of
+     * calls that leads to them. A call of such a function closes a cycle; it is assumed
+     * not to share state until the cycle has been resolved.
+     */
+    private final Map<FunctionDefinitionNode, Integer> pendingFunctions = new IdentityHashMap<>();
+
+    /**
+     * Functions that have been found not to share state under the assumption that some
+     * pending function does not share state either.
+     */
+    private final List<FunctionDefinitionNode> assumedFunctions = new ArrayList<>();
+
+    /**
+     * Smallest depth of the pending functions the verdict currently being determined
+     * relies on, or <code>Integer.MAX_VALUE</code> if it relies on none of them.
+     */
+    private int earliestAssumption = Integer.MAX_VALUE;
+
+    /**
+     * @param pool
+     *      the pool that interprets the chunks
+     * @param chunkOptions
+     *      options for the interpreters of individual chunks
+     */
+    ParallelRepeat(final ForkJoinPool pool, final InterpreterOptions chunkOptions) {
+        this.pool = pool;
+        this.chunkOptions = chunkOptions;
+    }
+
+    /**
+     * @param node
+     *      the loop to check
+     * @return
+     *      <code>true</code> if the iterations of the given loop are independent of each
+     *      other, <code>false</code> otherwise
+     */
+    static boolean isParallelizable(final RepeatNode node) {
+        return isParallelizable(node.statements());
+    }
+
+    private static boolean isParallelizable(final List<StatementNode> statements) {
+        return statements == null || statements.stream().allMatch(ParallelRepeat::isParallelizable);
+    }
+
+    private static boolean isParallelizable(final StatementNode node) {
+        if (node instanceof AssignmentNode
+                || node instanceof FunctionDefinitionNode
+                || node instanceof ForNode
+                || node instanceof HatchNode
+                || node instanceof SetItemNode
+                || node instanceof RerandomNode
+                || node instanceof StopNode
+                || node instanceof OutputNode) {
+            return false;
+        } else if (node instanceof RepeatNode) {
+            return isParallelizable(((RepeatNode) node).statements());
+        } else if (node instanceof WhileNode) {
+            return isParallelizable(((WhileNode) node).statements());
+        } else if (node instanceof IfNode) {
+            final IfNode ifNode = (IfNode) node;
+            return isParallelizable(ifNode.thenStatements()) && isParallelizable(ifNode.elseStatements());
+        } else {
+            return true;
+        }
+    }
+
+    /**
+     * Checks whether the given loop or any of the user-defined functions it calls updates
+     * an array, draws random numbers, hatches a turtle or queries the drawing, directly or
+     * by calling other functions. Unlike
+     * {@link #isParallelizable(RepeatNode)}, this depends on the functions that are bound
+     * to the given environment.
+     *
+     * @param node
+     *      the loop to check
+     * @param environment
+     *      the execution context of the loop
+     * @return
+     *      <code>true</code> if neither the loop nor any function it calls updates an
+     *      array, draws random numbers, hatches a turtle or queries the drawing,
+     *      <code>false</code> otherwise
+     */
+    boolean leavesSharedStateAlone(final RepeatNode node, final Environment environment) {
+        return !Expressions.isNondeterministic(node.times()) && !sharesState(node.statements(), environment);
+    }
+
+    private boolean sharesState(final List<StatementNode> statements, final Environment environment) {
+        return statements != null && statements.stream().anyMatch(statement -> sharesState(statement, environment));
+    }
+
+    private boolean sharesState(final StatementNode node, final Environment environment) {
+        if (node instanceof SetItemNode || node instanceof RerandomNode || node instanceof HatchNode) {
+            return true;
+        } else if (node instanceof RepeatNode) {
+            final RepeatNode repeat = (RepeatNode) node;
+            return Expressions.isNondeterministic(repeat.times()) || sharesState(repeat.statements(), environment);
+        } else if (node instanceof WhileNode) {
+            final WhileNode whileNode = (WhileNode) node;
+            return Expressions.isNondeterministic(whileNode.condition()) || sharesState(whileNode.statements(), environment);
+        } else if (node instanceof ForNode) {
+            final ForNode forNode = (ForNode) node;
+            return Expressions.isNondeterministic(forNode.start())
+                    || Expressions.isNondeterministic(forNode.end())
+                    || Expressions.isNondeterministic(forNode.step())
+                    || sharesState(forNode.statements(), environment);
+        } else if (node instanceof IfNode) {
+            final IfNode ifNode = (IfNode) node;
+            return Expressions.isNondeterministic(ifNode.condition())
+                    || sharesState(ifNode.thenStatements(), environment)
+                    || sharesState(ifNode.elseStatements(), environment);
+        } else if (node instanceof AssignmentNode) {
+            return Expressions.isNondeterministic(((AssignmentNode) node).expression());
+        } else if (node instanceof FunctionCallNode) {
+            final FunctionCallNode call = (FunctionCallNode) node;
+            if (call.arguments().stream().anyMatch(Expressions::isNondeterministic)) {
+                return true;
+            }
+            return !call.isBuiltin() && !call.isNative() && sharesState(call, environment);
+        } else {
+            return false;
+        }
+    }
+
+    private boolean sharesState(final FunctionCallNode node, final Environment environment) {
+        final FunctionDefinitionNode function;
+        try {
+            function = environment.lookupFunction(node.functionName());
+        } catch (InterpreterException e) {
+            return true;
+        }
+        final Boolean verdict = this.stateSharingFunctions.get(function);
+        if (verdict != null) {
+            return verdict;
+        }
+        final Integer pendingDepth = this.pendingFunctions.get(function);
+        if (pendingDepth != null) {
+            this.earliestAssumption = Math.min(this.earliestAssumption, pendingDepth);
+            return false;
+        }
+
+        final int depth = this.pendingFunctions.size();
+        final int firstAssumedFunction = this.assumedFunctions.size();
+        final int outerAssumption = this.earliestAssumption;
+        this.earliestAssumption = Integer.MAX_VALUE;
+        this.pendingFunctions.put(function, depth);
+        final boolean sharesState;
+        try {
+            sharesState = sharesState(function.statements(), environment);
+        } finally {
+            this.pendingFunctions.remove(function);
+        }
+
+        if (sharesState) {
+            // sharing state is a fact, no matter what the assumptions have been
+            this.stateSharingFunctions.put(function, Boolean.TRUE);
+        } else if (this.earliestAssumption < depth) {
+            // relies on a function further up the chain of calls, whose verdict is open
+            this.assumedFunctions.add(function);
+        } else {
+            // all functions of the cycle this function closes have been found not to
+            // share state, which confirms the assumptions they rely on
+            this.stateSharingFunctions.put(function, Boolean.FALSE);
+            for (FunctionDefinitionNode assumedFunction : this.assumedFunctions.subList(firstAssumedFunction, this.assumedFunctions.size())) {
+                this.stateSharingFunctions.put(assumedFunction, Boolean.FALSE);
+            }
+        }
+        if (sharesState || this.earliestAssumption >= depth) {
+            this.assumedFunctions.subList(firstAssumedFunction, this.assumedFunctions.size()).clear();
+            this.earliestAssumption = outerAssumption;
+        } else {
+            this.earliestAssumption = Math.min(outerAssumption, this.earliestAssumption);
+        }
+        return sharesState;
+    }
+
+    /**
+     * Executes <code>times</code> iterations of the given loop.
+     *
+     * @param node
+     *      a loop for which {@link #isParallelizable(RepeatNode)} holds
+     * @param times
+     *      number of iterations
+     * @param environment
+     *      the execution context of the loop
+     */
+    void execute(final RepeatNode node, final int times, final Environment environment) {
+        final int chunksPerWave = this.pool.getParallelism() * CHUNKS_PER_WORKER;
+        final int chunkSize = Math.max(1, Math.min(MAX_CHUNK_SIZE, times / chunksPerWave));
+        final Turtle turtle = environment.getTurtle();
+
+        int nextIteration = 0;
+        while (nextIteration < times) {
+            final List<ForkJoinTask<Chunk>> wave = new ArrayList<>(chunksPerWave);
+            for (int i = 0; i < chunksPerWave && nextIteration < times; i++) {
+                final int firstIteration = nextIteration;
+                final int iterations = Math.min(chunkSize, times - nextIteration);
+                wave.add(this.pool.submit(() -> interpret(node, firstIteration, iterations, environment)));
+                nextIteration += iterations;
+            }
+            for (ForkJoinTask<Chunk> task : wave) {
+                task.join().mergeInto(turtle);
+            }
+        }
+    }
+
+    private Chunk interpret(final RepeatNode node, final int firstIteration, final int iterations, final Environment environment) {
+        final TraceRecordingTurtle recorder = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final Environment chunkEnvironment = environment.createConcurrentChildEnvironment(recorder);
+        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(this.chunkOptions);
+        visitor.bindReporters(chunkEnvironment);
+        try {
+            for (int i = 0; i < iterations; i++) {
+                chunkEnvironment.repCount().setInt(firstIteration + i + 1);
+                node.statements().forEach(statement -> visitor.visit(statement, chunkEnvironment));
+            }
+            return new Chunk(recorder.trace(), null);
+        } catch (RuntimeException e) {
+            return new Chunk(recorder.trace(), e);
+        }
+    }
+
+    /**
+     * Commands issued by a chunk of iterations along with the exception that
+     * aborted the chunk, if any.
+     */
+    private static class Chunk {
+
+        private final List<TurtleCommand> trace;
+
+        private final RuntimeException failure;
+
+        private Chunk(final List<TurtleCommand> trace, final RuntimeException failure) {
+            this.trace = trace;
+            this.failure = failure;
+        }
+
+        private void mergeInto(final Turtle turtle) {
+            this.trace.forEach(command -> command.applyTo(turtle));
+            if (this.failure != null) {
+                throw this.failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Renders a procedure of a program over a grid of argument values, e.g. <code>polyspi</code>
+ * with every combination of side lengths and angles. The program is parsed once and its AST
+ * is shared by all runs, which are fanned out over an <code>Executor</code>. Every run
+ * defines the procedures the program defines at its top level, ignoring any other top-level
+ * statement, and then calls the procedure with one combination of arguments. It draws onto a
+ * <code>Turtle</code> of its own, which the caller supplies per combination, and is reported
+ * to a <code>Listener</code> as soon as it has completed.
+ *
+ * The runs are executed by a fixed number of workers, each of which runs one combination
+ * after another, so the number of tasks submitted to the executor does not grow with the
+ * size of the grid. Any <code>Executor</code> will do, including one that starts a virtual
+ * thread per task on platforms that provide them. Instances of this class are immutable and
+ * thread-safe, and may start any number of sweeps at once.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class ParameterSweep {
+
+    private final ProgramNode programNode;
+
+    private final FunctionDefinitionNode procedure;
+
+    private final InterpreterOptions options;
+
+    /**
+     * @param program
+     *      The LOGO program that defines the procedure in <code>String</code> representation
+     * @param procedureName
+     *      name of the procedure to sweep
+     * @throws InterpreterException
+     *      if neither the program nor the prelude of the default options define the
+     *      procedure at their top level
+     */
+    public ParameterSweep(final String program, final String procedureName) {
+        this(program, procedureName, InterpreterOptions.defaults());
+    }
+
+    /**
+     * @param program
+     *      The LOGO program that defines the procedure in <code>String</code> representation
+     * @param procedureName
+     *      name of the procedure to sweep
+     * @param options
+     *      controls which optional optimizations the runs apply
+     * @throws InterpreterException
+     *      if neither the program nor the prelude of the given options define the
+     *      procedure at their top level
+     */
+    public ParameterSweep(final String program, final String procedureName, final InterpreterOptions options) {
+        this.programNode = new Parser(program, options.declarations()).parse();
+        this.procedure = lookupProcedure(this.programNode, procedureName, options);
+        this.options = options;
+    }
+
+    private static FunctionDefinitionNode lookupProcedure(final ProgramNode programNode, final String procedureName, final InterpreterOptions options) {
+        for (StatementNode statement : programNode.statementNodes()) {
+            if (statement instanceof FunctionDefinitionNode && ((FunctionDefinitionNode) statement).functionName().equals(procedureName)) {
+                return (FunctionDefinitionNode) statement;
+            }
+        }
+        if (options.hasPrelude()) {
+            return options.prelude().environment().lookupFunction(procedureName);
+        }
+        throw new InterpreterException("Unable to sweep procedure " + procedureName + ", since it is not defined at the top level of the program.");
+    }
+
+    /**
+     * @param start
+     *      first value of the range
+     * @param end
+     *      last value of the range, if the step width leads there exactly
+     * @param step
+     *      step width of the range, which counts down if it is negative
+     * @throws IllegalArgumentException
+     *      if the step width is zero
+     * @return
+     *      Yields the values of the given range of integers
+     */
+    public static List<Slot> range(final int start, final int end, final int step) {
+        if (step == 0) {
+            throw new IllegalArgumentException("The step width of a range must not be zero.");
+        }
+        final List<Slot> values = new ArrayList<>();
+        for (long value = start; step > 0 ? value <= end : value >= end; value += step) {
+            values.add(Slot.ofInt((int) value));
+        }
+        return values;
+    }
+
+    /**
+     * @param start
+     *      first value of the range
+     * @param end
+     *      last value of the range, if the step width leads there exactly
+     * @param step
+     *      step width of the range, which counts down if it is negative
+     * @throws IllegalArgumentException
+     *      if the step width is zero
+     * @return
+     *      Yields the values of the given range of decimals; the <code>k</code>-th value
+     *      is computed as <code>start + k * step</code>, so no rounding errors accumulate
+     */
+    public static List<Slot> range(final double start, final double end, final double step) {
+        if (step == 0.0) {
+            throw new IllegalArgumentException("The step width of a range must not be zero.");
+        }
+        final double span = (end - start) / step;
+        final List<Slot> values = new ArrayList<>();
+        for (long k = 0; span >= -CountedLoop.EPSILON && k <= (long) Math.floor(span + CountedLoop.EPSILON); k++) {
+            values.add(Slot.ofDouble(start + k * step));
+        }
+        return values;
+    }
+
+    /**
+     * Starts a sweep over all combinations of the given argument values. The last argument
+     * varies fastest. This method returns right away; the runs are executed by the given
+     * executor.
+     *
+     * @param argumentValues
+     *      the values of each argument of the procedure (cf. {@link #range(int, int, int)})
+     * @param sinks
+     *      yields the <code>Turtle</code> a run draws onto, given the arguments of the run;
+     *      it is called from the thread that executes the run
+     * @param executor
+     *      executes the runs
+     * @param parallelism
+     *      maximum number of runs that are executed at the same time
+     * @param listener
+     *      is told about every run that has completed
+     * @throws IllegalArgumentException
+     *      if the number of argument ranges does not match the arity of the procedure, or
+     *      if the parallelism is not positive
+     * @return
+     *      Yields the <code>Execution</code> of the sweep, which tracks its progress and
+     *      allows to cancel it
+     */
+    public Execution start(final List<List<Slot>> argumentValues,
+                           final Function<List<Slot>, Turtle> sinks,
+                           final Executor executor,
+                           final int parallelism,
+                           final Listener listener) {
+        if (argumentValues.size() != this.procedure.arity()) {
+            throw new IllegalArgumentException("Expected values for each of the " + this.procedure.arity() + " arguments of procedure " + this.procedure.functionName() + ", but found " + argumentValues.size() + ".");
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("The parallelism of a sweep must be positive.");
+        }
+        long combinations = 1;
+        for (List<Slot> values : argumentValues) {
+            combinations *= values.size();
+            if (combinations > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("A sweep must not comprise more than " + Integer.MAX_VALUE + " runs.");
+            }
+        }
+        final Execution execution = new Execution((int) combinations);
+        final int workers = (int) Math.min(parallelism, combinations);
+        execution.startWorkers(workers);
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(() -> work(execution, argumentValues, sinks, listener));
+            } catch (RuntimeException e) {
+                // the workers that have been submitted already finish early
+                execution.cancel();
+                for (int j = i; j < workers; j++) {
+                    execution.stopWorker();
+                }
+                throw e;
+            }
+        }
+        return execution;
+    }
+
+    private void work(final Execution execution, final List<List<Slot>> argumentValues, final Function<List<Slot>, Turtle> sinks, final Listener listener) {
+        try {
+            int run;
+            while (!execution.isCancelled() && (run = execution.nextRun()) >= 0) {
+                final List<Slot> arguments = combination(argumentValues, run);
+                Turtle turtle = null;
+                RuntimeException failure = null;
+                try {
+                    turtle = sinks.apply(arguments);
+                    execute(arguments, new CancellableTurtle(turtle, execution), execution);
+                } catch (RuntimeException e) {
+                    if (execution.isCancelled()) {
+                        return;
+                    }
+                    failure = e;
+                }
+                boolean failed = failure != null;
+                try {
+                    listener.runCompleted(arguments, turtle, failure);
+                } catch (RuntimeException e) {
+                    // the worker carries on with the next run, so the sweep is not done early
+                    failed = true;
+                }
+                execution.completeRun(failed);
+            }
+        } finally {
+            execution.stopWorker();
+        }
+    }
+
+    private void execute(final List<Slot> arguments, final Turtle turtle, final Execution execution) {
+        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(this.options);
+        final Environment rootEnvironment = new Environment(SegmentIndexingTurtle.decorateIfQueried(this.programNode, turtle), this.options);
+        rootEnvironment.cancelWhen(execution::isCancelled);
+        visitor.bindReporters(rootEnvironment);
+        final Slot[] argumentValues = arguments.toArray(new Slot[arguments.size()]);
+        rootEnvironment.hatchery().supervise(() -> {
+            for (StatementNode statement : this.programNode.statementNodes()) {
+                if (statement instanceof FunctionDefinitionNode) {
+                    visitor.visit((FunctionDefinitionNode) statement, rootEnvironment);
+                }
+            }
+            visitor.call(this.procedure, argumentValues, rootEnvironment);
+        });
+    }
+
+    private static List<Slot> combination(final List<List<Slot>> argumentValues, final int run) {
+        final Slot[] arguments = new Slot[argumentValues.size()];
+        int remainder = run;
+        for (int i = arguments.length - 1; i >= 0; i--) {
+            final List<Slot> values = argumentValues.get(i);
+            arguments[i] = values.get(remainder % values.size()).copy();
+            remainder /= values.size();
+        }
+        return Collections.unmodifiableList(Arrays.asList(arguments));
+    }
+
+    /**
+     * Receives the outcome of the runs of a sweep.
+     */
+    @FunctionalInterface
+    public interface Listener {
+
+        /**
+         * Called from the thread that has executed the run, once the run has completed.
+         * Runs that are skipped or aborted because the sweep has been cancelled are not
+         * reported. If this method throws, the run counts as failed and the sweep carries
+         * on with the next run.
+         *
+         * @param arguments
+         *      the arguments the procedure has been called with
+         * @param turtle
+         *      the <code>Turtle</code> the run has drawn onto, or <code>null</code> if the
+         *      sinks failed to supply one
+         * @param failure
+         *      the exception the run has failed with, or <code>null</code> if it succeeded
+         */
+        void runCompleted(List<Slot> arguments, Turtle turtle, RuntimeException failure);
+    }
+
+    /**
+     * Progress of a sweep that has been started. Cancelling a sweep skips all runs that have
+     * not been started yet and aborts the running ones as soon as they issue their next
+     * turtle command, start another loop iteration or call a function.
+     */
+    public static final class Execution {
+
+        private final int totalRuns;
+
+        private final AtomicInteger nextRun = new AtomicInteger();
+
+        private final AtomicInteger completedRuns = new AtomicInteger();
+
+        private final AtomicInteger failedRuns = new AtomicInteger();
+
+        private final AtomicInteger runningWorkers = new AtomicInteger();
+
+        private final CountDownLatch done = new CountDownLatch(1);
+
+        private volatile boolean cancelled = false;
+
+        private Execution(final int totalRuns) {
+            this.totalRuns = totalRuns;
+        }
+
+        private void startWorkers(final int workers) {
+            this.runningWorkers.set(workers);
+            if (workers == 0) {
+                this.done.countDown();
+            }
+        }
+
+        private void stopWorker() {
+            if (this.runningWorkers.decrementAndGet() == 0) {
+                this.done.countDown();
+            }
+        }
+
+        /**
+         * @return
+         *      Yields the index of the next run to execute, or <code>-1</code> if all runs
+         *      have been started
+         */
+        private int nextRun() {
+            final int run = this.nextRun.getAndIncrement();
+            return run < this.totalRuns ? run : -1;
+        }
+
+        private void completeRun(final boolean failed) {
+            if (failed) {
+                this.failedRuns.incrementAndGet();
+            }
+            this.completedRuns.incrementAndGet();
+        }
+
+        /**
+         * @return
+         *      Yields the number of combinations of arguments of the sweep
+         */
+        public int totalRuns() {
+            return this.totalRuns;
+        }
+
+        /**
+         * @return
+         *      Yields the number of runs that have completed so far, including failed runs
+         *      and runs whose listener has failed
+         */
+        public int completedRuns() {
+            return this.completedRuns.get();
+        }
+
+        /**
+         * @return
+         *      Yields the number of runs that have failed so far, including runs whose
+         *      listener has failed
+         */
+        public int failedRuns() {
+            return this.failedRuns.get();
+        }
+
+        /**
+         * Cancels the sweep. Runs that have completed already are not affected.
+         */
+        public void cancel() {
+            this.cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+
+        /**
+         * @return
+         *      <code>true</code> if no run of the sweep is executed anymore, either because
+         *      all runs have completed or because the sweep has been cancelled,
+         *      <code>false</code> otherwise
+         */
+        public boolean isDone() {
+            return this.done.getCount() == 0;
+        }
+
+        /**
+         * Waits until the sweep is done.
+         *
+         * @throws InterruptedException
+         *      if the current thread is interrupted while waiting
+         */
+        public void await() throws InterruptedException {
+            this.done.await();
+        }
+
+        /**
+         * Waits until the sweep is done, but no longer than the given time.
+         *
+         * @throws InterruptedException
+         *      if the current thread is interrupted while waiting
+         * @return
+         *      <code>true</code> if the sweep is done, <code>false</code> if the time
+         *      has elapsed before
+         */
+        public boolean await(final long timeout, final TimeUnit unit) throws InterruptedException {
+            return this.done.await(timeout, unit);
+        }
+    }
+
+    /**
+     * <code>Turtle</code> decorator that aborts the run which drives it as soon as the
+     * sweep the run belongs to has been cancelled.
+     */
+    private static final class CancellableTurtle implements Turtle {
+
+        private final Turtle delegate;
+
+        private final Execution execution;
+
+        private CancellableTurtle(final Turtle delegate, final Execution execution) {
+            this.delegate = delegate;
+            this.execution = execution;
+        }
+
+        private Turtle delegate() {
+            if (this.execution.isCancelled()) {
+                throw new InterpreterException("The sweep has been cancelled.");
+            }
+            return this.delegate;
+        }
+
+        @Override public void clear() { delegate().clear(); }
+        @Override public void hide() { delegate().hide(); }
+        @Override public void show() { delegate().show(); }
+        @Override public void penUp() { delegate().penUp(); }
+        @Override public void penDown() { delegate().penDown(); }
+        @Override public void setPenColor(final int penColor) { delegate().setPenColor(penColor); }
+        @Override public void left(final int degrees) { delegate().left(degrees); }
+        @Override public void right(final int degrees) { delegate().right(degrees); }
+        @Override public void back(final int steps) { delegate().back(steps); }
+        @Override public void forward(final int steps) { delegate().forward(steps); }
+        @Override public void move(final int positionX, final int positionY) { delegate().move(positionX, positionY); }
+        @Override public void left(final double degrees) { delegate().left(degrees); }
+        @Override public void right(final double degrees) { delegate().right(degrees); }
+        @Override public void back(final double steps) { delegate().back(steps); }
+        @Override public void forward(final double steps) { delegate().forward(steps); }
+        @Override public void arc(final double radius, final double degrees) { delegate().arc(radius, degrees); }
+        @Override public double resolution() { return this.delegate.resolution(); }
+        @Override public Turtle hatch() { return new CancellableTurtle(delegate().hatch(), this.execution); }
+    }
+}
@@ -0,0 +1,160 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Base class for turtles that trace the path they travel as a sequence of line segments.
+ * It tracks position, heading and pen state, starting at the origin and heading along the
+ * x-axis, and emits a segment for every movement of non-zero length, no matter whether
+ * the pen is up or down. Arcs are emitted as the chords {@link Turtle#arc(double, double)}
+ * tessellates them into at the resolution the turtle has been created with.
+ * <code>move</code> and <code>jump</code> relocate the turtle without emitting a segment.
+ * Subclasses decide where the segments go.
+ *
+ * The pen color and pen state of a segment are packed into a single <code>int</code>:
+ * the lower 24 bits hold the pen color and bit 24 is set if the pen is down.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+abstract class PathTracingTurtle implements Turtle {
+
+    static final int COLOR_MASK = 0xFFFFFF;
+
+    static final int PEN_DOWN = 1 << 24;
+
+    private final double resolution;
+
+    private double heading = 0.0;
+
+    private double positionX = 0.0;
+
+    private double positionY = 0.0;
+
+    private boolean penDown = true;
+
+    private int penColor = 0;
+
+    PathTracingTurtle(final double resolution) {
+        if (resolution < 0.0) {
+            throw new IllegalArgumentException("The resolution of a turtle must not be negative.");
+        }
+        this.resolution = resolution;
+    }
+
+    /**
+     * Creates a turtle that starts off in the state the given turtle is in.
+     */
+    PathTracingTurtle(final PathTracingTurtle parent) {
+        this.resolution = parent.resolution;
+        this.heading = parent.heading;
+        this.positionX = parent.positionX;
+        this.positionY = parent.positionY;
+        this.penDown = parent.penDown;
+        this.penColor = parent.penColor;
+    }
+
+    /**
+     * Emits the segment from <code>(x0, y0)</code> to <code>(x1, y1)</code>.
+     *
+     * @param attributes
+     *      pen color and pen state of the segment, packed as described above
+     */
+    abstract void emit(double x0, double y0, double x1, double y1, int attributes);
+
+    private void advance(final double steps) {
+        if (steps == 0.0) {
+            return;
+        }
+        final double radians = Math.toRadians(this.heading);
+        final double positionX = this.positionX + Math.cos(radians) * steps;
+        final double positionY = this.positionY + Math.sin(radians) * steps;
+        emit(this.positionX, this.positionY, positionX, positionY, (this.penColor & COLOR_MASK) | (this.penDown ? PEN_DOWN : 0));
+        this.positionX = positionX;
+        this.positionY = positionY;
+    }
+
+    @Override
+    public void hide() {
+        // NO-OP
+    }
+
+    @Override
+    public void show() {
+        // NO-OP
+    }
+
+    @Override
+    public void penUp() {
+        this.penDown = false;
+    }
+
+    @Override
+    public void penDown() {
+        this.penDown = true;
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        this.penColor = penColor;
+    }
+
+    @Override
+    public void left(final int degrees) {
+        this.heading -= degrees;
+    }
+
+    @Override
+    public void right(final int degrees) {
+        this.heading += degrees;
+    }
+
+    @Override
+    public void back(final int steps) {
+        advance(-steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        advance(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        this.positionX = positionX;
+        this.positionY = positionY;
+    }
+
+    @Override
+    public void left(final double degrees) {
+        this.heading -= degrees;
+    }
+
+    @Override
+    public void right(final double degrees) {
+        this.heading += degrees;
+    }
+
+    @Override
+    public void back(final double steps) {
+        advance(-steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        advance(steps);
+    }
+
+    @Override
+    public boolean jump(final TurtleTransform transform) {
+        final double radians = Math.toRadians(this.heading);
+        final double cos = Math.cos(radians);
+        final double sin = Math.sin(radians);
+        this.positionX += cos * transform.translationX() - sin * transform.translationY();
+        this.positionY += sin * transform.translationX() + cos * transform.translationY();
+        this.heading += transform.rotation();
+        return true;
+    }
+
+    @Override
+    public double resolution() {
+        return this.resolution;
+    }
+}
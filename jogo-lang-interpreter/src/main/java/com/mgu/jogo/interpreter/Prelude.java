@@ -0,0 +1,96 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Declarations;
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Library of procedures that is parsed and analyzed once and then shared by any number of
+ * runs, e.g. the helpers that all programs of a host define alike. The procedures of a
+ * prelude are bound to a frozen <code>Environment</code>, which becomes the parent of the
+ * root environment of every run whose <code>InterpreterOptions</code> carry the prelude
+ * (cf. {@link InterpreterOptions#withPrelude(Prelude)}). Runs look up the procedures there,
+ * but never alter the frozen environment, so concurrent runs share it without copying.
+ *
+ * Programs are parsed with the declarations of the prelude, so the <code>Parser</code>
+ * recognizes calls to its procedures without reading their source again. Procedures of the
+ * prelude that are named like built-in procedures shadow them, just like the functions of
+ * a program do. Programs must not define procedures of the same name. The verdicts of the <code>PurityAnalysis</code>
+ * on the procedures of the prelude are computed once as well.
+ *
+ * Instances of this class are immutable and thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class Prelude {
+
+    private final Environment environment;
+
+    private final Declarations declarations;
+
+    private final Map<FunctionDefinitionNode, PurityAnalysis.Verdict> purityVerdicts;
+
+    /**
+     * @param library
+     *      the procedure definitions of the prelude in <code>String</code> representation
+     * @throws InterpreterException
+     *      if the library consists of anything but procedure definitions or defines a
+     *      procedure named like an intrinsic or a native procedure
+     */
+    public Prelude(final String library) {
+        final ProgramNode programNode = new Parser(library, NativeProcedures.declarations()).parse();
+        final Environment environment = new Environment((Turtle) null);
+        Declarations declarations = NativeProcedures.declarations();
+        for (StatementNode statement : programNode.statementNodes()) {
+            if (!(statement instanceof FunctionDefinitionNode)) {
+                throw new InterpreterException("Unable to compile prelude, since it must consist of procedure definitions only.");
+            }
+            final FunctionDefinitionNode function = (FunctionDefinitionNode) statement;
+            environment.install(function);
+            try {
+                declarations = declarations.withProcedure(function.functionName(), function.arity());
+            } catch (IllegalArgumentException e) {
+                throw new InterpreterException("Unable to compile prelude, since the name of procedure " + function.functionName() + " is already taken.");
+            }
+        }
+        environment.freeze();
+
+        final PurityAnalysis purityAnalysis = new PurityAnalysis();
+        programNode.statementNodes().forEach(statement -> purityAnalysis.isPure((FunctionDefinitionNode) statement, environment));
+
+        this.environment = environment;
+        this.declarations = declarations;
+        this.purityVerdicts = Collections.unmodifiableMap(new IdentityHashMap<>(purityAnalysis.verdicts()));
+    }
+
+    /**
+     * @return
+     *      Yields the frozen <code>Environment</code> that binds the procedures of this prelude
+     */
+    Environment environment() {
+        return this.environment;
+    }
+
+    /**
+     * @return
+     *      Yields declarations of all native procedures and all procedures of this prelude,
+     *      which have to be passed on to the <code>Parser</code> for programs that use them
+     */
+    public Declarations declarations() {
+        return this.declarations;
+    }
+
+    /**
+     * @return
+     *      Yields the verdicts of the <code>PurityAnalysis</code> on the procedures of this prelude
+     */
+    Map<FunctionDefinitionNode, PurityAnalysis.Verdict> purityVerdicts() {
+        return this.purityVerdicts;
+    }
+}
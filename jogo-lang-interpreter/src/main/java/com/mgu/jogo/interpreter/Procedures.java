@@ -5,8 +5,9 @@ import com.mgu.jogo.parser.ast.*;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
 
 /**
  * Container for built-in procedures which provides the means to execute these
@@ -18,7 +19,11 @@ public class Procedures {
 
     private static final Map<String, Consumer<Turtle>> NO_ARGS = new HashMap<>();
 
-    private static final Map<String, BiConsumer<Turtle, Integer>> SINGLE_ARG = new HashMap<>();
+    private static final Map<String, ObjIntConsumer<Turtle>> SINGLE_ARG = new HashMap<>();
+
+    private static final Map<String, ObjDoubleConsumer<Turtle>> SINGLE_DECIMAL_ARG = new HashMap<>();
+
+    private static final Map<String, TwoDecimalArgProcedure> TWO_DECIMAL_ARGS = new HashMap<>();
 
     static {
         install(Builtins.HOME, turtle -> turtle.move(0, 0));
@@ -27,20 +32,31 @@ public class Procedures {
         install(Builtins.HIDE, turtle -> turtle.hide());
         install(Builtins.SHOW, turtle -> turtle.show());
         install(Builtins.SETCOLOR, (turtle, color) -> turtle.setPenColor(color));
-        install(Builtins.FORWARD, (turtle, steps) -> turtle.forward(steps));
-        install(Builtins.BACK, (turtle, steps) -> turtle.back(steps));
-        install(Builtins.LEFT, (turtle, degrees) -> turtle.left(degrees));
-        install(Builtins.RIGHT, (turtle, degrees) -> turtle.right(degrees));
+        install(Builtins.FORWARD, (turtle, steps) -> turtle.forward(steps), (turtle, steps) -> turtle.forward(steps));
+        install(Builtins.BACK, (turtle, steps) -> turtle.back(steps), (turtle, steps) -> turtle.back(steps));
+        install(Builtins.LEFT, (turtle, degrees) -> turtle.left(degrees), (turtle, degrees) -> turtle.left(degrees));
+        install(Builtins.RIGHT, (turtle, degrees) -> turtle.right(degrees), (turtle, degrees) -> turtle.right(degrees));
+        install(Builtins.CIRCLE, (turtle, radius) -> turtle.arc(radius, 360.0), (turtle, radius) -> turtle.arc(radius, 360.0));
+        install(Builtins.ARC, (turtle, radius, degrees) -> turtle.arc(radius, degrees));
     }
 
     private static void install(final Builtins builtin, Consumer<Turtle> noArgProcedure) {
         builtin.aliases().forEach(functionAlias -> NO_ARGS.put(functionAlias, noArgProcedure));
     }
 
-    private static void install(final Builtins builtin, BiConsumer<Turtle, Integer> singleArgProcedure) {
+    private static void install(final Builtins builtin, ObjIntConsumer<Turtle> singleArgProcedure) {
         builtin.aliases().forEach(functionAlias -> SINGLE_ARG.put(functionAlias, singleArgProcedure));
     }
 
+    private static void install(final Builtins builtin, ObjIntConsumer<Turtle> singleArgProcedure, ObjDoubleConsumer<Turtle> singleDecimalArgProcedure) {
+        install(builtin, singleArgProcedure);
+        builtin.aliases().forEach(functionAlias -> SINGLE_DECIMAL_ARG.put(functionAlias, singleDecimalArgProcedure));
+    }
+
+    private static void install(final Builtins builtin, TwoDecimalArgProcedure twoDecimalArgProcedure) {
+        builtin.aliases().forEach(functionAlias -> TWO_DECIMAL_ARGS.put(functionAlias, twoDecimalArgProcedure));
+    }
+
     /**
      * Calls the builtin-procedure reference by the given <code>FunctionCallNode</code> within
      * the context of the given <code>Environment</code>. <code>FunctionCallNode</code> contains
@@ -60,6 +76,8 @@ public class Procedures {
             callWithNoArgs(functionCallNode, environment);
         } else if (functionCallNode.arity() == 1) {
             callWithSingleArg(functionCallNode, environment);
+        } else if (functionCallNode.arity() == 2) {
+            callWithTwoArgs(functionCallNode, environment);
         } else {
             throw new InterpreterException("Unable to dispatch to the correct built-in procedure.");
         }
@@ -75,8 +93,69 @@ public class Procedures {
     private static void callWithSingleArg(final FunctionCallNode functionCallNode, final Environment environment) {
         final Turtle turtle = environment.getTurtle();
         final String functionName = functionCallNode.functionName();
-        final BiConsumer<Turtle, Integer> function = SINGLE_ARG.get(functionName);
-        final Integer argumentValue = ExpressionResolver.resolve(functionCallNode.arguments().get(0), environment);
-        function.accept(turtle, argumentValue);
+        final Slot argument = environment.register();
+        ExpressionResolver.evaluate(functionCallNode.arguments().get(0), environment, argument);
+        final ObjDoubleConsumer<Turtle> decimalFunction = SINGLE_DECIMAL_ARG.get(functionName);
+        if (argument.isDouble() && decimalFunction != null) {
+            decimalFunction.accept(turtle, argument.doubleValue());
+        } else {
+            SINGLE_ARG.get(functionName).accept(turtle, argument.intValue());
+        }
+    }
+
+    private static void callWithTwoArgs(final FunctionCallNode functionCallNode, final Environment environment) {
+        final Turtle turtle = environment.getTurtle();
+        final String functionName = functionCallNode.functionName();
+        final Slot argument = environment.register();
+        ExpressionResolver.evaluate(functionCallNode.arguments().get(0), environment, argument);
+        final double firstArgument = argument.doubleValue();
+        ExpressionResolver.evaluate(functionCallNode.arguments().get(1), environment, argument);
+        TWO_DECIMAL_ARGS.get(functionName).accept(turtle, firstArgument, argument.doubleValue());
+    }
+
+    /**
+     * @return
+     *      Yields the built-in procedure of the given name that takes no arguments,
+     *      or <code>null</code> if there is none
+     */
+    static Consumer<Turtle> noArgProcedure(final String functionName) {
+        return NO_ARGS.get(functionName);
+    }
+
+    /**
+     * @return
+     *      Yields the built-in procedure of the given name that takes a single argument,
+     *      or <code>null</code> if there is none
+     */
+    static ObjIntConsumer<Turtle> singleArgProcedure(final String functionName) {
+        return SINGLE_ARG.get(functionName);
+    }
+
+    /**
+     * @return
+     *      Yields the variant of the built-in procedure of the given name that takes a
+     *      single decimal argument, or <code>null</code> if the procedure truncates
+     *      decimals instead
+     */
+    static ObjDoubleConsumer<Turtle> singleDecimalArgProcedure(final String functionName) {
+        return SINGLE_DECIMAL_ARG.get(functionName);
+    }
+
+    /**
+     * @return
+     *      Yields the built-in procedure of the given name that takes two arguments,
+     *      or <code>null</code> if there is none
+     */
+    static TwoDecimalArgProcedure twoDecimalArgProcedure(final String functionName) {
+        return TWO_DECIMAL_ARGS.get(functionName);
+    }
+
+    /**
+     * Built-in procedure that takes two arguments, both of which are passed on as decimals.
+     */
+    @FunctionalInterface
+    interface TwoDecimalArgProcedure {
+
+        void accept(Turtle turtle, double firstArgument, double secondArgument);
     }
-}
\ No newline at end of file
+}
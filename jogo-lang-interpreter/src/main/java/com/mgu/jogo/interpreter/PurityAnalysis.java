@@ -0,0 +1,281 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Builtins;
+import com.mgu.jogo.parser.ast.AdditiveExpressionNode;
+import com.mgu.jogo.parser.ast.AndClauseNode;
+import com.mgu.jogo.parser.ast.ArgumentDefinitionNode;
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.BooleanNode;
+import com.mgu.jogo.parser.ast.EqualityExpressionNode;
+import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.MultiplicativeExpressionNode;
+import com.mgu.jogo.parser.ast.NumberNode;
+import com.mgu.jogo.parser.ast.OrClauseNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
+import com.mgu.jogo.parser.ast.UnaryExpressionNode;
+import com.mgu.jogo.parser.ast.VariableReferenceNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Decides whether a user-defined function is side-effect-free, meaning that the sequence
+ * of relative turtle commands it issues depends on nothing but the values of its arguments.
+ * A function is considered pure if
+ *
+ * <ul>
+ *     <li>it reads no variables other than its own arguments,</li>
+ *     <li>it neither defines functions nor moves the turtle to absolute positions,</li>
+ *     <li>it neither draws nor re-seeds random numbers and</li>
+ *     <li>all functions it calls are pure as well.</li>
+ * </ul>
+ *
+ * Functions that are called within expressions are not analyzed, so calling them renders
+ * the calling function impure.
+ *
+ * Results are cached per function definition. Recursive functions are assumed to be pure
+ * while their own body is being analyzed.
+ *
+ * Function names are resolved dynamically, so whether a call reaches its callee depends
+ * on the environment, e.g. if the callee has been defined within a conditional statement
+ * of another function. A verdict therefore records the function each call of the analyzed
+ * function has been resolved to, and it holds only as long as these calls resolve to the
+ * same functions in the environment at hand. A function whose calls ever resolve
+ * differently is considered impure from then on. This keeps the caches that rely on the
+ * verdict valid as well, since they are keyed by the function definition alone and hold
+ * only results of invocations that have executed the very same functions.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class PurityAnalysis {
+
+    private final Map<FunctionDefinitionNode, Verdict> verdicts = new IdentityHashMap<>();
+
+    PurityAnalysis() {
+    }
+
+    /**
+     * @param knownVerdicts
+     *      verdicts on functions that have been analyzed before, e.g. the functions
+     *      of a <code>Prelude</code>
+     */
+    PurityAnalysis(final Map<FunctionDefinitionNode, Verdict> knownVerdicts) {
+        this.verdicts.putAll(knownVerdicts);
+    }
+
+    /**
+     * @param function
+     *      the function to analyze
+     * @param environment
+     *      execution context used to resolve the functions that <code>function</code> calls
+     * @return
+     *      <code>true</code> if the given function is side-effect-free, <code>false</code> otherwise
+     */
+    boolean isPure(final FunctionDefinitionNode function, final Environment environment) {
+        return isPure(function, environment, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    /**
+     * @param visited
+     *      functions that have been visited while deciding on the outermost function,
+     *      which are assumed to be pure if they are reached again
+     */
+    private boolean isPure(final FunctionDefinitionNode function, final Environment environment, final Set<FunctionDefinitionNode> visited) {
+        if (!visited.add(function)) {
+            return true;
+        }
+        final Verdict verdict = this.verdicts.get(function);
+        if (verdict == null) {
+            return analyze(function, environment, visited);
+        }
+        if (!verdict.isPure) {
+            return false;
+        }
+        for (Map.Entry<String, FunctionDefinitionNode> callee : verdict.callees.entrySet()) {
+            final FunctionDefinitionNode resolvedCallee = resolve(callee.getKey(), environment);
+            if (resolvedCallee != callee.getValue()) {
+                this.verdicts.put(function, Verdict.IMPURE);
+                return false;
+            }
+            if (!isPure(resolvedCallee, environment, visited)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean analyze(final FunctionDefinitionNode function, final Environment environment, final Set<FunctionDefinitionNode> visited) {
+        final Map<String, FunctionDefinitionNode> callees = new HashMap<>();
+        this.verdicts.put(function, new Verdict(true, callees));
+        final Set<String> arguments = function
+                .argumentDefinitions()
+                .stream()
+                .map(ArgumentDefinitionNode::argumentName)
+                .collect(Collectors.toSet());
+        final boolean isPure = new Analysis(environment, visited, callees).isPure(function.statements(), arguments);
+        this.verdicts.put(function, isPure ? new Verdict(true, Collections.unmodifiableMap(callees)) : Verdict.IMPURE);
+        return isPure;
+    }
+
+    private static FunctionDefinitionNode resolve(final String functionName, final Environment environment) {
+        try {
+            return environment.lookupFunction(functionName);
+        } catch (InterpreterException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the verdicts on all functions analyzed so far
+     */
+    Map<FunctionDefinitionNode, Verdict> verdicts() {
+        return Collections.unmodifiableMap(this.verdicts);
+    }
+
+    /**
+     * Verdict on a single function, along with the functions its calls have been
+     * resolved to. Verdicts are immutable once the analysis of their function is complete.
+     */
+    static final class Verdict {
+
+        private static final Verdict IMPURE = new Verdict(false, Collections.emptyMap());
+
+        private final boolean isPure;
+
+        private final Map<String, FunctionDefinitionNode> callees;
+
+        private Verdict(final boolean isPure, final Map<String, FunctionDefinitionNode> callees) {
+            this.isPure = isPure;
+            this.callees = callees;
+        }
+    }
+
+    /**
+     * Analyzes the body of a single function and records the functions its calls are
+     * resolved to.
+     */
+    private final class Analysis {
+
+        private final Environment environment;
+
+        private final Set<FunctionDefinitionNode> visited;
+
+        private final Map<String, FunctionDefinitionNode> callees;
+
+        private Analysis(final Environment environment,
+                         final Set<FunctionDefinitionNode> visited,
+                         final Map<String, FunctionDefinitionNode> callees) {
+            this.environment = environment;
+            this.visited = visited;
+            this.callees = callees;
+        }
+
+        private boolean isPure(final List<StatementNode> statements, final Set<String> arguments) {
+            return statements == null || statements.stream().allMatch(statement -> isPure(statement, arguments));
+        }
+
+        private boolean isPure(final StatementNode node, final Set<String> arguments) {
+            if (node instanceof FunctionCallNode) {
+                return isPure((FunctionCallNode) node, arguments);
+            } else if (node instanceof RepeatNode) {
+                final RepeatNode repeat = (RepeatNode) node;
+                return isPure(repeat.times(), arguments) && isPure(repeat.statements(), arguments);
+            } else if (node instanceof IfNode) {
+                final IfNode ifNode = (IfNode) node;
+                return isPure(ifNode.condition(), arguments)
+                        && isPure(ifNode.thenStatements(), arguments)
+                        && isPure(ifNode.elseStatements(), arguments);
+            } else if (node instanceof ForNode) {
+                final ForNode forNode = (ForNode) node;
+                final Set<String> variables = new HashSet<>(arguments);
+                variables.add(forNode.variable());
+                return isPure(forNode.start(), arguments)
+                        && isPure(forNode.end(), arguments)
+                        && (forNode.step() == null || isPure(forNode.step(), arguments))
+                        && isPure(forNode.statements(), variables);
+            } else if (node instanceof WhileNode) {
+                final WhileNode whileNode = (WhileNode) node;
+                return isPure(whileNode.condition(), arguments) && isPure(whileNode.statements(), arguments);
+            } else if (node instanceof AssignmentNode) {
+                return isPure(((AssignmentNode) node).expression(), arguments);
+            } else if (node instanceof OutputNode) {
+                return isPure(((OutputNode) node).expression(), arguments);
+            } else if (node instanceof StopNode) {
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        private boolean isPure(final FunctionCallNode node, final Set<String> arguments) {
+            if (!node.arguments().stream().allMatch(argument -> isPure(argument, arguments))) {
+                return false;
+            }
+            if (node.isBuiltin()) {
+                return !Builtins.HOME.aliases().contains(node.functionName())
+                        && !Builtins.CLEAN.aliases().contains(node.functionName());
+            }
+            if (node.isNative()) {
+                // native procedures are opaque, so they might move the turtle to absolute positions
+                return false;
+            }
+            final FunctionDefinitionNode callee = resolve(node.functionName(), this.environment);
+            if (callee == null) {
+                return false;
+            }
+            this.callees.put(node.functionName(), callee);
+            return PurityAnalysis.this.isPure(callee, this.environment, this.visited);
+        }
+
+        private boolean isPure(final ExpressionNode node, final Set<String> arguments) {
+            if (node instanceof NumberNode || node instanceof BooleanNode) {
+                return true;
+            } else if (node instanceof VariableReferenceNode) {
+                return arguments.contains(((VariableReferenceNode) node).variableName());
+            } else if (node instanceof OrClauseNode) {
+                final OrClauseNode orClause = (OrClauseNode) node;
+                return isPure(orClause.andClause(), arguments) && isPure(orClause.nextOrClause(), arguments);
+            } else if (node instanceof AndClauseNode) {
+                final AndClauseNode andClause = (AndClauseNode) node;
+                return isPure(andClause.equalityExpression(), arguments) && isPure(andClause.nextAndClause(), arguments);
+            } else if (node instanceof EqualityExpressionNode) {
+                final EqualityExpressionNode equality = (EqualityExpressionNode) node;
+                return isPure(equality.equalityOperand(), arguments) && isPure(equality.nextEqualityOperand(), arguments);
+            } else if (node instanceof EqualityOperandNode) {
+                final EqualityOperandNode operand = (EqualityOperandNode) node;
+                return isPure(operand.additiveExpression(), arguments) && isPure(operand.nextAdditiveExpression(), arguments);
+            } else if (node instanceof AdditiveExpressionNode) {
+                final AdditiveExpressionNode additive = (AdditiveExpressionNode) node;
+                return isPure(additive.addend(), arguments) && isPure(additive.augend(), arguments);
+            } else if (node instanceof MultiplicativeExpressionNode) {
+                final MultiplicativeExpressionNode multiplicative = (MultiplicativeExpressionNode) node;
+                return isPure(multiplicative.leftFactor(), arguments) && isPure(multiplicative.rightFactor(), arguments);
+            } else if (node instanceof UnaryExpressionNode) {
+                return isPure(((UnaryExpressionNode) node).expression(), arguments);
+            } else if (node instanceof IntrinsicCallNode) {
+                final IntrinsicCallNode intrinsicCall = (IntrinsicCallNode) node;
+                return intrinsicCall.intrinsic().isDeterministic()
+                        && intrinsicCall.arguments().stream().allMatch(argument -> isPure(argument, arguments));
+            } else {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.SplittableRandom;
+
+/**
+ * Source of the pseudo-random numbers that <code>random</code> draws within a single run
+ * of a program. Every run owns a generator of its own, so runs that execute concurrently
+ * on different threads neither contend for a shared generator nor influence each other's
+ * numbers. Given the same seed, a run draws the same sequence of numbers regardless of the
+ * thread it executes on or of any other run.
+ *
+ * The underlying <code>SplittableRandom</code> does not reveal its state. Hence, a run that
+ * needs to resume from a snapshot of its state (cf. <code>IncrementalInterpreter</code>)
+ * {@link #rekey() re-keys} its generator from the generator's own output and restores the
+ * snapshot by seeding a generator with that key.
+ *
+ * Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class RandomNumbers {
+
+    private SplittableRandom generator;
+
+    /**
+     * Creates a generator that is seeded from the system's entropy.
+     */
+    RandomNumbers() {
+        this.generator = new SplittableRandom();
+    }
+
+    /**
+     * @param seed
+     *      seed of the generator
+     */
+    RandomNumbers(final long seed) {
+        this.generator = new SplittableRandom(seed);
+    }
+
+    private RandomNumbers(final SplittableRandom generator) {
+        this.generator = generator;
+    }
+
+    /**
+     * Splits off a generator whose numbers are independent of the numbers of this
+     * generator, e.g. for a turtle that runs on another thread. Given the same seed,
+     * the generator that has been split off draws the same sequence of numbers.
+     *
+     * @return
+     *      Yields the generator that has been split off
+     */
+    RandomNumbers split() {
+        return new RandomNumbers(this.generator.split());
+    }
+
+    /**
+     * Restarts the sequence of numbers as if the generator had been created using the
+     * given seed.
+     *
+     * @param seed
+     *      seed of the generator
+     */
+    void reseed(final long seed) {
+        this.generator = new SplittableRandom(seed);
+    }
+
+    /**
+     * Derives a key from the current state of the generator and reseeds the generator
+     * with it. Reseeding another generator with the key yields the same sequence of
+     * numbers this generator yields from now on.
+     *
+     * @return
+     *      Yields the key the generator has been reseeded with
+     */
+    long rekey() {
+        final long key = this.generator.nextLong();
+        reseed(key);
+        return key;
+    }
+
+    /**
+     * @param bound
+     *      exclusive upper bound, must be positive
+     * @return
+     *      Yields a uniformly distributed number between 0 (inclusive) and the given bound
+     */
+    int nextInt(final int bound) {
+        if (bound < 1) {
+            throw new InterpreterException("Unable to draw a random number below " + bound + ".");
+        }
+        return this.generator.nextInt(bound);
+    }
+
+    /**
+     * @param bound
+     *      exclusive upper bound, must be positive
+     * @return
+     *      Yields a uniformly distributed number between 0 (inclusive) and the given bound
+     */
+    double nextDouble(final double bound) {
+        if (!(bound > 0.0) || Double.isInfinite(bound)) {
+            throw new InterpreterException("Unable to draw a random number below " + bound + ".");
+        }
+        return this.generator.nextDouble(bound);
+    }
+}
@@ -0,0 +1,204 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * <code>Turtle</code> which records the path it travels as a sequence of line segments,
+ * e.g. to capture the output of a program for later rendering or analysis. Every movement
+ * of non-zero length makes up a segment, no matter whether the pen is up or down, so the
+ * recording holds the whole path (cf. {@link PathTracingTurtle}). <code>clear</code>
+ * discards all segments, but keeps the position of the turtle.
+ *
+ * Segments are not represented by objects of their own. Instead, their coordinates are
+ * stored in four parallel <code>double[]</code> arrays and their pen color and pen state
+ * are packed into an <code>int[]</code> array. The arrays are grown geometrically, so
+ * recording a segment takes amortized constant time and capturing a hundred million
+ * segments takes five arrays instead of a hundred million objects. A {@link Cursor}
+ * reads the segments back right from these arrays. Recordings that do not fit into the
+ * heap comfortably are better captured by a {@link SegmentStore}.
+ *
+ * Turtles hatched from a <code>RecordingTurtle</code> record their segments into the same
+ * arrays, so the recording holds the paths of all turtles in the order they have been
+ * drawn. Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class RecordingTurtle extends PathTracingTurtle {
+
+    /**
+     * Maximum number of segments a recording holds.
+     */
+    public static final int MAX_SEGMENTS = Integer.MAX_VALUE - 8;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final Path path;
+
+    public RecordingTurtle() {
+        this(0.0);
+    }
+
+    /**
+     * @param resolution
+     *      the edge length of a single rendered pixel, measured in turtle steps (cf.
+     *      {@link Turtle#resolution()}), or <code>0</code> to record every command exactly
+     */
+    public RecordingTurtle(final double resolution) {
+        super(resolution);
+        this.path = new Path();
+    }
+
+    private RecordingTurtle(final RecordingTurtle parent) {
+        super(parent);
+        this.path = parent.path;
+    }
+
+    /**
+     * @return
+     *      Yields the number of segments recorded so far
+     */
+    public int segmentCount() {
+        return this.path.size;
+    }
+
+    /**
+     * @return
+     *      Yields a cursor that is positioned in front of the first segment of the recording
+     */
+    public Cursor cursor() {
+        return new Cursor(this.path);
+    }
+
+    @Override
+    void emit(final double x0, final double y0, final double x1, final double y1, final int attributes) {
+        this.path.add(x0, y0, x1, y1, attributes);
+    }
+
+    @Override
+    public void clear() {
+        this.path.size = 0;
+    }
+
+    /**
+     * Hatches a turtle that records into the same arrays as this turtle.
+     */
+    @Override
+    public Turtle hatch() {
+        return new RecordingTurtle(this);
+    }
+
+    /**
+     * Parallel arrays that hold the segments of a recording.
+     */
+    private static final class Path {
+
+        private double[] x0 = new double[INITIAL_CAPACITY];
+
+        private double[] y0 = new double[INITIAL_CAPACITY];
+
+        private double[] x1 = new double[INITIAL_CAPACITY];
+
+        private double[] y1 = new double[INITIAL_CAPACITY];
+
+        private int[] attributes = new int[INITIAL_CAPACITY];
+
+        private int size = 0;
+
+        private void add(final double x0, final double y0, final double x1, final double y1, final int attributes) {
+            if (this.size == this.x0.length) {
+                grow();
+            }
+            this.x0[this.size] = x0;
+            this.y0[this.size] = y0;
+            this.x1[this.size] = x1;
+            this.y1[this.size] = y1;
+            this.attributes[this.size] = attributes;
+            this.size++;
+        }
+
+        private void grow() {
+            if (this.size == MAX_SEGMENTS) {
+                throw new InterpreterException("Unable to record more than " + MAX_SEGMENTS + " segments.");
+            }
+            final int capacity = (int) Math.min(2L * this.size, MAX_SEGMENTS);
+            this.x0 = Arrays.copyOf(this.x0, capacity);
+            this.y0 = Arrays.copyOf(this.y0, capacity);
+            this.x1 = Arrays.copyOf(this.x1, capacity);
+            this.y1 = Arrays.copyOf(this.y1, capacity);
+            this.attributes = Arrays.copyOf(this.attributes, capacity);
+        }
+    }
+
+    /**
+     * Reads the segments of a recording in the order they have been recorded, without
+     * copying them. A cursor reads the arrays of the recording directly, so it observes
+     * segments that are recorded after it has been created as well. It must not be used
+     * after the recording has been cleared.
+     */
+    public static final class Cursor {
+
+        private final Path path;
+
+        private int segment = -1;
+
+        private Cursor(final Path path) {
+            this.path = path;
+        }
+
+        /**
+         * Moves this cursor to the next segment.
+         *
+         * @return
+         *      <code>true</code> if the cursor is positioned on a segment,
+         *      <code>false</code> if it has moved past the last segment
+         */
+        public boolean next() {
+            if (this.segment < this.path.size) {
+                this.segment++;
+            }
+            return this.segment < this.path.size;
+        }
+
+        /**
+         * @return
+         *      Yields the zero-based number of the current segment
+         */
+        public int segment() {
+            return this.segment;
+        }
+
+        public double x0() {
+            return this.path.x0[this.segment];
+        }
+
+        public double y0() {
+            return this.path.y0[this.segment];
+        }
+
+        public double x1() {
+            return this.path.x1[this.segment];
+        }
+
+        public double y1() {
+            return this.path.y1[this.segment];
+        }
+
+        /**
+         * @return
+         *      Yields the pen color the current segment has been drawn with, reduced to
+         *      its lower 24 bits
+         */
+        public int penColor() {
+            return this.path.attributes[this.segment] & COLOR_MASK;
+        }
+
+        /**
+         * @return
+         *      <code>true</code> if the current segment has been drawn with the pen down,
+         *      <code>false</code> if the turtle has only travelled along it
+         */
+        public boolean isPenDown() {
+            return (this.path.attributes[this.segment] & PEN_DOWN) != 0;
+        }
+    }
+}
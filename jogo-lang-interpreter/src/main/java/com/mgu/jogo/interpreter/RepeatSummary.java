@@ -0,0 +1,254 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Builtins;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.RepCountNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closed-form summary of a <code>repeat</code> loop whose body does nothing but move and
+ * turn the turtle using loop-invariant arguments, e.g. <code>repeat 360 [ forward 1 right 1 ]</code>.
+ *
+ * Every iteration of such a loop applies the same <code>TurtleTransform</code>. If the net
+ * rotation of a single iteration is not a multiple of 360 degrees, the turtle returns to
+ * its initial state after <code>period = 360 / gcd(rotation, 360)</code> iterations and
+ * retraces the path it has already drawn from then on. The same holds with a period of one
+ * if the net rotation is a multiple of 360 degrees and the turtle ends up where it started.
+ * Loops that turn by fractional degrees are not considered periodic.
+ *
+ * The state after <code>times</code> iterations equals the state after
+ * <code>times mod period</code> iterations. Hence, it suffices to issue a single period
+ * of iterations to draw every unique segment and to jump to the final state of the loop
+ * afterwards, no matter how large <code>times</code> is (cf. {@link Turtle#jump(TurtleTransform)}).
+ * Turtles that are unable to jump retrace the drawn path to the final state instead,
+ * either forwards or backwards, whichever takes fewer iterations.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class RepeatSummary {
+
+    private static final int MAX_COMMANDS_PER_ITERATION = 4096;
+
+    private static final double EPSILON = 1e-9;
+
+    private final List<TurtleCommand> iteration;
+
+    private final TurtleTransform transform;
+
+    private final int period;
+
+    private RepeatSummary(final List<TurtleCommand> iteration) {
+        this.iteration = iteration;
+        this.transform = TurtleTransform.of(iteration);
+        this.period = period(iteration, this.transform);
+    }
+
+    private static int period(final List<TurtleCommand> iteration, final TurtleTransform transform) {
+        long rotation = 0;
+        for (TurtleCommand command : iteration) {
+            if (command.isFractional() && (command.type() == TurtleCommand.Type.RIGHT || command.type() == TurtleCommand.Type.LEFT)) {
+                return 0;
+            }
+            if (command.type() == TurtleCommand.Type.RIGHT) {
+                rotation += command.firstOperand();
+            } else if (command.type() == TurtleCommand.Type.LEFT) {
+                rotation -= command.firstOperand();
+            }
+        }
+        final int residue = (int) (((rotation % 360) + 360) % 360);
+        if (residue != 0) {
+            return 360 / gcd(residue, 360);
+        }
+        return transform.distance() < EPSILON ? 1 : 0;
+    }
+
+    private static int gcd(final int a, final int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Checks whether the body of the given loop consists of turtle movements and turns
+     * and nested loops thereof only. Such a body cannot alter any variable, hence all
+     * of its arguments are loop-invariant, unless they refer to <code>repcount</code> or
+     * draw random numbers.
+     *
+     * @param node
+     *      the loop to check
+     * @return
+     *      <code>true</code> if the given loop can be summarized, <code>false</code> otherwise
+     */
+    static boolean isSummarizable(final RepeatNode node) {
+        return node.statements().stream().allMatch(RepeatSummary::isSummarizable);
+    }
+
+    private static boolean isSummarizable(final StatementNode node) {
+        if (node instanceof RepeatNode) {
+            return isSummarizable((RepeatNode) node);
+        }
+        if (!(node instanceof FunctionCallNode) || !((FunctionCallNode) node).isBuiltin()) {
+            return false;
+        }
+        final FunctionCallNode call = (FunctionCallNode) node;
+        return commandType(call.functionName()) != null && call.arguments().stream().allMatch(RepeatSummary::isInvariant);
+    }
+
+    private static boolean isInvariant(final ExpressionNode node) {
+        return !Expressions.anyMatch(node, expression -> expression instanceof RepCountNode)
+                && !Expressions.isNondeterministic(node);
+    }
+
+    private static TurtleCommand.Type commandType(final String functionName) {
+        if (Builtins.FORWARD.aliases().contains(functionName)) {
+            return TurtleCommand.Type.FORWARD;
+        } else if (Builtins.BACK.aliases().contains(functionName)) {
+            return TurtleCommand.Type.BACK;
+        } else if (Builtins.LEFT.aliases().contains(functionName)) {
+            return TurtleCommand.Type.LEFT;
+        } else if (Builtins.RIGHT.aliases().contains(functionName)) {
+            return TurtleCommand.Type.RIGHT;
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Evaluates the body of the given loop once and summarizes it.
+     *
+     * @param node
+     *      a loop for which {@link #isSummarizable(RepeatNode)} holds
+     * @param environment
+     *      the execution context of the loop
+     * @return
+     *      Yields the summary of the loop or <code>null</code> if a single iteration
+     *      issues too many commands to be summarized
+     */
+    static RepeatSummary of(final RepeatNode node, final Environment environment) {
+        final List<TurtleCommand> iteration = new ArrayList<>();
+        if (!unroll(node.statements(), environment, iteration)) {
+            return null;
+        }
+        return new RepeatSummary(iteration);
+    }
+
+    private static boolean unroll(final List<StatementNode> statements, final Environment environment, final List<TurtleCommand> commands) {
+        for (StatementNode statement : statements) {
+            if (statement instanceof RepeatNode) {
+                final RepeatNode repeat = (RepeatNode) statement;
+                final int times = ExpressionResolver.resolveInt(repeat.times(), environment);
+                if (times <= 0) {
+                    continue;
+                }
+                final List<TurtleCommand> body = new ArrayList<>();
+                if (!unroll(repeat.statements(), environment, body)
+                        || (long) body.size() * times + commands.size() > MAX_COMMANDS_PER_ITERATION) {
+                    return false;
+                }
+                for (int i = 0; i < times; i++) {
+                    commands.addAll(body);
+                }
+            } else {
+                final FunctionCallNode call = (FunctionCallNode) statement;
+                final Slot argument = environment.register();
+                ExpressionResolver.evaluate(call.arguments().get(0), environment, argument);
+                commands.add(argument.isDouble()
+                        ? command(commandType(call.functionName()), argument.doubleValue())
+                        : command(commandType(call.functionName()), argument.intValue()));
+                if (commands.size() > MAX_COMMANDS_PER_ITERATION) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static TurtleCommand command(final TurtleCommand.Type type, final int argument) {
+        switch (type) {
+            case FORWARD: return TurtleCommand.forward(argument);
+            case BACK: return TurtleCommand.back(argument);
+            case LEFT: return TurtleCommand.left(argument);
+            default: return TurtleCommand.right(argument);
+        }
+    }
+
+    private static TurtleCommand command(final TurtleCommand.Type type, final double argument) {
+        switch (type) {
+            case FORWARD: return TurtleCommand.forward(argument);
+            case BACK: return TurtleCommand.back(argument);
+            case LEFT: return TurtleCommand.left(argument);
+            default: return TurtleCommand.right(argument);
+        }
+    }
+
+    /**
+     * @return
+     *      Yields the number of iterations after which the loop retraces its path,
+     *      or <code>0</code> if it never does
+     */
+    int period() {
+        return this.period;
+    }
+
+    /**
+     * @param times
+     *      number of iterations of the loop
+     * @return
+     *      Yields the net transformation of the whole loop in closed form
+     */
+    TurtleTransform transform(final int times) {
+        return this.transform.power(this.period == 0 ? times : times % this.period);
+    }
+
+    /**
+     * Issues the commands of the summarized loop to the given <code>Turtle</code>.
+     *
+     * @param times
+     *      number of iterations of the loop
+     * @param turtle
+     *      the target of the loop's turtle commands
+     */
+    void emit(final int times, final Turtle turtle) {
+        if (this.period == 0 || times <= this.period) {
+            emitIterations(times, turtle);
+            return;
+        }
+        // a whole period draws every unique segment and returns to the initial state
+        emitIterations(this.period, turtle);
+        final int remainingIterations = times % this.period;
+        if (remainingIterations == 0 || turtle.jump(transform(times))) {
+            return;
+        }
+        if (remainingIterations <= this.period - remainingIterations) {
+            emitIterations(remainingIterations, turtle);
+        } else {
+            for (int i = 0; i < this.period - remainingIterations; i++) {
+                for (int j = this.iteration.size() - 1; j >= 0; j--) {
+                    inverse(this.iteration.get(j)).applyTo(turtle);
+                }
+            }
+        }
+    }
+
+    private void emitIterations(final int iterations, final Turtle turtle) {
+        for (int i = 0; i < iterations; i++) {
+            for (TurtleCommand command : this.iteration) {
+                command.applyTo(turtle);
+            }
+        }
+    }
+
+    private static TurtleCommand inverse(final TurtleCommand command) {
+        final TurtleCommand.Type type;
+        switch (command.type()) {
+            case FORWARD: type = TurtleCommand.Type.BACK; break;
+            case BACK: type = TurtleCommand.Type.FORWARD; break;
+            case LEFT: type = TurtleCommand.Type.RIGHT; break;
+            default: type = TurtleCommand.Type.LEFT; break;
+        }
+        return command.isFractional() ? command(type, command.value()) : command(type, command.firstOperand());
+    }
+}
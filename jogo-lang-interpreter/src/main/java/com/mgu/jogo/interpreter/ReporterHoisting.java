@@ -0,0 +1,303 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.AdditiveExpressionNode;
+import com.mgu.jogo.parser.ast.AndClauseNode;
+import com.mgu.jogo.parser.ast.ArrayNode;
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.BooleanNode;
+import com.mgu.jogo.parser.ast.EqualityExpressionNode;
+import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.ItemNode;
+import com.mgu.jogo.parser.ast.MultiplicativeExpressionNode;
+import com.mgu.jogo.parser.ast.NumberNode;
+import com.mgu.jogo.parser.ast.OrClauseNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.RepCountNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.UnaryExpressionNode;
+import com.mgu.jogo.parser.ast.VariableReferenceNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rewrites statements that call user-defined functions within their expressions, so that
+ * the <code>TrampolinedInterpreter</code> is able to run these functions on the frame stack
+ * of the calling program instead of nesting them on the Java stack. Every such call is
+ * hoisted out of its expression into a {@link Call} of its own, which binds the value the
+ * function outputs to a temporary variable. The expression refers to that variable instead.
+ *
+ * Rewritten statements evaluate their expressions in the very same order as before. Hence,
+ * any part of an expression that is evaluated ahead of a call is bound to a temporary
+ * variable ahead of the call as well, unless it is a constant. The right-hand side of
+ * <code>and</code> and <code>or</code> turns into a conditional, since it is evaluated only
+ * if the left-hand side does not decide the clause. The condition of a <code>while</code>
+ * loop is evaluated once ahead of the loop and once more at the end of every iteration.
+ *
+ * Temporary variables carry names that start with {@link #TEMPORARY_PREFIX}, which no
+ * program is able to refer to. Every rewritten statement uses names of its own, so the
+ * temporary variables of different statements never interfere with each other.
+ *
+ * Rewritten statements are kept for as long as the run they belong to, so every run uses
+ * an instance of its own (cf. <code>Continuation</code>). Instances of this class are not
+ * thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class ReporterHoisting {
+
+    static final String TEMPORARY_PREFIX = "#";
+
+    private static final List<StatementNode> UNCHANGED = Collections.emptyList();
+
+    private final Map<StatementNode, List<StatementNode>> rewrittenStatements = new IdentityHashMap<>();
+
+    private int temporaries = 0;
+
+    /**
+     * @param variableName
+     *      name of a variable
+     * @return
+     *      <code>true</code> if the given variable is a temporary variable
+     */
+    static boolean isTemporary(final String variableName) {
+        return variableName.startsWith(TEMPORARY_PREFIX);
+    }
+
+    /**
+     * @param node
+     *      the statement to rewrite
+     * @return
+     *      Yields the statements that replace the given statement, or <code>null</code>
+     *      if the given statement does not call any user-defined function within its
+     *      expressions
+     */
+    List<StatementNode> rewrite(final StatementNode node) {
+        final List<StatementNode> statements = this.rewrittenStatements.computeIfAbsent(node, this::hoist);
+        return statements == UNCHANGED ? null : statements;
+    }
+
+    private List<StatementNode> hoist(final StatementNode node) {
+        final List<ExpressionNode> expressions = expressionsOf(node);
+        if (expressions == null || !anyCall(expressions)) {
+            return UNCHANGED;
+        }
+        final List<StatementNode> statements = new ArrayList<>();
+        if (node instanceof FunctionCallNode) {
+            final FunctionCallNode call = (FunctionCallNode) node;
+            statements.add(new FunctionCallNode(call.functionName(), call.arity(), call.isBuiltin(), call.isNative(), hoist(call.arguments(), statements)));
+        } else if (node instanceof RepeatNode) {
+            final RepeatNode repeat = (RepeatNode) node;
+            statements.add(new RepeatNode(hoist(repeat.times(), statements), repeat.statements()));
+        } else if (node instanceof AssignmentNode) {
+            final AssignmentNode assignment = (AssignmentNode) node;
+            statements.add(new AssignmentNode(assignment.variable(), hoist(assignment.expression(), statements)));
+        } else if (node instanceof IfNode) {
+            final IfNode ifNode = (IfNode) node;
+            statements.add(new IfNode(hoist(ifNode.condition(), statements), ifNode.thenStatements(), ifNode.elseStatements()));
+        } else if (node instanceof ForNode) {
+            final ForNode forNode = (ForNode) node;
+            final List<ExpressionNode> bounds = hoist(Arrays.asList(forNode.start(), forNode.end(), forNode.step()), statements);
+            statements.add(new ForNode(forNode.variable(), bounds.get(0), bounds.get(1), bounds.get(2), forNode.statements()));
+        } else if (node instanceof WhileNode) {
+            hoist((WhileNode) node, statements);
+        } else if (node instanceof SetItemNode) {
+            final SetItemNode setItem = (SetItemNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(setItem.index(), setItem.array(), setItem.value()), statements);
+            statements.add(new SetItemNode(operands.get(0), operands.get(1), operands.get(2)));
+        } else if (node instanceof RerandomNode) {
+            statements.add(new RerandomNode(hoist(((RerandomNode) node).seed(), statements)));
+        } else {
+            statements.add(new OutputNode(hoist(((OutputNode) node).expression(), statements)));
+        }
+        return statements;
+    }
+
+    /**
+     * @return
+     *      Yields the expressions of the given statement itself, excluding those of nested
+     *      statements, or <code>null</code> if the given statement has no expressions
+     */
+    private static List<ExpressionNode> expressionsOf(final StatementNode node) {
+        if (node instanceof FunctionCallNode) {
+            return ((FunctionCallNode) node).arguments();
+        } else if (node instanceof RepeatNode) {
+            return Collections.singletonList(((RepeatNode) node).times());
+        } else if (node instanceof AssignmentNode) {
+            return Collections.singletonList(((AssignmentNode) node).expression());
+        } else if (node instanceof IfNode) {
+            return Collections.singletonList(((IfNode) node).condition());
+        } else if (node instanceof ForNode) {
+            final ForNode forNode = (ForNode) node;
+            return Arrays.asList(forNode.start(), forNode.end(), forNode.step());
+        } else if (node instanceof WhileNode) {
+            return Collections.singletonList(((WhileNode) node).condition());
+        } else if (node instanceof SetItemNode) {
+            final SetItemNode setItem = (SetItemNode) node;
+            return Arrays.asList(setItem.index(), setItem.array(), setItem.value());
+        } else if (node instanceof RerandomNode) {
+            return Collections.singletonList(((RerandomNode) node).seed());
+        } else if (node instanceof OutputNode) {
+            return Collections.singletonList(((OutputNode) node).expression());
+        } else {
+            return null;
+        }
+    }
+
+    private void hoist(final WhileNode node, final List<StatementNode> statements) {
+        final List<StatementNode> condition = new ArrayList<>();
+        final String temporary = temporary();
+        condition.add(new AssignmentNode(temporary, hoist(node.condition(), condition)));
+        final List<StatementNode> body = new ArrayList<>(node.statements());
+        if (!body.isEmpty()) {
+            // an empty body is left empty, so that the loop still fails if its condition holds
+            body.addAll(condition);
+        }
+        statements.addAll(condition);
+        statements.add(new WhileNode(new VariableReferenceNode(temporary), body));
+    }
+
+    /**
+     * Hoists the calls of the given operands, which are evaluated in the given order.
+     */
+    private List<ExpressionNode> hoist(final List<ExpressionNode> operands, final List<StatementNode> statements) {
+        final List<ExpressionNode> hoistedOperands = new ArrayList<>(operands.size());
+        for (int i = 0; i < operands.size(); i++) {
+            ExpressionNode operand = hoist(operands.get(i), statements);
+            if (!isConstant(operand) && anyCall(operands.subList(i + 1, operands.size()))) {
+                operand = bind(operand, statements);
+            }
+            hoistedOperands.add(operand);
+        }
+        return hoistedOperands;
+    }
+
+    private ExpressionNode hoist(final ExpressionNode node, final List<StatementNode> statements) {
+        if (!Expressions.anyMatch(node, ReporterHoisting::isCall)) {
+            return node;
+        } else if (node instanceof ReporterCallNode) {
+            final ReporterCallNode call = (ReporterCallNode) node;
+            final String temporary = temporary();
+            statements.add(new Call(temporary, new ReporterCallNode(call.functionName(), call.arity(), hoist(call.arguments(), statements))));
+            return new VariableReferenceNode(temporary);
+        } else if (node instanceof OrClauseNode) {
+            final OrClauseNode orClause = (OrClauseNode) node;
+            // the next clause is evaluated only if the first one does not hold
+            final VariableReferenceNode clause = bind(hoist(orClause.andClause(), statements), statements);
+            statements.add(new IfNode(clause, Collections.emptyList(), assign(clause, orClause.nextOrClause())));
+            return clause;
+        } else if (node instanceof AndClauseNode) {
+            final AndClauseNode andClause = (AndClauseNode) node;
+            // the next clause is evaluated only if the first one does not yield 0
+            final VariableReferenceNode clause = bind(hoist(andClause.equalityExpression(), statements), statements);
+            statements.add(new IfNode(new EqualityExpressionNode(clause, new NumberNode(0)), Collections.emptyList(), assign(clause, andClause.nextAndClause())));
+            return clause;
+        } else if (node instanceof EqualityExpressionNode) {
+            final EqualityExpressionNode equality = (EqualityExpressionNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(equality.equalityOperand(), equality.nextEqualityOperand()), statements);
+            return new EqualityExpressionNode(operands.get(0), operands.get(1));
+        } else if (node instanceof EqualityOperandNode) {
+            final EqualityOperandNode comparison = (EqualityOperandNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(comparison.additiveExpression(), comparison.nextAdditiveExpression()), statements);
+            return new EqualityOperandNode(operands.get(0), operands.get(1), comparison.operator());
+        } else if (node instanceof AdditiveExpressionNode) {
+            final AdditiveExpressionNode sum = (AdditiveExpressionNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(sum.addend(), sum.augend()), statements);
+            return new AdditiveExpressionNode(operands.get(0), operands.get(1), sum.operator());
+        } else if (node instanceof MultiplicativeExpressionNode) {
+            final MultiplicativeExpressionNode product = (MultiplicativeExpressionNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(product.leftFactor(), product.rightFactor()), statements);
+            return new MultiplicativeExpressionNode(operands.get(0), operands.get(1), product.operator());
+        } else if (node instanceof UnaryExpressionNode) {
+            final UnaryExpressionNode unary = (UnaryExpressionNode) node;
+            return new UnaryExpressionNode(hoist(unary.expression(), statements), unary.negate());
+        } else if (node instanceof IntrinsicCallNode) {
+            final IntrinsicCallNode intrinsic = (IntrinsicCallNode) node;
+            return new IntrinsicCallNode(intrinsic.intrinsic(), hoist(intrinsic.arguments(), statements));
+        } else if (node instanceof ItemNode) {
+            final ItemNode item = (ItemNode) node;
+            final List<ExpressionNode> operands = hoist(Arrays.asList(item.index(), item.array()), statements);
+            return new ItemNode(operands.get(0), operands.get(1));
+        } else if (node instanceof ArrayNode) {
+            return new ArrayNode(hoist(((ArrayNode) node).length(), statements));
+        } else {
+            throw new InterpreterException("Unable to hoist calls out of an expression of type " + node.getClass().getSimpleName() + ".");
+        }
+    }
+
+    private List<StatementNode> assign(final VariableReferenceNode variable, final ExpressionNode expression) {
+        final List<StatementNode> statements = new ArrayList<>();
+        statements.add(new AssignmentNode(variable.variableName(), hoist(expression, statements)));
+        return statements;
+    }
+
+    private VariableReferenceNode bind(final ExpressionNode expression, final List<StatementNode> statements) {
+        final String temporary = temporary();
+        statements.add(new AssignmentNode(temporary, expression));
+        return new VariableReferenceNode(temporary);
+    }
+
+    private String temporary() {
+        return TEMPORARY_PREFIX + this.temporaries++;
+    }
+
+    private static boolean isCall(final ExpressionNode node) {
+        return node instanceof ReporterCallNode;
+    }
+
+    private static boolean anyCall(final List<ExpressionNode> operands) {
+        return operands.stream().anyMatch(operand -> Expressions.anyMatch(operand, ReporterHoisting::isCall));
+    }
+
+    /**
+     * Constants keep their value during a call. So do temporary variables and
+     * <code>repcount</code>, which every frame restores before its next statement. Other
+     * variables are bound ahead of a call nonetheless, since looking up a variable that is
+     * not defined must fail before the call issues any turtle commands.
+     */
+    private static boolean isConstant(final ExpressionNode node) {
+        return node == null
+                || node instanceof NumberNode
+                || node instanceof BooleanNode
+                || node instanceof RepCountNode
+                || (node instanceof VariableReferenceNode && isTemporary(((VariableReferenceNode) node).variableName()));
+    }
+
+    /**
+     * Statement that calls a user-defined function and binds the value it outputs to a
+     * temporary variable. The arguments of the call do not call any user-defined functions.
+     */
+    static final class Call extends StatementNode {
+
+        private final String temporary;
+
+        private final ReporterCallNode call;
+
+        private Call(final String temporary, final ReporterCallNode call) {
+            this.temporary = temporary;
+            this.call = call;
+        }
+
+        String temporary() {
+            return this.temporary;
+        }
+
+        ReporterCallNode call() {
+            return this.call;
+        }
+    }
+}
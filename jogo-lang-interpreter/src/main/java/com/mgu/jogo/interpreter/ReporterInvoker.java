@@ -0,0 +1,28 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+
+/**
+ * Invokes user-defined functions that are called within expressions on behalf of the
+ * <code>ExpressionResolver</code>. Invoking a function means executing its statements,
+ * which is up to the interpreter that runs the program the expression belongs to.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+interface ReporterInvoker {
+
+    /**
+     * Invokes the function called by the given node and evaluates the value it reports
+     * into the given register.
+     *
+     * @param node
+     *      the call of the function
+     * @param environment
+     *      the execution context of the calling expression
+     * @param result
+     *      the register that receives the value the function outputs
+     * @throws InterpreterException
+     *      if the function does not output a value
+     */
+    void invoke(ReporterCallNode node, Environment environment, Slot result);
+}
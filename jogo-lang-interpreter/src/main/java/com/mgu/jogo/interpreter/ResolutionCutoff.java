@@ -0,0 +1,83 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of the <code>Extent</code>s of side-effect-free function invocations.
+ * Recursive drawings such as fractals spend most of their time on invocations whose
+ * whole drawing is smaller than a single pixel. Once the extent of an invocation is
+ * known, every further invocation of the same function with the same arguments whose
+ * extent fits into a pixel is replaced by a single chord. Thus, execution cost scales
+ * with the resolution of the output rather than with the depth of the recursion.
+ *
+ * The extent of a side-effect-free function depends on nothing but its arguments and is
+ * invariant under the turtle's position and heading, which makes it safe to cache.
+ * Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class ResolutionCutoff {
+
+    private static final int DEFAULT_CAPACITY = 4096;
+
+    private final Map<InvocationKey, Extent> extents;
+
+    ResolutionCutoff() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity
+     *      maximum number of extents this cache retains
+     */
+    ResolutionCutoff(final int capacity) {
+        this.extents = new LinkedHashMap<InvocationKey, Extent>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<InvocationKey, Extent> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Replaces the given invocation by a chord, if its extent is known and fits into a
+     * single pixel.
+     *
+     * @param function
+     *      the invoked function
+     * @param argumentValues
+     *      values of the arguments the function is invoked with
+     * @param turtle
+     *      the target of the invocation's turtle commands
+     * @return
+     *      <code>true</code> if a chord has been issued in place of the invocation,
+     *      <code>false</code> if the invocation has to be executed
+     */
+    boolean cutoff(final FunctionDefinitionNode function, final Slot[] argumentValues, final Turtle turtle) {
+        final Extent extent = this.extents.get(new InvocationKey(function, argumentValues));
+        if (extent == null || !extent.fitsInto(turtle.resolution())) {
+            return false;
+        }
+        extent.emitChord(turtle);
+        return true;
+    }
+
+    /**
+     * @param function
+     *      the invoked function
+     * @param argumentValues
+     *      values of the arguments the function has been invoked with
+     * @param extent
+     *      the measured extent of the invocation
+     */
+    void store(final FunctionDefinitionNode function, final Slot[] argumentValues, final Extent extent) {
+        this.extents.put(new InvocationKey(function, InvocationKey.copyOf(argumentValues)), extent);
+    }
+
+    int size() {
+        return this.extents.size();
+    }
+}
@@ -0,0 +1,385 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental uniform-grid index of line segments. Every segment is registered with each
+ * square cell of the grid it passes through, so intersection queries only test the
+ * segments that share a cell with the queried segment, and nearest-segment queries search
+ * the cells around the queried point in rings of growing size until no unvisited cell can
+ * hold a nearer segment. As long as segments are short and spread evenly compared to the
+ * cell size, both queries take constant time, regardless of how many segments have been
+ * added before.
+ *
+ * Segments that would cross more than {@link #MAX_SPAN} cells along either axis, or that
+ * reach beyond the range of cells the grid is able to address, are not registered with
+ * the grid, since a single one of them would take millions of cells. They are kept in an
+ * overflow bucket that every query tests in full instead. Likewise, queries for such
+ * segments, or for points beyond the addressable range, test every segment of the index.
+ *
+ * Segments are identified by the order in which they have been added, starting at
+ * <code>0</code>. Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class SegmentIndex {
+
+    static final double DEFAULT_CELL_SIZE = 16.0;
+
+    /**
+     * Maximum number of cells a segment of the grid spans along either axis.
+     */
+    static final int MAX_SPAN = 256;
+
+    /**
+     * Bound on the absolute cell coordinates of the grid, which keeps the arithmetic on
+     * cell coordinates clear of <code>int</code> overflow.
+     */
+    private static final int MAX_CELL = 1 << 29;
+
+    private static final double EPSILON = 1e-9;
+
+    private final double cellSize;
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+
+    private final Cell overflow = new Cell();
+
+    private double[] coordinates = new double[64];
+
+    private int[] visits = new int[16];
+
+    private int size = 0;
+
+    private int visit = 0;
+
+    private int minCellX = Integer.MAX_VALUE;
+
+    private int maxCellX = Integer.MIN_VALUE;
+
+    private int minCellY = Integer.MAX_VALUE;
+
+    private int maxCellY = Integer.MIN_VALUE;
+
+    SegmentIndex() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * @param cellSize
+     *      edge length of the cells of the grid
+     */
+    SegmentIndex(final double cellSize) {
+        if (cellSize <= 0.0) {
+            throw new IllegalArgumentException("The cell size of a segment index must be positive.");
+        }
+        this.cellSize = cellSize;
+    }
+
+    /**
+     * @return
+     *      Yields the number of segments in this index
+     */
+    int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes all segments from this index.
+     */
+    void clear() {
+        this.cells.clear();
+        this.overflow.size = 0;
+        this.size = 0;
+        this.minCellX = Integer.MAX_VALUE;
+        this.maxCellX = Integer.MIN_VALUE;
+        this.minCellY = Integer.MAX_VALUE;
+        this.maxCellY = Integer.MIN_VALUE;
+    }
+
+    /**
+     * @return
+     *      Yields the identifier of the added segment
+     */
+    int add(final double x1, final double y1, final double x2, final double y2) {
+        final int segment = this.size++;
+        if (this.coordinates.length < 4 * this.size) {
+            this.coordinates = Arrays.copyOf(this.coordinates, 2 * this.coordinates.length);
+            this.visits = Arrays.copyOf(this.visits, 2 * this.visits.length);
+        }
+        this.coordinates[4 * segment] = x1;
+        this.coordinates[4 * segment + 1] = y1;
+        this.coordinates[4 * segment + 2] = x2;
+        this.coordinates[4 * segment + 3] = y2;
+        this.visits[segment] = 0;
+
+        if (!isGridSegment(x1, y1, x2, y2)) {
+            this.overflow.add(segment);
+            return segment;
+        }
+        final int firstColumn = firstColumn(x1, x2);
+        final int lastColumn = lastColumn(x1, x2);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            final int firstRow = firstRow(x1, y1, x2, y2, column);
+            final int lastRow = lastRow(x1, y1, x2, y2, column);
+            for (int row = firstRow; row <= lastRow; row++) {
+                this.cells.computeIfAbsent(key(column, row), key -> new Cell()).add(segment);
+            }
+            this.minCellY = Math.min(this.minCellY, firstRow);
+            this.maxCellY = Math.max(this.maxCellY, lastRow);
+        }
+        this.minCellX = Math.min(this.minCellX, firstColumn);
+        this.maxCellX = Math.max(this.maxCellX, lastColumn);
+        return segment;
+    }
+
+    /**
+     * @param excluded
+     *      identifier of a segment to disregard, or <code>-1</code> to disregard none
+     * @return
+     *      <code>true</code> if the given segment intersects or touches any segment
+     *      of this index but the excluded one, <code>false</code> otherwise
+     */
+    boolean intersectsAny(final double x1, final double y1, final double x2, final double y2, final int excluded) {
+        if (!isGridSegment(x1, y1, x2, y2)) {
+            for (int segment = 0; segment < this.size; segment++) {
+                if (segment != excluded && intersects(x1, y1, x2, y2, segment)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        final int visit = nextVisit();
+        if (intersectsAny(this.overflow, x1, y1, x2, y2, excluded, visit)) {
+            return true;
+        }
+        final int firstColumn = firstColumn(x1, x2);
+        final int lastColumn = lastColumn(x1, x2);
+        for (int column = firstColumn; column <= lastColumn; column++) {
+            final int lastRow = lastRow(x1, y1, x2, y2, column);
+            for (int row = firstRow(x1, y1, x2, y2, column); row <= lastRow; row++) {
+                final Cell cell = this.cells.get(key(column, row));
+                if (cell != null && intersectsAny(cell, x1, y1, x2, y2, excluded, visit)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean intersectsAny(final Cell cell, final double x1, final double y1, final double x2, final double y2, final int excluded, final int visit) {
+        for (int i = 0; i < cell.size; i++) {
+            final int segment = cell.segments[i];
+            if (segment == excluded || this.visits[segment] == visit) {
+                continue;
+            }
+            this.visits[segment] = visit;
+            if (intersects(x1, y1, x2, y2, segment)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param excluded
+     *      identifier of a segment to disregard, or <code>-1</code> to disregard none
+     * @return
+     *      Yields the distance between the given point and the nearest segment of this
+     *      index but the excluded one, or <code>-1</code> if there is no such segment
+     */
+    double distance(final double x, final double y, final int excluded) {
+        if (this.size == 0 || (this.size == 1 && excluded == 0)) {
+            return -1.0;
+        }
+        if (!isWithinGrid(x) || !isWithinGrid(y)) {
+            double nearest = Double.POSITIVE_INFINITY;
+            for (int segment = 0; segment < this.size; segment++) {
+                if (segment != excluded) {
+                    nearest = Math.min(nearest, distanceTo(x, y, segment));
+                }
+            }
+            return nearest;
+        }
+        final int visit = nextVisit();
+        double nearest = nearest(this.overflow, x, y, excluded, visit, Double.POSITIVE_INFINITY);
+        if (this.minCellX > this.maxCellX) {
+            // all segments are in the overflow bucket
+            return nearest == Double.POSITIVE_INFINITY ? -1.0 : nearest;
+        }
+        final int centerColumn = cell(x);
+        final int centerRow = cell(y);
+        // rings that do not reach the occupied cells are skipped altogether
+        final int firstRing = Math.max(0, Math.max(
+                Math.max(this.minCellX - centerColumn, centerColumn - this.maxCellX),
+                Math.max(this.minCellY - centerRow, centerRow - this.maxCellY)));
+        for (int ring = firstRing; ; ring++) {
+            final int left = centerColumn - ring;
+            final int right = centerColumn + ring;
+            final int bottom = centerRow - ring;
+            final int top = centerRow + ring;
+            for (int column = Math.max(left, this.minCellX); column <= Math.min(right, this.maxCellX); column++) {
+                nearest = nearest(column, bottom, x, y, excluded, visit, nearest);
+                if (top != bottom) {
+                    nearest = nearest(column, top, x, y, excluded, visit, nearest);
+                }
+            }
+            for (int row = Math.max(bottom + 1, this.minCellY); row <= Math.min(top - 1, this.maxCellY); row++) {
+                nearest = nearest(left, row, x, y, excluded, visit, nearest);
+                if (right != left) {
+                    nearest = nearest(right, row, x, y, excluded, visit, nearest);
+                }
+            }
+            // every cell outside of this ring is at least ring * cellSize away from the point
+            final boolean coversGrid = left <= this.minCellX && right >= this.maxCellX
+                    && bottom <= this.minCellY && top >= this.maxCellY;
+            if (nearest <= ring * this.cellSize || coversGrid) {
+                return nearest == Double.POSITIVE_INFINITY ? -1.0 : nearest;
+            }
+        }
+    }
+
+    private double nearest(final int column, final int row, final double x, final double y, final int excluded, final int visit, final double nearest) {
+        final Cell cell = this.cells.get(key(column, row));
+        return cell == null ? nearest : nearest(cell, x, y, excluded, visit, nearest);
+    }
+
+    private double nearest(final Cell cell, final double x, final double y, final int excluded, final int visit, final double nearest) {
+        double result = nearest;
+        for (int i = 0; i < cell.size; i++) {
+            final int segment = cell.segments[i];
+            if (segment == excluded || this.visits[segment] == visit) {
+                continue;
+            }
+            this.visits[segment] = visit;
+            result = Math.min(result, distanceTo(x, y, segment));
+        }
+        return result;
+    }
+
+    private int nextVisit() {
+        if (++this.visit == Integer.MAX_VALUE) {
+            Arrays.fill(this.visits, 0);
+            this.visit = 1;
+        }
+        return this.visit;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the given segment is registered with the cells it crosses,
+     *      <code>false</code> if it belongs into the overflow bucket
+     */
+    private boolean isGridSegment(final double x1, final double y1, final double x2, final double y2) {
+        return isWithinGrid(x1) && isWithinGrid(y1) && isWithinGrid(x2) && isWithinGrid(y2)
+                && Math.abs(x2 - x1) <= MAX_SPAN * this.cellSize
+                && Math.abs(y2 - y1) <= MAX_SPAN * this.cellSize;
+    }
+
+    private boolean isWithinGrid(final double coordinate) {
+        // fails for NaN as well
+        return Math.abs(coordinate) < MAX_CELL * this.cellSize;
+    }
+
+    private int cell(final double coordinate) {
+        return (int) Math.floor(coordinate / this.cellSize);
+    }
+
+    private int firstColumn(final double x1, final double x2) {
+        return cell(Math.min(x1, x2) - EPSILON);
+    }
+
+    private int lastColumn(final double x1, final double x2) {
+        return cell(Math.max(x1, x2) + EPSILON);
+    }
+
+    private int firstRow(final double x1, final double y1, final double x2, final double y2, final int column) {
+        if (x1 == x2) {
+            return cell(Math.min(y1, y2) - EPSILON);
+        }
+        return cell(Math.min(yAt(x1, y1, x2, y2, columnStart(x1, x2, column)), yAt(x1, y1, x2, y2, columnEnd(x1, x2, column))) - EPSILON);
+    }
+
+    private int lastRow(final double x1, final double y1, final double x2, final double y2, final int column) {
+        if (x1 == x2) {
+            return cell(Math.max(y1, y2) + EPSILON);
+        }
+        return cell(Math.max(yAt(x1, y1, x2, y2, columnStart(x1, x2, column)), yAt(x1, y1, x2, y2, columnEnd(x1, x2, column))) + EPSILON);
+    }
+
+    private double columnStart(final double x1, final double x2, final int column) {
+        return Math.max(Math.min(x1, x2), column * this.cellSize);
+    }
+
+    private double columnEnd(final double x1, final double x2, final int column) {
+        return Math.min(Math.max(x1, x2), (column + 1) * this.cellSize);
+    }
+
+    private static double yAt(final double x1, final double y1, final double x2, final double y2, final double x) {
+        return y1 + (y2 - y1) * (x - x1) / (x2 - x1);
+    }
+
+    private static long key(final int column, final int row) {
+        return ((long) column << 32) | (row & 0xffffffffL);
+    }
+
+    private boolean intersects(final double ax, final double ay, final double bx, final double by, final int segment) {
+        final double cx = this.coordinates[4 * segment];
+        final double cy = this.coordinates[4 * segment + 1];
+        final double dx = this.coordinates[4 * segment + 2];
+        final double dy = this.coordinates[4 * segment + 3];
+        final double d1 = cross(cx, cy, dx, dy, ax, ay);
+        final double d2 = cross(cx, cy, dx, dy, bx, by);
+        final double d3 = cross(ax, ay, bx, by, cx, cy);
+        final double d4 = cross(ax, ay, bx, by, dx, dy);
+        if (((d1 > EPSILON && d2 < -EPSILON) || (d1 < -EPSILON && d2 > EPSILON))
+                && ((d3 > EPSILON && d4 < -EPSILON) || (d3 < -EPSILON && d4 > EPSILON))) {
+            return true;
+        }
+        return (Math.abs(d1) <= EPSILON && onSegment(cx, cy, dx, dy, ax, ay))
+                || (Math.abs(d2) <= EPSILON && onSegment(cx, cy, dx, dy, bx, by))
+                || (Math.abs(d3) <= EPSILON && onSegment(ax, ay, bx, by, cx, cy))
+                || (Math.abs(d4) <= EPSILON && onSegment(ax, ay, bx, by, dx, dy));
+    }
+
+    private static double cross(final double ax, final double ay, final double bx, final double by, final double px, final double py) {
+        return (bx - ax) * (py - ay) - (by - ay) * (px - ax);
+    }
+
+    private static boolean onSegment(final double ax, final double ay, final double bx, final double by, final double px, final double py) {
+        return px >= Math.min(ax, bx) - EPSILON && px <= Math.max(ax, bx) + EPSILON
+                && py >= Math.min(ay, by) - EPSILON && py <= Math.max(ay, by) + EPSILON;
+    }
+
+    private double distanceTo(final double x, final double y, final int segment) {
+        final double ax = this.coordinates[4 * segment];
+        final double ay = this.coordinates[4 * segment + 1];
+        final double bx = this.coordinates[4 * segment + 2];
+        final double by = this.coordinates[4 * segment + 3];
+        final double lengthSquared = (bx - ax) * (bx - ax) + (by - ay) * (by - ay);
+        if (lengthSquared == 0.0) {
+            return Math.hypot(x - ax, y - ay);
+        }
+        final double t = Math.max(0.0, Math.min(1.0, ((x - ax) * (bx - ax) + (y - ay) * (by - ay)) / lengthSquared));
+        return Math.hypot(x - (ax + t * (bx - ax)), y - (ay + t * (by - ay)));
+    }
+
+    /**
+     * Identifiers of the segments that pass through a single cell of the grid.
+     */
+    private static class Cell {
+
+        private int[] segments = new int[4];
+
+        private int size = 0;
+
+        private void add(final int segment) {
+            if (this.size == this.segments.length) {
+                this.segments = Arrays.copyOf(this.segments, 2 * this.size);
+            }
+            this.segments[this.size++] = segment;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+/**
+ * <code>Turtle</code> decorator which forwards every operation to its delegate and adds
+ * every line the turtle draws to a <code>SegmentIndex</code> along the way. It answers the
+ * spatial queries <code>touching</code> and <code>distance</code> in roughly constant time.
+ * Arcs are indexed as chords that span no more than {@link #DEGREES_PER_CHORD} degrees.
+ *
+ * Like <code>ExtentMeasuringTurtle</code>, this decorator tracks position and heading on
+ * its own, relative to the state the turtle starts in. <code>move</code> is taken to set
+ * the position within the same frame of reference.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class SegmentIndexingTurtle implements Turtle {
+
+    static final double DEGREES_PER_CHORD = 10.0;
+
+    private final Turtle delegate;
+
+    private final SegmentIndex index;
+
+    private double heading = 0.0;
+
+    private double positionX = 0.0;
+
+    private double positionY = 0.0;
+
+    private boolean penDown = true;
+
+    /**
+     * Identifier of the segment that ends at the current position, or <code>-1</code>.
+     */
+    private int lastSegment = -1;
+
+    private boolean touching = false;
+
+    /**
+     * @param delegate
+     *      the <code>Turtle</code> that executes the indexed operations
+     */
+    SegmentIndexingTurtle(final Turtle delegate) {
+        this.delegate = delegate;
+        this.index = new SegmentIndex();
+    }
+
+    /**
+     * Decorates the given <code>Turtle</code> if the given program queries what the
+     * turtle has drawn so far. Otherwise, indexing would only cost time and memory.
+     *
+     * @param programNode
+     *      the program that the returned <code>Turtle</code> executes
+     * @param turtle
+     *      the <code>Turtle</code> to decorate
+     * @return
+     *      Yields the decorated <code>Turtle</code> or the given one
+     */
+    static Turtle decorateIfQueried(final ProgramNode programNode, final Turtle turtle) {
+        return Expressions.queriesSegments(programNode.statementNodes()) ? new SegmentIndexingTurtle(turtle) : turtle;
+    }
+
+    /**
+     * @param turtle
+     *      the <code>Turtle</code> of an <code>Environment</code>
+     * @throws InterpreterException
+     *      if the given <code>Turtle</code> does not index the segments it draws
+     * @return
+     *      Yields the given <code>Turtle</code> as <code>SegmentIndexingTurtle</code>
+     */
+    static SegmentIndexingTurtle of(final Turtle turtle) {
+        if (!(turtle instanceof SegmentIndexingTurtle)) {
+            throw new InterpreterException("Unable to query the drawing, since the turtle does not keep track of the segments it has drawn.");
+        }
+        return (SegmentIndexingTurtle) turtle;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if a line the latest movement of the turtle has drawn crosses
+     *      or touches a line drawn before, disregarding the line it continues,
+     *      <code>false</code> otherwise
+     */
+    boolean touching() {
+        return this.touching;
+    }
+
+    /**
+     * @return
+     *      Yields the distance between the current position and the nearest line drawn
+     *      so far, disregarding the line that ends at the current position, or
+     *      <code>-1</code> if there is no such line
+     */
+    double distance() {
+        return this.index.distance(this.positionX, this.positionY, this.lastSegment);
+    }
+
+    private void turn(final double degrees) {
+        this.heading += degrees;
+    }
+
+    private void advance(final double steps) {
+        if (steps == 0.0) {
+            return;
+        }
+        final double radians = Math.toRadians(this.heading);
+        this.touching = false;
+        lineTo(this.positionX + Math.cos(radians) * steps, this.positionY + Math.sin(radians) * steps);
+    }
+
+    private void lineTo(final double positionX, final double positionY) {
+        if (this.penDown) {
+            this.touching |= this.index.intersectsAny(this.positionX, this.positionY, positionX, positionY, this.lastSegment);
+            this.lastSegment = this.index.add(this.positionX, this.positionY, positionX, positionY);
+        } else {
+            this.lastSegment = -1;
+        }
+        this.positionX = positionX;
+        this.positionY = positionY;
+    }
+
+    @Override
+    public void clear() {
+        this.index.clear();
+        this.lastSegment = -1;
+        this.touching = false;
+        this.delegate.clear();
+    }
+
+    @Override
+    public void hide() {
+        this.delegate.hide();
+    }
+
+    @Override
+    public void show() {
+        this.delegate.show();
+    }
+
+    @Override
+    public void penUp() {
+        this.penDown = false;
+        this.delegate.penUp();
+    }
+
+    @Override
+    public void penDown() {
+        this.penDown = true;
+        this.delegate.penDown();
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        this.delegate.setPenColor(penColor);
+    }
+
+    @Override
+    public void left(final int degrees) {
+        turn(-degrees);
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final int degrees) {
+        turn(degrees);
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final int steps) {
+        advance(-steps);
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        advance(steps);
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.lastSegment = -1;
+        this.touching = false;
+        this.delegate.move(positionX, positionY);
+    }
+
+    @Override
+    public void left(final double degrees) {
+        turn(-degrees);
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final double degrees) {
+        turn(degrees);
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final double steps) {
+        advance(-steps);
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        advance(steps);
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        if (degrees != 0.0 && radius != 0.0) {
+            final double toCenter = Math.toRadians(this.heading + Math.signum(degrees) * 90.0);
+            final double centerX = this.positionX + Math.cos(toCenter) * radius;
+            final double centerY = this.positionY + Math.sin(toCenter) * radius;
+            final double startAngle = this.heading - Math.signum(degrees) * 90.0;
+            final int chords = (int) Math.ceil(Math.abs(degrees) / DEGREES_PER_CHORD);
+            this.touching = false;
+            for (int i = 1; i <= chords; i++) {
+                final double angle = Math.toRadians(startAngle + degrees * i / chords);
+                lineTo(centerX + Math.cos(angle) * radius, centerY + Math.sin(angle) * radius);
+            }
+        }
+        turn(degrees);
+        this.delegate.arc(radius, degrees);
+    }
+
+    @Override
+    public double resolution() {
+        return this.delegate.resolution();
+    }
+
+    @Override
+    public Turtle hatch() {
+        // the lines of the hatched turtle are indexed by the environment it runs in, if at all
+        return this.delegate.hatch();
+    }
+}
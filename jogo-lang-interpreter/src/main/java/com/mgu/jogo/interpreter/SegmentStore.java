@@ -0,0 +1,344 @@
+package com.mgu.jogo.interpreter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Stores the line segments that turtles emit off-heap, so that drawings which exceed a
+ * comfortable heap size neither put pressure on the garbage collector nor have to be
+ * deserialized before they can be scanned. Segments are stored as fixed-width records in
+ * five columns: the coordinates <code>x0</code>, <code>y0</code>, <code>x1</code> and
+ * <code>y1</code> as <code>double</code>s and the pen color and pen state packed into an
+ * <code>int</code> (cf. {@link PathTracingTurtle}). Each column is split into pages of
+ * direct byte buffers. The store grows by allocating further pages, so appending a
+ * segment never copies the segments that came before it.
+ *
+ * A store is written to a <code>.jseg</code> file with {@link #writeTo(Path)} and reopened
+ * read-only with {@link #open(Path)}, which maps the columns of the file into memory
+ * instead of reading them. A <code>.jseg</code> file consists of a header and the five
+ * columns, one after the other, all in little-endian byte order:
+ *
+ * <pre>
+ * int    magic number 0x4A534547 ("JSEG")
+ * int    version of the file format, currently 1
+ * long   number of segments n
+ * double x0[n]
+ * double y0[n]
+ * double x1[n]
+ * double y1[n]
+ * int    attributes[n]
+ * </pre>
+ *
+ * Segments are addressed by their zero-based <code>long</code> index, so a store holds
+ * billions of segments. Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class SegmentStore {
+
+    /**
+     * File extension of segment files.
+     */
+    public static final String FILE_EXTENSION = ".jseg";
+
+    private static final int MAGIC = 0x4A534547;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 16;
+
+    private static final int X0 = 0;
+
+    private static final int Y0 = 1;
+
+    private static final int X1 = 2;
+
+    private static final int Y1 = 3;
+
+    private static final int ATTRIBUTES = 4;
+
+    private static final int[] COLUMN_WIDTHS = { 8, 8, 8, 8, 4 };
+
+    private static final int RECORD_BYTES = 36;
+
+    /**
+     * Pages of a writable store hold 2^16 segments, which keeps small drawings small.
+     */
+    private static final int WRITABLE_PAGE_SHIFT = 16;
+
+    /**
+     * Pages of a mapped store hold 2^26 segments, which keeps the pages of the widest
+     * column at 512 MiB and thus well below the limit of a single mapping.
+     */
+    private static final int MAPPED_PAGE_SHIFT = 26;
+
+    private final ByteBuffer[][] columns = new ByteBuffer[COLUMN_WIDTHS.length][];
+
+    private final int pageShift;
+
+    private final long pageMask;
+
+    private final boolean readOnly;
+
+    private int pageCount = 0;
+
+    private long segmentCount = 0;
+
+    /**
+     * Creates an empty, writable store.
+     */
+    public SegmentStore() {
+        this(WRITABLE_PAGE_SHIFT, false);
+        for (int column = 0; column < this.columns.length; column++) {
+            this.columns[column] = new ByteBuffer[16];
+        }
+    }
+
+    private SegmentStore(final int pageShift, final boolean readOnly) {
+        this.pageShift = pageShift;
+        this.pageMask = (1L << pageShift) - 1L;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Opens the given segment file read-only. The columns of the file are mapped into
+     * memory, so this is cheap no matter how many segments the file holds.
+     *
+     * @param file
+     *      a segment file that has been written by {@link #writeTo(Path)}
+     * @throws UncheckedIOException
+     *      if the file cannot be read or is not a segment file
+     * @return
+     *      Yields a read-only store that holds the segments of the given file
+     */
+    public static SegmentStore open(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // read until the header is complete or the file ends
+            }
+            if (header.position() < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a segment file.");
+            }
+            final int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unable to read version " + version + " of the segment file format.");
+            }
+            final long segmentCount = header.getLong(8);
+            if (segmentCount < 0 || segmentCount > (channel.size() - HEADER_BYTES) / RECORD_BYTES
+                    || channel.size() != HEADER_BYTES + segmentCount * RECORD_BYTES) {
+                throw new IOException(file + " is truncated or holds trailing data.");
+            }
+
+            final SegmentStore store = new SegmentStore(MAPPED_PAGE_SHIFT, true);
+            store.segmentCount = segmentCount;
+            store.pageCount = (int) ((segmentCount + store.pageMask) >>> MAPPED_PAGE_SHIFT);
+            long offset = HEADER_BYTES;
+            for (int column = 0; column < store.columns.length; column++) {
+                store.columns[column] = new ByteBuffer[store.pageCount];
+                for (int page = 0; page < store.pageCount; page++) {
+                    final long segments = Math.min(store.pageMask + 1L, segmentCount - ((long) page << MAPPED_PAGE_SHIFT));
+                    final long bytes = segments * COLUMN_WIDTHS[column];
+                    store.columns[column][page] = channel.map(FileChannel.MapMode.READ_ONLY, offset, bytes).order(ByteOrder.LITTLE_ENDIAN);
+                    offset += bytes;
+                }
+            }
+            return store;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open segment file " + file + ".", e);
+        }
+    }
+
+    /**
+     * Writes the segments of this store to the given file and forces them onto the
+     * storage device. An existing file is replaced.
+     *
+     * @param file
+     *      the segment file to write, which should carry the extension {@link #FILE_EXTENSION}
+     * @throws UncheckedIOException
+     *      if the file cannot be written
+     */
+    public void writeTo(final Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(0, MAGIC).putInt(4, VERSION).putLong(8, this.segmentCount);
+            writeFully(channel, header);
+            final int pages = (int) ((this.segmentCount + this.pageMask) >>> this.pageShift);
+            for (int column = 0; column < this.columns.length; column++) {
+                for (int page = 0; page < pages; page++) {
+                    final long segments = Math.min(this.pageMask + 1L, this.segmentCount - ((long) page << this.pageShift));
+                    final ByteBuffer bytes = this.columns[column][page].duplicate();
+                    ((Buffer) bytes).limit((int) (segments * COLUMN_WIDTHS[column]));
+                    writeFully(channel, bytes);
+                }
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write segment file " + file + ".", e);
+        }
+    }
+
+    private static void writeFully(final FileChannel channel, final ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+
+    /**
+     * @param resolution
+     *      the edge length of a single rendered pixel, measured in turtle steps (cf.
+     *      {@link Turtle#resolution()}), or <code>0</code> to store every command exactly
+     * @throws IllegalStateException
+     *      if this store is read-only
+     * @return
+     *      Yields a turtle that stores the path it travels in this store. Turtles hatched
+     *      from it store their paths in this store as well. <code>clear</code> discards
+     *      all segments of this store.
+     */
+    public Turtle turtle(final double resolution) {
+        if (this.readOnly) {
+            throw new IllegalStateException("Unable to store segments in a read-only segment store.");
+        }
+        return new StoringTurtle(this, resolution);
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if this store has been opened from a segment file,
+     *      <code>false</code> otherwise
+     */
+    public boolean isReadOnly() {
+        return this.readOnly;
+    }
+
+    /**
+     * @return
+     *      Yields the number of segments in this store
+     */
+    public long segmentCount() {
+        return this.segmentCount;
+    }
+
+    public double x0(final long segment) {
+        return coordinate(X0, segment);
+    }
+
+    public double y0(final long segment) {
+        return coordinate(Y0, segment);
+    }
+
+    public double x1(final long segment) {
+        return coordinate(X1, segment);
+    }
+
+    public double y1(final long segment) {
+        return coordinate(Y1, segment);
+    }
+
+    /**
+     * @return
+     *      Yields the pen color the given segment has been drawn with, reduced to its
+     *      lower 24 bits
+     */
+    public int penColor(final long segment) {
+        return attributes(segment) & PathTracingTurtle.COLOR_MASK;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the given segment has been drawn with the pen down,
+     *      <code>false</code> if the turtle has only travelled along it
+     */
+    public boolean isPenDown(final long segment) {
+        return (attributes(segment) & PathTracingTurtle.PEN_DOWN) != 0;
+    }
+
+    private double coordinate(final int column, final long segment) {
+        checkIndex(segment);
+        return this.columns[column][(int) (segment >>> this.pageShift)].getDouble((int) (segment & this.pageMask) << 3);
+    }
+
+    private int attributes(final long segment) {
+        checkIndex(segment);
+        return this.columns[ATTRIBUTES][(int) (segment >>> this.pageShift)].getInt((int) (segment & this.pageMask) << 2);
+    }
+
+    private void checkIndex(final long segment) {
+        if (segment < 0 || segment >= this.segmentCount) {
+            throw new IndexOutOfBoundsException("Segment " + segment + " is out of bounds for " + this.segmentCount + " segments.");
+        }
+    }
+
+    private void add(final double x0, final double y0, final double x1, final double y1, final int attributes) {
+        final int page = (int) (this.segmentCount >>> this.pageShift);
+        if (page == this.pageCount) {
+            addPage();
+        }
+        final int offset = (int) (this.segmentCount & this.pageMask);
+        this.columns[X0][page].putDouble(offset << 3, x0);
+        this.columns[Y0][page].putDouble(offset << 3, y0);
+        this.columns[X1][page].putDouble(offset << 3, x1);
+        this.columns[Y1][page].putDouble(offset << 3, y1);
+        this.columns[ATTRIBUTES][page].putInt(offset << 2, attributes);
+        this.segmentCount++;
+    }
+
+    private void addPage() {
+        if (this.pageCount == this.columns[X0].length) {
+            if (this.pageCount == Integer.MAX_VALUE >>> 1) {
+                throw new InterpreterException("Unable to store more than " + ((long) this.pageCount << this.pageShift) + " segments.");
+            }
+            for (int column = 0; column < this.columns.length; column++) {
+                this.columns[column] = Arrays.copyOf(this.columns[column], 2 * this.pageCount);
+            }
+        }
+        for (int column = 0; column < this.columns.length; column++) {
+            this.columns[column][this.pageCount] = ByteBuffer.allocateDirect(COLUMN_WIDTHS[column] << this.pageShift).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.pageCount++;
+    }
+
+    private void clear() {
+        this.segmentCount = 0;
+    }
+
+    /**
+     * Turtle that emits its segments into a store.
+     */
+    private static final class StoringTurtle extends PathTracingTurtle {
+
+        private final SegmentStore store;
+
+        private StoringTurtle(final SegmentStore store, final double resolution) {
+            super(resolution);
+            this.store = store;
+        }
+
+        private StoringTurtle(final StoringTurtle parent) {
+            super(parent);
+            this.store = parent.store;
+        }
+
+        @Override
+        void emit(final double x0, final double y0, final double x1, final double y1, final int attributes) {
+            this.store.add(x0, y0, x1, y1, attributes);
+        }
+
+        @Override
+        public void clear() {
+            this.store.clear();
+        }
+
+        @Override
+        public Turtle hatch() {
+            return new StoringTurtle(this);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.Arrays;
+
+/**
+ * Mutable cell that holds a single value of any <code>ValueType</code> without boxing it.
+ * Slots serve as storage of variables within an <code>Environment</code> and as the
+ * register that expressions are evaluated into (cf. <code>ExpressionResolver</code>).
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class Slot {
+
+    private ValueType type = ValueType.INT;
+
+    private int intValue = 0;
+
+    private double doubleValue = 0.0;
+
+    private int[] arrayValue = null;
+
+    public Slot() {
+    }
+
+    public static Slot ofInt(final int value) {
+        final Slot slot = new Slot();
+        slot.setInt(value);
+        return slot;
+    }
+
+    public static Slot ofDouble(final double value) {
+        final Slot slot = new Slot();
+        slot.setDouble(value);
+        return slot;
+    }
+
+    public static Slot ofArray(final int[] value) {
+        final Slot slot = new Slot();
+        slot.setArray(value);
+        return slot;
+    }
+
+    public ValueType type() {
+        return this.type;
+    }
+
+    public boolean isDouble() {
+        return this.type == ValueType.DOUBLE;
+    }
+
+    public boolean isArray() {
+        return this.type == ValueType.ARRAY;
+    }
+
+    /**
+     * @return
+     *      Yields the value as <code>int</code>; doubles are truncated
+     */
+    public int intValue() {
+        if (this.type == ValueType.DOUBLE) {
+            return (int) this.doubleValue;
+        } else if (this.type == ValueType.ARRAY) {
+            throw notANumber();
+        }
+        return this.intValue;
+    }
+
+    /**
+     * @return
+     *      Yields the value as <code>double</code>
+     */
+    public double doubleValue() {
+        if (this.type == ValueType.DOUBLE) {
+            return this.doubleValue;
+        } else if (this.type == ValueType.ARRAY) {
+            throw notANumber();
+        }
+        return this.intValue;
+    }
+
+    /**
+     * @return
+     *      Yields the elements of the array this slot refers to
+     * @throws InterpreterException
+     *      if this slot does not hold an array
+     */
+    public int[] arrayValue() {
+        if (this.type != ValueType.ARRAY) {
+            throw new InterpreterException("Expected an array, but found " + this + ".");
+        }
+        return this.arrayValue;
+    }
+
+    private InterpreterException notANumber() {
+        return new InterpreterException("Expected a number, but found an array.");
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if the value equals <code>1</code>, which is the representation
+     *      of a true boolean, <code>false</code> otherwise
+     */
+    public boolean isTrue() {
+        return this.type == ValueType.DOUBLE ? this.doubleValue == 1.0 : this.type != ValueType.ARRAY && this.intValue == 1;
+    }
+
+    public void setInt(final int value) {
+        this.type = ValueType.INT;
+        this.intValue = value;
+    }
+
+    public void setDouble(final double value) {
+        this.type = ValueType.DOUBLE;
+        this.doubleValue = value;
+    }
+
+    public void setBoolean(final boolean value) {
+        this.type = ValueType.BOOLEAN;
+        this.intValue = value ? 1 : 0;
+    }
+
+    /**
+     * @param value
+     *      the array this slot refers to from now on; the array is not copied
+     */
+    public void setArray(final int[] value) {
+        this.type = ValueType.ARRAY;
+        this.arrayValue = value;
+    }
+
+    /**
+     * @param other
+     *      the slot whose value is copied into this slot; arrays are copied by reference
+     */
+    public void set(final Slot other) {
+        this.type = other.type;
+        this.intValue = other.intValue;
+        this.doubleValue = other.doubleValue;
+        this.arrayValue = other.arrayValue;
+    }
+
+    /**
+     * @return
+     *      Yields a new slot holding the same value as this slot; arrays are
+     *      copied by reference
+     */
+    public Slot copy() {
+        final Slot copy = new Slot();
+        copy.set(this);
+        return copy;
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (!(other instanceof Slot)) {
+            return false;
+        }
+        final Slot that = (Slot) other;
+        if (this.type != that.type) {
+            return false;
+        }
+        switch (this.type) {
+            case DOUBLE: return Double.compare(this.doubleValue, that.doubleValue) == 0;
+            case ARRAY: return this.arrayValue == that.arrayValue;
+            default: return this.intValue == that.intValue;
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        switch (this.type) {
+            case DOUBLE: return 31 * this.type.hashCode() + Double.hashCode(this.doubleValue);
+            case ARRAY: return 31 * this.type.hashCode() + System.identityHashCode(this.arrayValue);
+            default: return 31 * this.type.hashCode() + this.intValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case DOUBLE: return String.valueOf(this.doubleValue);
+            case BOOLEAN: return this.intValue == 1 ? "true" : "false";
+            case ARRAY: return Arrays.toString(this.arrayValue);
+            default: return String.valueOf(this.intValue);
+        }
+    }
+}
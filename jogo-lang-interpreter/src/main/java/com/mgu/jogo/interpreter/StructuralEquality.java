@@ -0,0 +1,233 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.AdditiveExpressionNode;
+import com.mgu.jogo.parser.ast.AndClauseNode;
+import com.mgu.jogo.parser.ast.ArgumentDefinitionNode;
+import com.mgu.jogo.parser.ast.ArrayNode;
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.BooleanNode;
+import com.mgu.jogo.parser.ast.EqualityExpressionNode;
+import com.mgu.jogo.parser.ast.EqualityOperandNode;
+import com.mgu.jogo.parser.ast.ExpressionNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.HatchNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.IntrinsicCallNode;
+import com.mgu.jogo.parser.ast.ItemNode;
+import com.mgu.jogo.parser.ast.MultiplicativeExpressionNode;
+import com.mgu.jogo.parser.ast.NumberNode;
+import com.mgu.jogo.parser.ast.OrClauseNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.RepCountNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
+import com.mgu.jogo.parser.ast.UnaryExpressionNode;
+import com.mgu.jogo.parser.ast.VariableReferenceNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.List;
+
+/**
+ * Compares AST nodes by structure rather than by identity. Two nodes are structurally
+ * equal if they are of the same type, carry the same names, values and operators and
+ * all of their children are structurally equal. Structurally equal statements have the
+ * exact same effect when executed in the same execution context, no matter which
+ * parser run produced them.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+final class StructuralEquality {
+
+    private StructuralEquality() {
+    }
+
+    static boolean equal(final List<StatementNode> statements, final List<StatementNode> otherStatements) {
+        if (statements == null || otherStatements == null) {
+            return statements == otherStatements;
+        }
+        if (statements.size() != otherStatements.size()) {
+            return false;
+        }
+        for (int i = 0; i < statements.size(); i++) {
+            if (!equal(statements.get(i), otherStatements.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean equal(final StatementNode node, final StatementNode other) {
+        if (node == other) {
+            return true;
+        }
+        if (node == null || other == null || node.getClass() != other.getClass()) {
+            return false;
+        }
+        if (node instanceof FunctionCallNode) {
+            final FunctionCallNode call = (FunctionCallNode) node;
+            final FunctionCallNode otherCall = (FunctionCallNode) other;
+            return call.functionName().equals(otherCall.functionName())
+                    && call.isBuiltin() == otherCall.isBuiltin()
+                    && call.isNative() == otherCall.isNative()
+                    && equalExpressions(call.arguments(), otherCall.arguments());
+        } else if (node instanceof FunctionDefinitionNode) {
+            final FunctionDefinitionNode function = (FunctionDefinitionNode) node;
+            final FunctionDefinitionNode otherFunction = (FunctionDefinitionNode) other;
+            return function.functionName().equals(otherFunction.functionName())
+                    && equalArguments(function.argumentDefinitions(), otherFunction.argumentDefinitions())
+                    && equal(function.statements(), otherFunction.statements());
+        } else if (node instanceof RepeatNode) {
+            final RepeatNode repeat = (RepeatNode) node;
+            final RepeatNode otherRepeat = (RepeatNode) other;
+            return equal(repeat.times(), otherRepeat.times())
+                    && equal(repeat.statements(), otherRepeat.statements());
+        } else if (node instanceof AssignmentNode) {
+            final AssignmentNode assignment = (AssignmentNode) node;
+            final AssignmentNode otherAssignment = (AssignmentNode) other;
+            return assignment.variable().equals(otherAssignment.variable())
+                    && equal(assignment.expression(), otherAssignment.expression());
+        } else if (node instanceof IfNode) {
+            final IfNode ifNode = (IfNode) node;
+            final IfNode otherIfNode = (IfNode) other;
+            return equal(ifNode.condition(), otherIfNode.condition())
+                    && equal(ifNode.thenStatements(), otherIfNode.thenStatements())
+                    && equal(ifNode.elseStatements(), otherIfNode.elseStatements());
+        } else if (node instanceof ForNode) {
+            final ForNode forNode = (ForNode) node;
+            final ForNode otherForNode = (ForNode) other;
+            return forNode.variable().equals(otherForNode.variable())
+                    && equal(forNode.start(), otherForNode.start())
+                    && equal(forNode.end(), otherForNode.end())
+                    && equal(forNode.step(), otherForNode.step())
+                    && equal(forNode.statements(), otherForNode.statements());
+        } else if (node instanceof WhileNode) {
+            final WhileNode whileNode = (WhileNode) node;
+            final WhileNode otherWhileNode = (WhileNode) other;
+            return equal(whileNode.condition(), otherWhileNode.condition())
+                    && equal(whileNode.statements(), otherWhileNode.statements());
+        } else if (node instanceof HatchNode) {
+            return equal(((HatchNode) node).statements(), ((HatchNode) other).statements());
+        } else if (node instanceof SetItemNode) {
+            final SetItemNode setItem = (SetItemNode) node;
+            final SetItemNode otherSetItem = (SetItemNode) other;
+            return equal(setItem.index(), otherSetItem.index())
+                    && equal(setItem.array(), otherSetItem.array())
+                    && equal(setItem.value(), otherSetItem.value());
+        } else if (node instanceof RerandomNode) {
+            return equal(((RerandomNode) node).seed(), ((RerandomNode) other).seed());
+        } else if (node instanceof StopNode) {
+            return true;
+        } else if (node instanceof OutputNode) {
+            return equal(((OutputNode) node).expression(), ((OutputNode) other).expression());
+        } else {
+            return false;
+        }
+    }
+
+    private static boolean equalArguments(final List<ArgumentDefinitionNode> arguments, final List<ArgumentDefinitionNode> otherArguments) {
+        if (arguments.size() != otherArguments.size()) {
+            return false;
+        }
+        for (int i = 0; i < arguments.size(); i++) {
+            if (!arguments.get(i).argumentName().equals(otherArguments.get(i).argumentName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean equalExpressions(final List<ExpressionNode> expressions, final List<ExpressionNode> otherExpressions) {
+        if (expressions.size() != otherExpressions.size()) {
+            return false;
+        }
+        for (int i = 0; i < expressions.size(); i++) {
+            if (!equal(expressions.get(i), otherExpressions.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static boolean equal(final ExpressionNode node, final ExpressionNode other) {
+        if (node == other) {
+            return true;
+        }
+        if (node == null || other == null || node.getClass() != other.getClass()) {
+            return false;
+        }
+        if (node instanceof NumberNode) {
+            final NumberNode number = (NumberNode) node;
+            final NumberNode otherNumber = (NumberNode) other;
+            return number.isDecimal() == otherNumber.isDecimal()
+                    && Double.compare(number.decimalValue(), otherNumber.decimalValue()) == 0;
+        } else if (node instanceof RepCountNode) {
+            return true;
+        } else if (node instanceof IntrinsicCallNode) {
+            final IntrinsicCallNode intrinsicCall = (IntrinsicCallNode) node;
+            final IntrinsicCallNode otherIntrinsicCall = (IntrinsicCallNode) other;
+            return intrinsicCall.intrinsic() == otherIntrinsicCall.intrinsic()
+                    && equalExpressions(intrinsicCall.arguments(), otherIntrinsicCall.arguments());
+        } else if (node instanceof ReporterCallNode) {
+            final ReporterCallNode reporterCall = (ReporterCallNode) node;
+            final ReporterCallNode otherReporterCall = (ReporterCallNode) other;
+            return reporterCall.functionName().equals(otherReporterCall.functionName())
+                    && equalExpressions(reporterCall.arguments(), otherReporterCall.arguments());
+        } else if (node instanceof ArrayNode) {
+            return equal(((ArrayNode) node).length(), ((ArrayNode) other).length());
+        } else if (node instanceof ItemNode) {
+            final ItemNode item = (ItemNode) node;
+            final ItemNode otherItem = (ItemNode) other;
+            return equal(item.index(), otherItem.index()) && equal(item.array(), otherItem.array());
+        } else if (node instanceof BooleanNode) {
+            return ((BooleanNode) node).value() == ((BooleanNode) other).value();
+        } else if (node instanceof VariableReferenceNode) {
+            return ((VariableReferenceNode) node).variableName().equals(((VariableReferenceNode) other).variableName());
+        } else if (node instanceof OrClauseNode) {
+            final OrClauseNode orClause = (OrClauseNode) node;
+            final OrClauseNode otherOrClause = (OrClauseNode) other;
+            return equal(orClause.andClause(), otherOrClause.andClause())
+                    && equal(orClause.nextOrClause(), otherOrClause.nextOrClause());
+        } else if (node instanceof AndClauseNode) {
+            final AndClauseNode andClause = (AndClauseNode) node;
+            final AndClauseNode otherAndClause = (AndClauseNode) other;
+            return equal(andClause.equalityExpression(), otherAndClause.equalityExpression())
+                    && equal(andClause.nextAndClause(), otherAndClause.nextAndClause());
+        } else if (node instanceof EqualityExpressionNode) {
+            final EqualityExpressionNode equality = (EqualityExpressionNode) node;
+            final EqualityExpressionNode otherEquality = (EqualityExpressionNode) other;
+            return equal(equality.equalityOperand(), otherEquality.equalityOperand())
+                    && equal(equality.nextEqualityOperand(), otherEquality.nextEqualityOperand());
+        } else if (node instanceof EqualityOperandNode) {
+            final EqualityOperandNode operand = (EqualityOperandNode) node;
+            final EqualityOperandNode otherOperand = (EqualityOperandNode) other;
+            return operand.operator() == otherOperand.operator()
+                    && equal(operand.additiveExpression(), otherOperand.additiveExpression())
+                    && equal(operand.nextAdditiveExpression(), otherOperand.nextAdditiveExpression());
+        } else if (node instanceof AdditiveExpressionNode) {
+            final AdditiveExpressionNode additive = (AdditiveExpressionNode) node;
+            final AdditiveExpressionNode otherAdditive = (AdditiveExpressionNode) other;
+            return additive.operator() == otherAdditive.operator()
+                    && equal(additive.addend(), otherAdditive.addend())
+                    && equal(additive.augend(), otherAdditive.augend());
+        } else if (node instanceof MultiplicativeExpressionNode) {
+            final MultiplicativeExpressionNode multiplicative = (MultiplicativeExpressionNode) node;
+            final MultiplicativeExpressionNode otherMultiplicative = (MultiplicativeExpressionNode) other;
+            return multiplicative.operator() == otherMultiplicative.operator()
+                    && equal(multiplicative.leftFactor(), otherMultiplicative.leftFactor())
+                    && equal(multiplicative.rightFactor(), otherMultiplicative.rightFactor());
+        } else if (node instanceof UnaryExpressionNode) {
+            final UnaryExpressionNode unary = (UnaryExpressionNode) node;
+            final UnaryExpressionNode otherUnary = (UnaryExpressionNode) other;
+            return unary.negate() == otherUnary.negate()
+                    && equal(unary.expression(), otherUnary.expression());
+        } else {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded cache of turtle traces, keyed by a user-defined function and the values of
+ * the arguments it was invoked with. A trace is the sequence of <code>TurtleCommand</code>s
+ * a side-effect-free function issues. Since these commands are relative to the turtle's
+ * local frame of reference, replaying a cached trace has the exact same effect as
+ * executing the function again, wherever the turtle currently stands.
+ *
+ * The cache holds at most <code>capacity</code> traces and evicts the least recently
+ * used trace first. Traces longer than <code>maxTraceLength</code> commands are not
+ * cached at all. Instances of this class are not thread-safe.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TraceCache {
+
+    private final int maxTraceLength;
+
+    private final Map<InvocationKey, List<TurtleCommand>> traces;
+
+    private long hits = 0;
+
+    private long misses = 0;
+
+    /**
+     * @param capacity
+     *      maximum number of traces this cache retains
+     * @param maxTraceLength
+     *      maximum number of commands a single trace may consist of
+     */
+    public TraceCache(final int capacity, final int maxTraceLength) {
+        if (capacity < 1 || maxTraceLength < 1) {
+            throw new IllegalArgumentException("Capacity and maximum trace length of a TraceCache must be positive.");
+        }
+        this.maxTraceLength = maxTraceLength;
+        this.traces = new LinkedHashMap<InvocationKey, List<TurtleCommand>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<InvocationKey, List<TurtleCommand>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param function
+     *      the invoked function
+     * @param argumentValues
+     *      values of the arguments the function has been invoked with
+     * @return
+     *      Yields the cached trace or <code>null</code> if there is none
+     */
+    public List<TurtleCommand> lookup(final FunctionDefinitionNode function, final Slot[] argumentValues) {
+        final List<TurtleCommand> trace = this.traces.get(new InvocationKey(function, argumentValues));
+        if (trace == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return trace;
+    }
+
+    /**
+     * Caches the given trace, unless it exceeds the maximum trace length.
+     *
+     * @param function
+     *      the invoked function
+     * @param argumentValues
+     *      values of the arguments the function has been invoked with
+     * @param trace
+     *      the commands the function issued
+     */
+    public void store(final FunctionDefinitionNode function, final Slot[] argumentValues, final List<TurtleCommand> trace) {
+        if (trace.size() > this.maxTraceLength) {
+            return;
+        }
+        final TurtleCommand[] commands = trace.toArray(new TurtleCommand[trace.size()]);
+        this.traces.put(new InvocationKey(function, InvocationKey.copyOf(argumentValues)), Collections.unmodifiableList(Arrays.asList(commands)));
+    }
+
+    /**
+     * Evicts all traces.
+     */
+    public void clear() {
+        this.traces.clear();
+    }
+
+    public int size() {
+        return this.traces.size();
+    }
+
+    public int maxTraceLength() {
+        return this.maxTraceLength;
+    }
+
+    public long hits() {
+        return this.hits;
+    }
+
+    public long misses() {
+        return this.misses;
+    }
+}
@@ -0,0 +1,194 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <code>Turtle</code> decorator which forwards every operation to its delegate and
+ * records it as a <code>TurtleCommand</code> along the way. Recording stops as soon
+ * as the trace would exceed its maximum length, whereas forwarding continues.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+class TraceRecordingTurtle implements Turtle {
+
+    private static final Turtle NO_OP = new Turtle() {
+        @Override public void clear() {}
+        @Override public void hide() {}
+        @Override public void show() {}
+        @Override public void penUp() {}
+        @Override public void penDown() {}
+        @Override public void setPenColor(int penColor) {}
+        @Override public void left(int degrees) {}
+        @Override public void right(int degrees) {}
+        @Override public void back(int steps) {}
+        @Override public void forward(int steps) {}
+        @Override public void move(int positionX, int positionY) {}
+    };
+
+    private final Turtle delegate;
+
+    private final int maxTraceLength;
+
+    private final List<TurtleCommand> trace = new ArrayList<>();
+
+    private boolean overflown = false;
+
+    /**
+     * Creates a recorder that retains at most <code>maxTraceLength</code> commands
+     * without forwarding them to another <code>Turtle</code>.
+     *
+     * @param maxTraceLength
+     *      maximum number of commands this recorder retains
+     */
+    TraceRecordingTurtle(final int maxTraceLength) {
+        this(NO_OP, maxTraceLength);
+    }
+
+    /**
+     * @param delegate
+     *      the <code>Turtle</code> that executes the recorded operations
+     * @param maxTraceLength
+     *      maximum number of commands this recorder retains
+     */
+    TraceRecordingTurtle(final Turtle delegate, final int maxTraceLength) {
+        this.delegate = delegate;
+        this.maxTraceLength = maxTraceLength;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if more commands have been issued than this
+     *      recorder was able to retain, rendering the trace incomplete
+     */
+    boolean isOverflown() {
+        return this.overflown;
+    }
+
+    /**
+     * @return
+     *      Yields the commands recorded so far
+     */
+    List<TurtleCommand> trace() {
+        return this.trace;
+    }
+
+    private void record(final TurtleCommand command) {
+        if (this.overflown) {
+            return;
+        }
+        if (this.trace.size() == this.maxTraceLength) {
+            this.overflown = true;
+            this.trace.clear();
+        } else {
+            this.trace.add(command);
+        }
+    }
+
+    @Override
+    public void clear() {
+        record(TurtleCommand.clear());
+        this.delegate.clear();
+    }
+
+    @Override
+    public void hide() {
+        record(TurtleCommand.hide());
+        this.delegate.hide();
+    }
+
+    @Override
+    public void show() {
+        record(TurtleCommand.show());
+        this.delegate.show();
+    }
+
+    @Override
+    public void penUp() {
+        record(TurtleCommand.penUp());
+        this.delegate.penUp();
+    }
+
+    @Override
+    public void penDown() {
+        record(TurtleCommand.penDown());
+        this.delegate.penDown();
+    }
+
+    @Override
+    public void setPenColor(final int penColor) {
+        record(TurtleCommand.setPenColor(penColor));
+        this.delegate.setPenColor(penColor);
+    }
+
+    @Override
+    public void left(final int degrees) {
+        record(TurtleCommand.left(degrees));
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final int degrees) {
+        record(TurtleCommand.right(degrees));
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final int steps) {
+        record(TurtleCommand.back(steps));
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final int steps) {
+        record(TurtleCommand.forward(steps));
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void move(final int positionX, final int positionY) {
+        record(TurtleCommand.move(positionX, positionY));
+        this.delegate.move(positionX, positionY);
+    }
+
+    @Override
+    public void left(final double degrees) {
+        record(TurtleCommand.left(degrees));
+        this.delegate.left(degrees);
+    }
+
+    @Override
+    public void right(final double degrees) {
+        record(TurtleCommand.right(degrees));
+        this.delegate.right(degrees);
+    }
+
+    @Override
+    public void back(final double steps) {
+        record(TurtleCommand.back(steps));
+        this.delegate.back(steps);
+    }
+
+    @Override
+    public void forward(final double steps) {
+        record(TurtleCommand.forward(steps));
+        this.delegate.forward(steps);
+    }
+
+    @Override
+    public void arc(final double radius, final double degrees) {
+        record(TurtleCommand.arc(radius, degrees));
+        this.delegate.arc(radius, degrees);
+    }
+
+    @Override
+    public double resolution() {
+        return this.delegate.resolution();
+    }
+
+    @Override
+    public Turtle hatch() {
+        // the hatched turtle draws on its own, so its commands are not part of this trace
+        return this.delegate.hatch();
+    }
+}
@@ -0,0 +1,27 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+/**
+ * <code>ExecutionEngine</code> which executes programs using the <code>TrampolinedInterpreter</code>
+ * with its default frame budget. This engine ignores all <code>InterpreterOptions</code>
+ * but the random seed.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TrampolineEngine implements ExecutionEngine {
+
+    public static final String NAME = "trampoline";
+
+    private final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void execute(final ProgramNode programNode, final Turtle turtle, final InterpreterOptions options) {
+        this.interpreter.execute(programNode, new Environment(SegmentIndexingTurtle.decorateIfQueried(programNode, turtle), options));
+    }
+}
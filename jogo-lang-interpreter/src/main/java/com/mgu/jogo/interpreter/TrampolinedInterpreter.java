@@ -0,0 +1,303 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.AssignmentNode;
+import com.mgu.jogo.parser.ast.ForNode;
+import com.mgu.jogo.parser.ast.FunctionCallNode;
+import com.mgu.jogo.parser.ast.FunctionDefinitionNode;
+import com.mgu.jogo.parser.ast.HatchNode;
+import com.mgu.jogo.parser.ast.IfNode;
+import com.mgu.jogo.parser.ast.OutputNode;
+import com.mgu.jogo.parser.ast.ProgramNode;
+import com.mgu.jogo.parser.ast.RepeatNode;
+import com.mgu.jogo.parser.ast.ReporterCallNode;
+import com.mgu.jogo.parser.ast.RerandomNode;
+import com.mgu.jogo.parser.ast.SetItemNode;
+import com.mgu.jogo.parser.ast.StatementNode;
+import com.mgu.jogo.parser.ast.StopNode;
+import com.mgu.jogo.parser.ast.WhileNode;
+
+import java.util.List;
+
+/**
+ * Interpreter which does not map nested invocations of user-defined functions onto
+ * nested Java method calls. Instead, every function invocation, loop and conditional
+ * block is represented by a heap-allocated <code>Frame</code> which is pushed onto an
+ * explicit <code>FrameStack</code>. A single driver loop (the trampoline) takes the
+ * next statement off the top-most frame and executes it, until the stack is empty.
+ *
+ * Hence, the recursion depth of a program is not limited by the Java stack, but by
+ * the configurable frame budget. Calls in tail position replace the frame of the
+ * calling function if none of its local bindings remain observable to the callee,
+ * so tail-recursive functions run in constant space.
+ *
+ * <code>stop</code> and <code>output</code> leave a function by popping the frames of the
+ * function invocation, up to and including its procedure frame. Functions that are called
+ * within an expression run on the same stack of frames: the interpreter hoists such calls
+ * out of the expression into statements of their own, which bind the value the function
+ * outputs to a temporary variable (cf. <code>ReporterHoisting</code>). Hence, calls within
+ * expressions do not nest on the Java stack either, and they count towards the frame budget
+ * of the program.
+ *
+ * Turtles that the program hatches run their statements on the <code>EvaluatingTreeVisitor</code>
+ * (cf. <code>Hatchery</code>).
+ *
+ * Since the frames capture the whole state of an execution, execution can be suspended
+ * in between any two statements. Use {@link #start(Turtle, String)} to obtain a
+ * <code>Continuation</code> that executes the program in bounded steps.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TrampolinedInterpreter {
+
+    /**
+     * Default number of frames a program may occupy at any time.
+     */
+    public static final int DEFAULT_FRAME_BUDGET = 1_000_000;
+
+    private final int frameBudget;
+
+    public TrampolinedInterpreter() {
+        this(DEFAULT_FRAME_BUDGET);
+    }
+
+    /**
+     * @param frameBudget
+     *      maximum number of frames a program may occupy at any time
+     */
+    public TrampolinedInterpreter(final int frameBudget) {
+        if (frameBudget < 1) {
+            throw new IllegalArgumentException("The frame budget must allow for at least one frame.");
+        }
+        this.frameBudget = frameBudget;
+    }
+
+    /**
+     * Parses the given program and interprets it using explicit, heap-allocated frames.
+     *
+     * @param turtle
+     *      Implementation of <code>Turtle</code>
+     * @param program
+     *      The LOGO program to interpret in <code>String</code> representation
+     * @throws InterpreterException
+     *      if the program exceeds the frame budget or fails otherwise
+     */
+    public void run(final Turtle turtle, final String program) {
+        start(turtle, program).resumeToCompletion();
+    }
+
+    /**
+     * Executes the given program within the given root environment.
+     *
+     * @param programNode
+     *      root node of the program to execute
+     * @param environment
+     *      root execution context
+     */
+    public void execute(final ProgramNode programNode, final Environment environment) {
+        start(programNode, environment).resumeToCompletion();
+    }
+
+    /**
+     * Parses the given program and prepares its execution without executing a single
+     * statement. The program is executed by stepping through the returned continuation.
+     *
+     * @param turtle
+     *      Implementation of <code>Turtle</code>
+     * @param program
+     *      The LOGO program to interpret in <code>String</code> representation
+     * @return
+     *      Yields the continuation that executes the program
+     */
+    public Continuation start(final Turtle turtle, final String program) {
+        final Parser parser = new Parser(program, NativeProcedures.declarations());
+        final ProgramNode programNode = parser.parse();
+        return start(programNode, new Environment(SegmentIndexingTurtle.decorateIfQueried(programNode, turtle)));
+    }
+
+    /**
+     * Prepares the execution of the given program within the given root environment
+     * without executing a single statement.
+     *
+     * @param programNode
+     *      root node of the program to execute
+     * @param environment
+     *      root execution context
+     * @return
+     *      Yields the continuation that executes the program
+     */
+    public Continuation start(final ProgramNode programNode, final Environment environment) {
+        final FrameStack frames = new FrameStack(this.frameBudget);
+        frames.push(Frame.block(programNode.statementNodes(), environment));
+        return new Continuation(this, frames, environment.hatchery());
+    }
+
+    /**
+     * Executes a single statement. Statements that enter a block of statements push
+     * a frame for that block instead of executing it.
+     *
+     * @param reporterHoisting
+     *      rewrites the statements of the run that call functions within expressions
+     * @return
+     *      Yields the number of turtle commands the statement has issued
+     */
+    int execute(final StatementNode node, final Environment environment, final FrameStack frames, final ReporterHoisting reporterHoisting) {
+        final List<StatementNode> hoistedStatements = reporterHoisting.rewrite(node);
+        if (hoistedStatements != null) {
+            frames.push(Frame.block(hoistedStatements, environment));
+            return 0;
+        }
+        if (node instanceof FunctionCallNode) {
+            return execute((FunctionCallNode) node, environment, frames);
+        } else if (node instanceof FunctionDefinitionNode) {
+            environment.install((FunctionDefinitionNode) node);
+        } else if (node instanceof RepeatNode) {
+            execute((RepeatNode) node, environment, frames);
+        } else if (node instanceof AssignmentNode) {
+            execute((AssignmentNode) node, environment);
+        } else if (node instanceof IfNode) {
+            execute((IfNode) node, environment, frames);
+        } else if (node instanceof ForNode) {
+            execute((ForNode) node, environment, frames);
+        } else if (node instanceof WhileNode) {
+            execute((WhileNode) node, environment, frames);
+        } else if (node instanceof HatchNode) {
+            environment.hatchery().hatch(((HatchNode) node).statements(), environment);
+        } else if (node instanceof SetItemNode) {
+            ArrayAccess.setItem((SetItemNode) node, environment);
+        } else if (node instanceof RerandomNode) {
+            environment.randomNumbers().reseed(ExpressionResolver.resolveInt(((RerandomNode) node).seed(), environment));
+        } else if (node instanceof StopNode) {
+            final Frame procedure = frames.unwindProcedure();
+            if (procedure != null && procedure.isReporter()) {
+                throw new InterpreterException("Function " + procedure.functionName() + " did not output a value.");
+            }
+        } else if (node instanceof OutputNode) {
+            execute((OutputNode) node, environment, frames);
+        } else if (node instanceof ReporterHoisting.Call) {
+            execute((ReporterHoisting.Call) node, environment, frames);
+        } else {
+            throw new InterpreterException("StatementNode is not in list of admissible types: [FunctionCallNode, FunctionDefinitionNode, RepeatNode, AssignmentNode, IfNode, ForNode, WhileNode, HatchNode, SetItemNode, RerandomNode, StopNode, OutputNode]");
+        }
+        return 0;
+    }
+
+    private int execute(final FunctionCallNode node, final Environment environment, final FrameStack frames) {
+        if (node.isBuiltin()) {
+            // every built-in procedure issues exactly one turtle command
+            Procedures.call(node, environment);
+            return 1;
+        }
+        if (node.isNative()) {
+            final CommandCountingTurtle counter = new CommandCountingTurtle(environment.getTurtle());
+            NativeCall.call(node, environment, counter);
+            return counter.count();
+        }
+
+        final FunctionDefinitionNode function = environment.lookupFunction(node.functionName());
+
+        if (function.arity() != node.arity()) {
+            throw new InterpreterException("Unable to invoke user-defined function because expression lists do not match. Expected " + function.arity() + " expressions, but found " + node.arity() + " expressions.");
+        }
+
+        final int discardableFrames = frames.framesInTailPosition();
+        final boolean isTailCall = discardableFrames > 0
+                && environment.parent() != null
+                && environment.isShadowedBy(function.argumentDefinitions());
+        final Environment functionEnvironment = isTailCall
+                ? new Environment(environment.getTurtle(), environment.parent())
+                : environment.createChildEnvironment();
+
+        final Slot argumentValue = environment.register();
+        for (int i = 0; i < function.arity(); i++) {
+            final String argumentName = function.argumentDefinitions().get(i).argumentName();
+            ExpressionResolver.evaluate(node.arguments().get(i), environment, argumentValue);
+            functionEnvironment.install(argumentName, argumentValue);
+        }
+
+        if (isTailCall) {
+            for (int i = 0; i < discardableFrames; i++) {
+                frames.pop();
+            }
+        }
+
+        frames.push(Frame.procedure(function.statements(), functionEnvironment));
+        return 0;
+    }
+
+    private void execute(final OutputNode node, final Environment environment, final FrameStack frames) {
+        final Slot value = environment.register();
+        ExpressionResolver.evaluate(node.expression(), environment, value);
+        final Frame procedure = frames.unwindProcedure();
+        if (procedure == null) {
+            throw new InterpreterException("Unable to output a value outside of a function.");
+        }
+        procedure.output(value);
+    }
+
+    /**
+     * Pushes the procedure frame of a function that has been called within an expression.
+     * The frame outputs right into the temporary variable of the call, which the statements
+     * that follow the call read.
+     */
+    private void execute(final ReporterHoisting.Call node, final Environment environment, final FrameStack frames) {
+        final ReporterCallNode call = node.call();
+        final FunctionDefinitionNode function = environment.lookupFunction(call.functionName());
+
+        if (function.arity() != call.arity()) {
+            throw new InterpreterException("Unable to invoke user-defined function because expression lists do not match. Expected " + function.arity() + " expressions, but found " + call.arity() + " expressions.");
+        }
+
+        final Environment functionEnvironment = environment.createChildEnvironment();
+        final Slot argumentValue = environment.register();
+        for (int i = 0; i < function.arity(); i++) {
+            final String argumentName = function.argumentDefinitions().get(i).argumentName();
+            ExpressionResolver.evaluate(call.arguments().get(i), environment, argumentValue);
+            functionEnvironment.install(argumentName, argumentValue);
+        }
+
+        environment.install(node.temporary(), argumentValue);
+        final Slot result = environment.lookupLocalSlot(node.temporary());
+        frames.push(Frame.reporter(function.statements(), functionEnvironment, result, function.functionName()));
+    }
+
+    private void execute(final RepeatNode node, final Environment environment, final FrameStack frames) {
+        final int times = ExpressionResolver.resolveInt(node.times(), environment);
+        if (times > 0 && !node.statements().isEmpty()) {
+            frames.push(Frame.loop(node.statements(), environment, times));
+        }
+    }
+
+    private void execute(final ForNode node, final Environment environment, final FrameStack frames) {
+        final CountedLoop loop = CountedLoop.enter(node, environment);
+        if (loop.iterations() > 0 && node.statements().isEmpty()) {
+            loop.assign(loop.iterations() - 1);
+        } else if (loop.iterations() > 0) {
+            frames.push(Frame.countedLoop(node.statements(), environment, loop));
+        }
+    }
+
+    private void execute(final WhileNode node, final Environment environment, final FrameStack frames) {
+        final LoopCondition condition = LoopCondition.bind(node.condition(), environment);
+        if (condition.test(environment)) {
+            if (node.statements().isEmpty()) {
+                throw new InterpreterException("A while loop without statements never terminates once its condition holds.");
+            }
+            frames.push(Frame.conditionalLoop(node.statements(), environment, condition));
+        }
+    }
+
+    private void execute(final AssignmentNode node, final Environment environment) {
+        final Slot result = environment.register();
+        ExpressionResolver.evaluate(node.expression(), environment, result);
+        environment.install(node.variable(), result);
+    }
+
+    private void execute(final IfNode node, final Environment environment, final FrameStack frames) {
+        final boolean condition = ExpressionResolver.resolveBoolean(node.condition(), environment);
+        final List<StatementNode> statements = condition ? node.thenStatements() : node.elseStatements();
+        if (statements != null && !statements.isEmpty()) {
+            frames.push(Frame.block(statements, environment));
+        }
+    }
+}
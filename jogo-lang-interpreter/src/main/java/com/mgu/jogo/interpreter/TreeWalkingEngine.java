@@ -0,0 +1,27 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+/**
+ * <code>ExecutionEngine</code> which walks the AST recursively using the
+ * <code>EvaluatingTreeVisitor</code>. This is the default engine and the only one
+ * that honors all <code>InterpreterOptions</code>.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TreeWalkingEngine implements ExecutionEngine {
+
+    public static final String NAME = "tree-walker";
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public void execute(final ProgramNode programNode, final Turtle turtle, final InterpreterOptions options) {
+        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(options);
+        final Environment rootEnvironment = new Environment(SegmentIndexingTurtle.decorateIfQueried(programNode, turtle), options);
+        visitor.visit(programNode, rootEnvironment);
+    }
+}
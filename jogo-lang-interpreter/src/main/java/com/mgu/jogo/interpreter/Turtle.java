@@ -117,4 +117,134 @@ public interface Turtle {
      *      of the Turtle in an Euclidean plane
      */
     void move(int positionX, int positionY);
+
+    /**
+     * Turns the turtle by a fractional amount of <code>degrees</code> to the left.
+     * Implementers that are able to render fractional turns should override this
+     * method. The default implementation rounds to the nearest degree.
+     *
+     * @param degrees
+     *      <code>double</code> value representing the degrees
+     *      this <code>Turtle</code> has to turn to the left
+     */
+    default void left(double degrees) {
+        left((int) Math.round(degrees));
+    }
+
+    /**
+     * Turns the turtle by a fractional amount of <code>degrees</code> to the right.
+     * Implementers that are able to render fractional turns should override this
+     * method. The default implementation rounds to the nearest degree.
+     *
+     * @param degrees
+     *      <code>double</code> value representing the degrees
+     *      this <code>Turtle</code> has to turn to the right
+     */
+    default void right(double degrees) {
+        right((int) Math.round(degrees));
+    }
+
+    /**
+     * Moves the turtle a fractional amount of <code>steps</code> backwards.
+     * Implementers that are able to render fractional movements should override
+     * this method. The default implementation rounds to the nearest step.
+     *
+     * @param steps
+     *      <code>double</code> value representing the amount of steps
+     *      this <code>Turtle</code> has to move backwards
+     */
+    default void back(double steps) {
+        back((int) Math.round(steps));
+    }
+
+    /**
+     * Moves the turtle a fractional amount of <code>steps</code> forward.
+     * Implementers that are able to render fractional movements should override
+     * this method. The default implementation rounds to the nearest step.
+     *
+     * @param steps
+     *      <code>double</code> value representing the amount of steps
+     *      this <code>Turtle</code> has to move forward
+     */
+    default void forward(double steps) {
+        forward((int) Math.round(steps));
+    }
+
+    /**
+     * Moves the turtle along a circular arc while it turns by <code>degrees</code>. The turtle
+     * turns to the right for positive and to the left for negative <code>degrees</code>, so
+     * the center of the arc lies <code>radius</code> steps to that side of the turtle. The
+     * turtle ends up on the arc, heading along its tangent.
+     *
+     * Implementers that are able to render true curves should override this method. The
+     * default implementation approximates the arc by chords which deviate from the arc by
+     * no more than the {@link #resolution()} of this <code>Turtle</code>, or by one chord
+     * per degree if the resolution is <code>0</code>. Either way, the turtle ends up in
+     * the exact end position and heading of the arc. Implementers that do not override the
+     * <code>double</code> variants of <code>right</code> and <code>forward</code> receive
+     * integral chords and turns instead, which follow the arc without accumulating rounding
+     * errors and end up at the end heading of the arc, rounded to the nearest degree.
+     *
+     * @param radius
+     *      <code>double</code> value representing the radius of the arc in steps
+     * @param degrees
+     *      <code>double</code> value representing the angle the arc spans
+     */
+    default void arc(double radius, double degrees) {
+        ArcTessellation.tessellate(this, radius, degrees);
+    }
+
+    /**
+     * Yields the edge length of a single rendered pixel, measured in turtle steps.
+     * The interpreter uses this value as a hint to avoid issuing commands whose
+     * effect is not visible at this resolution: invocations of side-effect-free
+     * functions whose whole drawing fits into a single pixel are replaced by a
+     * single chord from the turtle's start to its end position.
+     *
+     * The default implementation returns <code>0</code>, which requests exact
+     * execution of every command.
+     *
+     * @return
+     *      the edge length of a pixel in steps, or <code>0</code> if every
+     *      command has to be issued
+     */
+    default double resolution() {
+        return 0.0;
+    }
+
+    /**
+     * Relocates the turtle as the given transformation describes, without drawing and
+     * without altering its pen state. The interpreter jumps to the final state of loops
+     * whose remaining iterations would only retrace what has been drawn already (cf.
+     * <code>RepeatSummary</code>).
+     *
+     * The default implementation is unable to jump, in which case the interpreter
+     * retraces the path instead.
+     *
+     * @param transform
+     *      the transformation of the turtle's state, relative to its current state
+     * @return
+     *      <code>true</code> if the turtle has jumped, <code>false</code> if it is unable to
+     */
+    default boolean jump(TurtleTransform transform) {
+        return false;
+    }
+
+    /**
+     * Hatches another turtle, which starts out with the position, heading, pen state and
+     * pen color of this turtle and draws onto the same canvas. Programs hatch turtles
+     * using <code>hatch</code>. The interpreter calls this method and all methods of the
+     * hatched turtle from the thread that runs the program, so implementers do not need
+     * to be thread-safe.
+     *
+     * The default implementation is unable to hatch turtles and fails.
+     *
+     * @throws InterpreterException
+     *      if this <code>Turtle</code> does not support multiple turtles
+     * @return
+     *      the hatched <code>Turtle</code>
+     */
+    default Turtle hatch() {
+        throw new InterpreterException("Unable to hatch a turtle, since the turtle does not support multiple turtles.");
+    }
 }
@@ -0,0 +1,270 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Immutable representation of a single operation that has been issued to a
+ * <code>Turtle</code>. A sequence of turtle commands can be replayed on any
+ * <code>Turtle</code> implementation using {@link #applyTo(Turtle)}.
+ *
+ * Except for {@link Type#MOVE}, all commands are expressed relative to the
+ * current position and heading of the turtle. Thus, a sequence of commands
+ * without <code>MOVE</code> has the same effect wherever the turtle currently
+ * stands.
+ *
+ * Turns and movements may carry a fractional operand. Such commands are replayed
+ * using the <code>double</code>-based overloads of <code>Turtle</code>. Arcs always
+ * carry two fractional operands, the radius and the degrees the arc spans.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class TurtleCommand {
+
+    public enum Type {
+        CLEAR,
+        HIDE,
+        SHOW,
+        PEN_UP,
+        PEN_DOWN,
+        SET_PEN_COLOR,
+        LEFT,
+        RIGHT,
+        BACK,
+        FORWARD,
+        MOVE,
+        ARC
+    }
+
+    private static final TurtleCommand CLEAR = new TurtleCommand(Type.CLEAR, 0, 0);
+
+    private static final TurtleCommand HIDE = new TurtleCommand(Type.HIDE, 0, 0);
+
+    private static final TurtleCommand SHOW = new TurtleCommand(Type.SHOW, 0, 0);
+
+    private static final TurtleCommand PEN_UP = new TurtleCommand(Type.PEN_UP, 0, 0);
+
+    private static final TurtleCommand PEN_DOWN = new TurtleCommand(Type.PEN_DOWN, 0, 0);
+
+    private final Type type;
+
+    private final int firstOperand;
+
+    private final int secondOperand;
+
+    private final double fractionalOperand;
+
+    private final double fractionalSecondOperand;
+
+    private final boolean fractional;
+
+    private TurtleCommand(final Type type, final int firstOperand, final int secondOperand) {
+        this.type = type;
+        this.firstOperand = firstOperand;
+        this.secondOperand = secondOperand;
+        this.fractionalOperand = firstOperand;
+        this.fractionalSecondOperand = secondOperand;
+        this.fractional = false;
+    }
+
+    private TurtleCommand(final Type type, final double fractionalOperand) {
+        this(type, fractionalOperand, 0.0);
+    }
+
+    private TurtleCommand(final Type type, final double fractionalOperand, final double fractionalSecondOperand) {
+        this.type = type;
+        this.firstOperand = (int) fractionalOperand;
+        this.secondOperand = (int) fractionalSecondOperand;
+        this.fractionalOperand = fractionalOperand;
+        this.fractionalSecondOperand = fractionalSecondOperand;
+        this.fractional = true;
+    }
+
+    public Type type() {
+        return this.type;
+    }
+
+    /**
+     * @return
+     *      Yields the steps, degrees, pen color or abscissa of this command,
+     *      depending on its type
+     */
+    public int firstOperand() {
+        return this.firstOperand;
+    }
+
+    /**
+     * @return
+     *      Yields the steps, degrees or radius of this command including their fractional
+     *      part, or the first operand of this command if it is not fractional
+     */
+    public double value() {
+        return this.fractionalOperand;
+    }
+
+    /**
+     * @return
+     *      Yields the degrees an <code>ARC</code> command spans including their fractional
+     *      part, or the second operand of this command if it is not fractional
+     */
+    public double secondValue() {
+        return this.fractionalSecondOperand;
+    }
+
+    /**
+     * @return
+     *      <code>true</code> if this command carries a fractional operand and is
+     *      replayed using the <code>double</code>-based overloads of <code>Turtle</code>
+     */
+    public boolean isFractional() {
+        return this.fractional;
+    }
+
+    /**
+     * @return
+     *      Yields the ordinate of a <code>MOVE</code> command
+     */
+    public int secondOperand() {
+        return this.secondOperand;
+    }
+
+    /**
+     * Issues this command to the given <code>Turtle</code>.
+     *
+     * @param turtle
+     *      the <code>Turtle</code> that executes this command
+     */
+    public void applyTo(final Turtle turtle) {
+        if (this.fractional) {
+            applyFractionalTo(turtle);
+            return;
+        }
+        switch (this.type) {
+            case CLEAR: turtle.clear(); break;
+            case HIDE: turtle.hide(); break;
+            case SHOW: turtle.show(); break;
+            case PEN_UP: turtle.penUp(); break;
+            case PEN_DOWN: turtle.penDown(); break;
+            case SET_PEN_COLOR: turtle.setPenColor(this.firstOperand); break;
+            case LEFT: turtle.left(this.firstOperand); break;
+            case RIGHT: turtle.right(this.firstOperand); break;
+            case BACK: turtle.back(this.firstOperand); break;
+            case FORWARD: turtle.forward(this.firstOperand); break;
+            case MOVE: turtle.move(this.firstOperand, this.secondOperand); break;
+            default: throw new InterpreterException("Unknown turtle command " + this.type + ".");
+        }
+    }
+
+    private void applyFractionalTo(final Turtle turtle) {
+        switch (this.type) {
+            case LEFT: turtle.left(this.fractionalOperand); break;
+            case RIGHT: turtle.right(this.fractionalOperand); break;
+            case BACK: turtle.back(this.fractionalOperand); break;
+            case FORWARD: turtle.forward(this.fractionalOperand); break;
+            case ARC: turtle.arc(this.fractionalOperand, this.fractionalSecondOperand); break;
+            default: throw new InterpreterException("Turtle command " + this.type + " does not take a fractional operand.");
+        }
+    }
+
+    public static TurtleCommand clear() {
+        return CLEAR;
+    }
+
+    public static TurtleCommand hide() {
+        return HIDE;
+    }
+
+    public static TurtleCommand show() {
+        return SHOW;
+    }
+
+    public static TurtleCommand penUp() {
+        return PEN_UP;
+    }
+
+    public static TurtleCommand penDown() {
+        return PEN_DOWN;
+    }
+
+    public static TurtleCommand setPenColor(final int penColor) {
+        return new TurtleCommand(Type.SET_PEN_COLOR, penColor, 0);
+    }
+
+    public static TurtleCommand left(final int degrees) {
+        return new TurtleCommand(Type.LEFT, degrees, 0);
+    }
+
+    public static TurtleCommand right(final int degrees) {
+        return new TurtleCommand(Type.RIGHT, degrees, 0);
+    }
+
+    public static TurtleCommand back(final int steps) {
+        return new TurtleCommand(Type.BACK, steps, 0);
+    }
+
+    public static TurtleCommand forward(final int steps) {
+        return new TurtleCommand(Type.FORWARD, steps, 0);
+    }
+
+    public static TurtleCommand left(final double degrees) {
+        return new TurtleCommand(Type.LEFT, degrees);
+    }
+
+    public static TurtleCommand right(final double degrees) {
+        return new TurtleCommand(Type.RIGHT, degrees);
+    }
+
+    public static TurtleCommand back(final double steps) {
+        return new TurtleCommand(Type.BACK, steps);
+    }
+
+    public static TurtleCommand forward(final double steps) {
+        return new TurtleCommand(Type.FORWARD, steps);
+    }
+
+    public static TurtleCommand move(final int positionX, final int positionY) {
+        return new TurtleCommand(Type.MOVE, positionX, positionY);
+    }
+
+    public static TurtleCommand arc(final double radius, final double degrees) {
+        return new TurtleCommand(Type.ARC, radius, degrees);
+    }
+
+    @Override
+    public boolean equals(final Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof TurtleCommand)) {
+            return false;
+        }
+        final TurtleCommand that = (TurtleCommand) other;
+        return this.type == that.type
+                && this.fractional == that.fractional
+                && this.firstOperand == that.firstOperand
+                && this.secondOperand == that.secondOperand
+                && Double.compare(this.fractionalOperand, that.fractionalOperand) == 0
+                && Double.compare(this.fractionalSecondOperand, that.fractionalSecondOperand) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        final int hash = 31 * (31 * this.type.hashCode() + this.firstOperand) + this.secondOperand;
+        return this.fractional ? 31 * hash + Double.hashCode(this.fractionalOperand) : hash;
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case SET_PEN_COLOR:
+            case LEFT:
+            case RIGHT:
+            case BACK:
+            case FORWARD:
+                return this.type + "[" + (this.fractional ? String.valueOf(this.fractionalOperand) : String.valueOf(this.firstOperand)) + "]";
+            case MOVE:
+                return this.type + "[" + this.firstOperand + ", " + this.secondOperand + "]";
+            case ARC:
+                return this.type + "[" + this.fractionalOperand + ", " + this.fractionalSecondOperand + "]";
+            default:
+                return this.type.toString();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Execution mode which publishes the commands a program issues instead of calling back a
+ * <code>Turtle</code>. The publisher is cold: every subscriber receives the commands of its
+ * own, independent execution of the program.
+ *
+ * Execution is driven by demand. A subscription executes the program in bounded steps of a
+ * <code>Continuation</code> on the given <code>Executor</code> and only as far as required to
+ * satisfy the outstanding demand signalled via <code>request(n)</code>. A single step may
+ * issue more commands than requested, since a call to a native procedure may issue any
+ * number of commands. The surplus is queued and published only as further demand arrives,
+ * so the subscriber never receives more commands than it has requested. Once the demand
+ * is satisfied, the execution is suspended without blocking any thread, until the
+ * subscriber requests more commands. If the program fails, the error is signalled once
+ * the commands it has issued before have been published.
+ *
+ * The commands of turtles the program hatches are published as part of the same sequence,
+ * in the order the program thread receives them. Whenever the sequence switches from one
+ * turtle to another, it carries the subscriber's turtle over to the state of the other
+ * turtle with its pen up (cf. <code>InterleavingTurtle</code>), so that a single turtle
+ * that executes the published commands draws what all turtles of the program have drawn.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TurtleCommandPublisher implements Flow.Publisher<TurtleCommand> {
+
+    /**
+     * Number of statements a subscription executes at most before it yields the executor
+     * thread to other tasks. This keeps programs that loop without issuing commands from
+     * monopolizing the executor.
+     */
+    private static final long STATEMENTS_PER_SLICE = 4096;
+
+    private final ProgramNode programNode;
+
+    private final Executor executor;
+
+    private final TrampolinedInterpreter interpreter;
+
+    /**
+     * @param program
+     *      The LOGO program to interpret in <code>String</code> representation
+     * @param executor
+     *      executes the program on behalf of the subscribers
+     */
+    public TurtleCommandPublisher(final String program, final Executor executor) {
+        this(new Parser(program, NativeProcedures.declarations()).parse(), executor);
+    }
+
+    /**
+     * @param programNode
+     *      root node of the program to execute
+     * @param executor
+     *      executes the program on behalf of the subscribers
+     */
+    public TurtleCommandPublisher(final ProgramNode programNode, final Executor executor) {
+        this(programNode, executor, new TrampolinedInterpreter());
+    }
+
+    /**
+     * @param programNode
+     *      root node of the program to execute
+     * @param executor
+     *      executes the program on behalf of the subscribers
+     * @param interpreter
+     *      the interpreter that executes the program
+     */
+    public TurtleCommandPublisher(final ProgramNode programNode, final Executor executor, final TrampolinedInterpreter interpreter) {
+        this.programNode = programNode;
+        this.executor = executor;
+        this.interpreter = interpreter;
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super TurtleCommand> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("The subscriber must not be null.");
+        }
+        final InterleavingTurtle recorder = new InterleavingTurtle();
+        final Continuation continuation = this.interpreter.start(this.programNode, new Environment(SegmentIndexingTurtle.decorateIfQueried(this.programNode, recorder)));
+        subscriber.onSubscribe(new CommandSubscription(subscriber, continuation, recorder.commands()));
+    }
+
+    /**
+     * Subscription that advances its own execution of the program. All signals to the
+     * subscriber are emitted from within {@link #drain()}, which is never executed by more
+     * than one thread at a time.
+     */
+    private class CommandSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super TurtleCommand> subscriber;
+
+        private final Continuation continuation;
+
+        private final List<TurtleCommand> issuedCommands;
+
+        private final AtomicLong demand = new AtomicLong();
+
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+
+        private volatile boolean terminated = false;
+
+        private volatile Throwable invalidRequest = null;
+
+        /**
+         * Error the program has failed with, which is signalled once the queued commands
+         * have been published.
+         */
+        private RuntimeException failure = null;
+
+        /**
+         * Index of the next command to publish in {@link #issuedCommands}. Commands from
+         * there on have been issued but not yet requested.
+         */
+        private int nextCommand = 0;
+
+        private CommandSubscription(final Flow.Subscriber<? super TurtleCommand> subscriber,
+                                    final Continuation continuation,
+                                    final List<TurtleCommand> issuedCommands) {
+            this.subscriber = subscriber;
+            this.continuation = continuation;
+            this.issuedCommands = issuedCommands;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                this.invalidRequest = new IllegalArgumentException("Demand must be positive, but was " + n + ".");
+            } else {
+                this.demand.getAndAccumulate(n, (current, increment) -> {
+                    final long sum = current + increment;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            this.terminated = true;
+        }
+
+        private void schedule() {
+            if (this.pendingDrains.getAndIncrement() == 0) {
+                TurtleCommandPublisher.this.executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            boolean yielded = false;
+            int missed = 1;
+            do {
+                if (this.terminated) {
+                    return;
+                }
+                if (this.invalidRequest != null) {
+                    terminate();
+                    this.subscriber.onError(this.invalidRequest);
+                    return;
+                }
+                final long requested = this.demand.get();
+                long emitted = emit(requested);
+                while (emitted < requested && !this.terminated && !isExecuted()) {
+                    final int issued;
+                    try {
+                        issued = this.continuation.step((int) Math.min(requested - emitted, Integer.MAX_VALUE), STATEMENTS_PER_SLICE);
+                    } catch (RuntimeException e) {
+                        this.failure = e;
+                        emitted += emit(requested - emitted);
+                        break;
+                    }
+                    emitted += emit(requested - emitted);
+                    if (issued == 0 && !this.continuation.isDone()) {
+                        yielded = true;
+                        break;
+                    }
+                }
+                if (isExecuted() && !isQueued() && !this.terminated) {
+                    terminate();
+                    if (this.failure != null) {
+                        this.subscriber.onError(this.failure);
+                    } else {
+                        this.subscriber.onComplete();
+                    }
+                    return;
+                }
+                if (requested != Long.MAX_VALUE) {
+                    this.demand.addAndGet(-emitted);
+                }
+                missed = this.pendingDrains.addAndGet(-missed);
+            } while (missed != 0);
+            if (yielded) {
+                schedule();
+            }
+        }
+
+        private boolean isExecuted() {
+            return this.failure != null || this.continuation.isDone();
+        }
+
+        private boolean isQueued() {
+            return this.nextCommand < this.issuedCommands.size();
+        }
+
+        /**
+         * Publishes queued commands in the order they have been issued, but no more than
+         * the given demand allows. The remaining commands stay queued.
+         *
+         * @param demand
+         *      maximum number of commands to publish
+         * @return
+         *      Yields the number of commands that have been published
+         */
+        private long emit(final long demand) {
+            long emitted = 0;
+            while (emitted < demand && isQueued() && !this.terminated) {
+                this.subscriber.onNext(this.issuedCommands.get(this.nextCommand++));
+                emitted++;
+            }
+            if (!isQueued()) {
+                this.issuedCommands.clear();
+                this.nextCommand = 0;
+            }
+            return emitted;
+        }
+
+        private void terminate() {
+            this.terminated = true;
+        }
+    }
+}
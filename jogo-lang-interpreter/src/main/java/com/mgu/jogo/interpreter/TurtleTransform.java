@@ -0,0 +1,169 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Immutable rigid transformation of the turtle's state, expressed in the turtle's local
+ * frame of reference: the turtle rotates by <code>rotation</code> degrees and its position
+ * moves by <code>translationX</code> steps along its current heading and by
+ * <code>translationY</code> steps perpendicular to it (to the right).
+ *
+ * Any sequence of relative turtle commands amounts to such a transformation. Transformations
+ * compose associatively, which allows to summarize the effect of arbitrarily long command
+ * sequences in closed form.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class TurtleTransform {
+
+    private static final TurtleTransform IDENTITY = new TurtleTransform(0.0, 0.0, 0.0);
+
+    private final double rotation;
+
+    private final double translationX;
+
+    private final double translationY;
+
+    private TurtleTransform(final double rotation, final double translationX, final double translationY) {
+        this.rotation = rotation;
+        this.translationX = translationX;
+        this.translationY = translationY;
+    }
+
+    public static TurtleTransform identity() {
+        return IDENTITY;
+    }
+
+    /**
+     * @param degrees
+     *      degrees the turtle turns to the right
+     * @return
+     *      Yields the transformation of a pure turn
+     */
+    public static TurtleTransform rotation(final double degrees) {
+        return new TurtleTransform(degrees, 0.0, 0.0);
+    }
+
+    /**
+     * @param steps
+     *      steps the turtle moves along its heading
+     * @return
+     *      Yields the transformation of a pure movement
+     */
+    public static TurtleTransform translation(final double steps) {
+        return new TurtleTransform(0.0, steps, 0.0);
+    }
+
+    /**
+     * @param radius
+     *      radius of the arc in steps
+     * @param degrees
+     *      degrees the turtle turns to the right while it moves along the arc
+     * @return
+     *      Yields the transformation of a movement along an arc (cf. <code>Turtle#arc</code>)
+     */
+    public static TurtleTransform arc(final double radius, final double degrees) {
+        final double chord = 2.0 * radius * Math.sin(Math.toRadians(Math.abs(degrees)) / 2.0);
+        final double radians = Math.toRadians(degrees) / 2.0;
+        return new TurtleTransform(degrees, chord * Math.cos(radians), chord * Math.sin(radians));
+    }
+
+    /**
+     * @param command
+     *      a relative turtle command
+     * @return
+     *      Yields the transformation the given command applies to the turtle's state
+     * @throws InterpreterException
+     *      if the given command moves the turtle to an absolute position
+     */
+    public static TurtleTransform of(final TurtleCommand command) {
+        switch (command.type()) {
+            case FORWARD: return translation(command.value());
+            case BACK: return translation(-command.value());
+            case RIGHT: return rotation(command.value());
+            case LEFT: return rotation(-command.value());
+            case ARC: return arc(command.value(), command.secondValue());
+            case MOVE: throw new InterpreterException("Absolute movements cannot be expressed as a relative transformation.");
+            default: return IDENTITY;
+        }
+    }
+
+    /**
+     * @param commands
+     *      a sequence of relative turtle commands
+     * @return
+     *      Yields the transformation the given commands apply to the turtle's state
+     */
+    public static TurtleTransform of(final Iterable<TurtleCommand> commands) {
+        TurtleTransform transform = IDENTITY;
+        for (TurtleCommand command : commands) {
+            transform = transform.then(of(command));
+        }
+        return transform;
+    }
+
+    /**
+     * @param next
+     *      transformation that is applied after this one
+     * @return
+     *      Yields the transformation that applies this transformation first and
+     *      <code>next</code> afterwards
+     */
+    public TurtleTransform then(final TurtleTransform next) {
+        final double radians = Math.toRadians(this.rotation);
+        final double cos = Math.cos(radians);
+        final double sin = Math.sin(radians);
+        return new TurtleTransform(
+                this.rotation + next.rotation,
+                this.translationX + cos * next.translationX - sin * next.translationY,
+                this.translationY + sin * next.translationX + cos * next.translationY);
+    }
+
+    /**
+     * @param times
+     *      number of consecutive applications
+     * @return
+     *      Yields the transformation that applies this transformation <code>times</code>
+     *      times in a row, computed with a logarithmic number of compositions
+     */
+    public TurtleTransform power(final long times) {
+        if (times < 0) {
+            throw new IllegalArgumentException("Transformations cannot be applied a negative number of times.");
+        }
+        TurtleTransform result = IDENTITY;
+        TurtleTransform square = this;
+        long remaining = times;
+        while (remaining > 0) {
+            if ((remaining & 1) == 1) {
+                result = result.then(square);
+            }
+            square = square.then(square);
+            remaining >>= 1;
+        }
+        return result;
+    }
+
+    public double rotation() {
+        return this.rotation;
+    }
+
+    public double translationX() {
+        return this.translationX;
+    }
+
+    public double translationY() {
+        return this.translationY;
+    }
+
+    /**
+     * @return
+     *      Yields the distance between the turtle's position before and after
+     *      this transformation
+     */
+    public double distance() {
+        return Math.hypot(this.translationX, this.translationY);
+    }
+
+    @Override
+    public String toString() {
+        return "TurtleTransform[rotation=" + this.rotation + ", translation=(" + this.translationX + ", " + this.translationY + ")]";
+    }
+}
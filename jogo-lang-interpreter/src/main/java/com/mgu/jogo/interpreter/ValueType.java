@@ -0,0 +1,19 @@
+package com.mgu.jogo.interpreter;
+
+/**
+ * Runtime types of the values the interpreter operates on. Arithmetic on two
+ * <code>INT</code> operands yields an <code>INT</code>, as soon as one operand is a
+ * <code>DOUBLE</code> the result is a <code>DOUBLE</code>. Comparisons and logical
+ * literals yield a <code>BOOLEAN</code>, which is represented as <code>1</code> (true)
+ * or <code>0</code> (false) and coerces to these numbers wherever a number is expected.
+ * An <code>ARRAY</code> is a mutable, fixed-size sequence of <code>int</code> elements.
+ * Arrays are passed by reference and do not coerce to numbers.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public enum ValueType {
+    INT,
+    DOUBLE,
+    BOOLEAN,
+    ARRAY
+}
@@ -0,0 +1,250 @@
+package com.mgu.jogo.interpreter;
+
+import com.mgu.jogo.parser.Parser;
+import com.mgu.jogo.parser.ast.ProgramNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Differential conformance and benchmark harness for <code>ExecutionEngine</code>s. The
+ * harness executes every program on every engine, records the issued turtle commands and
+ * compares the command streams of all engines against the stream of the first engine.
+ * A program that fails has to fail with the same exception on every engine, after having
+ * issued the same commands. Afterwards, the harness measures the throughput of each engine
+ * in turtle commands per second over the whole corpus of programs.
+ *
+ * The harness is test tooling and does not ship with the interpreter. Run <code>main</code>
+ * from the test class path with the directories that contain the programs to check as
+ * arguments. The corpus is extended by generated programs (cf. <code>ProgramGenerator</code>).
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class ConformanceHarness {
+
+    private final List<ExecutionEngine> engines;
+
+    private final InterpreterOptions options;
+
+    /**
+     * @param engines
+     *      the engines to compare; the first one serves as reference
+     * @param options
+     *      options that are passed on to every engine; unless they carry a random
+     *      seed, the harness seeds the random numbers of every run with 0
+     */
+    public ConformanceHarness(final List<ExecutionEngine> engines, final InterpreterOptions options) {
+        if (engines.isEmpty()) {
+            throw new IllegalArgumentException("The harness requires at least one engine.");
+        }
+        this.engines = engines;
+        this.options = options.isSeedingRandomNumbers() ? options : options.withRandomSeed(0L);
+    }
+
+    /**
+     * @param directory
+     *      directory that contains programs, one per file
+     * @return
+     *      Yields the programs keyed by their file names, in alphabetical order
+     */
+    public static Map<String, String> loadPrograms(final Path directory) {
+        final Map<String, String> programs = new LinkedHashMap<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                programs.put(file.getFileName().toString(), new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to load programs from " + directory + ".", e);
+        }
+        return programs;
+    }
+
+    /**
+     * @param seed
+     *      seed for the program generator
+     * @param count
+     *      number of programs to generate
+     * @return
+     *      Yields the generated programs keyed by their index
+     */
+    public static Map<String, String> generatePrograms(final long seed, final int count) {
+        final ProgramGenerator generator = new ProgramGenerator(seed);
+        final Map<String, String> programs = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            programs.put("generated-" + seed + "-" + i, generator.generate());
+        }
+        return programs;
+    }
+
+    /**
+     * Executes every program on every engine and compares the outcomes.
+     *
+     * @param programs
+     *      the programs to execute, keyed by their names
+     * @return
+     *      Yields a description of every program for which an engine deviates from
+     *      the reference engine; the list is empty if all engines conform
+     */
+    public List<String> checkConformance(final Map<String, String> programs) {
+        final List<String> deviations = new ArrayList<>();
+        for (Map.Entry<String, String> program : programs.entrySet()) {
+            final ProgramNode programNode = new Parser(program.getValue(), NativeProcedures.declarations()).parse();
+            final ExecutionEngine reference = this.engines.get(0);
+            final Outcome expected = execute(reference, programNode);
+            for (ExecutionEngine engine : this.engines.subList(1, this.engines.size())) {
+                final Outcome actual = execute(engine, programNode);
+                if (!expected.equals(actual)) {
+                    deviations.add(program.getKey() + ": " + engine.name() + " deviates from " + reference.name()
+                            + " (" + actual + " instead of " + expected + ")");
+                }
+            }
+        }
+        return deviations;
+    }
+
+    /**
+     * Measures the throughput of every engine.
+     *
+     * @param programs
+     *      the programs to execute, keyed by their names
+     * @param iterations
+     *      number of times the whole corpus is executed per engine; the first
+     *      iteration is used to warm up and is not measured
+     * @return
+     *      Yields the throughput of every engine in turtle commands per second
+     */
+    public Map<String, Double> measureThroughput(final Map<String, String> programs, final int iterations) {
+        final List<ProgramNode> programNodes = programs
+                .values()
+                .stream()
+                .map(program -> new Parser(program, NativeProcedures.declarations()).parse())
+                .collect(Collectors.toList());
+        final Map<String, Double> throughput = new LinkedHashMap<>();
+        for (ExecutionEngine engine : this.engines) {
+            final CountingTurtle turtle = new CountingTurtle();
+            runCorpus(engine, programNodes, turtle);
+            turtle.reset();
+            final long start = System.nanoTime();
+            for (int i = 1; i < iterations; i++) {
+                runCorpus(engine, programNodes, turtle);
+            }
+            final long elapsed = Math.max(1L, System.nanoTime() - start);
+            throughput.put(engine.name(), turtle.count() * 1e9 / elapsed);
+        }
+        return Collections.unmodifiableMap(throughput);
+    }
+
+    private void runCorpus(final ExecutionEngine engine, final List<ProgramNode> programNodes, final Turtle turtle) {
+        for (ProgramNode programNode : programNodes) {
+            try {
+                engine.execute(programNode, turtle, this.options);
+            } catch (RuntimeException e) {
+                // failures are part of the conformance check, not of the benchmark
+            }
+        }
+    }
+
+    private Outcome execute(final ExecutionEngine engine, final ProgramNode programNode) {
+        final TraceRecordingTurtle recorder = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        try {
+            engine.execute(programNode, recorder, this.options);
+            return new Outcome(recorder.trace(), null);
+        } catch (RuntimeException e) {
+            return new Outcome(recorder.trace(), e.getClass().getName() + ": " + e.getMessage());
+        }
+    }
+
+    public static void main(final String[] args) {
+        final List<ExecutionEngine> engines = ExecutionEngines.all();
+        final ConformanceHarness harness = new ConformanceHarness(engines, InterpreterOptions.defaults());
+        final Map<String, String> programs = new LinkedHashMap<>();
+        for (String directory : args) {
+            programs.putAll(loadPrograms(Paths.get(directory)));
+        }
+        programs.putAll(generatePrograms(0L, 500));
+
+        final List<String> deviations = harness.checkConformance(programs);
+        System.out.println("Checked " + programs.size() + " programs on " + engines.size() + " engines, found " + deviations.size() + " deviations.");
+        deviations.forEach(System.out::println);
+        harness.measureThroughput(programs, 10).forEach((engine, commandsPerSecond) ->
+                System.out.println(String.format("%-16s %,.0f commands/s", engine, commandsPerSecond)));
+        if (!deviations.isEmpty()) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Commands a program issued along with the failure it terminated with, if any.
+     */
+    private static class Outcome {
+
+        private final List<TurtleCommand> commands;
+
+        private final String failure;
+
+        private Outcome(final List<TurtleCommand> commands, final String failure) {
+            this.commands = commands;
+            this.failure = failure;
+        }
+
+        @Override
+        public boolean equals(final Object other) {
+            if (!(other instanceof Outcome)) {
+                return false;
+            }
+            final Outcome that = (Outcome) other;
+            return this.commands.equals(that.commands) && Objects.equals(this.failure, that.failure);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * this.commands.hashCode() + Objects.hashCode(this.failure);
+        }
+
+        @Override
+        public String toString() {
+            return this.commands.size() + " commands" + (this.failure == null ? "" : ", failed with " + this.failure);
+        }
+    }
+
+    /**
+     * <code>Turtle</code> that does nothing but count the commands it receives.
+     */
+    private static class CountingTurtle implements Turtle {
+
+        private long count = 0;
+
+        long count() {
+            return this.count;
+        }
+
+        void reset() {
+            this.count = 0;
+        }
+
+        @Override public void clear() { this.count++; }
+        @Override public void hide() { this.count++; }
+        @Override public void show() { this.count++; }
+        @Override public void penUp() { this.count++; }
+        @Override public void penDown() { this.count++; }
+        @Override public void setPenColor(final int penColor) { this.count++; }
+        @Override public void left(final int degrees) { this.count++; }
+        @Override public void right(final int degrees) { this.count++; }
+        @Override public void back(final int steps) { this.count++; }
+        @Override public void forward(final int steps) { this.count++; }
+        @Override public void move(final int positionX, final int positionY) { this.count++; }
+        @Override public void arc(final double radius, final double degrees) { this.count++; }
+    }
+}
@@ -0,0 +1,60 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Differential tests of all {@link com.mgu.jogo.interpreter.ExecutionEngine}s that are
+ * registered on the class path.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class ExecutionEngineConformanceTest {
+
+    @Test
+    public void allShouldDiscoverRegisteredEngines() {
+        final List<String> names = ExecutionEngines.all()
+                .stream()
+                .map(ExecutionEngine::name)
+                .collect(Collectors.toList());
+        assertTrue(names.contains(TreeWalkingEngine.NAME));
+        assertTrue(names.contains(TrampolineEngine.NAME));
+    }
+
+    @Test
+    public void runShouldDelegateToTheSelectedEngine() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults(), ExecutionEngines.named(TrampolineEngine.NAME));
+        interpreter.run(turtle, "repeat 3 [ forward 10 ]");
+        verify(turtle, times(3)).forward(10);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void namedShouldThrowInterpreterExceptionForUnknownEngine() {
+        ExecutionEngines.named("unknown");
+    }
+
+    @Test
+    public void enginesShouldIssueIdenticalCommandStreams() throws Exception {
+        final ConformanceHarness harness = new ConformanceHarness(ExecutionEngines.all(), InterpreterOptions.defaults());
+        final Map<String, String> samples = ConformanceHarness.loadPrograms(Paths.get(getClass().getResource("/programs").toURI()));
+        final Map<String, String> programs = new LinkedHashMap<>(samples);
+        programs.putAll(ConformanceHarness.generatePrograms(42L, 50));
+
+        final List<String> deviations = harness.checkConformance(programs);
+
+        assertTrue(deviations.toString(), deviations.isEmpty());
+        assertEquals(2, harness.measureThroughput(samples, 2).size());
+    }
+}
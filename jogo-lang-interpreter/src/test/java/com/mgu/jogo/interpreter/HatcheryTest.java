@@ -0,0 +1,131 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.Hatchery}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class HatcheryTest {
+
+    @Test
+    public void runShouldDrawEveryHatchedTurtleOntoATurtleOfItsOwn() throws Exception {
+        final HatchingTurtle turtle = new HatchingTurtle();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withHatchExecutor(executor))
+                    .run(turtle, "repeat 4 [ hatch [ rt repcount * 90 fd 100 ] ] fd 5");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(Collections.singletonList(TurtleCommand.forward(5)), turtle.trace());
+        assertEquals(4, turtle.hatched.size());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(Arrays.asList(TurtleCommand.right((i + 1) * 90), TurtleCommand.forward(100)), turtle.hatched.get(i).trace());
+        }
+    }
+
+    @Test
+    public void runShouldHatchFromTheStateTheHatchingTurtleHasAtTheTime() {
+        final HatchingTurtle turtle = new HatchingTurtle();
+        new Interpreter(InterpreterOptions.defaults().withHatchExecutor(Runnable::run))
+                .run(turtle, "hatch [ fd 10 hatch [ rt 45 fd 20 ] bk 10 ]");
+        final HatchingTurtle hatched = turtle.hatched.get(0);
+        assertEquals(Arrays.asList(TurtleCommand.forward(10), TurtleCommand.back(10)), hatched.trace());
+        assertEquals(Arrays.asList(TurtleCommand.right(45), TurtleCommand.forward(20)), hatched.hatched.get(0).trace());
+        assertEquals(1, hatched.hatched.get(0).hatchedAfter);
+    }
+
+    @Test
+    public void runShouldLetHatchedTurtlesCallFunctionsAndReadVariablesOfTheHatchingTurtle() {
+        final String program = "size = 30 to square repeat 4 [ fd size rt 90 ] end hatch [ square ]";
+        for (ExecutionEngine engine : ExecutionEngines.all()) {
+            final HatchingTurtle turtle = new HatchingTurtle();
+            new Interpreter(InterpreterOptions.defaults(), engine).run(turtle, program);
+            final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+            new Interpreter().run(expected, "size = 30 repeat 4 [ fd size rt 90 ]");
+            assertEquals(engine.name(), expected.trace(), turtle.hatched.get(0).trace());
+        }
+    }
+
+    @Test
+    public void runShouldNotTearVariablesThatHatchedTurtlesReadWhileTheyAreAssigned() throws Exception {
+        final HatchingTurtle turtle = new HatchingTurtle();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withHatchExecutor(executor)).run(turtle,
+                    "x = 1 repeat 4 [ hatch [ repeat 2000 [ fd x ] ] ] for [ i 1 2000 ] [ x = i x = i + 0.5 ]");
+        } finally {
+            executor.shutdownNow();
+        }
+        for (HatchingTurtle hatched : turtle.hatched) {
+            assertEquals(2000, hatched.trace().size());
+            for (TurtleCommand command : hatched.trace()) {
+                assertTrue(command.toString(), command.value() >= 1.0 && command.value() <= 2000.5);
+                assertTrue(command.toString(), !command.isFractional() || command.value() % 1.0 == 0.5);
+            }
+        }
+    }
+
+    @Test
+    public void runShouldDrawEveryCommandOfManyConcurrentTurtles() throws Exception {
+        final HatchingTurtle turtle = new HatchingTurtle();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withHatchExecutor(executor))
+                    .run(turtle, "repeat 64 [ hatch [ n = repcount repeat 1000 [ fd n hatch [ ] ] ] ]");
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(64, turtle.hatched.size());
+        for (int i = 0; i < 64; i++) {
+            final HatchingTurtle hatched = turtle.hatched.get(i);
+            assertEquals(Collections.nCopies(1000, TurtleCommand.forward(i + 1)), hatched.trace());
+            assertEquals(1000, hatched.hatched.size());
+        }
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfAHatchedTurtleFails() {
+        new Interpreter(InterpreterOptions.defaults().withHatchExecutor(Runnable::run))
+                .run(new HatchingTurtle(), "hatch [ fd 10 fd y ] fd 10");
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfTheTurtleIsUnableToHatch() {
+        new Interpreter().run(new TraceRecordingTurtle(Integer.MAX_VALUE), "hatch [ fd 10 ]");
+    }
+
+    /**
+     * Records the commands of a turtle and the turtles it hatches.
+     */
+    private static class HatchingTurtle extends TraceRecordingTurtle {
+
+        private final List<HatchingTurtle> hatched = new ArrayList<>();
+
+        private int hatchedAfter = 0;
+
+        private HatchingTurtle() {
+            super(Integer.MAX_VALUE);
+        }
+
+        @Override
+        public Turtle hatch() {
+            final HatchingTurtle turtle = new HatchingTurtle();
+            turtle.hatchedAfter = trace().size();
+            this.hatched.add(turtle);
+            return turtle;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.IncrementalInterpreter}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class IncrementalInterpreterTest {
+
+    @Test
+    public void runShouldResumeFromCheckpointBeforeFirstChangedStatement() {
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter();
+        interpreter.run(mock(Turtle.class), "to square :size repeat 4 [ forward size right 90 ] end\n" +
+                                            "a = 10\n" +
+                                            "square a\n" +
+                                            "forward 5");
+
+        final Turtle turtle = mock(Turtle.class);
+        final int unchangedStatements = interpreter.run(turtle, "to square :size repeat 4 [ forward size right 90 ] end\n" +
+                                                                "a = 10\n" +
+                                                                "square a\n" +
+                                                                "left a");
+
+        assertEquals(3, unchangedStatements);
+        final InOrder inOrder = inOrder(turtle);
+        for (int i = 0; i < 4; i++) {
+            inOrder.verify(turtle).forward(10);
+            inOrder.verify(turtle).right(90);
+        }
+        inOrder.verify(turtle).left(10);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldExecuteEverythingAfterAnEditedStatement() {
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter();
+        interpreter.run(mock(Turtle.class), "a = 10 forward a forward 1");
+
+        final Turtle turtle = mock(Turtle.class);
+        final int unchangedStatements = interpreter.run(turtle, "a = 20 forward a forward 1");
+
+        assertEquals(0, unchangedStatements);
+        verify(turtle, times(1)).forward(20);
+        verify(turtle, times(1)).forward(1);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldNotCheckpointStatementsThatFailed() {
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter();
+        try {
+            interpreter.run(mock(Turtle.class), "forward 1 forward b");
+        } catch (InterpreterException e) {
+            // expected, b is undefined
+        }
+
+        final Turtle turtle = mock(Turtle.class);
+        final int unchangedStatements = interpreter.run(turtle, "forward 1 b = 2 forward b");
+
+        assertEquals(1, unchangedStatements);
+        verify(turtle, times(1)).forward(1);
+        verify(turtle, times(1)).forward(2);
+    }
+
+    @Test
+    public void runShouldCheckpointProgramsWithManyGlobalsAtGrowingIntervals() {
+        final StringBuilder assignments = new StringBuilder();
+        for (int i = 1; i <= 100; i++) {
+            assignments.append("v").append(i).append(" = ").append(i).append("\n");
+        }
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter();
+        interpreter.run(mock(Turtle.class), assignments + "forward v100");
+
+        final Turtle turtle = mock(Turtle.class);
+        final int unchangedStatements = interpreter.run(turtle, assignments + "forward v99");
+
+        // checkpoints are taken after 1, 2, 4, ..., 64 statements and after the last one
+        assertEquals(64, unchangedStatements);
+        verify(turtle, times(1)).forward(99);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldDrawTheSameRandomNumbersAfterResumingFromCheckpoint() {
+        final InterpreterOptions options = InterpreterOptions.defaults().withRandomSeed(17L);
+        final String program = "a = random 1000\n" +
+                               "forward a + random 1000\n" +
+                               "right random 360";
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter(options);
+        interpreter.run(mock(Turtle.class), program + "\nforward 1");
+
+        final TraceRecordingTurtle resumed = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final int unchangedStatements = interpreter.run(resumed, program + "\nforward random 1000");
+        final TraceRecordingTurtle executed = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        new IncrementalInterpreter(options).run(executed, program + "\nforward random 1000");
+
+        assertEquals(3, unchangedStatements);
+        assertEquals(executed.trace(), resumed.trace());
+    }
+
+    @Test
+    public void runShouldExecuteStopOutsideOfFunctionsAgainOnEveryRun() {
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter();
+        interpreter.run(mock(Turtle.class), "forward 1 stop forward 2");
+
+        final Turtle turtle = mock(Turtle.class);
+        final int unchangedStatements = interpreter.run(turtle, "forward 1 stop forward 3");
+
+        assertEquals(1, unchangedStatements);
+        verify(turtle, times(1)).forward(1);
+        verifyNoMoreInteractions(turtle);
+    }
+}
@@ -1,10 +1,22 @@
 package com.mgu.jogo.interpreter;
 
+import com.mgu.jogo.parser.Parser;
 import org.junit.Test;
+import org.mockito.InOrder;
 
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 /**
  * Set of unit tests for {@link com.mgu.jogo.interpreter.Interpreter}.
@@ -279,4 +291,471 @@ public class InterpreterTest {
         verify(turtle, times(0)).forward(1);
         verify(turtle, times(1)).right(1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void runShouldReplayMemoizedInvocationsOfSideEffectFreeFunctions() {
+        final Turtle turtle = mock(Turtle.class);
+        final InterpreterOptions options = InterpreterOptions.defaults().withTraceCache(16, 1000);
+        final EvaluatingTreeVisitor visitor = new EvaluatingTreeVisitor(options);
+        visitor.visit(new Parser("to arcr :radius :degree repeat degree [ forward radius right 1 ] end\n" +
+                                 "to petal :size arcr size 60 right 120 arcr size 60 right 120 end\n" +
+                                 "repeat 6 [ petal 2 right 60 ]").parse(), new Environment(turtle, options));
+        verify(turtle, times(720)).forward(2);
+        verify(turtle, times(720)).right(1);
+        verify(turtle, times(12)).right(120);
+        verify(turtle, times(6)).right(60);
+        // petal is executed once and arcr is executed once while petal is being recorded
+        assertEquals(2, visitor.traceCache().misses());
+        assertEquals(6, visitor.traceCache().hits());
+    }
+
+    @Test
+    public void runShouldNotMemoizeFunctionsThatReadVariablesOfTheirCaller() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withTraceCache(16, 1000));
+        interpreter.run(turtle, "to step forward size end\n" +
+                                "size = 1 step size = 2 step");
+        verify(turtle, times(1)).forward(1);
+        verify(turtle, times(1)).forward(2);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldNotReplayMemoizedInvocationsOfFunctionsWhoseCalleesAreOutOfScope() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withTraceCache(16, 1000));
+        interpreter.run(turtle, "to scope :n\n" +
+                                "  if n == 1 [ to step forward 1 end ]\n" +
+                                "  to walk step end\n" +
+                                "  walk\n" +
+                                "end\n" +
+                                "scope 1 scope 2");
+    }
+
+    @Test
+    public void runShouldStopIssuingCommandsOnceSummarizedRepeatRetracesItsPath() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withRepeatSummaries());
+        interpreter.run(turtle, "repeat 100 [ forward 50 right 72 ]");
+        verify(turtle, times(5)).forward(50);
+        verify(turtle, times(5)).right(72);
+    }
+
+    @Test
+    public void runShouldEndSummarizedRepeatInItsFinalState() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withRepeatSummaries());
+        interpreter.run(turtle, "repeat 10 [ forward 10 right 90 ]");
+        verify(turtle, times(6)).forward(10);
+        verify(turtle, times(6)).right(90);
+    }
+
+    @Test
+    public void runShouldRetraceSummarizedRepeatBackwardsIfThatIsShorter() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withRepeatSummaries());
+        interpreter.run(turtle, "repeat 11 [ forward 10 right 90 ]");
+        verify(turtle, times(4)).forward(10);
+        verify(turtle, times(4)).right(90);
+        verify(turtle, times(1)).left(90);
+        verify(turtle, times(1)).back(10);
+    }
+
+    @Test
+    public void runShouldJumpToTheFinalStateOfSummarizedRepeat() {
+        final String program = "repeat 1003 [ forward 10 right 72 ] forward 1";
+        final RecordingTurtle summarized = new RecordingTurtle();
+        new Interpreter(InterpreterOptions.defaults().withRepeatSummaries()).run(summarized, program);
+        final RecordingTurtle executed = new RecordingTurtle();
+        new Interpreter().run(executed, program);
+
+        assertEquals(6, summarized.segmentCount());
+        final RecordingTurtle.Cursor expected = executed.cursor();
+        while (expected.segment() < executed.segmentCount() - 1) {
+            expected.next();
+        }
+        final RecordingTurtle.Cursor actual = summarized.cursor();
+        while (actual.segment() < summarized.segmentCount() - 1) {
+            actual.next();
+        }
+        assertEquals(expected.x0(), actual.x0(), 1e-9);
+        assertEquals(expected.y0(), actual.y0(), 1e-9);
+        assertEquals(expected.x1(), actual.x1(), 1e-9);
+        assertEquals(expected.y1(), actual.y1(), 1e-9);
+    }
+
+    @Test
+    public void runShouldMergeCommandsOfParallelRepeatInOrder() {
+        final String program = "to step :size forward size right repcount end\n" +
+                               "repeat 1000 [ step 2 if 1 < 2 [ left 3 ] ]";
+        final TraceRecordingTurtle turtle = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withParallelRepeats(pool, 10)).run(turtle, program);
+        } finally {
+            pool.shutdownNow();
+        }
+        final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        new Interpreter().run(expected, program);
+        assertEquals(3000, expected.trace().size());
+        assertEquals(expected.trace(), turtle.trace());
+    }
+
+    @Test
+    public void runShouldHatchFromFunctionsCalledInAParallelRepeat() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withParallelRepeats(pool, 2).withHatchExecutor(Runnable::run))
+                    .run(turtle, "to spawn hatch [ fd 1 ] end repeat 64 [ spawn ]");
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(64, turtle.segmentCount());
+    }
+
+    @Test
+    public void runShouldNotParallelizeRepeatThatCallsRecursiveFunctionsWhichShareState() {
+        final String program = "counter = array 1 setitem 1 counter 0\n" +
+                               "to count :n\n" +
+                               "  to recount :m count m end\n" +
+                               "  if n == 1 [ repeat 2 [ count 0 ] ]\n" +
+                               "  if n == 2 [ repeat 20000 [ recount 0 ] ]\n" +
+                               "  setitem 1 counter (item 1 counter) + 1\n" +
+                               "end\n" +
+                               "count 1 count 2 forward item 1 counter";
+        final Turtle turtle = mock(Turtle.class);
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Interpreter(InterpreterOptions.defaults().withParallelRepeats(pool, 2)).run(turtle, program);
+        } finally {
+            pool.shutdownNow();
+        }
+        verify(turtle).forward(20004);
+    }
+
+    @Test
+    public void runShouldReplaceSubPixelInvocationsByChords() {
+        final Turtle turtle = mock(Turtle.class);
+        when(turtle.resolution()).thenReturn(4.0);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "to tick :size forward size right 90 forward size end\n" +
+                                "repeat 10 [ tick 1 left 90 ]");
+        verify(turtle, times(2)).forward(1);
+        verify(turtle).right(90);
+        verify(turtle, times(18)).right(45.0);
+        verify(turtle, times(9)).forward(Math.sqrt(2.0));
+        verify(turtle, times(10)).left(90);
+    }
+
+    @Test
+    public void runShouldReplaceSubPixelInvocationsByChordsWhileRecordingMemoizedBodies() {
+        final Turtle turtle = mock(Turtle.class);
+        when(turtle.resolution()).thenReturn(4.0);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withTraceCache(16, 1000));
+        interpreter.run(turtle, "to tick :size forward size right 90 forward size end\n" +
+                                "to ticks repeat 10 [ tick 1 left 90 ] end\n" +
+                                "ticks");
+        verify(turtle, times(2)).forward(1);
+        verify(turtle).right(90);
+        verify(turtle, times(18)).right(45.0);
+        verify(turtle, times(9)).forward(Math.sqrt(2.0));
+        verify(turtle, times(10)).left(90);
+    }
+
+    @Test
+    public void runShouldPromoteArithmeticWithDecimalsToFractionalTurtleCommands() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward 2.5 a = 7 / 2.0 right a b = 7 / 2 left b");
+        verify(turtle).forward(2.5);
+        verify(turtle).right(3.5);
+        verify(turtle).left(3);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldCountLoopVariableOfForFromStartToEnd() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "for [i 1 3] [ forward i ] for [i 10 6 (-2)] [ right i ] for [i 3 1] [ left i ]");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(1);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).forward(3);
+        inOrder.verify(turtle).right(10);
+        inOrder.verify(turtle).right(8);
+        inOrder.verify(turtle).right(6);
+        inOrder.verify(turtle).left(3);
+        inOrder.verify(turtle).left(2);
+        inOrder.verify(turtle).left(1);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldExecuteWhileAsLongAsConditionHolds() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "a = 0 while a < 5 [ forward a a = a + 2 ]");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(0);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).forward(4);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldReportIterationOfInnermostRepeatAsRepCount() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "repeat 2 [ repeat 2 [ forward repcount ] right repcount ] left repcount");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(1);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).right(1);
+        inOrder.verify(turtle).forward(1);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).right(2);
+        inOrder.verify(turtle).left(-1);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldReadAndUpdateArraysByReference() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "a = array 3 setitem 1 a 10 setitem 3 a 30 b = a setitem 2 b 20 " +
+                                "for [i 1 3] [ forward item i a ]");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(10);
+        inOrder.verify(turtle).forward(20);
+        inOrder.verify(turtle).forward(30);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfArrayIndexIsOutOfBounds() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "a = array 3 forward item 4 a");
+    }
+
+    @Test
+    public void runShouldEvaluateIntrinsicsInExpressions() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward sqrt 16 right round (cos 60) * 10 left mod (-7) 3 back max 3 4.5 forward abs (-3)");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(4.0);
+        inOrder.verify(turtle).right(5);
+        inOrder.verify(turtle).left(2);
+        inOrder.verify(turtle).back(4.5);
+        inOrder.verify(turtle).forward(3);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldIssueArcsAndCirclesAsSingleTurtleCommands() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "arc 10 90 circle 2.5 arc 10 (-45)");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).arc(10.0, 90.0);
+        inOrder.verify(turtle).arc(2.5, 360.0);
+        inOrder.verify(turtle).arc(10.0, -45.0);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldCallUserDefinedFunctionThatShadowsBuiltin() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "to circle :radius forward radius right 90 end circle 2");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).right(90);
+        verify(turtle, never()).arc(anyDouble(), anyDouble());
+    }
+
+    @Test
+    public void runShouldTessellateArcsOnTurtlesThatDoNotDrawCurves() {
+        final TraceRecordingTurtle recorder = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final Turtle turtleWithoutCurves = new Turtle() {
+            @Override public void clear() {}
+            @Override public void hide() {}
+            @Override public void show() {}
+            @Override public void penUp() {}
+            @Override public void penDown() {}
+            @Override public void setPenColor(int penColor) {}
+            @Override public void left(int degrees) { recorder.left(degrees); }
+            @Override public void right(int degrees) { recorder.right(degrees); }
+            @Override public void back(int steps) { recorder.back(steps); }
+            @Override public void forward(int steps) { recorder.forward(steps); }
+            @Override public void left(double degrees) { recorder.left(degrees); }
+            @Override public void right(double degrees) { recorder.right(degrees); }
+            @Override public void back(double steps) { recorder.back(steps); }
+            @Override public void forward(double steps) { recorder.forward(steps); }
+            @Override public void move(int positionX, int positionY) {}
+        };
+        new Interpreter().run(turtleWithoutCurves, "arc 10 90");
+        final TurtleTransform tessellated = TurtleTransform.of(recorder.trace());
+        final TurtleTransform expected = TurtleTransform.arc(10.0, 90.0);
+        assertTrue(recorder.trace().size() > 2);
+        assertEquals(expected.rotation(), tessellated.rotation(), 1e-9);
+        assertEquals(expected.translationX(), tessellated.translationX(), 1e-9);
+        assertEquals(expected.translationY(), tessellated.translationY(), 1e-9);
+    }
+
+    @Test
+    public void runShouldTessellateArcsIntoIntegralChordsOnTurtlesThatRoundFractions() {
+        for (int degrees : new int[] { 90, -90, 360, 45 }) {
+            final IntegralTurtle turtle = new IntegralTurtle();
+            new Interpreter().run(turtle, "arc 10 (" + degrees + ")");
+            final TurtleTransform expected = TurtleTransform.arc(10.0, degrees);
+            assertEquals(degrees, turtle.heading);
+            assertEquals(expected.translationX(), turtle.x, 1.0);
+            assertEquals(expected.translationY(), turtle.y, 1.0);
+            assertTrue(turtle.steps >= (int) (Math.abs(degrees) * Math.PI * 10.0 / 180.0));
+        }
+    }
+
+    @Test
+    public void runShouldReportTouchingAsSoonAsTurtleHitsALineItHasDrawnBefore() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward 10 right 90 forward 5 right 90 forward 5 right 90 " +
+                "n = 0 while touching == false [ forward 1 n = n + 1 ] setpc n");
+        verify(turtle).setPenColor(5);
+    }
+
+    @Test
+    public void runShouldReportDistanceToNearestLineDrawnBefore() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward 10 penup right 90 forward 3 pendown left 90 back distance");
+        verify(turtle).back(3.0);
+    }
+
+    @Test(timeout = 10000)
+    public void runShouldReportDistanceToLinesBeyondTheRangeOfIntegers() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "repeat 4 [ forward 1000000000 ] penup right 90 forward 3 pendown left 90 back distance");
+        verify(turtle).back(3.0);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfModulusIsZero() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward mod 7 0");
+    }
+
+    @Test
+    public void runShouldDrawTheSameRandomNumbersForTheSameSeed() {
+        final String program = "repeat 100 [ forward random 50 right random 360.0 ]";
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withRandomSeed(42L));
+        final TraceRecordingTurtle first = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final TraceRecordingTurtle second = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        interpreter.run(first, program);
+        interpreter.run(second, program);
+
+        assertEquals(200, first.trace().size());
+        assertEquals(first.trace(), second.trace());
+        for (int i = 0; i < first.trace().size(); i += 2) {
+            assertTrue(first.trace().get(i).value() >= 0 && first.trace().get(i).value() < 50);
+        }
+    }
+
+    @Test
+    public void runShouldRestartRandomNumbersOnRerandom() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "rerandom 7 a = random 1000 b = random 1000 rerandom 7 " +
+                                "if a == (random 1000) and b == (random 1000) [ forward 1 ]");
+        verify(turtle).forward(1);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfRandomBoundIsNotPositive() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "forward random 0");
+    }
+
+    @Test
+    public void runShouldEvaluateCallsOfFunctionsThatOutputValues() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "to factorial :n if n < 2 [ output 1 ] output n * factorial n - 1 end\n" +
+                                "to half :x op x / 2 end\n" +
+                                "forward 1 + factorial 5 right half 90.0");
+        verify(turtle).forward(121);
+        verify(turtle).right(45.0);
+    }
+
+    @Test
+    public void runShouldLeaveOnlyTheInnermostFunctionOnStop() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "to steps repeat 10 [ if repcount > 3 [ stop ] forward repcount ] end\n" +
+                                "to twice steps steps end\n" +
+                                "twice left 1 stop right 1");
+        final InOrder inOrder = inOrder(turtle);
+        for (int i = 0; i < 2; i++) {
+            inOrder.verify(turtle).forward(1);
+            inOrder.verify(turtle).forward(2);
+            inOrder.verify(turtle).forward(3);
+        }
+        inOrder.verify(turtle).left(1);
+        verify(turtle, times(6)).forward(anyInt());
+        verify(turtle, times(0)).right(1);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfFunctionCalledWithinExpressionDoesNotOutputValue() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "to nothing :x if x > 0 [ output x ] end forward nothing 0");
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfOutputIsUsedOutsideOfFunction() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "output 1");
+    }
+
+    /**
+     * Turtle that only implements the integral turtle commands, just like turtles that
+     * have been written before fractional commands were introduced.
+     */
+    private static class IntegralTurtle implements Turtle {
+
+        private int heading = 0;
+
+        private double x = 0.0;
+
+        private double y = 0.0;
+
+        private int steps = 0;
+
+        @Override public void clear() {}
+        @Override public void hide() {}
+        @Override public void show() {}
+        @Override public void penUp() {}
+        @Override public void penDown() {}
+        @Override public void setPenColor(int penColor) {}
+        @Override public void left(int degrees) { this.heading -= degrees; }
+        @Override public void right(int degrees) { this.heading += degrees; }
+        @Override public void back(int steps) { forward(-steps); }
+        @Override public void move(int positionX, int positionY) {}
+
+        @Override
+        public void forward(int steps) {
+            this.x += steps * Math.cos(Math.toRadians(this.heading));
+            this.y += steps * Math.sin(Math.toRadians(this.heading));
+            this.steps += Math.abs(steps);
+        }
+    }
+}
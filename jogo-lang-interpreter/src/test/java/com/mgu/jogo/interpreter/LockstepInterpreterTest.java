@@ -0,0 +1,133 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.LockstepInterpreter}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class LockstepInterpreterTest {
+
+    private static final String POLYSPI =
+            "to polyspi :side :angle :n\n" +
+            "  if n > 0 [ forward side right angle polyspi side + 3 angle n - 1 ]\n" +
+            "end\n" +
+            "polyspi 20 angle 40";
+
+    @Test
+    public void runShouldDrawWhatSeparateRunsDrawForEveryParameterSet() {
+        final List<Slot> angles = new ArrayList<>();
+        for (int angle = 1; angle < 360; angle++) {
+            angles.add(Slot.ofInt(angle));
+        }
+        assertLanesConform(POLYSPI, "angle", angles, true);
+    }
+
+    @Test
+    public void runShouldLetLanesDivergeInControlFlow() {
+        final String program =
+                "to steps :x\n" +
+                "  if x > 90 [ stop ]\n" +
+                "  n = 0\n" +
+                "  while n < (x / 10) [ forward n n = n + 1 ]\n" +
+                "  for [ i x 100 25 ] [ right i ]\n" +
+                "end\n" +
+                "to half :x if (mod x 2) == 0 [ output x / 2 ] output x * 3 + 1 end\n" +
+                "r = x / 20\n" +
+                "repeat r [ back repcount * x ]\n" +
+                "steps x\n" +
+                "ifelse x > 150 [ y = x ] [ y = 0 - x ]\n" +
+                "forward (half x) + y\n" +
+                "if x < 50 or x > 300 [ stop ]\n" +
+                "left x";
+        final List<Slot> values = new ArrayList<>();
+        for (int x = 0; x < 360; x += 7) {
+            values.add(x % 2 == 0 ? Slot.ofInt(x) : Slot.ofDouble(x + 0.5));
+        }
+        assertLanesConform(program, "x", values, true);
+    }
+
+    @Test
+    public void runShouldRunProgramsThatDrawRandomNumbersOneLaneAfterAnother() {
+        final List<Slot> values = new ArrayList<>();
+        for (int x = 1; x < 10; x++) {
+            values.add(Slot.ofInt(x));
+        }
+        assertLanesConform("repeat x [ forward random 100 ]", "x", values, false);
+    }
+
+    @Test
+    public void runShouldConformToSeparateRunsOfGeneratedPrograms() {
+        final InterpreterOptions options = InterpreterOptions.defaults().withRandomSeed(0L);
+        int lockstepRuns = 0;
+        for (String program : ConformanceHarness.generatePrograms(46L, 100).values()) {
+            final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+            final String expectedFailure = failureOf(() -> new Interpreter(options).run(expected, program));
+
+            final List<Turtle> lanes = new ArrayList<>();
+            final List<Map<String, Slot>> parameterSets = new ArrayList<>();
+            for (int lane = 0; lane < 3; lane++) {
+                lanes.add(new TraceRecordingTurtle(Integer.MAX_VALUE));
+                parameterSets.add(Collections.emptyMap());
+            }
+            final boolean[] lockstep = new boolean[1];
+            final String actualFailure = failureOf(() -> lockstep[0] = new LockstepInterpreter(options).run(lanes, program, parameterSets));
+            lockstepRuns += lockstep[0] ? 1 : 0;
+
+            assertEquals(program, expectedFailure, actualFailure);
+            if (expectedFailure == null) {
+                for (Turtle lane : lanes) {
+                    assertEquals(program, expected.trace(), ((TraceRecordingTurtle) lane).trace());
+                }
+            }
+        }
+        assertTrue(lockstepRuns > 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void runShouldThrowIllegalArgumentExceptionIfParameterSetsDoNotMatchTurtles() {
+        new LockstepInterpreter().run(Collections.singletonList(mock(Turtle.class)), POLYSPI, Collections.emptyList());
+    }
+
+    private static void assertLanesConform(final String program, final String variable, final List<Slot> values, final boolean expectLockstep) {
+        final List<Turtle> lanes = new ArrayList<>();
+        final List<Map<String, Slot>> parameterSets = new ArrayList<>();
+        for (Slot value : values) {
+            lanes.add(new TraceRecordingTurtle(Integer.MAX_VALUE));
+            parameterSets.add(Collections.singletonMap(variable, value));
+        }
+        final InterpreterOptions options = InterpreterOptions.defaults().withRandomSeed(7L);
+        final boolean lockstep = new LockstepInterpreter(options).run(lanes, program, parameterSets);
+        assertEquals(expectLockstep, lockstep);
+
+        for (int lane = 0; lane < values.size(); lane++) {
+            final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+            new Interpreter(options).run(expected, variable + " = " + literal(values.get(lane)) + "\n" + program);
+            final List<TurtleCommand> actual = ((TraceRecordingTurtle) lanes.get(lane)).trace();
+            assertEquals("lane " + lane, expected.trace(), actual);
+        }
+    }
+
+    private static String literal(final Slot value) {
+        return value.isDouble() ? String.valueOf(value.doubleValue()) : String.valueOf(value.intValue());
+    }
+
+    private static String failureOf(final Runnable run) {
+        try {
+            run.run();
+            return null;
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+}
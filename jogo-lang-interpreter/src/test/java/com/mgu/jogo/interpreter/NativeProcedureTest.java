@@ -0,0 +1,75 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.NativeProcedure}s, using the
+ * procedure {@link Polygon} which is registered for tests only.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class NativeProcedureTest {
+
+    @Test
+    public void allShouldDiscoverRegisteredNativeProcedures() {
+        assertTrue(NativeProcedures.all().stream().anyMatch(procedure -> procedure instanceof Polygon));
+        assertTrue(NativeProcedures.declarations().isNativeProcedure("polygon"));
+    }
+
+    @Test
+    public void runShouldInvokeNativeProcedureWithEvaluatedArguments() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter();
+        interpreter.run(turtle, "a = 5 repeat 2 [ polygon 3 a * 2 ]");
+        final InOrder inOrder = inOrder(turtle);
+        for (int i = 0; i < 6; i++) {
+            inOrder.verify(turtle).forward(10.0);
+            inOrder.verify(turtle).right(120.0);
+        }
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void stepShouldCountCommandsIssuedByNativeProcedures() {
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        final Continuation continuation = interpreter.start(mock(Turtle.class), "polygon 4 10 forward 1");
+        assertEquals(8, continuation.step(1));
+        assertEquals(1, continuation.step(1));
+        assertTrue(continuation.isDone());
+    }
+
+    /**
+     * Draws a regular polygon given the number of its sides and the length of a side.
+     */
+    public static class Polygon implements NativeProcedure {
+
+        @Override
+        public String name() {
+            return "polygon";
+        }
+
+        @Override
+        public int arity() {
+            return 2;
+        }
+
+        @Override
+        public void invoke(final Turtle turtle, final double[] arguments) {
+            final int sides = (int) arguments[0];
+            if (sides < 3) {
+                throw new InterpreterException("A polygon has at least three sides.");
+            }
+            for (int i = 0; i < sides; i++) {
+                turtle.forward(arguments[1]);
+                turtle.right(360.0 / sides);
+            }
+        }
+    }
+}
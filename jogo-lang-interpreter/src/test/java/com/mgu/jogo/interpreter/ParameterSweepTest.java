@@ -0,0 +1,189 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.ParameterSweep}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class ParameterSweepTest {
+
+    private static final String PROGRAM =
+            "to polyspi :side :angle :n\n" +
+            "  if n > 0 [ forward side right angle polyspi side + 3 angle n - 1 ]\n" +
+            "end\n" +
+            "to spiral :side :angle polyspi side angle 30 end";
+
+    @Test
+    public void startShouldRunEveryCombinationOfArguments() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep(PROGRAM, "spiral");
+        final Map<List<Slot>, TraceRecordingTurtle> turtles = new ConcurrentHashMap<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ParameterSweep.Execution execution = sweep.start(
+                    Arrays.asList(ParameterSweep.range(5, 20, 5), ParameterSweep.range(60.0, 150.0, 22.5)),
+                    arguments -> turtles.computeIfAbsent(arguments, key -> new TraceRecordingTurtle(Integer.MAX_VALUE)),
+                    executor,
+                    4,
+                    (arguments, turtle, failure) -> assertEquals(null, failure));
+            assertTrue(execution.await(30, TimeUnit.SECONDS));
+            assertEquals(20, execution.totalRuns());
+            assertEquals(20, execution.completedRuns());
+            assertEquals(0, execution.failedRuns());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(20, turtles.size());
+        for (Map.Entry<List<Slot>, TraceRecordingTurtle> run : turtles.entrySet()) {
+            final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+            new Interpreter().run(expected, PROGRAM + "\nspiral " + run.getKey().get(0) + " " + run.getKey().get(1));
+            assertEquals(expected.trace(), run.getValue().trace());
+        }
+    }
+
+    @Test
+    public void startShouldIgnoreTopLevelStatementsOtherThanDefinitions() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep(PROGRAM + "\nspiral 20 117", "spiral");
+        final TraceRecordingTurtle turtle = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        final ParameterSweep.Execution execution = sweep.start(
+                Arrays.asList(ParameterSweep.range(5, 5, 1), ParameterSweep.range(60, 60, 1)),
+                arguments -> turtle,
+                Runnable::run,
+                1,
+                (arguments, sink, failure) -> assertEquals(null, failure));
+        assertTrue(execution.isDone());
+        final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        new Interpreter().run(expected, PROGRAM + "\nspiral 5 60");
+        assertEquals(expected.trace(), turtle.trace());
+    }
+
+    @Test
+    public void startShouldReportFailedRunsAndCarryOn() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep("to slope :dx forward 10 / dx end", "slope");
+        final AtomicInteger failures = new AtomicInteger();
+        final ParameterSweep.Execution execution = sweep.start(
+                Arrays.asList(ParameterSweep.range(-2, 2, 1)),
+                arguments -> mock(Turtle.class),
+                Runnable::run,
+                1,
+                (arguments, turtle, failure) -> failures.addAndGet(failure == null ? 0 : 1));
+        assertTrue(execution.isDone());
+        assertEquals(5, execution.completedRuns());
+        assertEquals(1, execution.failedRuns());
+        assertEquals(1, failures.get());
+    }
+
+    @Test
+    public void startShouldCountRunsWhoseListenerFailsAsFailedAndCarryOn() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep(PROGRAM, "spiral");
+        final AtomicInteger reportedRuns = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ParameterSweep.Execution execution = sweep.start(
+                    Arrays.asList(ParameterSweep.range(1, 2, 1), ParameterSweep.range(1, 2, 1)),
+                    arguments -> mock(Turtle.class),
+                    executor,
+                    1,
+                    (arguments, turtle, failure) -> {
+                        if (reportedRuns.incrementAndGet() == 1) {
+                            throw new IllegalStateException("The listener has failed.");
+                        }
+                    });
+            assertTrue(execution.await(30, TimeUnit.SECONDS));
+            assertEquals(4, reportedRuns.get());
+            assertEquals(4, execution.completedRuns());
+            assertEquals(1, execution.failedRuns());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelShouldAbortRunsThatIssueNoTurtleCommands() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep("to spin :n while true [ n = n + 1 ] end", "spin");
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicInteger reportedRuns = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final ParameterSweep.Execution execution = sweep.start(
+                    Arrays.asList(ParameterSweep.range(1, 2, 1)),
+                    arguments -> {
+                        started.countDown();
+                        return mock(Turtle.class);
+                    },
+                    executor,
+                    1,
+                    (arguments, turtle, failure) -> reportedRuns.incrementAndGet());
+            assertTrue(started.await(30, TimeUnit.SECONDS));
+            execution.cancel();
+            assertTrue(execution.await(30, TimeUnit.SECONDS));
+            assertEquals(0, reportedRuns.get());
+            assertEquals(0, execution.completedRuns());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancelShouldSkipTheRemainingRuns() throws Exception {
+        final ParameterSweep sweep = new ParameterSweep(PROGRAM, "spiral");
+        final ParameterSweep.Execution[] execution = new ParameterSweep.Execution[1];
+        final AtomicInteger reportedRuns = new AtomicInteger();
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            execution[0] = sweep.start(
+                    Arrays.asList(ParameterSweep.range(1, 100, 1), ParameterSweep.range(1, 100, 1)),
+                    arguments -> mock(Turtle.class),
+                    executor,
+                    1,
+                    (arguments, turtle, failure) -> {
+                        if (reportedRuns.incrementAndGet() == 3) {
+                            execution[0].cancel();
+                        }
+                    });
+            assertTrue(execution[0].await(30, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(execution[0].isCancelled());
+        assertEquals(3, reportedRuns.get());
+        assertEquals(3, execution[0].completedRuns());
+    }
+
+    @Test
+    public void rangeShouldIncludeTheEndIfTheStepWidthLeadsThere() {
+        assertEquals(Arrays.asList(Slot.ofInt(10), Slot.ofInt(7), Slot.ofInt(4), Slot.ofInt(1)), ParameterSweep.range(10, 0, -3));
+        assertEquals(Arrays.asList(Slot.ofDouble(0.0), Slot.ofDouble(0.1), Slot.ofDouble(0.2), Slot.ofDouble(0.30000000000000004)), ParameterSweep.range(0.0, 0.3, 0.1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void startShouldThrowIllegalArgumentExceptionIfArgumentValuesDoNotMatchArity() {
+        new ParameterSweep(PROGRAM, "spiral").start(
+                Arrays.asList(ParameterSweep.range(1, 3, 1)),
+                arguments -> mock(Turtle.class),
+                Runnable::run,
+                1,
+                (arguments, turtle, failure) -> {});
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void constructorShouldThrowInterpreterExceptionIfTheProcedureIsNotDefined() {
+        new ParameterSweep(PROGRAM, "square");
+    }
+}
@@ -0,0 +1,102 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyDouble;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.Prelude}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class PreludeTest {
+
+    private static final Prelude PRELUDE = new Prelude(
+            "to ngon :sides :length repeat sides [ forward length right 360 / sides ] end\n" +
+            "to star :size repeat 5 [ forward size right 144 ] end\n" +
+            "to spiral :n if n > 0 [ forward n right 91 spiral n - 1 ] end");
+
+    @Test
+    public void runShouldCallPreludeProceduresWithoutDefiningThem() {
+        final Turtle turtle = mock(Turtle.class);
+        final Interpreter interpreter = new Interpreter(InterpreterOptions.defaults().withPrelude(PRELUDE));
+        interpreter.run(turtle, "ngon 4 10 star 20");
+        verify(turtle, times(4)).forward(10);
+        verify(turtle, times(4)).right(90);
+        verify(turtle, times(5)).forward(20);
+    }
+
+    @Test
+    public void runShouldCallPreludeProceduresThatShadowBuiltins() {
+        final Prelude prelude = new Prelude("to circle :size repeat 4 [ forward size right 90 ] end");
+        final Turtle turtle = mock(Turtle.class);
+        new Interpreter(InterpreterOptions.defaults().withPrelude(prelude)).run(turtle, "circle 10");
+        verify(turtle, times(4)).forward(10);
+        verify(turtle, never()).arc(anyDouble(), anyDouble());
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void preludeShouldThrowInterpreterExceptionIfProcedureIsNamedLikeAnIntrinsic() {
+        new Prelude("to sqrt :x forward x end");
+    }
+
+    @Test
+    public void runShouldCallPreludeProceduresOnAnyEngine() {
+        final InterpreterOptions options = InterpreterOptions.defaults().withPrelude(PRELUDE);
+        for (ExecutionEngine engine : ExecutionEngines.all()) {
+            final Turtle turtle = mock(Turtle.class);
+            new Interpreter(options, engine).run(turtle, "to twice :n ngon 3 n ngon 3 n end twice 7");
+            verify(turtle, times(6)).forward(7);
+        }
+    }
+
+    @Test
+    public void runsShouldShareThePreludeWithoutAlteringIt() throws Exception {
+        final InterpreterOptions options = InterpreterOptions.defaults().withPrelude(PRELUDE);
+        final String program = "to helper :x spiral x end n = 30 helper n";
+        final TraceRecordingTurtle expected = new TraceRecordingTurtle(Integer.MAX_VALUE);
+        new Interpreter(options).run(expected, program);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final List<Future<List<TurtleCommand>>> traces = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                traces.add(executor.submit(() -> {
+                    final TraceRecordingTurtle recorder = new TraceRecordingTurtle(Integer.MAX_VALUE);
+                    new Interpreter(options).run(recorder, program);
+                    return recorder.trace();
+                }));
+            }
+            for (Future<List<TurtleCommand>> trace : traces) {
+                assertEquals(expected.trace(), trace.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void incrementalRunsShouldKeepThePreludeAcrossCheckpoints() {
+        final IncrementalInterpreter interpreter = new IncrementalInterpreter(InterpreterOptions.defaults().withPrelude(PRELUDE));
+        interpreter.run(mock(Turtle.class), "a = 10\nstar a\nforward 1");
+        final Turtle turtle = mock(Turtle.class);
+        assertEquals(2, interpreter.run(turtle, "a = 10\nstar a\nngon 4 a"));
+        verify(turtle, times(9)).forward(10);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void preludeShouldRejectStatementsOtherThanProcedureDefinitions() {
+        new Prelude("to square :n repeat 4 [ forward n right 90 ] end forward 10");
+    }
+}
@@ -0,0 +1,295 @@
+package com.mgu.jogo.interpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates random, syntactically valid programs for differential testing of
+ * <code>ExecutionEngine</code>s. Generated programs use every statement form of the
+ * language, read global variables from within user-defined functions (exercising dynamic
+ * scoping) and call previously defined functions from within loops and conditionals.
+ * Some functions output a value and are called within the expressions of top-level
+ * statements as well, and functions that do not output a value may <code>stop</code> early.
+ * They terminate, since loop counts and bounds are small literals, <code>while</code>
+ * loops count a variable that no other statement assigns, and functions only call
+ * functions that have been defined before them.
+ *
+ * The same seed always yields the same sequence of programs.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class ProgramGenerator {
+
+    private static final String[] GLOBALS = { "a", "b", "c" };
+
+    private static final String[] MOVES = { "forward", "back", "left", "right" };
+
+    private static final int MAX_DEPTH = 3;
+
+    private final Random random;
+
+    private final List<String> functions = new ArrayList<>();
+
+    private final List<Integer> arities = new ArrayList<>();
+
+    private final List<Integer> reporters = new ArrayList<>();
+
+    private boolean generatingFunction = false;
+
+    private boolean generatingReporter = false;
+
+    private final StringBuilder program = new StringBuilder();
+
+    /**
+     * @param seed
+     *      seed of the pseudo-random choices of this generator
+     */
+    public ProgramGenerator(final long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @return
+     *      Yields the next random program
+     */
+    public String generate() {
+        this.functions.clear();
+        this.arities.clear();
+        this.reporters.clear();
+        this.program.setLength(0);
+
+        for (String global : GLOBALS) {
+            this.program.append(global).append(" = ").append(this.random.nextInt(20)).append('\n');
+        }
+        final int functionCount = this.random.nextInt(4);
+        for (int i = 0; i < functionCount; i++) {
+            generateFunction("f" + i);
+        }
+        final int statementCount = 1 + this.random.nextInt(8);
+        for (int i = 0; i < statementCount; i++) {
+            generateStatement(0, variables(new ArrayList<>()));
+            this.program.append('\n');
+        }
+        return this.program.toString();
+    }
+
+    private List<String> variables(final List<String> arguments) {
+        final List<String> variables = new ArrayList<>(arguments);
+        for (String global : GLOBALS) {
+            variables.add(global);
+        }
+        return variables;
+    }
+
+    private void generateFunction(final String name) {
+        final int arity = this.random.nextInt(3);
+        final List<String> arguments = new ArrayList<>();
+        this.program.append("to ").append(name);
+        for (int i = 0; i < arity; i++) {
+            final String argument = name + "x" + i;
+            arguments.add(argument);
+            this.program.append(" :").append(argument);
+        }
+        this.program.append('\n');
+        this.generatingFunction = true;
+        // a stop would keep a reporter from reaching its output
+        this.generatingReporter = this.random.nextInt(3) == 0;
+        final int statementCount = 1 + this.random.nextInt(4);
+        for (int i = 0; i < statementCount; i++) {
+            this.program.append("  ");
+            generateStatement(1, variables(arguments));
+            this.program.append('\n');
+        }
+        if (this.generatingReporter) {
+            this.program.append("  output ");
+            generateExpression(0, variables(arguments));
+            this.program.append('\n');
+            this.reporters.add(this.functions.size());
+        }
+        this.generatingFunction = false;
+        this.generatingReporter = false;
+        this.program.append("end\n");
+        this.functions.add(name);
+        this.arities.add(arity);
+    }
+
+    private void generateStatement(final int depth, final List<String> variables) {
+        final int choice = this.random.nextInt(depth < MAX_DEPTH ? 12 : 6);
+        switch (choice) {
+            case 0:
+            case 1:
+            case 2:
+                this.program.append(MOVES[this.random.nextInt(MOVES.length)]).append(' ');
+                generateExpression(0, variables);
+                break;
+            case 3:
+                if (!this.generatingReporter && this.random.nextInt(8) == 0) {
+                    this.program.append("stop");
+                } else {
+                    this.program.append(this.random.nextBoolean() ? "penup" : "pendown");
+                }
+                break;
+            case 4:
+                if (this.random.nextInt(8) == 0) {
+                    this.program.append("rerandom ").append(this.random.nextInt(100));
+                } else {
+                    this.program.append("setpc ").append(this.random.nextInt(16));
+                }
+                break;
+            case 5:
+                this.program.append(variables.get(this.random.nextInt(variables.size()))).append(" = ");
+                generateExpression(0, variables);
+                break;
+            case 6:
+                this.program.append("repeat ").append(this.random.nextInt(4)).append(" [ ");
+                generateBlock(depth + 1, variables);
+                this.program.append(']');
+                break;
+            case 7:
+                this.program.append("if ");
+                generateCondition(variables);
+                this.program.append(" [ ");
+                generateBlock(depth + 1, variables);
+                this.program.append(']');
+                break;
+            case 8:
+                this.program.append("ifelse ");
+                generateCondition(variables);
+                this.program.append(" [ ");
+                generateBlock(depth + 1, variables);
+                this.program.append("] [ ");
+                generateBlock(depth + 1, variables);
+                this.program.append(']');
+                break;
+            case 9:
+                final String counter = "i" + depth;
+                this.program.append("for [").append(counter).append(' ')
+                        .append(this.random.nextInt(6)).append(' ')
+                        .append(this.random.nextInt(6));
+                if (this.random.nextBoolean()) {
+                    this.program.append(' ').append(this.random.nextBoolean() ? "2" : "(-1)");
+                }
+                this.program.append("] [ ");
+                generateBlock(depth + 1, withVariable(variables, counter));
+                this.program.append(']');
+                break;
+            case 10:
+                final String condition = "w" + depth;
+                this.program.append(condition).append(" = 0 while ").append(condition).append(" < ")
+                        .append(this.random.nextInt(4)).append(" [ ");
+                generateBlock(depth + 1, variables);
+                this.program.append(condition).append(" = ").append(condition).append(" + 1 ]");
+                break;
+            default:
+                generateCall(variables);
+                break;
+        }
+    }
+
+    private List<String> withVariable(final List<String> variables, final String variable) {
+        final List<String> extended = new ArrayList<>(variables);
+        extended.add(variable);
+        return extended;
+    }
+
+    private void generateBlock(final int depth, final List<String> variables) {
+        final int statementCount = 1 + this.random.nextInt(3);
+        for (int i = 0; i < statementCount; i++) {
+            generateStatement(depth, variables);
+            this.program.append(' ');
+        }
+    }
+
+    private void generateCall(final List<String> variables) {
+        if (this.functions.isEmpty()) {
+            this.program.append("right ").append(this.random.nextInt(360));
+            return;
+        }
+        final int index = this.random.nextInt(this.functions.size());
+        this.program.append(this.functions.get(index));
+        for (int i = 0; i < this.arities.get(index); i++) {
+            this.program.append(' ');
+            generateExpression(0, variables);
+        }
+    }
+
+    private void generateReporterCall(final int depth, final List<String> variables) {
+        final int index = this.reporters.get(this.random.nextInt(this.reporters.size()));
+        // values of nested calls would grow without bounds otherwise
+        this.program.append("(mod (").append(this.functions.get(index));
+        for (int i = 0; i < this.arities.get(index); i++) {
+            this.program.append(' ');
+            generateExpression(depth + 1, variables);
+        }
+        this.program.append(") 50)");
+    }
+
+    private void generateCondition(final List<String> variables) {
+        generateComparison(variables);
+        final int connective = this.random.nextInt(4);
+        if (connective == 0) {
+            this.program.append(" and ");
+            generateComparison(variables);
+        } else if (connective == 1) {
+            this.program.append(" or ");
+            generateComparison(variables);
+        }
+    }
+
+    private void generateComparison(final List<String> variables) {
+        final String[] operators = { " < ", " > ", " == " };
+        generateExpression(0, variables);
+        this.program.append(operators[this.random.nextInt(operators.length)]);
+        generateExpression(0, variables);
+    }
+
+    private void generateExpression(final int depth, final List<String> variables) {
+        final int choice = this.random.nextInt(depth < 2 ? 5 : 2);
+        switch (choice) {
+            case 0:
+                this.program.append(this.random.nextInt(50));
+                if (this.random.nextInt(5) == 0) {
+                    this.program.append('.').append(1 + this.random.nextInt(9));
+                }
+                break;
+            case 1:
+                final int reporter = this.random.nextInt(8);
+                if (reporter == 0) {
+                    this.program.append("repcount");
+                } else if (reporter == 1) {
+                    this.program.append("distance");
+                } else if (reporter == 2 && !this.generatingFunction && !this.reporters.isEmpty()) {
+                    generateReporterCall(depth, variables);
+                } else {
+                    this.program.append(variables.get(this.random.nextInt(variables.size())));
+                }
+                break;
+            case 2:
+                if (this.random.nextBoolean()) {
+                    this.program.append("(-");
+                    generateExpression(depth + 1, variables);
+                    this.program.append(')');
+                } else {
+                    final String[] intrinsics = { "abs", "round", "min", "max", "mod", "random" };
+                    final String intrinsic = intrinsics[this.random.nextInt(intrinsics.length)];
+                    this.program.append('(').append(intrinsic).append(' ');
+                    generateExpression(depth + 1, variables);
+                    if (intrinsic.length() == 3 && !intrinsic.equals("abs")) {
+                        this.program.append(' ');
+                        generateExpression(depth + 1, variables);
+                    }
+                    this.program.append(')');
+                }
+                break;
+            default:
+                final String[] operators = { " + ", " - ", " * " };
+                this.program.append('(');
+                generateExpression(depth + 1, variables);
+                this.program.append(operators[this.random.nextInt(operators.length)]);
+                generateExpression(depth + 1, variables);
+                this.program.append(')');
+                break;
+        }
+    }
+}
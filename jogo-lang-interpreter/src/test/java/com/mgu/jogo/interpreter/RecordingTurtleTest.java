@@ -0,0 +1,107 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.RecordingTurtle}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class RecordingTurtleTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void runShouldRecordEveryMovementAsASegment() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        new Interpreter().run(turtle, "setpc 4 fd 100 rt 90 fd 50 pu bk 20 pd setpc 2 fd 0 lt 90 fd 10");
+        assertEquals(4, turtle.segmentCount());
+        final RecordingTurtle.Cursor cursor = turtle.cursor();
+        assertSegment(cursor, 0.0, 0.0, 100.0, 0.0);
+        assertEquals(4, cursor.penColor());
+        assertTrue(cursor.isPenDown());
+        assertSegment(cursor, 100.0, 0.0, 100.0, 50.0);
+        assertSegment(cursor, 100.0, 50.0, 100.0, 30.0);
+        assertFalse(cursor.isPenDown());
+        assertSegment(cursor, 100.0, 30.0, 110.0, 30.0);
+        assertEquals(2, cursor.penColor());
+        assertTrue(cursor.isPenDown());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void runShouldGrowTheRecordingWithoutLosingSegments() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        new Interpreter().run(turtle, "for [ i 1 10000 ] [ setpc i fd i bk i ]");
+        assertEquals(20000, turtle.segmentCount());
+        final RecordingTurtle.Cursor cursor = turtle.cursor();
+        for (int i = 1; i <= 10000; i++) {
+            assertSegment(cursor, 0.0, 0.0, i, 0.0);
+            assertEquals(i, cursor.penColor());
+            assertSegment(cursor, i, 0.0, 0.0, 0.0);
+        }
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void runShouldRecordArcsAsChordsThatEndWhereTheArcEnds() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        new Interpreter().run(turtle, "arc 10 90");
+        final TurtleTransform expected = TurtleTransform.arc(10.0, 90.0);
+        final RecordingTurtle.Cursor cursor = turtle.cursor();
+        double positionX = 0.0;
+        double positionY = 0.0;
+        while (cursor.next()) {
+            assertEquals(positionX, cursor.x0(), EPSILON);
+            assertEquals(positionY, cursor.y0(), EPSILON);
+            positionX = cursor.x1();
+            positionY = cursor.y1();
+        }
+        assertEquals(90, turtle.segmentCount());
+        assertEquals(expected.translationX(), positionX, EPSILON);
+        assertEquals(expected.translationY(), positionY, EPSILON);
+    }
+
+    @Test
+    public void runShouldRecordHatchedTurtlesIntoTheSameRecording() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        new Interpreter(InterpreterOptions.defaults().withHatchExecutor(Runnable::run))
+                .run(turtle, "fd 10 hatch [ rt 90 fd 20 ] fd 30");
+        final List<List<Double>> segments = new ArrayList<>();
+        final RecordingTurtle.Cursor cursor = turtle.cursor();
+        while (cursor.next()) {
+            segments.add(Arrays.asList(cursor.x0(), cursor.y0(), (double) Math.round(cursor.x1()), (double) Math.round(cursor.y1())));
+        }
+        assertEquals(3, segments.size());
+        assertTrue(segments.contains(Arrays.asList(0.0, 0.0, 10.0, 0.0)));
+        assertTrue(segments.contains(Arrays.asList(10.0, 0.0, 10.0, 20.0)));
+        assertTrue(segments.contains(Arrays.asList(10.0, 0.0, 40.0, 0.0)));
+    }
+
+    @Test
+    public void clearShouldDiscardAllSegmentsButKeepThePosition() {
+        final RecordingTurtle turtle = new RecordingTurtle();
+        turtle.forward(10);
+        turtle.clear();
+        turtle.forward(5);
+        assertEquals(1, turtle.segmentCount());
+        final RecordingTurtle.Cursor cursor = turtle.cursor();
+        assertSegment(cursor, 10.0, 0.0, 15.0, 0.0);
+    }
+
+    private static void assertSegment(final RecordingTurtle.Cursor cursor, final double x0, final double y0, final double x1, final double y1) {
+        assertTrue(cursor.next());
+        assertEquals(x0, cursor.x0(), EPSILON);
+        assertEquals(y0, cursor.y0(), EPSILON);
+        assertEquals(x1, cursor.x1(), EPSILON);
+        assertEquals(y1, cursor.y1(), EPSILON);
+    }
+}
@@ -0,0 +1,62 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class SegmentIndexTest {
+
+    @Test
+    public void queriesShouldAgreeWithExhaustiveSearch() {
+        final Random random = new Random(7L);
+        final SegmentIndex index = new SegmentIndex(4.0);
+        final SegmentIndex exhaustive = new SegmentIndex(1000.0);
+        for (int i = 0; i < 500; i++) {
+            final double x1 = random.nextDouble() * 200 - 100;
+            final double y1 = random.nextDouble() * 200 - 100;
+            final double x2 = x1 + random.nextDouble() * 20 - 10;
+            final double y2 = i % 10 == 0 ? y1 : y1 + random.nextDouble() * 20 - 10;
+            final double x = random.nextDouble() * 300 - 150;
+            final double y = random.nextDouble() * 300 - 150;
+            assertEquals(exhaustive.distance(x, y, -1), index.distance(x, y, -1), 1e-9);
+            assertEquals(exhaustive.intersectsAny(x1, y1, x2, y2, -1), index.intersectsAny(x1, y1, x2, y2, -1));
+            index.add(x1, y1, x2, y2);
+            exhaustive.add(x1, y1, x2, y2);
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void queriesShouldAgreeWithExhaustiveSearchOnSegmentsThatSpanTooManyCells() {
+        final Random random = new Random(11L);
+        final SegmentIndex index = new SegmentIndex(4.0);
+        final SegmentIndex exhaustive = new SegmentIndex(1e13);
+        final double[] lengths = { 10.0, 1e4, 1e9, 1e12 };
+        for (int i = 0; i < 200; i++) {
+            final double length = lengths[i % lengths.length];
+            final double x1 = random.nextDouble() * 200 - 100;
+            final double y1 = random.nextDouble() * 200 - 100;
+            final double angle = random.nextDouble() * 2 * Math.PI;
+            final double x2 = x1 + Math.cos(angle) * length;
+            final double y2 = y1 + Math.sin(angle) * length;
+            final double x = random.nextDouble() * 300 - 150;
+            final double y = random.nextDouble() * 300 - 150;
+            assertEquals(exhaustive.distance(x, y, -1), index.distance(x, y, -1), 1e-6);
+            assertEquals(exhaustive.distance(x2, y2, -1), index.distance(x2, y2, -1), 1e-6);
+            assertEquals(exhaustive.intersectsAny(x1, y1, x2, y2, -1), index.intersectsAny(x1, y1, x2, y2, -1));
+            index.add(x1, y1, x2, y2);
+            exhaustive.add(x1, y1, x2, y2);
+        }
+    }
+
+    @Test
+    public void distanceShouldDisregardExcludedSegment() {
+        final SegmentIndex index = new SegmentIndex();
+        final int first = index.add(0.0, 0.0, 10.0, 0.0);
+        index.add(0.0, 30.0, 10.0, 30.0);
+        assertEquals(-1.0, new SegmentIndex().distance(0.0, 0.0, -1), 0.0);
+        assertEquals(5.0, index.distance(5.0, 5.0, -1), 1e-9);
+        assertEquals(25.0, index.distance(5.0, 5.0, first), 1e-9);
+    }
+}
@@ -0,0 +1,104 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.SegmentStore}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class SegmentStoreTest {
+
+    private static final String PROGRAM =
+            "to polyspi :side :angle :n\n" +
+            "  if n > 0 [ forward side right angle polyspi side + 3 angle n - 1 ]\n" +
+            "end\n" +
+            "setpc 3 polyspi 5 123.5 40 pu arc 20 (-90) pd setpc 11 hatch [ rt 45 fd 10 ] bk 10";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void openShouldReadBackWhatTheTurtlesOfAStoreHaveDrawn() throws Exception {
+        final SegmentStore store = new SegmentStore();
+        final InterpreterOptions options = InterpreterOptions.defaults().withHatchExecutor(Runnable::run);
+        new Interpreter(options).run(store.turtle(0.0), PROGRAM);
+        final RecordingTurtle expected = new RecordingTurtle();
+        new Interpreter(options).run(expected, PROGRAM);
+        assertSegments(expected, store);
+
+        final Path file = folder.getRoot().toPath().resolve("polyspi" + SegmentStore.FILE_EXTENSION);
+        store.writeTo(file);
+        final SegmentStore reopened = SegmentStore.open(file);
+        assertTrue(reopened.isReadOnly());
+        assertSegments(expected, reopened);
+    }
+
+    @Test
+    public void openShouldReadBackStoresThatSpanManyPages() throws Exception {
+        final SegmentStore store = new SegmentStore();
+        final Turtle turtle = store.turtle(0.0);
+        for (int i = 0; i < 200000; i++) {
+            turtle.setPenColor(i);
+            turtle.forward(1);
+        }
+        turtle.clear();
+        for (int i = 0; i < 150000; i++) {
+            turtle.setPenColor(i);
+            turtle.forward(1);
+        }
+        final Path file = folder.getRoot().toPath().resolve("line" + SegmentStore.FILE_EXTENSION);
+        store.writeTo(file);
+        assertEquals(16L + 150000L * 36L, Files.size(file));
+
+        final SegmentStore reopened = SegmentStore.open(file);
+        assertEquals(150000L, reopened.segmentCount());
+        for (long segment = 0; segment < reopened.segmentCount(); segment++) {
+            assertEquals(200000.0 + segment, reopened.x0(segment), 0.0);
+            assertEquals(200001.0 + segment, reopened.x1(segment), 0.0);
+            assertEquals(segment, reopened.penColor(segment));
+            assertTrue(reopened.isPenDown(segment));
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void openShouldThrowUncheckedIOExceptionIfTheFileIsNotASegmentFile() throws Exception {
+        final Path file = folder.newFile("square.jogo").toPath();
+        Files.write(file, "repeat 4 [ fd 100 rt 90 ]".getBytes(StandardCharsets.UTF_8));
+        SegmentStore.open(file);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void turtleShouldThrowIllegalStateExceptionIfTheStoreIsReadOnly() {
+        final Path file = folder.getRoot().toPath().resolve("empty" + SegmentStore.FILE_EXTENSION);
+        new SegmentStore().writeTo(file);
+        SegmentStore.open(file).turtle(0.0);
+    }
+
+    private static void assertSegments(final RecordingTurtle expected, final SegmentStore actual) {
+        assertEquals(expected.segmentCount(), actual.segmentCount());
+        final RecordingTurtle.Cursor cursor = expected.cursor();
+        long segment = 0;
+        while (cursor.next()) {
+            assertEquals(cursor.x0(), actual.x0(segment), 0.0);
+            assertEquals(cursor.y0(), actual.y0(segment), 0.0);
+            assertEquals(cursor.x1(), actual.x1(segment), 0.0);
+            assertEquals(cursor.y1(), actual.y1(segment), 0.0);
+            assertEquals(cursor.penColor(), actual.penColor(segment));
+            assertEquals(cursor.isPenDown(), actual.isPenDown(segment));
+            segment++;
+        }
+        assertFalse(segment < actual.segmentCount());
+    }
+}
@@ -0,0 +1,193 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.TrampolinedInterpreter}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TrampolinedInterpreterTest {
+
+    @Test
+    public void runShouldExecuteBuiltInForwardOpOnTurtle() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "forward 100 fd 100");
+        verify(turtle, times(2)).forward(100);
+    }
+
+    @Test
+    public void runShouldExecuteNestedRepeatsAndUserFunctions() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to square :size repeat 4 [ forward size right 90 ] end\n" +
+                                "repeat 3 [ square 10 ]");
+        verify(turtle, times(12)).forward(10);
+        verify(turtle, times(12)).right(90);
+    }
+
+    @Test
+    public void runShouldEvaluateElseStatementsIfElseConditionEvaluatesToFalse() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "ifelse 5 < 3 [ forward 1 ] [ right 1 ] if 5 < 3 [ forward 2 ]");
+        verify(turtle, times(0)).forward(1);
+        verify(turtle, times(1)).right(1);
+        verify(turtle, times(0)).forward(2);
+    }
+
+    @Test
+    public void runShouldExecuteCountedAndConditionalLoopsWithRepCount() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to step forward repcount end\n" +
+                                "repeat 2 [ for [i 1 2] [ step right i ] a = 0 while a < 1 [ left repcount a = a + 1 ] ]");
+        final InOrder inOrder = inOrder(turtle);
+        for (int iteration = 1; iteration <= 2; iteration++) {
+            inOrder.verify(turtle).forward(iteration);
+            inOrder.verify(turtle).right(1);
+            inOrder.verify(turtle).forward(iteration);
+            inOrder.verify(turtle).right(2);
+            inOrder.verify(turtle).left(iteration);
+        }
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void runShouldResolveVariablesOfCallingFunction() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to inner forward outerarg end\n" +
+                                "to outer :outerarg inner end\n" +
+                                "outer 42");
+        verify(turtle, times(1)).forward(42);
+    }
+
+    @Test
+    public void runShouldExecuteDeepNonTailRecursion() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to down :n if n > 0 [ down n - 1 forward 1 ] end\n" +
+                                "down 50000");
+        verify(turtle, times(50000)).forward(1);
+    }
+
+    @Test
+    public void runShouldExecuteTailRecursionInConstantSpace() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter(8);
+        interpreter.run(turtle, "to spiral :n if n > 0 [ forward 1 spiral n - 1 ] end\n" +
+                                "spiral 10000");
+        verify(turtle, times(10000)).forward(1);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfFrameBudgetIsExceeded() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter(100);
+        interpreter.run(turtle, "to down :n if n > 0 [ down n - 1 forward 1 ] end\n" +
+                                "down 1000");
+    }
+
+    @Test
+    public void stepShouldReturnAfterAtMostTheGivenNumberOfTurtleCommands() {
+        final Turtle turtle = mock(Turtle.class);
+        final Continuation continuation = new TrampolinedInterpreter().start(turtle,
+                "to square :size repeat 4 [ forward size right 90 ] end\n" +
+                "repeat 2 [ square 10 ]");
+
+        assertEquals(3, continuation.step(3));
+        verify(turtle, times(2)).forward(10);
+        verify(turtle, times(1)).right(90);
+        assertFalse(continuation.isDone());
+
+        assertEquals(13, continuation.step(100));
+        verify(turtle, times(8)).forward(10);
+        verify(turtle, times(8)).right(90);
+        assertTrue(continuation.isDone());
+        assertEquals(16, continuation.issuedCommands());
+    }
+
+    @Test
+    public void stepShouldReturnAfterAtMostTheGivenNumberOfStatements() {
+        final Turtle turtle = mock(Turtle.class);
+        final Continuation continuation = new TrampolinedInterpreter().start(turtle,
+                "a = 0 repeat 1000 [ a = a + 1 ] forward a");
+
+        assertEquals(0, continuation.step(1, 10));
+        assertFalse(continuation.isDone());
+        continuation.resumeToCompletion();
+        verify(turtle).forward(1000);
+    }
+
+    @Test
+    public void runShouldEvaluateCallsOfFunctionsThatOutputValues() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to factorial :n if n < 2 [ output 1 ] output n * factorial n - 1 end\n" +
+                                "repeat 2 [ forward (factorial 3) + repcount ]");
+        verify(turtle).forward(7);
+        verify(turtle).forward(8);
+    }
+
+    @Test
+    public void runShouldExecuteDeepRecursionThroughOutputOnTheHeap() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to sum :n if n == 0 [ output 0 ] output n + sum n - 1 end\n" +
+                                "forward sum 100000.0");
+        verify(turtle).forward(5000050000.0);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldCountFunctionsCalledWithinExpressionsTowardsTheFrameBudget() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter(100);
+        interpreter.run(turtle, "to depth :n if n == 0 [ output 0 ] output 1 + depth n - 1 end\n" +
+                                "forward depth 1000");
+    }
+
+    @Test
+    public void runShouldEvaluateOperandsInOrderAroundFunctionsCalledWithinExpressions() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter();
+        interpreter.run(turtle, "to twice :x forward x output 2 * x end\n" +
+                                "forward (twice 1) + (twice 2)\n" +
+                                "if 1 == 2 and (twice 3) > 0 [ right 1 ]\n" +
+                                "n = 0 while (twice n) < 4 [ n = n + 1 ]");
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(1);
+        inOrder.verify(turtle).forward(2);
+        inOrder.verify(turtle).forward(6);
+        inOrder.verify(turtle).forward(0);
+        inOrder.verify(turtle).forward(1);
+        inOrder.verify(turtle).forward(2);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test(expected = InterpreterException.class)
+    public void runShouldThrowInterpreterExceptionIfAFunctionCalledWithinAnExpressionStops() {
+        new TrampolinedInterpreter().run(mock(Turtle.class), "to f if 1 == 1 [ stop ] output 1 end forward f");
+    }
+
+    @Test
+    public void runShouldLeaveFunctionOnStopInConstantSpace() {
+        final Turtle turtle = mock(Turtle.class);
+        final TrampolinedInterpreter interpreter = new TrampolinedInterpreter(8);
+        interpreter.run(turtle, "to spiral :n repeat 2 [ if n == 0 [ stop ] ] forward 1 spiral n - 1 end\n" +
+                                "spiral 10000 right 1");
+        verify(turtle, times(10000)).forward(1);
+        verify(turtle).right(1);
+    }
+}
@@ -0,0 +1,145 @@
+package com.mgu.jogo.interpreter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Set of unit tests for {@link com.mgu.jogo.interpreter.TurtleCommandPublisher}.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TurtleCommandPublisherTest {
+
+    @Test
+    public void subscribeShouldPublishNoMoreCommandsThanRequested() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("repeat 5 [ forward 1 ] right 90", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(2);
+        publisher.subscribe(subscriber);
+
+        assertEquals(2, subscriber.items.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+
+        assertEquals(6, subscriber.items.size());
+        assertEquals(TurtleCommand.forward(1), subscriber.items.get(4));
+        assertEquals(TurtleCommand.right(90), subscriber.items.get(5));
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void subscribeShouldQueueCommandsThatExceedTheDemand() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("polygon 3 10 right 90", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        assertEquals(1, subscriber.items.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(3);
+
+        assertEquals(4, subscriber.items.size());
+        assertFalse(subscriber.completed);
+
+        subscriber.subscription.request(10);
+
+        assertEquals(7, subscriber.items.size());
+        assertEquals(TurtleCommand.right(90), subscriber.items.get(6));
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void subscribeShouldCompleteAsSoonAsTheLastCommandHasBeenPublished() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("a = 2 forward a", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(1);
+        publisher.subscribe(subscriber);
+
+        assertEquals(1, subscriber.items.size());
+        assertTrue(subscriber.completed);
+    }
+
+    @Test
+    public void subscribeShouldSignalErrorOnNonPositiveDemand() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("forward 1", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(0);
+        publisher.subscribe(subscriber);
+
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    public void subscribeShouldSignalErrorIfProgramFails() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("forward 1 forward b", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        assertEquals(1, subscriber.items.size());
+        assertTrue(subscriber.error instanceof InterpreterException);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    public void subscribeShouldPublishCommandsOfHatchedTurtlesAndCarryOverBetweenTurtlesWithPenUp() {
+        final TurtleCommandPublisher publisher = new TurtleCommandPublisher("hatch [ forward 10 ] forward 5", Runnable::run);
+        final CollectingSubscriber subscriber = new CollectingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+
+        assertEquals(Arrays.asList(
+                TurtleCommand.forward(5),
+                TurtleCommand.penUp(),
+                TurtleCommand.right(180.0),
+                TurtleCommand.forward(5.0),
+                TurtleCommand.right(-180.0),
+                TurtleCommand.penDown(),
+                TurtleCommand.forward(10)), subscriber.items);
+        assertNull(subscriber.error);
+        assertTrue(subscriber.completed);
+    }
+
+    private static class CollectingSubscriber implements Flow.Subscriber<TurtleCommand> {
+
+        private final long initialDemand;
+
+        private final List<TurtleCommand> items = new ArrayList<>();
+
+        private Flow.Subscription subscription;
+
+        private Throwable error;
+
+        private boolean completed = false;
+
+        private CollectingSubscriber(final long initialDemand) {
+            this.initialDemand = initialDemand;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(this.initialDemand);
+        }
+
+        @Override
+        public void onNext(final TurtleCommand item) {
+            this.items.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.mgu.jogo.lsystem;
+
+import com.mgu.jogo.interpreter.Turtle;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Immutable, deterministic and context-free L-system, given by an axiom and a set of
+ * production rules that rewrite single symbols into words. Symbols without a production
+ * rule are constants, which rewrite into themselves.
+ *
+ * The words an L-system derives grow exponentially with the number of rewriting steps.
+ * Hence, this implementation never materializes them. {@link #expand(int, Consumer)}
+ * rewrites lazily and depth-first: it keeps an explicit stack with one cursor per
+ * rewriting step and emits every terminal symbol as soon as it is reached, so expanding
+ * <code>depth</code> steps requires memory proportional to <code>depth</code> only. Use
+ * the <code>with</code>-methods to derive a copy with an additional production rule.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class LSystem {
+
+    private final String axiom;
+
+    private final Map<Character, String> productions;
+
+    /**
+     * @param axiom
+     *      the word the derivation starts with
+     */
+    public LSystem(final String axiom) {
+        this(axiom, Collections.emptyMap());
+    }
+
+    private LSystem(final String axiom, final Map<Character, String> productions) {
+        if (axiom == null) {
+            throw new IllegalArgumentException("The axiom of an L-system must not be null.");
+        }
+        this.axiom = axiom;
+        this.productions = productions;
+    }
+
+    /**
+     * @param symbol
+     *      the symbol that is rewritten
+     * @param successor
+     *      the word the symbol is rewritten into
+     * @throws IllegalArgumentException
+     *      if there already is a production rule for the given symbol
+     * @return
+     *      copy of this L-system that additionally rewrites the given symbol
+     */
+    public LSystem withProduction(final char symbol, final String successor) {
+        if (successor == null) {
+            throw new IllegalArgumentException("The successor of symbol " + symbol + " must not be null.");
+        }
+        if (this.productions.containsKey(symbol)) {
+            throw new IllegalArgumentException("Unable to add a production rule for symbol " + symbol + ", since it is already rewritten.");
+        }
+        final Map<Character, String> productions = new HashMap<>(this.productions);
+        productions.put(symbol, successor);
+        return new LSystem(this.axiom, Collections.unmodifiableMap(productions));
+    }
+
+    public String axiom() {
+        return this.axiom;
+    }
+
+    public Map<Character, String> productions() {
+        return this.productions;
+    }
+
+    /**
+     * Derives the word after <code>depth</code> rewriting steps and emits its symbols
+     * in order. Symbols that still have a production rule after the last step are
+     * emitted unexpanded.
+     *
+     * @param depth
+     *      number of rewriting steps
+     * @param consumer
+     *      receives the symbols of the derived word
+     * @throws IllegalArgumentException
+     *      if the depth is negative
+     */
+    public void expand(final int depth, final Consumer<Character> consumer) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("The number of rewriting steps must not be negative.");
+        }
+        final String[] words = new String[depth + 1];
+        final int[] cursors = new int[depth + 1];
+        words[0] = this.axiom;
+        int top = 0;
+        while (top >= 0) {
+            final String word = words[top];
+            if (cursors[top] == word.length()) {
+                top--;
+                continue;
+            }
+            final char symbol = word.charAt(cursors[top]++);
+            final String successor = top < depth ? this.productions.get(symbol) : null;
+            if (successor == null) {
+                consumer.accept(symbol);
+            } else {
+                top++;
+                words[top] = successor;
+                cursors[top] = 0;
+            }
+        }
+    }
+
+    /**
+     * Derives the word after <code>depth</code> rewriting steps and interprets it by
+     * means of a {@link TurtleInterpretation} as it is derived.
+     *
+     * @param depth
+     *      number of rewriting steps
+     * @param turtle
+     *      the <code>Turtle</code> that draws the derived word
+     * @param step
+     *      number of steps the turtle moves for each segment
+     * @param angle
+     *      degrees the turtle turns for each turn symbol
+     */
+    public void draw(final int depth, final Turtle turtle, final double step, final double angle) {
+        expand(depth, new TurtleInterpretation(turtle, step, angle));
+    }
+
+    @Override
+    public String toString() {
+        return "LSystem{axiom='" + this.axiom + "', productions=" + this.productions + "}";
+    }
+}
@@ -0,0 +1,142 @@
+package com.mgu.jogo.lsystem;
+
+import com.mgu.jogo.interpreter.Turtle;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Interprets the symbols of a word that an {@link LSystem} derives as commands for a
+ * <code>Turtle</code>, using the customary turtle interpretation of L-systems:
+ *
+ * <pre>
+ * F, G  move forward by one step and draw a line
+ * f     move forward by one step without drawing a line
+ * +     turn left by the angle
+ * -     turn right by the angle
+ * |     turn around
+ * [     save the current position and heading of the turtle
+ * ]     return to the most recently saved position and heading without drawing a line
+ * </pre>
+ *
+ * Every other symbol is ignored. The <code>Turtle</code> interface does not allow to set
+ * the position or the heading of a turtle, so this interpretation keeps track of both
+ * on its own and returns to a saved state by turning towards the saved position,
+ * moving there with the pen up and turning into the saved heading. It expects the pen
+ * of the turtle to be down initially.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public class TurtleInterpretation implements Consumer<Character> {
+
+    private static final double EPSILON = 1e-9;
+
+    private final Turtle turtle;
+
+    private final double step;
+
+    private final double angle;
+
+    private final Deque<double[]> savedStates = new ArrayDeque<>();
+
+    private double positionX = 0.0;
+
+    private double positionY = 0.0;
+
+    private double heading = 0.0;
+
+    /**
+     * @param turtle
+     *      the <code>Turtle</code> that draws the interpreted symbols
+     * @param step
+     *      number of steps the turtle moves for each segment
+     * @param angle
+     *      degrees the turtle turns for each turn symbol
+     */
+    public TurtleInterpretation(final Turtle turtle, final double step, final double angle) {
+        this.turtle = turtle;
+        this.step = step;
+        this.angle = angle;
+    }
+
+    @Override
+    public void accept(final Character symbol) {
+        switch (symbol) {
+            case 'F':
+            case 'G':
+                forward(this.step);
+                break;
+            case 'f':
+                this.turtle.penUp();
+                forward(this.step);
+                this.turtle.penDown();
+                break;
+            case '+':
+                right(-this.angle);
+                break;
+            case '-':
+                right(this.angle);
+                break;
+            case '|':
+                right(180.0);
+                break;
+            case '[':
+                this.savedStates.push(new double[] { this.positionX, this.positionY, this.heading });
+                break;
+            case ']':
+                if (this.savedStates.isEmpty()) {
+                    throw new IllegalStateException("Unable to return to a saved state, since no state has been saved.");
+                }
+                returnTo(this.savedStates.pop());
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void forward(final double steps) {
+        this.turtle.forward(steps);
+        this.positionX += Math.cos(Math.toRadians(this.heading)) * steps;
+        this.positionY += Math.sin(Math.toRadians(this.heading)) * steps;
+    }
+
+    private void right(final double degrees) {
+        this.turtle.right(degrees);
+        this.heading += degrees;
+    }
+
+    private void returnTo(final double[] state) {
+        final double deltaX = state[0] - this.positionX;
+        final double deltaY = state[1] - this.positionY;
+        final double distance = Math.hypot(deltaX, deltaY);
+        if (distance > EPSILON) {
+            turnTowards(Math.toDegrees(Math.atan2(deltaY, deltaX)));
+            this.turtle.penUp();
+            this.turtle.forward(distance);
+            this.turtle.penDown();
+        }
+        turnTowards(state[2]);
+        this.positionX = state[0];
+        this.positionY = state[1];
+        this.heading = state[2];
+    }
+
+    private void turnTowards(final double targetHeading) {
+        final double degrees = normalize(targetHeading - this.heading);
+        if (Math.abs(degrees) > EPSILON) {
+            this.turtle.right(degrees);
+        }
+        this.heading = targetHeading;
+    }
+
+    private static double normalize(final double degrees) {
+        final double normalized = degrees % 360.0;
+        if (normalized > 180.0) {
+            return normalized - 360.0;
+        } else if (normalized <= -180.0) {
+            return normalized + 360.0;
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,62 @@
+package com.mgu.jogo.lsystem;
+
+import com.mgu.jogo.interpreter.Turtle;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class LSystemTest {
+
+    @Test
+    public void expandShouldDeriveWordAfterGivenNumberOfRewritingSteps() {
+        final LSystem algae = new LSystem("A").withProduction('A', "AB").withProduction('B', "A");
+        assertThat(derive(algae, 0), is("A"));
+        assertThat(derive(algae, 1), is("AB"));
+        assertThat(derive(algae, 4), is("ABAABABA"));
+    }
+
+    @Test
+    public void expandShouldRewriteEverySymbolInParallel() {
+        final LSystem system = new LSystem("F[X]").withProduction('X', "F-X").withProduction('F', "FF");
+        assertThat(derive(system, 2), is("FFFF[FF-F-X]"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void withProductionShouldThrowIllegalArgumentExceptionIfSymbolIsAlreadyRewritten() {
+        new LSystem("F").withProduction('F', "F+F").withProduction('F', "F-F");
+    }
+
+    @Test
+    public void drawShouldRenderDeepDerivationsWithoutMaterializingThem() {
+        final LSystem dragon = new LSystem("FX").withProduction('X', "X+YF+").withProduction('Y', "-FX-Y");
+        final SegmentCountingTurtle turtle = new SegmentCountingTurtle();
+        dragon.draw(15, turtle, 1.0, 90.0);
+        assertThat(turtle.segments, is(1 << 15));
+    }
+
+    private static String derive(final LSystem system, final int depth) {
+        final StringBuilder word = new StringBuilder();
+        system.expand(depth, word::append);
+        return word.toString();
+    }
+
+    private static class SegmentCountingTurtle implements Turtle {
+
+        private int segments = 0;
+
+        @Override public void clear() {}
+        @Override public void hide() {}
+        @Override public void show() {}
+        @Override public void penUp() {}
+        @Override public void penDown() {}
+        @Override public void setPenColor(int penColor) {}
+        @Override public void left(int degrees) {}
+        @Override public void right(int degrees) {}
+        @Override public void back(int steps) {}
+        @Override public void forward(int steps) {}
+        @Override public void right(double degrees) {}
+        @Override public void forward(double steps) { this.segments++; }
+        @Override public void move(int positionX, int positionY) {}
+    }
+}
@@ -0,0 +1,49 @@
+package com.mgu.jogo.lsystem;
+
+import com.mgu.jogo.interpreter.Turtle;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+public class TurtleInterpretationTest {
+
+    @Test
+    public void acceptShouldIssueTurtleCommandsForSymbols() {
+        final Turtle turtle = mock(Turtle.class);
+        final TurtleInterpretation interpretation = new TurtleInterpretation(turtle, 10.0, 90.0);
+        "F+f-X|".chars().forEach(symbol -> interpretation.accept((char) symbol));
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(10.0);
+        inOrder.verify(turtle).right(-90.0);
+        inOrder.verify(turtle).penUp();
+        inOrder.verify(turtle).forward(10.0);
+        inOrder.verify(turtle).penDown();
+        inOrder.verify(turtle).right(90.0);
+        inOrder.verify(turtle).right(180.0);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test
+    public void acceptShouldReturnToSavedStateWithPenUp() {
+        final Turtle turtle = mock(Turtle.class);
+        final TurtleInterpretation interpretation = new TurtleInterpretation(turtle, 10.0, 90.0);
+        "[F]+".chars().forEach(symbol -> interpretation.accept((char) symbol));
+        final InOrder inOrder = inOrder(turtle);
+        inOrder.verify(turtle).forward(10.0);
+        inOrder.verify(turtle).right(180.0);
+        inOrder.verify(turtle).penUp();
+        inOrder.verify(turtle).forward(10.0);
+        inOrder.verify(turtle).penDown();
+        inOrder.verify(turtle).right(180.0);
+        inOrder.verify(turtle).right(-90.0);
+        verifyNoMoreInteractions(turtle);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void acceptShouldThrowIllegalStateExceptionIfNoStateHasBeenSaved() {
+        new TurtleInterpretation(mock(Turtle.class), 10.0, 90.0).accept(']');
+    }
+}
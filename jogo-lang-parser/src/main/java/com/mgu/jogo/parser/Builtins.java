@@ -33,7 +33,11 @@ public enum Builtins {
 
     LEFT(Arrays.asList("left", "lt"), 1),
 
-    RIGHT(Arrays.asList("right", "rt"), 1);
+    RIGHT(Arrays.asList("right", "rt"), 1),
+
+    ARC(Arrays.asList("arc"), 2),
+
+    CIRCLE(Arrays.asList("circle"), 1);
 
     private final List<String> aliases;
 
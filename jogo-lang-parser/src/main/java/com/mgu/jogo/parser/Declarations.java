@@ -0,0 +1,112 @@
+package com.mgu.jogo.parser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable set of procedures that are not defined by the program itself, but are known
+ * to the parser in advance, such as native procedures that the host implements in Java or
+ * procedures of a library that has been parsed before. Calls to declared procedures are
+ * parsed just like calls to built-in procedures, i.e. with the declared number of
+ * arguments. Use the <code>with</code>-methods to derive a copy with an additional
+ * declaration.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public final class Declarations {
+
+    private static final Declarations NONE = new Declarations(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, Integer> nativeProcedures;
+
+    private final Map<String, Integer> procedures;
+
+    private Declarations(final Map<String, Integer> nativeProcedures, final Map<String, Integer> procedures) {
+        this.nativeProcedures = nativeProcedures;
+        this.procedures = procedures;
+    }
+
+    /**
+     * @return
+     *      Yields the empty set of declarations
+     */
+    public static Declarations none() {
+        return NONE;
+    }
+
+    /**
+     * @param procedureName
+     *      name of the native procedure
+     * @param arity
+     *      number of arguments the native procedure takes
+     * @throws IllegalArgumentException
+     *      if the name is already taken by a built-in procedure, an intrinsic or another
+     *      declaration, or if the arity is negative
+     * @return
+     *      copy of these declarations that additionally declares the given native procedure
+     */
+    public Declarations withNativeProcedure(final String procedureName, final int arity) {
+        if (arity < 0) {
+            throw new IllegalArgumentException("The arity of native procedure " + procedureName + " must not be negative.");
+        }
+        if (isTaken(procedureName)) {
+            throw new IllegalArgumentException("Unable to declare native procedure " + procedureName + ", since the name is already taken.");
+        }
+        final Map<String, Integer> nativeProcedures = new HashMap<>(this.nativeProcedures);
+        nativeProcedures.put(procedureName, arity);
+        return new Declarations(Collections.unmodifiableMap(nativeProcedures), this.procedures);
+    }
+
+    /**
+     * Declares a procedure that is written in LOGO, but defined outside of the program,
+     * e.g. by a library that has been parsed before. Calls to such procedures are parsed
+     * as calls to user-defined functions. Just like a function the program defines, a
+     * procedure named like a built-in procedure shadows it.
+     *
+     * @param procedureName
+     *      name of the procedure
+     * @param arity
+     *      number of arguments the procedure takes
+     * @throws IllegalArgumentException
+     *      if the name is already taken by an intrinsic or another declaration, or if the
+     *      arity is negative
+     * @return
+     *      copy of these declarations that additionally declares the given procedure
+     */
+    public Declarations withProcedure(final String procedureName, final int arity) {
+        if (arity < 0) {
+            throw new IllegalArgumentException("The arity of procedure " + procedureName + " must not be negative.");
+        }
+        if (Intrinsics.isIntrinsic(procedureName) || isNativeProcedure(procedureName) || isProcedure(procedureName)) {
+            throw new IllegalArgumentException("Unable to declare procedure " + procedureName + ", since the name is already taken.");
+        }
+        final Map<String, Integer> procedures = new HashMap<>(this.procedures);
+        procedures.put(procedureName, arity);
+        return new Declarations(this.nativeProcedures, Collections.unmodifiableMap(procedures));
+    }
+
+    private boolean isTaken(final String procedureName) {
+        return Builtins.isBuiltin(procedureName)
+                || Intrinsics.isIntrinsic(procedureName)
+                || isNativeProcedure(procedureName)
+                || isProcedure(procedureName);
+    }
+
+    public boolean isNativeProcedure(final String procedureName) {
+        return this.nativeProcedures.containsKey(procedureName);
+    }
+
+    public boolean isProcedure(final String procedureName) {
+        return this.procedures.containsKey(procedureName);
+    }
+
+    public int arity(final String procedureName) {
+        final Integer nativeArity = this.nativeProcedures.get(procedureName);
+        final Integer arity = nativeArity != null ? nativeArity : this.procedures.get(procedureName);
+        if (arity == null) {
+            throw new ParserException("Unable to identify arity of procedure " + procedureName + ".");
+        }
+        return arity;
+    }
+}
@@ -0,0 +1,82 @@
+package com.mgu.jogo.parser;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Defines all built-in reporters this LOGO implementation is able to evaluate
+ * within expressions. Unlike built-in procedures, intrinsics do not operate on the
+ * turtle, but compute a value from their arguments. All intrinsics but <code>random</code>
+ * are deterministic, i.e. their value depends on nothing but their arguments.
+ *
+ * @author Markus Günther <markus.guenther@gmail.com>
+ */
+public enum Intrinsics {
+
+    SIN(Arrays.asList("sin"), 1),
+
+    COS(Arrays.asList("cos"), 1),
+
+    SQRT(Arrays.asList("sqrt"), 1),
+
+    ABS(Arrays.asList("abs"), 1),
+
+    ROUND(Arrays.asList("round"), 1),
+
+    MIN(Arrays.asList("min"), 2),
+
+    MAX(Arrays.asList("max"), 2),
+
+    MOD(Arrays.asList("mod", "modulo"), 2),
+
+    RANDOM(Arrays.asList("random"), 1, false),
+
+    TOUCHING(Arrays.asList("touching", "touchingp"), 0, false),
+
+    DISTANCE(Arrays.asList("distance"), 0, false);
+
+    private final List<String> aliases;
+
+    private final int numberOfArguments;
+
+    private final boolean deterministic;
+
+    private Intrinsics(final List<String> aliases, final int numberOfArguments) {
+        this(aliases, numberOfArguments, true);
+    }
+
+    private Intrinsics(final List<String> aliases, final int numberOfArguments, final boolean deterministic) {
+        this.aliases = aliases;
+        this.numberOfArguments = numberOfArguments;
+        this.deterministic = deterministic;
+    }
+
+    public List<String> aliases() {
+        return Collections.unmodifiableList(this.aliases);
+    }
+
+    public int arity() {
+        return this.numberOfArguments;
+    }
+
+    public boolean isDeterministic() {
+        return this.deterministic;
+    }
+
+    private boolean knownAs(final String reporterName) {
+        return this.aliases.contains(reporterName);
+    }
+
+    public static boolean isIntrinsic(final String reporterName) {
+        return lookup(reporterName).isPresent();
+    }
+
+    public static Optional<Intrinsics> lookup(final String reporterName) {
+        return Arrays
+                .stream(Intrinsics.values())
+                .filter(intrinsic -> intrinsic.knownAs(reporterName))
+                .findFirst();
+    }
+}
@@ -224,8 +224,15 @@ public class Lexer {
         final StringBuilder buffer = new StringBuilder();
         buffer.append(this.currentCharacter);
         boolean detectedTokenBoundary = false;
+        boolean detectedDecimalPoint = false;
         while (!noMoreCharacters()) {
             consume();
+            if (!detectedDecimalPoint && isDecimalPoint()) {
+                // a decimal point only belongs to the number if it is followed by a digit
+                detectedDecimalPoint = true;
+                buffer.append(this.currentCharacter);
+                continue;
+            }
             if (isWhitespace()) {
                 detectedTokenBoundary = true;
                 break;
@@ -242,6 +249,10 @@ public class Lexer {
         return buffer.toString();
     }
 
+    private boolean isDecimalPoint() {
+        return this.currentCharacter == '.' && !noMoreCharacters() && CharUtils.isAsciiNumeric(this.input.charAt(this.index));
+    }
+
     private boolean isAlpha() {
         return CharUtils.isAsciiAlpha(this.currentCharacter);
     }
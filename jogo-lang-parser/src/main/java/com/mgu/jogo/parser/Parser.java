@@ -19,6 +19,10 @@ import java.util.Map;
  *                      | SPECIAL-FORM
  *                      | FUNCTION-CALL <VARARGS>
  *                      | ASSIGNMENT
+ *                      | ARRAY-UPDATE
+ *                      | stop
+ *                      | output EXPRESSION
+ *                      | op EXPRESSION
  * BUILT-IN            := forward EXPRESSION
  *                      | fd EXPRESSION
  *                      | back EXPRESSION
@@ -41,15 +45,27 @@ import java.util.Map;
  *                      | ht
  *                      | showturtle
  *                      | st
+ *                      | arc EXPRESSION.radius EXPRESSION.degrees
+ *                      | circle EXPRESSION.radius
  * SPECIAL-FORM        := FUNCTION-DEFINITION
  *                      | CONTROL-STRUCTURE
  * FUNCTION-DEFINITION := to ARG-DEF STATEMENTS end
+ *                        (a function named like a built-in shadows it in all statements that follow)
  * ARG-DEF             := :ARG-NAME
  *                      | :ARG-NAME ARG-DEF
  * CONTROL-STRUCTURE   := repeat EXPRESSION [ STATEMENTS ]
  *                      | if EXPRESSION [ STATEMENTS ]
  *                      | ifelse EXPRESSION [ STATEMENTS.true ] [ STATEMENTS.false ]
+ *                      | for [ VARIABLE EXPRESSION.start EXPRESSION.end ] [ STATEMENTS ]
+ *                      | for [ VARIABLE EXPRESSION.start EXPRESSION.end EXPRESSION.step ] [ STATEMENTS ]
+ *                        (negative steps must be braced, since "1 -2" parses as a subtraction)
+ *                      | while EXPRESSION [ STATEMENTS ]
+ *                      | hatch [ STATEMENTS ]
+ *                        (runs the statements on another turtle, concurrently to the hatching one)
+ * ARRAY-UPDATE        := setitem EXPRESSION.index EXPRESSION.array EXPRESSION.value
+ * RERANDOM            := rerandom EXPRESSION.seed
  * FUNCTION-CALL       := FUNCTION-NAME <VARARGS>
+ *                        (including calls to declared procedures, cf. Declarations)
  * FUNCTION-NAME       := LITERAL
  * EXPRESSION          := OR-CLAUSE
  * OR-CLAUSE           := AND-CLAUSE
@@ -73,13 +89,33 @@ import java.util.Map;
  * SIMPLE-EXPRESSION   := NUMBER
  *                      | VARIABLE
  *                      | BOOLEAN
+ *                      | repcount
+ *                      | array EXPRESSION.length
+ *                      | item EXPRESSION.index EXPRESSION.array
+ *                      | INTRINSIC <VARARGS>
+ *                      | FUNCTION-NAME <VARARGS>
+ *                        (the value of the call is the value the function outputs)
  *                      | ( EXPRESSION )
  * NUMBER              := [0-9]+
+ *                      | [0-9]+ . [0-9]+
  * VARIABLE            := LITERAL
  * LITERAL             := [A-Za-z][A-Za-z0-9]*
  * BOOLEAN             := true
  *                      | false
  * ASSIGNMENT          := VARIABLE = EXPRESSION
+ * INTRINSIC           := sin EXPRESSION
+ *                      | cos EXPRESSION
+ *                      | sqrt EXPRESSION
+ *                      | abs EXPRESSION
+ *                      | round EXPRESSION
+ *                      | min EXPRESSION EXPRESSION
+ *                      | max EXPRESSION EXPRESSION
+ *                      | mod EXPRESSION EXPRESSION
+ *                      | modulo EXPRESSION EXPRESSION
+ *                      | random EXPRESSION
+ *                      | touching
+ *                      | touchingp
+ *                      | distance
  *
  * @author Markus Günther <markus.guenther@gmail.com>
  */
@@ -96,13 +132,29 @@ public class Parser {
      */
     private final Map<String, Integer> userDefinedFunctions = new HashMap<>();
 
+    /**
+     * Procedures that are known in advance, but not defined by the program.
+     */
+    private final Declarations declarations;
+
     /**
      * 2-token-wide look-ahead
      */
     private final Token[] lookahead = new Token[2];
 
     public Parser(final String program) {
+        this(program, Declarations.none());
+    }
+
+    /**
+     * @param program
+     *      the LOGO program to parse
+     * @param declarations
+     *      procedures that the program may call without defining them
+     */
+    public Parser(final String program, final Declarations declarations) {
         this.lexer = new Lexer(program);
+        this.declarations = declarations;
         this.lookahead[0] = this.lexer.nextToken();
         this.lookahead[1] = this.lexer.nextToken();
     }
@@ -175,12 +227,24 @@ public class Parser {
     private StatementNode parseStatement() {
         if (isBuiltin()) {
             return parseBuiltin();
+        } else if (isNativeProcedure()) {
+            return parseNativeProcedureCall();
         } else if (isSpecialForm()) {
             return parseSpecialForm();
         } else if (isUserDefinedFunction()) {
             return parseFunctionCall();
         } else if (isAssignment()) {
             return parseAssignment();
+        } else if (isStop()) {
+            match(Token.TokenType.CHARACTERS, "stop");
+            return new StopNode();
+        } else if (isOutput()) {
+            match(Token.TokenType.CHARACTERS);
+            return new OutputNode(parseExpression());
+        } else if (isSetItem()) {
+            return parseSetItem();
+        } else if (isRerandom()) {
+            return parseRerandom();
         } else {
             throw new ParserException("Unable to parse statement.");
         }
@@ -188,7 +252,9 @@ public class Parser {
 
     private boolean isBuiltin() {
         final String functionName = lookahead(1).value();
-        return Builtins.isBuiltin(functionName);
+        return Builtins.isBuiltin(functionName)
+                && !this.userDefinedFunctions.containsKey(functionName)
+                && !this.declarations.isProcedure(functionName);
     }
 
     private StatementNode parseBuiltin() {
@@ -198,6 +264,17 @@ public class Parser {
         return new FunctionCallNode(tokenFunction.value(), arity, true, argumentNodes);
     }
 
+    private boolean isNativeProcedure() {
+        return this.declarations.isNativeProcedure(lookahead(1).value());
+    }
+
+    private StatementNode parseNativeProcedureCall() {
+        final int arity = this.declarations.arity(lookahead(1).value());
+        final Token tokenFunction = match(Token.TokenType.CHARACTERS);
+        final List<ExpressionNode> argumentNodes = parseArguments(arity);
+        return new FunctionCallNode(tokenFunction.value(), arity, false, true, argumentNodes);
+    }
+
     private List<ExpressionNode> parseArguments(final int arity) {
         final List<ExpressionNode> arguments = new ArrayList<>();
         for (int i = 0; i < arity; i++) {
@@ -213,6 +290,9 @@ public class Parser {
 
     private ExpressionNode parseNumber() {
         final Token matchedToken = match(Token.TokenType.NUMBER);
+        if (matchedToken.value().indexOf('.') >= 0) {
+            return new NumberNode(Double.parseDouble(matchedToken.value()));
+        }
         final int number = Integer.valueOf(matchedToken.value());
         return new NumberNode(number);
     }
@@ -238,7 +318,7 @@ public class Parser {
     }
 
     private boolean isSpecialForm() {
-        return isFunctionDefinition() || isRepeat() || isIf() || isIfElse();
+        return isFunctionDefinition() || isRepeat() || isIf() || isIfElse() || isFor() || isWhile() || isHatch();
     }
 
     private StatementNode parseSpecialForm() {
@@ -250,6 +330,12 @@ public class Parser {
             return parseIf();
         } else if (isIfElse()) {
             return parseIfElse();
+        } else if (isFor()) {
+            return parseFor();
+        } else if (isWhile()) {
+            return parseWhile();
+        } else if (isHatch()) {
+            return parseHatch();
         } else {
             throw new ParserException("Expected either special form \"to\" or \"repeat\"");
         }
@@ -271,6 +357,18 @@ public class Parser {
         return lookahead(1).value().equalsIgnoreCase("ifelse");
     }
 
+    private boolean isFor() {
+        return lookahead(1).value().equalsIgnoreCase("for");
+    }
+
+    private boolean isWhile() {
+        return lookahead(1).value().equalsIgnoreCase("while");
+    }
+
+    private boolean isHatch() {
+        return lookahead(1).value().equalsIgnoreCase("hatch");
+    }
+
     private StatementNode parseRepeat() {
         match(Token.TokenType.CHARACTERS, "repeat");
         final ExpressionNode times = isCharacters() ? parseVariableReference() : parseNumber();
@@ -301,11 +399,44 @@ public class Parser {
         return new IfNode(condition, thenStatements, elseStatements);
     }
 
+    private StatementNode parseFor() {
+        match(Token.TokenType.CHARACTERS, "for");
+        match(Token.TokenType.BRACKET_LEFT);
+        final Token variableToken = match(Token.TokenType.CHARACTERS);
+        final ExpressionNode start = parseExpression();
+        final ExpressionNode end = parseExpression();
+        final ExpressionNode step = lookahead(1).matchesType(Token.TokenType.BRACKET_RIGHT) ? null : parseExpression();
+        match(Token.TokenType.BRACKET_RIGHT);
+        match(Token.TokenType.BRACKET_LEFT);
+        final List<StatementNode> statements = parseStatements();
+        match(Token.TokenType.BRACKET_RIGHT);
+        return new ForNode(variableToken.value(), start, end, step, statements);
+    }
+
+    private StatementNode parseWhile() {
+        match(Token.TokenType.CHARACTERS, "while");
+        final ExpressionNode condition = parseExpression();
+        match(Token.TokenType.BRACKET_LEFT);
+        final List<StatementNode> statements = parseStatements();
+        match(Token.TokenType.BRACKET_RIGHT);
+        return new WhileNode(condition, statements);
+    }
+
+    private StatementNode parseHatch() {
+        match(Token.TokenType.CHARACTERS, "hatch");
+        match(Token.TokenType.BRACKET_LEFT);
+        final List<StatementNode> statements = parseStatements();
+        match(Token.TokenType.BRACKET_RIGHT);
+        return new HatchNode(statements);
+    }
+
     private StatementNode parseFunctionDefinition() {
         match(Token.TokenType.CHARACTERS, "to");
         final Token functionNameToken = match(Token.TokenType.CHARACTERS);
         final String functionName = functionNameToken.value();
-        if (this.userDefinedFunctions.containsKey(functionName)) {
+        if (this.userDefinedFunctions.containsKey(functionName)
+                || this.declarations.isNativeProcedure(functionName)
+                || this.declarations.isProcedure(functionName)) {
             throw new ParserException("Function " + functionName + " has ambiguous definitions.");
         }
         final List<ArgumentDefinitionNode> argumentDefinitionNodes = parseArgumentDefinitions();
@@ -343,18 +474,27 @@ public class Parser {
 
     private boolean isUserDefinedFunction() {
         final String functionName = lookahead(1).value();
-        return this.userDefinedFunctions.containsKey(functionName);
+        return this.userDefinedFunctions.containsKey(functionName) || this.declarations.isProcedure(functionName);
     }
 
     private StatementNode parseFunctionCall() {
         final Token functionToken = match(Token.TokenType.CHARACTERS);
         final String functionName = functionToken.value();
-        final int expectedNumberOfArguments = this.userDefinedFunctions.get(functionName);
-        final List<ExpressionNode> expressionNodes = new ArrayList<>();
-        for (int i = 0; i < expectedNumberOfArguments; i++) {
-            expressionNodes.add(parseExpression());
-        }
-        return new FunctionCallNode(functionName, expectedNumberOfArguments, false, expressionNodes);
+        final int expectedNumberOfArguments = userDefinedFunctionArity(functionName);
+        return new FunctionCallNode(functionName, expectedNumberOfArguments, false, parseArguments(expectedNumberOfArguments));
+    }
+
+    private ExpressionNode parseReporterCall() {
+        final Token functionToken = match(Token.TokenType.CHARACTERS);
+        final String functionName = functionToken.value();
+        final int expectedNumberOfArguments = userDefinedFunctionArity(functionName);
+        return new ReporterCallNode(functionName, expectedNumberOfArguments, parseArguments(expectedNumberOfArguments));
+    }
+
+    private int userDefinedFunctionArity(final String functionName) {
+        return this.userDefinedFunctions.containsKey(functionName)
+                ? this.userDefinedFunctions.get(functionName)
+                : this.declarations.arity(functionName);
     }
 
     private boolean isAssignment() {
@@ -368,6 +508,35 @@ public class Parser {
         return new AssignmentNode(variableToken.value(), expression);
     }
 
+    private boolean isStop() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "stop");
+    }
+
+    private boolean isOutput() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "output") || lookahead(1).matches(Token.TokenType.CHARACTERS, "op");
+    }
+
+    private boolean isSetItem() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "setitem");
+    }
+
+    private StatementNode parseSetItem() {
+        match(Token.TokenType.CHARACTERS, "setitem");
+        final ExpressionNode index = parseExpression();
+        final ExpressionNode array = parseExpression();
+        final ExpressionNode value = parseExpression();
+        return new SetItemNode(index, array, value);
+    }
+
+    private boolean isRerandom() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "rerandom");
+    }
+
+    private StatementNode parseRerandom() {
+        match(Token.TokenType.CHARACTERS, "rerandom");
+        return new RerandomNode(parseExpression());
+    }
+
     private ExpressionNode parseExpression() {
         return parseOrClause();
     }
@@ -480,6 +649,21 @@ public class Parser {
         ExpressionNode expression;
         if (isBoolean()) {
             expression = parseBoolean();
+        } else if (isRepCount()) {
+            match(Token.TokenType.CHARACTERS, "repcount");
+            expression = new RepCountNode();
+        } else if (isArrayCreation()) {
+            match(Token.TokenType.CHARACTERS, "array");
+            expression = new ArrayNode(parseExpression());
+        } else if (isItem()) {
+            match(Token.TokenType.CHARACTERS, "item");
+            final ExpressionNode index = parseExpression();
+            final ExpressionNode array = parseExpression();
+            expression = new ItemNode(index, array);
+        } else if (isIntrinsic()) {
+            expression = parseIntrinsicCall();
+        } else if (isCharacters() && isUserDefinedFunction()) {
+            expression = parseReporterCall();
         } else if (isCharacters()) {
             expression = parseVariableReference();
         } else if (isNumber()) {
@@ -498,6 +682,30 @@ public class Parser {
         return isCharacters() && (lookahead(1).value().equals("true") || lookahead(1).value().equals("false"));
     }
 
+    private boolean isRepCount() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "repcount");
+    }
+
+    private boolean isIntrinsic() {
+        return isCharacters() && Intrinsics.isIntrinsic(lookahead(1).value());
+    }
+
+    private ExpressionNode parseIntrinsicCall() {
+        final Token intrinsicToken = match(Token.TokenType.CHARACTERS);
+        final Intrinsics intrinsic = Intrinsics
+                .lookup(intrinsicToken.value())
+                .orElseThrow(() -> new ParserException("Unknown intrinsic " + intrinsicToken.value() + "."));
+        return new IntrinsicCallNode(intrinsic, parseArguments(intrinsic.arity()));
+    }
+
+    private boolean isArrayCreation() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "array");
+    }
+
+    private boolean isItem() {
+        return lookahead(1).matches(Token.TokenType.CHARACTERS, "item");
+    }
+
     private ExpressionNode parseBoolean() {
         final Token booleanToken = match(Token.TokenType.CHARACTERS);
         final boolean value = booleanToken.value().equals("true");
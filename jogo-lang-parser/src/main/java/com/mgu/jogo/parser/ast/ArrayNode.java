@@ -0,0 +1,17 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Creates a new array of the given length whose elements are all <code>0</code>.
+ */
+public class ArrayNode extends ExpressionNode {
+
+    private final ExpressionNode length;
+
+    public ArrayNode(final ExpressionNode length) {
+        this.length = length;
+    }
+
+    public ExpressionNode length() {
+        return this.length;
+    }
+}
@@ -28,10 +28,34 @@ public interface ContextualTreeVisitor<T> {
 
     void visit(VariableReferenceNode node, T context);
 
+    void visit(RepCountNode node, T context);
+
+    void visit(ArrayNode node, T context);
+
+    void visit(ItemNode node, T context);
+
+    void visit(IntrinsicCallNode node, T context);
+
+    void visit(ReporterCallNode node, T context);
+
     void visit(RepeatNode node, T context);
 
     void visit(IfNode node, T context);
 
+    void visit(ForNode node, T context);
+
+    void visit(WhileNode node, T context);
+
+    void visit(HatchNode node, T context);
+
+    void visit(SetItemNode node, T context);
+
+    void visit(RerandomNode node, T context);
+
+    void visit(StopNode node, T context);
+
+    void visit(OutputNode node, T context);
+
     void visit(AssignmentNode node, T context);
 
     void visit(OrClauseNode node, T context);
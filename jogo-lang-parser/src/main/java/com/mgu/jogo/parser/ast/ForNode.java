@@ -0,0 +1,63 @@
+package com.mgu.jogo.parser.ast;
+
+import java.util.Collections;
+import java.util.List;
+
+public class ForNode extends StatementNode {
+
+    private final String variable;
+
+    private final ExpressionNode start;
+
+    private final ExpressionNode end;
+
+    private final ExpressionNode step;
+
+    private final List<StatementNode> statements;
+
+    public ForNode(
+            final String variable,
+            final ExpressionNode start,
+            final ExpressionNode end,
+            final List<StatementNode> statements) {
+        this(variable, start, end, null, statements);
+    }
+
+    public ForNode(
+            final String variable,
+            final ExpressionNode start,
+            final ExpressionNode end,
+            final ExpressionNode step,
+            final List<StatementNode> statements) {
+        this.variable = variable;
+        this.start = start;
+        this.end = end;
+        this.step = step;
+        this.statements = statements;
+    }
+
+    public String variable() {
+        return this.variable;
+    }
+
+    public ExpressionNode start() {
+        return this.start;
+    }
+
+    public ExpressionNode end() {
+        return this.end;
+    }
+
+    /**
+     * @return
+     *      Yields the expression of the step width or <code>null</code> if the loop
+     *      counts by <code>1</code> towards its end
+     */
+    public ExpressionNode step() {
+        return this.step;
+    }
+
+    public List<StatementNode> statements() {
+        return Collections.unmodifiableList(this.statements);
+    }
+}
@@ -6,16 +6,28 @@ public class FunctionCallNode extends StatementNode {
 
     private final boolean isBuiltin;
 
+    private final boolean isNative;
+
     private final String functionName;
 
     private final int arity;
 
     private final List<ExpressionNode> expressions;
 
+    /**
+     * Target of this call site as resolved by the interpreter, if any.
+     */
+    private volatile Object target;
+
     public FunctionCallNode(final String functionName, final int arity, final boolean isBuiltin, final List<ExpressionNode> expressions) {
+        this(functionName, arity, isBuiltin, false, expressions);
+    }
+
+    public FunctionCallNode(final String functionName, final int arity, final boolean isBuiltin, final boolean isNative, final List<ExpressionNode> expressions) {
         this.functionName = functionName;
         this.arity = arity;
         this.isBuiltin = isBuiltin;
+        this.isNative = isNative;
         this.expressions = expressions;
     }
 
@@ -34,4 +46,29 @@ public class FunctionCallNode extends StatementNode {
     public boolean isBuiltin() {
         return this.isBuiltin;
     }
+
+    public boolean isNative() {
+        return this.isNative;
+    }
+
+    /**
+     * Binds this call site to the object that implements the called procedure, so that
+     * subsequent calls need not resolve the procedure by its name. Binding the same call
+     * site concurrently is fine, as long as all threads bind the same target.
+     *
+     * @param target
+     *      the implementation of the called procedure
+     */
+    public void bind(final Object target) {
+        this.target = target;
+    }
+
+    /**
+     * @return
+     *      Yields the implementation this call site is bound to or <code>null</code>
+     *      if it has not been bound yet
+     */
+    public Object target() {
+        return this.target;
+    }
 }
@@ -0,0 +1,21 @@
+package com.mgu.jogo.parser.ast;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Hatches another turtle, which runs the given statements concurrently to the turtle
+ * that hatched it.
+ */
+public class HatchNode extends StatementNode {
+
+    private final List<StatementNode> statements;
+
+    public HatchNode(final List<StatementNode> statements) {
+        this.statements = statements;
+    }
+
+    public List<StatementNode> statements() {
+        return Collections.unmodifiableList(this.statements);
+    }
+}
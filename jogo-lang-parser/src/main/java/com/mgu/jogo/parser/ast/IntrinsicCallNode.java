@@ -0,0 +1,25 @@
+package com.mgu.jogo.parser.ast;
+
+import com.mgu.jogo.parser.Intrinsics;
+
+import java.util.List;
+
+public class IntrinsicCallNode extends ExpressionNode {
+
+    private final Intrinsics intrinsic;
+
+    private final List<ExpressionNode> arguments;
+
+    public IntrinsicCallNode(final Intrinsics intrinsic, final List<ExpressionNode> arguments) {
+        this.intrinsic = intrinsic;
+        this.arguments = arguments;
+    }
+
+    public Intrinsics intrinsic() {
+        return this.intrinsic;
+    }
+
+    public List<ExpressionNode> arguments() {
+        return this.arguments;
+    }
+}
@@ -0,0 +1,24 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Reports the element at the given one-based index of an array.
+ */
+public class ItemNode extends ExpressionNode {
+
+    private final ExpressionNode index;
+
+    private final ExpressionNode array;
+
+    public ItemNode(final ExpressionNode index, final ExpressionNode array) {
+        this.index = index;
+        this.array = array;
+    }
+
+    public ExpressionNode index() {
+        return this.index;
+    }
+
+    public ExpressionNode array() {
+        return this.array;
+    }
+}
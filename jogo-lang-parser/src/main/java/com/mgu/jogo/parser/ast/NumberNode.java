@@ -4,11 +4,36 @@ public class NumberNode extends ExpressionNode {
 
     private final int number;
 
+    private final double decimal;
+
+    private final boolean isDecimal;
+
     public NumberNode(final int number) {
         this.number = number;
+        this.decimal = number;
+        this.isDecimal = false;
+    }
+
+    public NumberNode(final double decimal) {
+        this.number = (int) decimal;
+        this.decimal = decimal;
+        this.isDecimal = true;
     }
 
+    /**
+     * @return
+     *      Yields the value of an integer literal or the truncated
+     *      value of a decimal literal
+     */
     public int value() {
         return this.number;
     }
-}
\ No newline at end of file
+
+    public double decimalValue() {
+        return this.decimal;
+    }
+
+    public boolean isDecimal() {
+        return this.isDecimal;
+    }
+}
@@ -0,0 +1,18 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Leaves the innermost running procedure and reports the value of the given expression
+ * to the expression that called the procedure.
+ */
+public class OutputNode extends StatementNode {
+
+    private final ExpressionNode expression;
+
+    public OutputNode(final ExpressionNode expression) {
+        this.expression = expression;
+    }
+
+    public ExpressionNode expression() {
+        return this.expression;
+    }
+}
@@ -0,0 +1,8 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Reports the number of the current iteration of the innermost <code>repeat</code>
+ * loop, starting at <code>1</code>.
+ */
+public class RepCountNode extends ExpressionNode {
+}
@@ -0,0 +1,34 @@
+package com.mgu.jogo.parser.ast;
+
+import java.util.List;
+
+/**
+ * Call of a user-defined function within an expression. The value of the call is the
+ * value the function reports using <code>output</code>.
+ */
+public class ReporterCallNode extends ExpressionNode {
+
+    private final String functionName;
+
+    private final int arity;
+
+    private final List<ExpressionNode> arguments;
+
+    public ReporterCallNode(final String functionName, final int arity, final List<ExpressionNode> arguments) {
+        this.functionName = functionName;
+        this.arity = arity;
+        this.arguments = arguments;
+    }
+
+    public String functionName() {
+        return this.functionName;
+    }
+
+    public int arity() {
+        return this.arity;
+    }
+
+    public List<ExpressionNode> arguments() {
+        return this.arguments;
+    }
+}
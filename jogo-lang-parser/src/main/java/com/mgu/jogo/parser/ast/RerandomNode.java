@@ -0,0 +1,17 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Re-seeds the random number generator that <code>random</code> draws from.
+ */
+public class RerandomNode extends StatementNode {
+
+    private final ExpressionNode seed;
+
+    public RerandomNode(final ExpressionNode seed) {
+        this.seed = seed;
+    }
+
+    public ExpressionNode seed() {
+        return this.seed;
+    }
+}
@@ -0,0 +1,31 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Replaces the element at the given one-based index of an array.
+ */
+public class SetItemNode extends StatementNode {
+
+    private final ExpressionNode index;
+
+    private final ExpressionNode array;
+
+    private final ExpressionNode value;
+
+    public SetItemNode(final ExpressionNode index, final ExpressionNode array, final ExpressionNode value) {
+        this.index = index;
+        this.array = array;
+        this.value = value;
+    }
+
+    public ExpressionNode index() {
+        return this.index;
+    }
+
+    public ExpressionNode array() {
+        return this.array;
+    }
+
+    public ExpressionNode value() {
+        return this.value;
+    }
+}
@@ -0,0 +1,7 @@
+package com.mgu.jogo.parser.ast;
+
+/**
+ * Leaves the innermost running procedure. Outside of any procedure, it ends the program.
+ */
+public class StopNode extends StatementNode {
+}
@@ -23,10 +23,34 @@ public interface TreeVisitor {
 
     void visit(VariableReferenceNode node);
 
+    void visit(RepCountNode node);
+
+    void visit(ArrayNode node);
+
+    void visit(ItemNode node);
+
+    void visit(IntrinsicCallNode node);
+
+    void visit(ReporterCallNode node);
+
     void visit(RepeatNode node);
 
     void visit(IfNode node);
 
+    void visit(ForNode node);
+
+    void visit(WhileNode node);
+
+    void visit(HatchNode node);
+
+    void visit(SetItemNode node);
+
+    void visit(RerandomNode node);
+
+    void visit(StopNode node);
+
+    void visit(OutputNode node);
+
     void visit(AssignmentNode node);
 
     void visit(OrClauseNode node);
@@ -0,0 +1,24 @@
+package com.mgu.jogo.parser.ast;
+
+import java.util.Collections;
+import java.util.List;
+
+public class WhileNode extends StatementNode {
+
+    private final ExpressionNode condition;
+
+    private final List<StatementNode> statements;
+
+    public WhileNode(final ExpressionNode condition, final List<StatementNode> statements) {
+        this.condition = condition;
+        this.statements = statements;
+    }
+
+    public ExpressionNode condition() {
+        return this.condition;
+    }
+
+    public List<StatementNode> statements() {
+        return Collections.unmodifiableList(this.statements);
+    }
+}
@@ -118,6 +118,14 @@ public class LexerTest {
         assertThat(token.value(), is("978"));
     }
 
+    @Test
+    public void nextTokenShouldReturnTokenWithCorrectTypeAndValueForDecimalNumber() {
+        final Lexer lexer = new Lexer("97.8");
+        final Token token = lexer.nextToken();
+        assertThat(token.type(), is(Token.TokenType.NUMBER));
+        assertThat(token.value(), is("97.8"));
+    }
+
     @Test
     public void nextTokenShouldReturnTokenWithCorrectTypeAndValueForCharacters() {
         final Lexer lexer = new Lexer("forward");
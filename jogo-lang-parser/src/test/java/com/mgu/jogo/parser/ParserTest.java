@@ -127,9 +127,150 @@ public class ParserTest {
         parser.parse();
     }
 
+    @Test
+    public void parseShouldMatchForWithAndWithoutStep() {
+        final String program = "for [i 1 10] [ fd i ] for [j 10 0 (-2)] [ rt j * repcount ]";
+        final Parser parser = new Parser(program);
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchWhile() {
+        final String program = "a = 0 while a < 10 [ fd a a = a + 1 ]";
+        final Parser parser = new Parser(program);
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchHatch() {
+        final String program = "hatch [ rt 90 fd 10 hatch [ fd 20 ] ] fd 10";
+        final Parser parser = new Parser(program);
+        final ProgramNode programNode = parser.parse();
+        final HatchNode hatch = (HatchNode) programNode.statementNodes().get(0);
+        assertThat(hatch.statements().size(), is(3));
+        assertThat(programNode.statementNodes().size(), is(2));
+    }
+
+    @Test
+    public void parseShouldMatchArrayCreationAccessAndUpdate() {
+        final String program = "radii = array 4 setitem 1 radii 10 fd item 1 radii";
+        final Parser parser = new Parser(program);
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchIntrinsicsInExpressions() {
+        final String program = "fd sqrt 16 + abs (-3) rt mod 370 360 lt max min 1 2 round 2.5 * cos 60";
+        final Parser parser = new Parser(program);
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchRandomAndRerandom() {
+        final String program = "rerandom 42 fd random 100 rt random 360.0";
+        final Parser parser = new Parser(program);
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchCallsOfDeclaredProcedures() {
+        final String program = "square 10 + 5 fd 10";
+        final Parser parser = new Parser(program, Declarations.none().withProcedure("square", 1));
+        final ProgramNode programNode = parser.parse();
+        final FunctionCallNode call = (FunctionCallNode) programNode.statementNodes().get(0);
+        assertThat(call.isBuiltin(), is(false));
+        assertThat(call.isNative(), is(false));
+        assertThat(call.arity(), is(1));
+        assertThat(programNode.statementNodes().size(), is(2));
+    }
+
+    @Test
+    public void parseShouldLetDeclaredProcedureShadowBuiltin() {
+        final Parser parser = new Parser("circle 10", Declarations.none().withProcedure("circle", 1));
+        final FunctionCallNode call = (FunctionCallNode) parser.parse().statementNodes().get(0);
+        assertThat(call.isBuiltin(), is(false));
+        assertThat(call.arity(), is(1));
+    }
+
+    @Test(expected = ParserException.class)
+    public void parseShouldThrowParserExceptionIfFunctionDefinitionShadowsDeclaredProcedure() {
+        final String program = "to square :size repeat 4 [ fd size rt 90 ] end";
+        final Parser parser = new Parser(program, Declarations.none().withProcedure("square", 1));
+        parser.parse();
+    }
+
+    @Test
+    public void parseShouldMatchArcAndCircle() {
+        final String program = "arc 50 (-90) circle 25.5";
+        final Parser parser = new Parser(program);
+        final ProgramNode programNode = parser.parse();
+        final FunctionCallNode arc = (FunctionCallNode) programNode.statementNodes().get(0);
+        final FunctionCallNode circle = (FunctionCallNode) programNode.statementNodes().get(1);
+        assertThat(arc.isBuiltin(), is(true));
+        assertThat(arc.arity(), is(2));
+        assertThat(circle.isBuiltin(), is(true));
+        assertThat(circle.arity(), is(1));
+    }
+
+    @Test
+    public void parseShouldLetFunctionDefinitionShadowBuiltinInSubsequentStatements() {
+        final String program = "circle 5 to circle :radius repeat 36 [ fd radius rt 10 ] end circle 10 arc 10 90";
+        final Parser parser = new Parser(program);
+        final ProgramNode programNode = parser.parse();
+        final FunctionCallNode builtinCircle = (FunctionCallNode) programNode.statementNodes().get(0);
+        final FunctionCallNode userDefinedCircle = (FunctionCallNode) programNode.statementNodes().get(2);
+        final FunctionCallNode arc = (FunctionCallNode) programNode.statementNodes().get(3);
+        assertThat(builtinCircle.isBuiltin(), is(true));
+        assertThat(userDefinedCircle.isBuiltin(), is(false));
+        assertThat(userDefinedCircle.arity(), is(1));
+        assertThat(arc.isBuiltin(), is(true));
+    }
+
+    @Test
+    public void parseShouldMatchStopAndOutput() {
+        final String program = "to half :x if x < 0 [ stop ] output x / 2 end";
+        final Parser parser = new Parser(program);
+        final ProgramNode programNode = parser.parse();
+        final FunctionDefinitionNode function = (FunctionDefinitionNode) programNode.statementNodes().get(0);
+        final IfNode ifNode = (IfNode) function.statements().get(0);
+        assertThat(ifNode.thenStatements().get(0) instanceof StopNode, is(true));
+        assertThat(function.statements().get(1) instanceof OutputNode, is(true));
+    }
+
+    @Test
+    public void parseShouldMatchCallsOfUserDefinedFunctionsWithinExpressions() {
+        final String program = "to double :x op x * 2 end forward 1 + double 3 + 4";
+        final Parser parser = new Parser(program);
+        final ProgramNode programNode = parser.parse();
+        final FunctionCallNode forward = (FunctionCallNode) programNode.statementNodes().get(1);
+        final AdditiveExpressionNode sum = (AdditiveExpressionNode) forward.arguments().get(0);
+        final ReporterCallNode call = (ReporterCallNode) ((UnaryExpressionNode) sum.augend()).expression();
+        assertThat(call.functionName(), is("double"));
+        assertThat(call.arity(), is(1));
+        assertThat(call.arguments().get(0) instanceof AdditiveExpressionNode, is(true));
+    }
+
+    @Test
+    public void parseShouldMatchCallsOfDeclaredNativeProcedures() {
+        final String program = "repeat 3 [ polygon 5 20 + 1 fd 10 ]";
+        final Parser parser = new Parser(program, Declarations.none().withNativeProcedure("polygon", 2));
+        final ProgramNode programNode = parser.parse();
+        final RepeatNode repeat = (RepeatNode) programNode.statementNodes().get(0);
+        final FunctionCallNode call = (FunctionCallNode) repeat.statements().get(0);
+        assertThat(call.isNative(), is(true));
+        assertThat(call.arity(), is(2));
+    }
+
+    @Test(expected = ParserException.class)
+    public void parseShouldThrowParserExceptionIfFunctionDefinitionShadowsNativeProcedure() {
+        final String program = "to polygon :sides :length fd length end";
+        final Parser parser = new Parser(program, Declarations.none().withNativeProcedure("polygon", 2));
+        parser.parse();
+    }
+
     @Test
     public void parseShouldMatchNestedRepeat() {
-        final String program = "to circle\n" +
+        final String program = "to unitcircle\n" +
                                "  repeat 360 [\n" +
                                "    forward 1\n" +
                                "    right 1\n" +
@@ -141,7 +282,7 @@ public class ParserTest {
 
     @Test
     public void parseShouldMatchNestedRepeatWithOuterVariableReference() {
-        final String program = "to arc :times\n" +
+        final String program = "to unitarc :times\n" +
                                "  repeat times [\n" +
                                "    forward 1\n" +
                                "    right 1\n" +
@@ -153,7 +294,7 @@ public class ParserTest {
 
     @Test
     public void parseShouldMatchNestedRepeatWithInnerVariableReference() {
-        final String program = "to arc :times :angle\n" +
+        final String program = "to unitarc :times :angle\n" +
                                "  repeat times [\n" +
                                "    forward 1\n" +
                                "    right angle\n" +